@@ -0,0 +1,82 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemBinaryCodec;
+import org.openmrs.fhir.InventoryItemJsonCodec;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryCodecBenchmark {
+	
+	@Param({ InventoryItemFixtures.MINIMAL, InventoryItemFixtures.SMALL, InventoryItemFixtures.LARGE })
+	public String size;
+	
+	private IParser hapiParser;
+	
+	private InventoryItemJsonCodec jsonCodec;
+	
+	private InventoryItemBinaryCodec binaryCodec;
+	
+	private InventoryItem item;
+	
+	private byte[] json;
+	
+	private byte[] binary;
+	
+	@Setup
+	public void setUp() {
+		FhirContext fhirContext = InventoryItemFixtures.newContext();
+		hapiParser = fhirContext.newJsonParser();
+		jsonCodec = new InventoryItemJsonCodec(fhirContext);
+		binaryCodec = new InventoryItemBinaryCodec(fhirContext);
+		item = InventoryItemFixtures.create(size);
+		json = hapiParser.encodeResourceToString(item).getBytes(StandardCharsets.UTF_8);
+		binary = binaryCodec.encode(item);
+	}
+	
+	@Benchmark
+	public byte[] encodeJson() {
+		return jsonCodec.encodeToBytes(item);
+	}
+	
+	@Benchmark
+	public byte[] encodeBinary() {
+		return binaryCodec.encode(item);
+	}
+	
+	@Benchmark
+	public InventoryItem decodeHapi() {
+		return hapiParser.parseResource(InventoryItem.class, new String(json, StandardCharsets.UTF_8));
+	}
+	
+	@Benchmark
+	public InventoryItem decodeJson() {
+		return jsonCodec.decode(json);
+	}
+	
+	@Benchmark
+	public InventoryItem decodeBinary() {
+		return binaryCodec.decode(binary);
+	}
+}
@@ -0,0 +1,91 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemBulkImport;
+import org.openmrs.fhir.InventoryItemJsonCodec;
+import org.openmrs.fhir.InventoryItemRepository;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * Items imported per second by an {@link InventoryItemBulkImport} into a repository, with storage that blocks for the
+ * given latency per item. {@code virtual} runs the items on virtual threads, which needs the multi-release JAR on Java
+ * 21; on older JVMs it falls back to the same platform thread pool as {@code platform}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@OperationsPerInvocation(BulkImportBenchmark.ITEMS)
+public class BulkImportBenchmark {
+	
+	static final int ITEMS = 2000;
+	
+	@Param({ "platform", "virtual" })
+	public String threads;
+	
+	@Param({ "0", "1" })
+	public int storageLatencyMillis;
+	
+	private FhirContext fhirContext;
+	
+	private List<String> documents;
+	
+	private InventoryItemRepository repository;
+	
+	private InventoryItemBulkImport bulkImport;
+	
+	@Setup
+	public void setUp() {
+		fhirContext = InventoryItemFixtures.newContext();
+		InventoryItemJsonCodec codec = new InventoryItemJsonCodec(fhirContext);
+		documents = new ArrayList<>(ITEMS);
+		for (int i = 0; i < ITEMS; i++) {
+			InventoryItem item = InventoryItemFixtures.create(InventoryItemFixtures.SMALL);
+			item.setId("item-" + i);
+			documents.add(codec.encodeToString(item));
+		}
+	}
+	
+	@Setup(Level.Invocation)
+	public void setUpImport() {
+		repository = new InventoryItemRepository();
+		bulkImport = InventoryItemBulkImport.builder(fhirContext).repository(repository)
+		        .sink(this::store).virtualThreads("virtual".equals(threads)).build();
+	}
+	
+	@Benchmark
+	public InventoryItemBulkImport.Result bulkImport() throws InterruptedException {
+		return bulkImport.run(documents.iterator());
+	}
+	
+	private void store(InventoryItem item) {
+		if (storageLatencyMillis > 0) {
+			try {
+				Thread.sleep(storageLatencyMillis);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
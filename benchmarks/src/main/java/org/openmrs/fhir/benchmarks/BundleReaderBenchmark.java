@@ -0,0 +1,98 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemJsonCodec;
+import org.openmrs.fhir.bundle.InventoryItemBundleReader;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+
+/**
+ * Reading the items of a searchset Bundle one entry at a time with {@link InventoryItemBundleReader}, against parsing the
+ * whole Bundle with HAPI first. Run with {@code -prof gc}: the streaming reader only keeps the current entry, while HAPI
+ * keeps every entry until the Bundle is parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleReaderBenchmark {
+	
+	@Param({ "1000", "10000" })
+	public int entries;
+	
+	private IParser jsonParser;
+	
+	private InventoryItemJsonCodec codec;
+	
+	private byte[] bundle;
+	
+	@Setup
+	public void setUp() {
+		FhirContext fhirContext = InventoryItemFixtures.newContext();
+		jsonParser = fhirContext.newJsonParser();
+		codec = new InventoryItemJsonCodec(fhirContext);
+		
+		Bundle searchset = new Bundle().setType(Bundle.BundleType.SEARCHSET).setTotal(entries);
+		for (int i = 0; i < entries; i++) {
+			InventoryItem item = InventoryItemFixtures.create(InventoryItemFixtures.SMALL);
+			item.setId("item-" + i);
+			searchset.addEntry().setFullUrl("InventoryItem/item-" + i).setResource(item).getSearch()
+			        .setMode(Bundle.SearchEntryMode.MATCH);
+		}
+		bundle = jsonParser.encodeResourceToString(searchset).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	@Benchmark
+	public int stream() throws IOException {
+		int count = 0;
+		try (InventoryItemBundleReader reader = new InventoryItemBundleReader(codec, new ByteArrayInputStream(bundle))) {
+			while (reader.hasNext()) {
+				count += reader.next().getName().size();
+			}
+		}
+		return count;
+	}
+	
+	@Benchmark
+	public int parseBundle() {
+		int count = 0;
+		Bundle parsed = jsonParser.parseResource(Bundle.class, new ByteArrayInputStream(bundle));
+		for (Bundle.BundleEntryComponent entry : parsed.getEntry()) {
+			count += ((InventoryItem) entry.getResource()).getName().size();
+		}
+		return count;
+	}
+	
+	@Benchmark
+	public InventoryItem streamFirst() throws IOException {
+		try (InventoryItemBundleReader reader = new InventoryItemBundleReader(codec, new ByteArrayInputStream(bundle))) {
+			return reader.next();
+		}
+	}
+	
+	@Benchmark
+	public InventoryItem parseBundleFirst() {
+		Bundle parsed = jsonParser.parseResource(Bundle.class, new ByteArrayInputStream(bundle));
+		return (InventoryItem) parsed.getEntryFirstRep().getResource();
+	}
+}
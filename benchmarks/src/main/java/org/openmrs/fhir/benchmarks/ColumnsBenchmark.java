@@ -0,0 +1,100 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemColumns;
+
+/**
+ * Aggregate queries over {@link InventoryItemColumns}, compared with the same queries iterating the items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ColumnsBenchmark {
+	
+	private static final String CATEGORY_SYSTEM = "http://snomed.info/sct";
+	
+	private static final String UNIT_SYSTEM = "http://unitsofmeasure.org";
+	
+	private static final String[] UNITS = { "{tbl}", "mL", "g", "{capsule}", "{vial}" };
+	
+	@Param({ "100000", "1000000" })
+	public int itemCount;
+	
+	private InventoryItem[] items;
+	
+	private InventoryItemColumns columns;
+	
+	@Setup
+	public void setUp() {
+		items = new InventoryItem[itemCount];
+		InventoryItemColumns.Builder builder = InventoryItemColumns.builder();
+		InventoryItem.InventoryItemStatusCodes[] statuses = { InventoryItem.InventoryItemStatusCodes.ACTIVE,
+		        InventoryItem.InventoryItemStatusCodes.INACTIVE, InventoryItem.InventoryItemStatusCodes.ENTEREDINERROR };
+		for (int i = 0; i < itemCount; i++) {
+			InventoryItem item = new InventoryItem(statuses[i % statuses.length]);
+			item.setId("item-" + i);
+			item.addCategory(new CodeableConcept(new Coding(CATEGORY_SYSTEM, String.valueOf(i % 50), null)));
+			item.setBaseUnit(new CodeableConcept(new Coding(UNIT_SYSTEM, UNITS[i % UNITS.length], null)));
+			items[i] = item;
+			builder.add(item);
+		}
+		columns = builder.build();
+	}
+	
+	@Benchmark
+	public int[] countByStatusColumns() {
+		return columns.countByStatus(null);
+	}
+	
+	@Benchmark
+	public int[] countByStatusItems() {
+		int[] counts = new int[InventoryItem.InventoryItemStatusCodes.values().length];
+		for (InventoryItem item : items) {
+			if (item.hasStatus()) {
+				counts[item.getStatus().ordinal()]++;
+			}
+		}
+		return counts;
+	}
+	
+	@Benchmark
+	public int[] countActiveByBaseUnitColumns() {
+		return columns.countByBaseUnit(columns.whereStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE));
+	}
+	
+	@Benchmark
+	public int[] countActiveByBaseUnitItems() {
+		int[] counts = new int[UNITS.length];
+		for (InventoryItem item : items) {
+			if (item.getStatus() == InventoryItem.InventoryItemStatusCodes.ACTIVE && item.hasBaseUnit()) {
+				Coding coding = item.getBaseUnit().getCodingFirstRep();
+				if (UNIT_SYSTEM.equals(coding.getSystem())) {
+					for (int i = 0; i < UNITS.length; i++) {
+						if (UNITS[i].equals(coding.getCode())) {
+							counts[i]++;
+						}
+					}
+				}
+			}
+		}
+		return counts;
+	}
+}
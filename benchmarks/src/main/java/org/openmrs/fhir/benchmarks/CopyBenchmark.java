@@ -0,0 +1,97 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.CopyOnWriteInventoryItem;
+import org.openmrs.fhir.InventoryItem;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CopyBenchmark {
+	
+	@Param({ InventoryItemFixtures.MINIMAL, InventoryItemFixtures.SMALL, InventoryItemFixtures.LARGE })
+	public String size;
+	
+	private InventoryItem item;
+	
+	private InventoryItem equalItem;
+	
+	private InventoryItem differentItem;
+	
+	@Setup
+	public void setUp() {
+		item = InventoryItemFixtures.create(size);
+		equalItem = InventoryItemFixtures.create(size);
+		differentItem = InventoryItemFixtures.create(size);
+		differentItem.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+	}
+	
+	@Benchmark
+	public InventoryItem copy() {
+		return item.copy();
+	}
+	
+	@Benchmark
+	public InventoryItem copyOnWrite() {
+		return CopyOnWriteInventoryItem.copyOf(item);
+	}
+	
+	@Benchmark
+	public InventoryItem copySetStatus() {
+		return item.copy().setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+	}
+	
+	@Benchmark
+	public InventoryItem copyOnWriteSetStatus() {
+		return CopyOnWriteInventoryItem.copyOf(item).setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+	}
+	
+	@Benchmark
+	public InventoryItem copyOnWriteModifyName() {
+		CopyOnWriteInventoryItem copy = CopyOnWriteInventoryItem.copyOf(item);
+		copy.getNameFirstRep().setName("Updated");
+		return copy;
+	}
+	
+	@Benchmark
+	public InventoryItem freeze() {
+		return item.freeze();
+	}
+	
+	@Benchmark
+	public InventoryItem copyValues() {
+		InventoryItem dst = new InventoryItem();
+		item.copyValues(dst);
+		return dst;
+	}
+	
+	@Benchmark
+	public boolean equalsDeepEqual() {
+		return item.equalsDeep(equalItem);
+	}
+	
+	@Benchmark
+	public boolean equalsDeepDifferent() {
+		return item.equalsDeep(differentItem);
+	}
+	
+	@Benchmark
+	public boolean isEmpty() {
+		return item.isEmpty();
+	}
+}
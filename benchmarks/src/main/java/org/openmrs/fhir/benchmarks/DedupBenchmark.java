@@ -0,0 +1,72 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemDeduplicator;
+
+/**
+ * Deduplicating an import in which every item occurs twice: comparing each item with the distinct items so far, against
+ * bucketing the items by their {@link InventoryItem#hashDeep()} with {@link InventoryItemDeduplicator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DedupBenchmark {
+	
+	@Param({ "500", "2000" })
+	public int count;
+	
+	private List<InventoryItem> items;
+	
+	@Setup
+	public void setUp() {
+		items = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			InventoryItem item = InventoryItemFixtures.create(InventoryItemFixtures.SMALL);
+			item.getIdentifierFirstRep().setValue("SKU-" + i % (count / 2));
+			items.add(item);
+		}
+	}
+	
+	@Benchmark
+	public List<InventoryItem> pairwise() {
+		List<InventoryItem> distinct = new ArrayList<>();
+		for (InventoryItem item : items) {
+			if (!contains(distinct, item)) {
+				distinct.add(item);
+			}
+		}
+		return distinct;
+	}
+	
+	@Benchmark
+	public List<InventoryItem> byHash() {
+		return InventoryItemDeduplicator.distinct(items);
+	}
+	
+	private static boolean contains(List<InventoryItem> items, InventoryItem item) {
+		for (InventoryItem other : items) {
+			if (other.equalsDeep(item)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,122 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Quantity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.CodingInterner;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemJsonCodec;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * Decoding a catalog whose items repeat a small number of codings, without a {@link CodingInterner}, interning the
+ * strings of the codings, and sharing the codings. The setup decodes the whole catalog and prints the heap it retains,
+ * the benchmark measures decoding single items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InterningBenchmark {
+	
+	private static final String NAME_TYPE_SYSTEM = "http://hl7.org/fhir/inventoryitem-nametype";
+	
+	private static final String[] CATEGORIES = { "medication", "consumable", "device", "reagent", "nutrition" };
+	
+	private static final String[] STATUSES = { "in-use", "on-order", "discontinued" };
+	
+	private static final String[] UNITS = { "tablet", "capsule", "mL", "mg", "unit" };
+	
+	@Param({ "none", "strings", "codings" })
+	public String interning;
+	
+	@Param({ "100000" })
+	public int itemCount;
+	
+	private InventoryItemJsonCodec codec;
+	
+	private byte[][] catalog;
+	
+	private InventoryItem[] decoded;
+	
+	private int next;
+	
+	@Setup
+	public void setUp() {
+		FhirContext fhirContext = InventoryItemFixtures.newContext();
+		InventoryItemJsonCodec plainCodec = new InventoryItemJsonCodec(fhirContext, null);
+		catalog = new byte[itemCount][];
+		for (int i = 0; i < itemCount; i++) {
+			catalog[i] = plainCodec.encodeToBytes(item(i));
+		}
+		
+		CodingInterner interner = "none".equals(interning) ? null : new CodingInterner(100_000, "codings".equals(interning));
+		codec = new InventoryItemJsonCodec(fhirContext, interner);
+		long before = usedHeap();
+		decoded = new InventoryItem[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			decoded[i] = codec.decode(catalog[i]);
+		}
+		long retained = usedHeap() - before;
+		System.out.printf("%nRetained heap of %d items, interning %s: %.1f MB (%d bytes per item)%n", itemCount,
+		    interning, retained / 1e6, retained / itemCount);
+		decoded = null;
+	}
+	
+	@Benchmark
+	public InventoryItem decode() {
+		next = (next + 7919) % itemCount;
+		return codec.decode(catalog[next]);
+	}
+	
+	/**
+	 * An item with a catalog identifier, a category, one of 2000 product codes, two names, an inventory status, a base
+	 * unit and a net content, like an item of a pharmacy catalog.
+	 */
+	private static InventoryItem item(int index) {
+		InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		item.setId("item-" + index);
+		item.addIdentifier().setSystem("http://example.org/fhir/sid/catalog").setValue("ITEM-" + index);
+		item.addCategory(new CodeableConcept(
+		        new Coding("http://example.org/fhir/item-category", CATEGORIES[index % CATEGORIES.length], null)));
+		int product = index % 2000;
+		item.addCode(new CodeableConcept(
+		        new Coding("http://snomed.info/sct", String.valueOf(300000000 + product), "Product " + product)));
+		item.addName(new InventoryItem.InventoryItemNameComponent(new Coding(NAME_TYPE_SYSTEM, "brand-name", null),
+		        "Brand " + index));
+		item.addName(new InventoryItem.InventoryItemNameComponent(new Coding(NAME_TYPE_SYSTEM, "common-name", null),
+		        "Product " + product));
+		item.addInventoryStatus(new CodeableConcept(
+		        new Coding("http://example.org/fhir/inventory-status", STATUSES[index % STATUSES.length], null)));
+		String unit = UNITS[index % UNITS.length];
+		item.setBaseUnit(new CodeableConcept(new Coding("http://unitsofmeasure.org", unit, unit)));
+		item.setNetContent(new Quantity().setValue(new BigDecimal(10 * (index % 20 + 1))).setUnit(unit)
+		        .setSystem("http://unitsofmeasure.org").setCode(unit));
+		return item;
+	}
+	
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,74 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.math.BigDecimal;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Quantity;
+import org.openmrs.fhir.InventoryItem;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * Builds {@link InventoryItem} payloads of increasing size for the benchmark suites.
+ */
+public final class InventoryItemFixtures {
+	
+	public static final String MINIMAL = "minimal";
+	
+	public static final String SMALL = "small";
+	
+	public static final String LARGE = "large";
+	
+	private static final String NAME_TYPE_SYSTEM = "http://hl7.org/fhir/inventoryitem-nametype";
+	
+	private static final String[] NAME_TYPES = { "brand-name", "functional-name", "common-name" };
+	
+	private InventoryItemFixtures() {
+	}
+	
+	public static FhirContext newContext() {
+		FhirContext fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+		return fhirContext;
+	}
+	
+	/**
+	 * @param size one of {@link #MINIMAL}, {@link #SMALL} or {@link #LARGE}
+	 * @return a fully populated item whose repeating elements have a size-dependent number of entries
+	 */
+	public static InventoryItem create(String size) {
+		switch (size) {
+			case MINIMAL:
+				return new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+			case SMALL:
+				return create(2);
+			case LARGE:
+				return create(36);
+			default:
+				throw new IllegalArgumentException("Unknown payload size '" + size + "'");
+		}
+	}
+	
+	public static InventoryItem create(int entries) {
+		InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		item.setId("inventory-item-" + entries);
+		for (int i = 0; i < entries; i++) {
+			item.addIdentifier().setSystem("http://example.org/fhir/sid/catalog").setValue("ITEM-" + i);
+			item.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", String.valueOf(100000 + i), "Product " + i)));
+			item.addName(new InventoryItem.InventoryItemNameComponent(
+			        new Coding(NAME_TYPE_SYSTEM, NAME_TYPES[i % NAME_TYPES.length], null), "Item name " + i));
+		}
+		if (entries > 0) {
+			item.addCategory(new CodeableConcept(new Coding("http://example.org/fhir/item-category", "medication", null)));
+			item.addInventoryStatus(
+			    new CodeableConcept(new Coding("http://example.org/fhir/inventory-status", "in-use", "In use")));
+			item.setDescription(new InventoryItem.InventoryItemDescriptionComponent()
+			        .setDescription("Inventory item with " + entries + " entries"));
+			item.setBaseUnit(new CodeableConcept(new Coding("http://unitsofmeasure.org", "mL", "millilitre")));
+			item.setNetContent(new Quantity().setValue(new BigDecimal("250")).setUnit("mL")
+			        .setSystem("http://unitsofmeasure.org").setCode("mL"));
+		}
+		return item;
+	}
+}
@@ -0,0 +1,91 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemJsonCodec;
+import org.openmrs.fhir.LazyInventoryItem;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+	
+	@Param({ InventoryItemFixtures.MINIMAL, InventoryItemFixtures.SMALL, InventoryItemFixtures.LARGE })
+	public String size;
+	
+	private IParser hapiParser;
+	
+	private InventoryItemJsonCodec codec;
+	
+	private InventoryItem item;
+	
+	private String json;
+	
+	private byte[] jsonBytes;
+	
+	@Setup
+	public void setUp() {
+		FhirContext fhirContext = InventoryItemFixtures.newContext();
+		hapiParser = fhirContext.newJsonParser();
+		codec = new InventoryItemJsonCodec(fhirContext);
+		item = InventoryItemFixtures.create(size);
+		json = hapiParser.encodeResourceToString(item);
+		jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	@Benchmark
+	public InventoryItem decodeHapi() {
+		return hapiParser.parseResource(InventoryItem.class, json);
+	}
+	
+	@Benchmark
+	public InventoryItem decodeCodec() {
+		return codec.decode(jsonBytes);
+	}
+	
+	@Benchmark
+	public InventoryItem.InventoryItemStatusCodes decodeCodecReadStatus() {
+		return codec.decode(jsonBytes).getStatus();
+	}
+	
+	@Benchmark
+	public InventoryItem.InventoryItemStatusCodes decodeLazilyReadStatus() {
+		return codec.decodeLazily(jsonBytes).getStatus();
+	}
+	
+	@Benchmark
+	public byte[] decodeLazilyReadStatusEncode() {
+		LazyInventoryItem lazyItem = codec.decodeLazily(jsonBytes);
+		lazyItem.getStatus();
+		return codec.encodeToBytes(lazyItem);
+	}
+	
+	@Benchmark
+	public String encodeHapi() {
+		return hapiParser.encodeResourceToString(item);
+	}
+	
+	@Benchmark
+	public String encodeCodec() {
+		return codec.encodeToString(item);
+	}
+}
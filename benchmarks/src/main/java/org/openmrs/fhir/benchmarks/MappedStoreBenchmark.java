@@ -0,0 +1,112 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.MappedInventoryItemStore;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * Reads and writes against a {@link MappedInventoryItemStore}, and reopening it. The heap holds none of the items, so
+ * the benchmark runs with a small heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class MappedStoreBenchmark {
+	
+	@Param({ "100000", "1000000" })
+	public int itemCount;
+	
+	private FhirContext fhirContext;
+	
+	private Path directory;
+	
+	private MappedInventoryItemStore store;
+	
+	private int next;
+	
+	@Setup
+	public void setUp() throws IOException {
+		fhirContext = InventoryItemFixtures.newContext();
+		directory = Files.createTempDirectory("inventory-item-store");
+		store = MappedInventoryItemStore.open(directory, fhirContext);
+		for (int i = 0; i < itemCount; i++) {
+			store.put(item(i, InventoryItem.InventoryItemStatusCodes.ACTIVE));
+		}
+		store.flush();
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		store.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+	
+	@Benchmark
+	public InventoryItem get() {
+		return store.get("item-" + nextIndex());
+	}
+	
+	@Benchmark
+	public boolean contains() {
+		return store.contains("item-" + nextIndex());
+	}
+	
+	@Benchmark
+	public boolean put() throws IOException {
+		int index = nextIndex();
+		return store.put(item(index, index % 2 == 0 ? InventoryItem.InventoryItemStatusCodes.INACTIVE
+		        : InventoryItem.InventoryItemStatusCodes.ACTIVE));
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 5)
+	public int reopen() throws IOException {
+		store.close();
+		store = MappedInventoryItemStore.open(directory, fhirContext);
+		return store.size();
+	}
+	
+	private int nextIndex() {
+		next = (next + 7919) % itemCount;
+		return next;
+	}
+	
+	private static InventoryItem item(int index, InventoryItem.InventoryItemStatusCodes status) {
+		InventoryItem item = new InventoryItem(status);
+		item.setId("item-" + index);
+		item.addIdentifier().setSystem("urn:catalog").setValue(String.valueOf(index));
+		item.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", String.valueOf(index / 10), null)));
+		item.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "common-name", null), "Item " + index));
+		return item;
+	}
+}
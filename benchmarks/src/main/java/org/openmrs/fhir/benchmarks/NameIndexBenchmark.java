@@ -0,0 +1,111 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.Coding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemNameIndex;
+
+/**
+ * Typeahead searches for the top ten names starting with a short and a longer prefix in an
+ * {@link InventoryItemNameIndex}, compared with scanning the names for the same matches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NameIndexBenchmark {
+	
+	private static final String NAME_TYPE_SYSTEM = "http://hl7.org/fhir/inventoryitem-nametype";
+	
+	private static final String[] SYLLABLES = { "pa", "ra", "ce", "ta", "mol", "ibu", "pro", "fen", "amo", "xi", "cil",
+	        "lin", "met", "for", "min", "dol", "zol", "vir" };
+	
+	private static final String[] FORMS = { "tablet", "capsule", "oral suspension", "injection", "cream" };
+	
+	private static final int LIMIT = 10;
+	
+	@Param({ "100000" })
+	public int itemCount;
+	
+	@Param({ "pa", "paracemol" })
+	public String prefix;
+	
+	private InventoryItemNameIndex index;
+	
+	private InventoryItem[] items;
+	
+	@Setup
+	public void setUp() {
+		index = new InventoryItemNameIndex();
+		items = new InventoryItem[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+			item.addName(new InventoryItem.InventoryItemNameComponent(new Coding(NAME_TYPE_SYSTEM, "brand-name", null),
+			        capitalize(word(i * 7919L))));
+			item.addName(new InventoryItem.InventoryItemNameComponent(new Coding(NAME_TYPE_SYSTEM, "common-name", null),
+			        capitalize(word(i)) + " " + (i % 50 + 1) * 10 + " mg " + FORMS[i % FORMS.length]));
+			items[i] = item;
+			index.add("item-" + i, item);
+		}
+	}
+	
+	@Benchmark
+	public List<InventoryItemNameIndex.Match> index() {
+		return index.search(null, prefix, LIMIT);
+	}
+	
+	@Benchmark
+	public List<InventoryItemNameIndex.Match> indexByNameType() {
+		return index.search("common-name", prefix, LIMIT);
+	}
+	
+	/**
+	 * Finds the names containing the prefix at the start of a word and keeps the first ten, which is cheaper than the
+	 * ranking the index does.
+	 */
+	@Benchmark
+	public List<String> scan() {
+		List<String> matches = new ArrayList<>(LIMIT);
+		for (InventoryItem item : items) {
+			for (InventoryItem.InventoryItemNameComponent name : item.getName()) {
+				String text = name.getName().toLowerCase(Locale.ROOT);
+				int start = text.indexOf(prefix);
+				if (start == 0 || start > 0 && text.charAt(start - 1) == ' ') {
+					matches.add(name.getName());
+					break;
+				}
+			}
+		}
+		return matches.size() > LIMIT ? matches.subList(0, LIMIT) : matches;
+	}
+	
+	private static String word(long seed) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 4; i++) {
+			builder.append(SYLLABLES[(int) (seed % SYLLABLES.length)]);
+			seed = seed / SYLLABLES.length + i * 31;
+		}
+		return builder.toString();
+	}
+	
+	private static String capitalize(String word) {
+		return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+	}
+}
@@ -0,0 +1,97 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.Quantity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemRepository;
+
+/**
+ * Net content range searches over items in {@code mL}, {@code cL} and {@code L}, using the sorted index of the
+ * {@link InventoryItemRepository}, compared with scanning the items and converting each net content to millilitres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NetContentSearchBenchmark {
+	
+	private static final String UCUM = "http://unitsofmeasure.org";
+	
+	private static final String[] UNITS = { "mL", "cL", "L" };
+	
+	private static final BigDecimal LOW = new BigDecimal("250");
+	
+	private static final BigDecimal HIGH = new BigDecimal("300");
+	
+	@Param({ "100000" })
+	public int itemCount;
+	
+	private InventoryItemRepository repository;
+	
+	private InventoryItem[] items;
+	
+	private Map<String, BigDecimal> millilitres;
+	
+	@Setup
+	public void setUp() {
+		repository = new InventoryItemRepository();
+		items = new InventoryItem[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+			item.setId("item-" + i);
+			String unit = UNITS[i % UNITS.length];
+			BigDecimal value = BigDecimal.valueOf((i * 7919L) % 5000 + 1);
+			if ("cL".equals(unit)) {
+				value = value.movePointLeft(1);
+			} else if ("L".equals(unit)) {
+				value = value.movePointLeft(3);
+			}
+			item.setNetContent(new Quantity().setValue(value).setSystem(UCUM).setCode(unit));
+			items[i] = item;
+			repository.create(item);
+		}
+		
+		millilitres = new HashMap<>();
+		millilitres.put("mL", BigDecimal.ONE);
+		millilitres.put("cL", BigDecimal.TEN);
+		millilitres.put("L", new BigDecimal("1000"));
+	}
+	
+	@Benchmark
+	public List<String> index() {
+		return repository.searchIds(InventoryItem.SP_NET_CONTENT, Arrays.asList("ge250||mL", "le300||mL"));
+	}
+	
+	@Benchmark
+	public List<String> scan() {
+		List<String> ids = new ArrayList<>();
+		for (InventoryItem item : items) {
+			Quantity netContent = item.getNetContent();
+			BigDecimal value = netContent.getValue().multiply(millilitres.get(netContent.getCode()));
+			if (value.compareTo(LOW) >= 0 && value.compareTo(HIGH) <= 0) {
+				ids.add(item.getIdElement().getIdPart());
+			}
+		}
+		return ids;
+	}
+}
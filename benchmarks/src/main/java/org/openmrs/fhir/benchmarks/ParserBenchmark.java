@@ -0,0 +1,71 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+	
+	@Param({ InventoryItemFixtures.MINIMAL, InventoryItemFixtures.SMALL, InventoryItemFixtures.LARGE })
+	public String size;
+	
+	private IParser jsonParser;
+	
+	private IParser xmlParser;
+	
+	private InventoryItem item;
+	
+	private String json;
+	
+	private String xml;
+	
+	@Setup
+	public void setUp() {
+		FhirContext fhirContext = InventoryItemFixtures.newContext();
+		jsonParser = fhirContext.newJsonParser();
+		xmlParser = fhirContext.newXmlParser();
+		item = InventoryItemFixtures.create(size);
+		json = jsonParser.encodeResourceToString(item);
+		xml = xmlParser.encodeResourceToString(item);
+	}
+	
+	@Benchmark
+	public InventoryItem parseJson() {
+		return jsonParser.parseResource(InventoryItem.class, json);
+	}
+	
+	@Benchmark
+	public String encodeJson() {
+		return jsonParser.encodeResourceToString(item);
+	}
+	
+	@Benchmark
+	public InventoryItem parseXml() {
+		return xmlParser.parseResource(InventoryItem.class, xml);
+	}
+	
+	@Benchmark
+	public String encodeXml() {
+		return xmlParser.encodeResourceToString(item);
+	}
+}
@@ -0,0 +1,82 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.Parameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemJsonCodec;
+import org.openmrs.fhir.InventoryItemPatch;
+
+/**
+ * Diffing two versions of an item that only differ in their inventory status, against sending the whole new version.
+ * Run with {@code -prof gc} to see that diffing equal items does not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatchBenchmark {
+	
+	@Param({ InventoryItemFixtures.SMALL, InventoryItemFixtures.LARGE })
+	public String size;
+	
+	private InventoryItemJsonCodec jsonCodec;
+	
+	private InventoryItem item;
+	
+	private InventoryItem same;
+	
+	private InventoryItem changed;
+	
+	private String jsonPatch;
+	
+	@Setup
+	public void setUp() {
+		jsonCodec = new InventoryItemJsonCodec(InventoryItemFixtures.newContext());
+		item = InventoryItemFixtures.create(size);
+		same = InventoryItemFixtures.create(size);
+		changed = InventoryItemFixtures.create(size);
+		changed.getInventoryStatusFirstRep().getCodingFirstRep().setCode("on-hold").setDisplay("On hold");
+		jsonPatch = InventoryItemPatch.toJsonPatch(item, changed);
+	}
+	
+	@Benchmark
+	public String encodeWholeItem() {
+		return jsonCodec.encodeToString(changed);
+	}
+	
+	@Benchmark
+	public Parameters diffEqual() {
+		return InventoryItemPatch.toFhirPatch(item, same);
+	}
+	
+	@Benchmark
+	public Parameters diffToFhirPatch() {
+		return InventoryItemPatch.toFhirPatch(item, changed);
+	}
+	
+	@Benchmark
+	public String diffToJsonPatch() {
+		return InventoryItemPatch.toJsonPatch(item, changed);
+	}
+	
+	@Benchmark
+	public InventoryItem applyJsonPatch() {
+		InventoryItem copy = item.copy();
+		InventoryItemPatch.applyJsonPatch(copy, jsonPatch);
+		return copy;
+	}
+}
@@ -0,0 +1,161 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.hl7.fhir.r4.hapi.ctx.HapiWorkerContext;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.ExpressionNode;
+import org.hl7.fhir.r4.utils.FHIRPathEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemPath;
+import org.openmrs.fhir.MemberPath;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
+
+/**
+ * Compiled {@link InventoryItemPath} expressions against interpreting them with HAPI's {@link FHIRPathEngine}, and
+ * against {@link MemberPath} for a plain member chain. The loops through {@code getProperty} written for each
+ * expression are the lower bound: the JIT inlines every call in them and removes the arrays they allocate, which the
+ * shared steps of a compiled expression do not allow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark {
+	
+	@Param({ InventoryItemFixtures.SMALL, InventoryItemFixtures.LARGE })
+	public String size;
+	
+	private InventoryItem item;
+	
+	private InventoryItemPath brandNames;
+	
+	private InventoryItemPath nameTypeCodes;
+	
+	private InventoryItemPath hasCatalogIdentifier;
+	
+	private MemberPath nameTypeCodesMemberPath;
+	
+	private FHIRPathEngine fhirPathEngine;
+	
+	private ExpressionNode brandNamesExpression;
+	
+	private ExpressionNode nameTypeCodesExpression;
+	
+	private ExpressionNode hasCatalogIdentifierExpression;
+	
+	private Consumer<Base> sink;
+	
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		item = InventoryItemFixtures.create(size);
+		String brandNamesPath = "name.where(nameType.code = 'brand-name').name";
+		String nameTypeCodesPath = "InventoryItem.name.nameType.code";
+		String hasCatalogIdentifierPath = "identifier.where(system = 'http://example.org/fhir/sid/catalog'"
+		        + " and value = 'ITEM-1').exists()";
+		brandNames = InventoryItemPath.compile(brandNamesPath);
+		nameTypeCodes = InventoryItemPath.compile(nameTypeCodesPath);
+		hasCatalogIdentifier = InventoryItemPath.compile(hasCatalogIdentifierPath);
+		nameTypeCodesMemberPath = MemberPath.parse(nameTypeCodesPath);
+		sink = blackhole::consume;
+		
+		FhirContext fhirContext = InventoryItemFixtures.newContext();
+		fhirPathEngine = new FHIRPathEngine(
+		        new HapiWorkerContext(fhirContext, new DefaultProfileValidationSupport(fhirContext)));
+		brandNamesExpression = fhirPathEngine.parse(brandNamesPath);
+		nameTypeCodesExpression = fhirPathEngine.parse(nameTypeCodesPath);
+		hasCatalogIdentifierExpression = fhirPathEngine.parse(hasCatalogIdentifierPath);
+	}
+	
+	@Benchmark
+	public void brandNamesGetProperty(Blackhole blackhole) {
+		for (Base name : item.getProperty(3373707, "name", false)) {
+			Base[] nameTypes = name.getProperty(1840595045, "nameType", false);
+			if (nameTypes.length == 1) {
+				Base[] codes = nameTypes[0].getProperty(3059181, "code", false);
+				if (codes.length == 1 && "brand-name".equals(codes[0].primitiveValue())) {
+					for (Base value : name.getProperty(3373707, "name", false)) {
+						blackhole.consume(value);
+					}
+				}
+			}
+		}
+	}
+	
+	@Benchmark
+	public List<Base> brandNamesInterpreted() {
+		return fhirPathEngine.evaluate(item, brandNamesExpression);
+	}
+	
+	@Benchmark
+	public void brandNamesCompiled() {
+		brandNames.evaluate(item, sink);
+	}
+	
+	@Benchmark
+	public void nameTypeCodesGetProperty(Blackhole blackhole) {
+		for (Base name : item.getProperty(3373707, "name", false)) {
+			for (Base nameType : name.getProperty(1840595045, "nameType", false)) {
+				for (Base code : nameType.getProperty(3059181, "code", false)) {
+					blackhole.consume(code);
+				}
+			}
+		}
+	}
+	
+	@Benchmark
+	public List<Base> nameTypeCodesInterpreted() {
+		return fhirPathEngine.evaluate(item, nameTypeCodesExpression);
+	}
+	
+	@Benchmark
+	public void nameTypeCodesMemberPath() {
+		nameTypeCodesMemberPath.evaluate(item, sink);
+	}
+	
+	@Benchmark
+	public void nameTypeCodesCompiled() {
+		nameTypeCodes.evaluate(item, sink);
+	}
+	
+	@Benchmark
+	public boolean hasCatalogIdentifierGetProperty() {
+		for (Base identifier : item.getProperty(-1618432855, "identifier", false)) {
+			Base[] systems = identifier.getProperty(-887328209, "system", false);
+			Base[] values = identifier.getProperty(111972721, "value", false);
+			if (systems.length == 1 && "http://example.org/fhir/sid/catalog".equals(systems[0].primitiveValue())
+			        && values.length == 1 && "ITEM-1".equals(values[0].primitiveValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Benchmark
+	public boolean hasCatalogIdentifierInterpreted() {
+		return fhirPathEngine.convertToBoolean(fhirPathEngine.evaluate(item, hasCatalogIdentifierExpression));
+	}
+	
+	@Benchmark
+	public boolean hasCatalogIdentifierCompiled() {
+		return hasCatalogIdentifier.test(item);
+	}
+}
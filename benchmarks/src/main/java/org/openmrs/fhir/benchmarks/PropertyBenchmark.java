@@ -0,0 +1,112 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Quantity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.MemberPath;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyBenchmark {
+	
+	private static final String[] PROPERTY_NAMES = { "identifier", "status", "category", "code", "name", "description",
+	        "inventoryStatus", "baseUnit", "netContent" };
+	
+	@Param({ InventoryItemFixtures.MINIMAL, InventoryItemFixtures.SMALL, InventoryItemFixtures.LARGE })
+	public String size;
+	
+	private InventoryItem item;
+	
+	private int[] hashes;
+	
+	private CodeType status;
+	
+	private CodeableConcept baseUnit;
+	
+	private Quantity netContent;
+	
+	private MemberPath nameTypeCodePath;
+	
+	private Consumer<Base> sink;
+	
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		item = InventoryItemFixtures.create(size);
+		hashes = new int[PROPERTY_NAMES.length];
+		for (int i = 0; i < PROPERTY_NAMES.length; i++) {
+			hashes[i] = PROPERTY_NAMES[i].hashCode();
+		}
+		status = new CodeType("inactive");
+		baseUnit = item.hasBaseUnit() ? item.getBaseUnit() : new CodeableConcept();
+		netContent = item.hasNetContent() ? item.getNetContent() : new Quantity();
+		nameTypeCodePath = MemberPath.parse("InventoryItem.name.nameType.code");
+		sink = blackhole::consume;
+	}
+	
+	@Benchmark
+	public void getPropertyAllChildren(Blackhole blackhole) {
+		for (int i = 0; i < hashes.length; i++) {
+			blackhole.consume(item.getProperty(hashes[i], PROPERTY_NAMES[i], false));
+		}
+	}
+	
+	@Benchmark
+	public void forEachChildAllChildren() {
+		for (int i = 0; i < hashes.length; i++) {
+			item.forEachChild(hashes[i], PROPERTY_NAMES[i], sink);
+		}
+	}
+	
+	@Benchmark
+	public void getPropertyNameTypeCodes(Blackhole blackhole) {
+		for (Base name : item.getProperty(3373707, "name", false)) {
+			for (Base nameType : name.getProperty(1840595045, "nameType", false)) {
+				for (Base code : nameType.getProperty(3059181, "code", false)) {
+					blackhole.consume(code);
+				}
+			}
+		}
+	}
+	
+	@Benchmark
+	public void memberPathNameTypeCodes() {
+		nameTypeCodePath.evaluate(item, sink);
+	}
+	
+	@Benchmark
+	public Base setPropertyStatusByHash() {
+		return item.setProperty(-892481550, "status", status);
+	}
+	
+	@Benchmark
+	public Base setPropertyStatusByName() {
+		return item.setProperty("status", status);
+	}
+	
+	@Benchmark
+	public void setPropertySingletons(Blackhole blackhole) {
+		blackhole.consume(item.setProperty(-1721465867, "baseUnit", baseUnit));
+		blackhole.consume(item.setProperty(612796444, "netContent", netContent));
+	}
+}
@@ -0,0 +1,95 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemR5Converter;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+
+/**
+ * Converting R5 items with {@link InventoryItemR5Converter}, against HAPI parsing and encoding the same items as R4 JSON
+ * with the cross-version extensions, which is the R4 half of converting through the R5 and R4 object models.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class R5ConverterBenchmark {
+	
+	@Param({ InventoryItemFixtures.SMALL, InventoryItemFixtures.LARGE })
+	public String size;
+	
+	private InventoryItemR5Converter converter;
+	
+	private IParser jsonParser;
+	
+	private InventoryItem item;
+	
+	private byte[] r5;
+	
+	private String r4;
+	
+	@Setup
+	public void setUp() {
+		FhirContext fhirContext = InventoryItemFixtures.newContext();
+		converter = new InventoryItemR5Converter(fhirContext);
+		jsonParser = fhirContext.newJsonParser();
+		
+		item = InventoryItemFixtures.create(size);
+		Extension instance = new Extension(InventoryItemR5Converter.EXTENSION_INSTANCE);
+		instance.addExtension("identifier", new Identifier().setSystem("urn:serial").setValue("S-1"));
+		instance.addExtension("lotNumber", new StringType("LOT-2024-17"));
+		instance.addExtension("expiry", new DateTimeType("2027-03-31"));
+		instance.addExtension("location", new Reference("Location/pharmacy"));
+		item.addExtension(instance);
+		Extension characteristic = new Extension(InventoryItemR5Converter.EXTENSION_CHARACTERISTIC);
+		characteristic.addExtension("characteristicType", new CodeableConcept().setText("colour"));
+		characteristic.addExtension("value", new StringType("white"));
+		item.addExtension(characteristic);
+		
+		r5 = converter.toR5(item).getBytes(StandardCharsets.UTF_8);
+		r4 = jsonParser.encodeResourceToString(item);
+	}
+	
+	@Benchmark
+	public InventoryItem fromR5() {
+		return converter.fromR5(r5);
+	}
+	
+	@Benchmark
+	public InventoryItem parseR4WithHapi() {
+		return jsonParser.parseResource(InventoryItem.class, r4);
+	}
+	
+	@Benchmark
+	public String toR5() {
+		return converter.toR5(item);
+	}
+	
+	@Benchmark
+	public String encodeR4WithHapi() {
+		return jsonParser.encodeResourceToString(item);
+	}
+}
@@ -0,0 +1,103 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemRepository;
+
+/**
+ * Token searches against an {@link InventoryItemRepository}, compared with a linear scan over the same items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class RepositoryBenchmark {
+	
+	private static final String CODE_SYSTEM = "http://snomed.info/sct";
+	
+	@Param({ "100000", "1000000" })
+	public int itemCount;
+	
+	private InventoryItemRepository repository;
+	
+	private InventoryItem[] items;
+	
+	private int next;
+	
+	@Setup
+	public void setUp() {
+		repository = new InventoryItemRepository();
+		items = new InventoryItem[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			items[i] = item(i, InventoryItem.InventoryItemStatusCodes.ACTIVE);
+			repository.create(items[i]);
+		}
+	}
+	
+	@Benchmark
+	public List<String> searchIdentifier() {
+		return repository.searchIds(InventoryItem.SP_IDENTIFIER, "urn:catalog|" + nextIndex());
+	}
+	
+	@Benchmark
+	public List<InventoryItem> searchCode() {
+		return repository.search(InventoryItem.SP_CODE, CODE_SYSTEM + "|" + (nextIndex() % (itemCount / 10)));
+	}
+	
+	@Benchmark
+	public int countStatus() {
+		return repository.count(InventoryItem.SP_STATUS, "active");
+	}
+	
+	@Benchmark
+	public boolean update() {
+		int index = nextIndex();
+		return repository.update(item(index, index % 2 == 0 ? InventoryItem.InventoryItemStatusCodes.INACTIVE
+		        : InventoryItem.InventoryItemStatusCodes.ACTIVE));
+	}
+	
+	@Benchmark
+	public int scanCode() {
+		String code = String.valueOf(nextIndex() % (itemCount / 10));
+		int matches = 0;
+		for (InventoryItem item : items) {
+			for (Coding coding : item.getCodeFirstRep().getCoding()) {
+				if (CODE_SYSTEM.equals(coding.getSystem()) && code.equals(coding.getCode())) {
+					matches++;
+				}
+			}
+		}
+		return matches;
+	}
+	
+	private int nextIndex() {
+		next = (next + 7919) % itemCount;
+		return next;
+	}
+	
+	private static InventoryItem item(int index, InventoryItem.InventoryItemStatusCodes status) {
+		InventoryItem item = new InventoryItem(status);
+		item.setId("item-" + index);
+		item.addIdentifier().setSystem("urn:catalog").setValue(String.valueOf(index));
+		// every code is shared by ten items
+		item.addCode(new CodeableConcept(new Coding(CODE_SYSTEM, String.valueOf(index / 10), null)));
+		return item;
+	}
+}
@@ -0,0 +1,137 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.r4.hapi.ctx.HapiWorkerContext;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.ExpressionNode;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.utils.FHIRPathEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemSearchParameters;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
+import ca.uhn.fhir.util.FhirTerser;
+
+/**
+ * Extracting the token and name search parameters of an item with {@link InventoryItemSearchParameters}, against
+ * evaluating the expressions of their search parameter definitions with HAPI's {@link FHIRPathEngine}, the way a generic
+ * indexer does, and against the cheaper path navigation of {@link FhirTerser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchParameterBenchmark {
+	
+	@Param({ InventoryItemFixtures.SMALL, InventoryItemFixtures.LARGE })
+	public String size;
+	
+	private InventoryItem item;
+	
+	private List<String> parameters;
+	
+	private List<String> paths;
+	
+	private FhirTerser terser;
+	
+	private FHIRPathEngine fhirPathEngine;
+	
+	private List<ExpressionNode> expressions;
+	
+	@Setup
+	public void setUp() {
+		FhirContext fhirContext = InventoryItemFixtures.newContext();
+		item = InventoryItemFixtures.create(size);
+		parameters = new ArrayList<>(InventoryItemSearchParameters.TOKEN_PARAMETERS);
+		parameters.add(InventoryItem.SP_NAME);
+		
+		RuntimeResourceDefinition definition = fhirContext.getResourceDefinition(InventoryItem.class);
+		paths = new ArrayList<>();
+		for (String parameter : parameters) {
+			paths.add(definition.getSearchParam(parameter).getPath());
+		}
+		terser = fhirContext.newTerser();
+		
+		fhirPathEngine = new FHIRPathEngine(
+		        new HapiWorkerContext(fhirContext, new DefaultProfileValidationSupport(fhirContext)));
+		expressions = new ArrayList<>();
+		for (String path : paths) {
+			expressions.add(fhirPathEngine.parse(path));
+		}
+	}
+	
+	@Benchmark
+	public int extractor() {
+		int count = 0;
+		for (String parameter : parameters) {
+			count += InventoryItemSearchParameters.extract(item, parameter).size();
+		}
+		return count;
+	}
+	
+	@Benchmark
+	public int paths() {
+		int count = 0;
+		for (String path : paths) {
+			List<InventoryItemSearchParameters.Token> tokens = new ArrayList<>();
+			for (IBase value : terser.getValues(item, path)) {
+				addTokens(tokens, value);
+			}
+			count += tokens.size();
+		}
+		return count;
+	}
+	
+	@Benchmark
+	public int fhirPath() {
+		int count = 0;
+		for (ExpressionNode expression : expressions) {
+			List<InventoryItemSearchParameters.Token> tokens = new ArrayList<>();
+			for (Base value : fhirPathEngine.evaluate(item, expression)) {
+				addTokens(tokens, value);
+			}
+			count += tokens.size();
+		}
+		return count;
+	}
+	
+	private static void addTokens(List<InventoryItemSearchParameters.Token> tokens, IBase value) {
+		if (value instanceof CodeableConcept) {
+			for (Coding coding : ((CodeableConcept) value).getCoding()) {
+				tokens.add(new InventoryItemSearchParameters.Token(coding.getSystem(), coding.getCode(), coding.getDisplay()));
+			}
+		} else if (value instanceof Identifier) {
+			Identifier identifier = (Identifier) value;
+			tokens.add(new InventoryItemSearchParameters.Token(identifier.getSystem(), identifier.getValue(), null));
+		} else if (value instanceof Enumeration) {
+			Enumeration<?> enumeration = (Enumeration<?>) value;
+			tokens.add(
+			    new InventoryItemSearchParameters.Token(enumeration.getSystem(), enumeration.getCode(), enumeration.getDisplay()));
+		} else if (value instanceof StringType) {
+			tokens.add(new InventoryItemSearchParameters.Token(null, ((StringType) value).getValue(), null));
+		}
+	}
+}
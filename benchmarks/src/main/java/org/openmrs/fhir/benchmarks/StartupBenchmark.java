@@ -0,0 +1,49 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemJsonCodec;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * Time from a cold JVM to the first decoded and encoded item, through HAPI and through {@link InventoryItemJsonCodec}.
+ * Every measurement runs in a new JVM.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+	
+	private static final String JSON = "{\"resourceType\":\"InventoryItem\",\"id\":\"item-1\",\"identifier\":[{"
+	        + "\"system\":\"urn:catalog\",\"value\":\"123\"}],\"status\":\"active\",\"code\":[{\"coding\":[{"
+	        + "\"system\":\"http://snomed.info/sct\",\"code\":\"387517004\"}]}]}";
+	
+	@Benchmark
+	public String hapi() {
+		FhirContext fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+		InventoryItem item = fhirContext.newJsonParser().parseResource(InventoryItem.class, JSON);
+		return fhirContext.newJsonParser().encodeResourceToString(item);
+	}
+	
+	@Benchmark
+	public String codec() {
+		FhirContext fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+		InventoryItemJsonCodec codec = new InventoryItemJsonCodec(fhirContext);
+		InventoryItem item = codec.decode(JSON.getBytes(StandardCharsets.UTF_8));
+		return codec.encodeToString(item);
+	}
+}
@@ -0,0 +1,87 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.CodeType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+
+/**
+ * Loads the status of a batch of items the way parsers and mappers do, through setProperty, setStatus and copy. Run
+ * with {@code -prof gc} to compare the allocation per item with and without the shared status enumerations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatusBulkLoadBenchmark {
+	
+	private static final int BATCH_SIZE = 1000;
+	
+	private static final String[] CODES = { "active", "inactive", "entered-in-error", "unknown" };
+	
+	@Param({ "false", "true" })
+	public boolean sharedEnumerations;
+	
+	private InventoryItem[] items;
+	
+	private CodeType[] codes;
+	
+	@Setup
+	public void setUp() {
+		InventoryItem.InventoryItemStatusCodesEnumFactory.setUseSharedEnumerations(sharedEnumerations);
+		items = new InventoryItem[BATCH_SIZE];
+		codes = new CodeType[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			items[i] = new InventoryItem();
+			codes[i] = new CodeType(CODES[i % CODES.length]);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		InventoryItem.InventoryItemStatusCodesEnumFactory.setUseSharedEnumerations(false);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public InventoryItem setPropertyByName() {
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			items[i].setProperty("status", codes[i]);
+		}
+		return items[BATCH_SIZE - 1];
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public InventoryItem setPropertyByHash() {
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			items[i].setProperty(-892481550, "status", codes[i]);
+		}
+		return items[BATCH_SIZE - 1];
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public InventoryItem newItemWithStatus() {
+		InventoryItem item = null;
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			item = new InventoryItem().setStatus(InventoryItem.InventoryItemStatusCodes.values()[i & 3]);
+		}
+		return item;
+	}
+}
@@ -0,0 +1,76 @@
+package org.openmrs.fhir.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemValidator;
+
+/**
+ * Bulk validation of 100,000 items with {@link InventoryItemValidator} on pools of increasing parallelism.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ValidationBenchmark {
+	
+	private static final int ITEM_COUNT = 100_000;
+	
+	@Param({ "1", "2", "4", "8" })
+	public int parallelism;
+	
+	private ForkJoinPool pool;
+	
+	private InventoryItemValidator validator;
+	
+	private List<InventoryItem> items;
+	
+	@Setup
+	public void setUp() {
+		pool = new ForkJoinPool(parallelism);
+		validator = new InventoryItemValidator(pool);
+		items = new ArrayList<>(ITEM_COUNT);
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			items.add(InventoryItemFixtures.create(InventoryItemFixtures.SMALL));
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+	
+	@Benchmark
+	public List<OperationOutcome> validateAll() {
+		return validator.validateAll(items);
+	}
+	
+	@Benchmark
+	public int validateSequentially() {
+		int errors = 0;
+		for (InventoryItem item : items) {
+			if (InventoryItemValidator.hasErrors(validator.validate(item))) {
+				errors++;
+			}
+		}
+		return errors;
+	}
+}
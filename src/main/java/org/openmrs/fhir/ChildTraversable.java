@@ -0,0 +1,28 @@
+package org.openmrs.fhir;
+
+import java.util.function.Consumer;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Base;
+
+/**
+ * Alternative to {@link Base#getProperty(int, String, boolean)} that does not allocate for the properties the class
+ * declares: instead of copying the values of a property into a new array, each value is handed to the given action.
+ * Inherited properties, such as {@code id} and {@code extension}, are still read through {@code getProperty}.
+ */
+public interface ChildTraversable {
+	
+	/**
+	 * Passes every non-null value of the named property to the action, in order. Like
+	 * {@code getProperty(hash, name, false)}, a property that is not known has no values.
+	 *
+	 * @param hash the hash code of the property name
+	 * @param name the property name
+	 * @param action receives the property values
+	 */
+	void forEachChild(int hash, String name, Consumer<? super Base> action) throws FHIRException;
+	
+	default void forEachChild(String name, Consumer<? super Base> action) throws FHIRException {
+		forEachChild(name.hashCode(), name, action);
+	}
+}
@@ -0,0 +1,429 @@
+package org.openmrs.fhir;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Element;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.UriType;
+
+import ca.uhn.fhir.model.api.annotation.DatatypeDef;
+
+/**
+ * Pool that deduplicates the system, version, code and display strings of {@link Coding}s, and the text of
+ * {@link CodeableConcept}s, which repeat across every item of a catalog. The decoders of {@link InventoryItemJsonCodec}
+ * and {@link InventoryItemBinaryCodec} intern the codings they read when they are given a pool, and the generic
+ * {@code setProperty} methods of {@link InventoryItem} intern the concepts and codings they set when a
+ * {@link #setDefault(CodingInterner) default pool} is installed.
+ * <p>
+ * A pool can also share whole codings: then every coding without an id or extensions is replaced by a single instance
+ * per distinct value. Shared codings reject changes through their setters, but like the elements of a
+ * {@link FrozenInventoryItem} their primitive elements must be treated as read-only; {@link Coding#copy()} returns a
+ * regular coding. The pool is safe for use by multiple threads. It stops growing at its maximum size, after which new
+ * values are returned as they are.
+ */
+public final class CodingInterner {
+	
+	private static volatile CodingInterner defaultInterner;
+	
+	private final int maxSize;
+	
+	private final boolean shareCodings;
+	
+	private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+	
+	private final ConcurrentMap<Key, Coding> codings = new ConcurrentHashMap<>();
+	
+	/**
+	 * @param maxSize the maximum number of strings, and of codings, in the pool
+	 * @param shareCodings whether to replace equal codings by a single instance
+	 */
+	public CodingInterner(int maxSize, boolean shareCodings) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("The maximum size must not be negative");
+		}
+		this.maxSize = maxSize;
+		this.shareCodings = shareCodings;
+	}
+	
+	/**
+	 * @return the pool used by the generic {@code setProperty} methods and by codecs created without a pool, or null
+	 */
+	public static CodingInterner getDefault() {
+		return defaultInterner;
+	}
+	
+	/**
+	 * @param interner the pool to use by default, or null to stop interning by default
+	 */
+	public static void setDefault(CodingInterner interner) {
+		defaultInterner = interner;
+	}
+	
+	static CodeableConcept internDefault(CodeableConcept concept) {
+		CodingInterner interner = defaultInterner;
+		return interner == null ? concept : interner.intern(concept);
+	}
+	
+	static Coding internDefault(Coding coding) {
+		CodingInterner interner = defaultInterner;
+		return interner == null ? coding : interner.intern(coding);
+	}
+	
+	/**
+	 * @return the pooled string equal to the value, or the value itself
+	 */
+	public String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		String pooled = strings.get(value);
+		if (pooled == null) {
+			if (strings.size() >= maxSize) {
+				return value;
+			}
+			pooled = strings.putIfAbsent(value, value);
+			if (pooled == null) {
+				return value;
+			}
+		}
+		return pooled;
+	}
+	
+	/**
+	 * Interns the strings of the coding in place.
+	 *
+	 * @return the shared coding equal to the coding if codings are shared and it has no id or extensions, otherwise the
+	 *         coding itself
+	 */
+	public Coding intern(Coding coding) {
+		if (coding == null || coding instanceof SharedCoding) {
+			return coding;
+		}
+		intern(coding.hasSystemElement() ? coding.getSystemElement() : null);
+		intern(coding.hasVersionElement() ? coding.getVersionElement() : null);
+		intern(coding.hasCodeElement() ? coding.getCodeElement() : null);
+		intern(coding.hasDisplayElement() ? coding.getDisplayElement() : null);
+		if (!shareCodings || coding.hasId() || coding.hasExtension() || hasIdOrExtension(coding)) {
+			return coding;
+		}
+		
+		Key key = new Key(coding);
+		Coding shared = codings.get(key);
+		if (shared == null) {
+			if (codings.size() >= maxSize) {
+				return coding;
+			}
+			shared = SharedCoding.of(coding);
+			Coding existing = codings.putIfAbsent(key, shared);
+			if (existing != null) {
+				shared = existing;
+			}
+		}
+		return shared;
+	}
+	
+	/**
+	 * Interns the text and the codings of the concept in place, replacing them by shared codings if codings are shared.
+	 *
+	 * @return the concept
+	 */
+	public CodeableConcept intern(CodeableConcept concept) {
+		if (concept == null) {
+			return null;
+		}
+		if (concept.hasCoding()) {
+			List<Coding> conceptCodings = concept.getCoding();
+			for (int i = 0; i < conceptCodings.size(); i++) {
+				Coding coding = conceptCodings.get(i);
+				Coding interned = intern(coding);
+				if (interned != coding) {
+					conceptCodings.set(i, interned);
+				}
+			}
+		}
+		intern(concept.hasTextElement() ? concept.getTextElement() : null);
+		return concept;
+	}
+	
+	/**
+	 * Interns the codings of the concepts in place, see {@link #intern(CodeableConcept)}.
+	 *
+	 * @return the concepts
+	 */
+	public List<CodeableConcept> internAll(List<CodeableConcept> concepts) {
+		if (concepts != null) {
+			for (CodeableConcept concept : concepts) {
+				intern(concept);
+			}
+		}
+		return concepts;
+	}
+	
+	/**
+	 * Interns the codings, and the systems of the identifiers and the net content, of a decoded item in place.
+	 */
+	void internChildren(InventoryItem item) {
+		for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+			internChild(field, InventoryItemFields.get(field, item));
+		}
+	}
+	
+	/**
+	 * Interns the value of a decoded child in place, see {@link #internChildren(InventoryItem)}.
+	 *
+	 * @return the value
+	 */
+	@SuppressWarnings("unchecked")
+	Object internChild(int field, Object value) {
+		if (value == null) {
+			return null;
+		}
+		switch (field) {
+			case InventoryItemFields.IDENTIFIER:
+				for (Identifier identifier : (List<Identifier>) value) {
+					intern(identifier.hasSystemElement() ? identifier.getSystemElement() : null);
+					if (identifier.hasType()) {
+						intern(identifier.getType());
+					}
+				}
+				break;
+			case InventoryItemFields.CATEGORY:
+			case InventoryItemFields.CODE:
+			case InventoryItemFields.INVENTORY_STATUS:
+				internAll((List<CodeableConcept>) value);
+				break;
+			case InventoryItemFields.NAME:
+				for (InventoryItem.InventoryItemNameComponent name : (List<InventoryItem.InventoryItemNameComponent>) value) {
+					name.nameType = intern(name.nameType);
+				}
+				break;
+			case InventoryItemFields.BASE_UNIT:
+				intern((CodeableConcept) value);
+				break;
+			case InventoryItemFields.NET_CONTENT:
+				Quantity quantity = (Quantity) value;
+				intern(quantity.hasUnitElement() ? quantity.getUnitElement() : null);
+				intern(quantity.hasSystemElement() ? quantity.getSystemElement() : null);
+				intern(quantity.hasCodeElement() ? quantity.getCodeElement() : null);
+				break;
+			default:
+				break;
+		}
+		return value;
+	}
+	
+	/**
+	 * @return the number of pooled strings
+	 */
+	public int size() {
+		return strings.size();
+	}
+	
+	/**
+	 * @return the number of shared codings
+	 */
+	public int codingCount() {
+		return codings.size();
+	}
+	
+	private void intern(PrimitiveType<String> element) {
+		if (element != null) {
+			String value = element.getValue();
+			String pooled = intern(value);
+			if (pooled != value) {
+				element.setValue(pooled);
+			}
+		}
+	}
+	
+	private static boolean hasIdOrExtension(Coding coding) {
+		return isDecorated(coding.hasSystemElement() ? coding.getSystemElement() : null)
+		        || isDecorated(coding.hasVersionElement() ? coding.getVersionElement() : null)
+		        || isDecorated(coding.hasCodeElement() ? coding.getCodeElement() : null)
+		        || isDecorated(coding.hasDisplayElement() ? coding.getDisplayElement() : null)
+		        || isDecorated(coding.hasUserSelectedElement() ? coding.getUserSelectedElement() : null);
+	}
+	
+	private static boolean isDecorated(Element element) {
+		return element != null && (element.hasId() || element.hasExtension());
+	}
+	
+	private static UnsupportedOperationException shared() {
+		return new UnsupportedOperationException("Shared Codings cannot be modified, copy them first");
+	}
+	
+	/**
+	 * The value of a coding without an id or extensions.
+	 */
+	private static final class Key {
+		
+		private final String system;
+		
+		private final String version;
+		
+		private final String code;
+		
+		private final String display;
+		
+		private final Boolean userSelected;
+		
+		private final int hash;
+		
+		Key(Coding coding) {
+			this.system = coding.getSystem();
+			this.version = coding.getVersion();
+			this.code = coding.getCode();
+			this.display = coding.getDisplay();
+			this.userSelected = coding.hasUserSelected() ? coding.getUserSelected() : null;
+			this.hash = Objects.hash(system, version, code, display, userSelected);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && Objects.equals(system, other.system) && Objects.equals(version, other.version)
+			        && Objects.equals(code, other.code) && Objects.equals(display, other.display)
+			        && Objects.equals(userSelected, other.userSelected);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+	
+	/**
+	 * A coding shared by many items. Every element is created up front, so getters never assign a field, and the
+	 * setters, {@code setProperty}, {@code makeProperty}, {@code addChild} and {@code addExtension} throw
+	 * {@link UnsupportedOperationException}.
+	 */
+	@DatatypeDef(name = "Coding", isSpecialization = true)
+	static final class SharedCoding extends Coding {
+		
+		private static final long serialVersionUID = 1L;
+		
+		static SharedCoding of(Coding source) {
+			SharedCoding shared = new SharedCoding();
+			source.copyValues(shared);
+			if (shared.system == null) {
+				shared.system = new UriType();
+			}
+			if (shared.version == null) {
+				shared.version = new StringType();
+			}
+			if (shared.code == null) {
+				shared.code = new CodeType();
+			}
+			if (shared.display == null) {
+				shared.display = new StringType();
+			}
+			if (shared.userSelected == null) {
+				shared.userSelected = new BooleanType();
+			}
+			shared.extension = Collections.emptyList();
+			return shared;
+		}
+		
+		@Override
+		public Coding setSystemElement(UriType value) {
+			throw shared();
+		}
+		
+		@Override
+		public Coding setSystem(String value) {
+			throw shared();
+		}
+		
+		@Override
+		public Coding setVersionElement(StringType value) {
+			throw shared();
+		}
+		
+		@Override
+		public Coding setVersion(String value) {
+			throw shared();
+		}
+		
+		@Override
+		public Coding setCodeElement(CodeType value) {
+			throw shared();
+		}
+		
+		@Override
+		public Coding setCode(String value) {
+			throw shared();
+		}
+		
+		@Override
+		public Coding setDisplayElement(StringType value) {
+			throw shared();
+		}
+		
+		@Override
+		public Coding setDisplay(String value) {
+			throw shared();
+		}
+		
+		@Override
+		public Coding setUserSelectedElement(BooleanType value) {
+			throw shared();
+		}
+		
+		@Override
+		public Coding setUserSelected(boolean value) {
+			throw shared();
+		}
+		
+		@Override
+		public Base setProperty(int hash, String name, Base value) throws FHIRException {
+			throw shared();
+		}
+		
+		@Override
+		public Base setProperty(String name, Base value) throws FHIRException {
+			throw shared();
+		}
+		
+		@Override
+		public Base makeProperty(int hash, String name) throws FHIRException {
+			throw shared();
+		}
+		
+		@Override
+		public Base addChild(String name) throws FHIRException {
+			throw shared();
+		}
+		
+		@Override
+		public Element setIdElement(StringType value) {
+			throw shared();
+		}
+		
+		@Override
+		public Element setId(String value) {
+			throw shared();
+		}
+		
+		@Override
+		public Element setExtension(List<Extension> extension) {
+			throw shared();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package org.openmrs.fhir;
+
+import static org.openmrs.fhir.InventoryItemFields.bit;
+
+import org.hl7.fhir.r4.model.DomainResource;
+
+import ca.uhn.fhir.model.api.annotation.ResourceDef;
+
+/**
+ * An {@link InventoryItem} copy that shares the child elements of the item it was copied from. A shared element is
+ * only copied when it is first handed out or modified through this item, so copying an item to change its status does
+ * not copy its identifiers, codes and names. Reading through {@code has*()}, {@link #getStatus()},
+ * {@link #equalsDeep(org.hl7.fhir.r4.model.Base)} or a parser does not copy anything.
+ * <p>
+ * Copying a {@link CopyOnWriteInventoryItem}, including through {@link #copy()}, protects both items from each other,
+ * but changes the source, so a copy-on-write item must not be copied by several threads at once. Any other item copied
+ * with {@link #copyOf(InventoryItem)} must not be modified afterwards.
+ * <p>
+ * HAPI's parsers and {@code FhirTerser} write the child fields reflectively, without going through the accessors that
+ * copy the shared elements, so they change the item the copy was made from as well: items that may be written that way
+ * must be deep copies.
+ */
+@ResourceDef(name = "InventoryItem", profile = "http://hl7.org/fhir/StructureDefinition/InventoryItem")
+public class CopyOnWriteInventoryItem extends FieldTrackingInventoryItem {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/** Fields whose value may be shared with other items. */
+	private transient int shared;
+	
+	public CopyOnWriteInventoryItem() {
+	}
+	
+	/**
+	 * @return a copy of the item sharing its child elements, see {@link CopyOnWriteInventoryItem}
+	 */
+	public static CopyOnWriteInventoryItem copyOf(InventoryItem source) {
+		source.loadChildren();
+		CopyOnWriteInventoryItem copy = new CopyOnWriteInventoryItem();
+		// only copies the resource and domain resource elements
+		source.copyValues((DomainResource) copy);
+		for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+			Object value = InventoryItemFields.get(field, source);
+			if (value != null) {
+				InventoryItemFields.set(field, copy, value);
+				copy.shared |= bit(field);
+			}
+		}
+		source.copyChangeTracking(copy);
+		if (source instanceof CopyOnWriteInventoryItem) {
+			((CopyOnWriteInventoryItem) source).shared |= copy.shared;
+		}
+		return copy;
+	}
+	
+	@Override
+	public CopyOnWriteInventoryItem copy() {
+		return copyOf(this);
+	}
+	
+	@Override
+	void beforeRead(int field) {
+	}
+	
+	@Override
+	void beforeExpose(int field) {
+		unshare(field);
+	}
+	
+	@Override
+	void beforeModify(int field) {
+		unshare(field);
+	}
+	
+	@Override
+	void beforeReplace(int field) {
+		shared &= ~bit(field);
+	}
+	
+	private void unshare(int field) {
+		if ((shared & bit(field)) != 0) {
+			InventoryItemFields.set(field, this, InventoryItemFields.copy(InventoryItemFields.get(field, this)));
+			shared &= ~bit(field);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package org.openmrs.fhir;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Property;
+import org.hl7.fhir.r4.model.Quantity;
+
+/**
+ * Structural hashes of FHIR elements that are consistent with {@link Base#equalsDeep(Base)}: deeply equal elements get
+ * the same hash. As {@code compareDeep} does not tell empty elements and lists from absent ones, those hash to 0. The
+ * ids and extensions of primitives, the common data types and the item components are left out, so elements that only
+ * differ in those collide.
+ */
+final class DeepHash {
+	
+	private DeepHash() {
+	}
+	
+	static int of(List<? extends Base> values) {
+		if (values == null) {
+			return 0;
+		}
+		int hash = values.size();
+		for (int i = 0; i < values.size(); i++) {
+			hash = 31 * hash + of(values.get(i));
+		}
+		return hash;
+	}
+	
+	static int of(Base value) {
+		if (value == null) {
+			return 0;
+		} else if (value instanceof PrimitiveType) {
+			return ofPrimitive((PrimitiveType<?>) value);
+		} else if (value instanceof InventoryItem.InventoryItemNameComponent) {
+			return ((InventoryItem.InventoryItemNameComponent) value).hashDeep();
+		} else if (value instanceof InventoryItem.InventoryItemDescriptionComponent) {
+			return ((InventoryItem.InventoryItemDescriptionComponent) value).hashDeep();
+		} else if (value instanceof Coding) {
+			return ofCoding((Coding) value);
+		} else if (value instanceof CodeableConcept) {
+			CodeableConcept concept = (CodeableConcept) value;
+			return 31 * (concept.hasCoding() ? of(concept.getCoding()) : 0) + ofString(concept.getText());
+		} else if (value instanceof Identifier) {
+			return ofIdentifier((Identifier) value);
+		} else if (value instanceof Quantity) {
+			return ofQuantity((Quantity) value);
+		}
+		
+		int hash = 0;
+		for (Property property : value.children()) {
+			if (property.hasValues()) {
+				for (Base child : property.getValues()) {
+					hash = 31 * hash + of(child);
+				}
+			}
+		}
+		return hash;
+	}
+	
+	private static int ofPrimitive(PrimitiveType<?> value) {
+		if (value.isEmpty()) {
+			return 0;
+		}
+		Object v = value.getValue();
+		if (v == null) {
+			return 0;
+		} else if (v instanceof Enum) {
+			// the hash of an enum constant changes between runs
+			return ((Enum<?>) v).name().hashCode();
+		} else if (v instanceof byte[]) {
+			return Arrays.hashCode((byte[]) v);
+		}
+		return v.hashCode();
+	}
+	
+	private static int ofCoding(Coding coding) {
+		int hash = ofString(coding.getSystem());
+		hash = 31 * hash + ofString(coding.getVersion());
+		hash = 31 * hash + ofString(coding.getCode());
+		hash = 31 * hash + ofString(coding.getDisplay());
+		return 31 * hash + (coding.hasUserSelectedElement() ? ofPrimitive(coding.getUserSelectedElement()) : 0);
+	}
+	
+	private static int ofIdentifier(Identifier identifier) {
+		int hash = identifier.hasUseElement() ? ofPrimitive(identifier.getUseElement()) : 0;
+		hash = 31 * hash + (identifier.hasType() ? of(identifier.getType()) : 0);
+		hash = 31 * hash + ofString(identifier.getSystem());
+		return 31 * hash + ofString(identifier.getValue());
+	}
+	
+	private static int ofQuantity(Quantity quantity) {
+		BigDecimal value = quantity.getValue();
+		int hash = value == null ? 0 : value.hashCode();
+		hash = 31 * hash + (quantity.hasComparatorElement() ? ofPrimitive(quantity.getComparatorElement()) : 0);
+		hash = 31 * hash + ofString(quantity.getUnit());
+		hash = 31 * hash + ofString(quantity.getSystem());
+		return 31 * hash + ofString(quantity.getCode());
+	}
+	
+	/**
+	 * Hashes the value of a string primitive, which is empty if it is blank like in {@link PrimitiveType#isEmpty()}.
+	 */
+	private static int ofString(String value) {
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				if (!Character.isWhitespace(value.charAt(i))) {
+					return value.hashCode();
+				}
+			}
+		}
+		return 0;
+	}
+}
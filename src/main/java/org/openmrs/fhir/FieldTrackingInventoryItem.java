@@ -0,0 +1,415 @@
+package org.openmrs.fhir;
+
+import static org.openmrs.fhir.InventoryItemFields.forHash;
+import static org.openmrs.fhir.InventoryItemFields.forName;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Property;
+import org.hl7.fhir.r4.model.Quantity;
+
+/**
+ * Base class for {@link InventoryItem}s that manage their child fields themselves. Every accessor, whether typed or
+ * generic, reports which field it is about to use through one of the hooks before delegating to {@link InventoryItem},
+ * and operations reading all fields call {@link #loadChildren()} first. The fields are numbered as in
+ * {@link InventoryItemFields}. Code accessing the fields reflectively, like HAPI's parsers and {@code FhirTerser}, does
+ * not go through the hooks.
+ */
+public abstract class FieldTrackingInventoryItem extends InventoryItem {
+	
+	private static final long serialVersionUID = 1L;
+	
+	FieldTrackingInventoryItem() {
+	}
+	
+	/**
+	 * Called before the value of the field is read without being handed out, e.g. by {@code hasIdentifier()}.
+	 */
+	abstract void beforeRead(int field);
+	
+	/**
+	 * Called before the value of the field is handed out, after which it may be modified by the caller.
+	 */
+	abstract void beforeExpose(int field);
+	
+	/**
+	 * Called before the value of the field is modified, e.g. by {@code addIdentifier()} or {@code setProperty}.
+	 */
+	abstract void beforeModify(int field);
+	
+	/**
+	 * Called before the value of the field is replaced by a setter.
+	 */
+	abstract void beforeReplace(int field);
+	
+	@Override
+	public List<Identifier> getIdentifier() {
+		beforeExpose(InventoryItemFields.IDENTIFIER);
+		return super.getIdentifier();
+	}
+	
+	@Override
+	public InventoryItem setIdentifier(List<Identifier> theIdentifier) {
+		beforeReplace(InventoryItemFields.IDENTIFIER);
+		return super.setIdentifier(theIdentifier);
+	}
+	
+	@Override
+	public boolean hasIdentifier() {
+		beforeRead(InventoryItemFields.IDENTIFIER);
+		return super.hasIdentifier();
+	}
+	
+	@Override
+	public Identifier addIdentifier() {
+		beforeModify(InventoryItemFields.IDENTIFIER);
+		return super.addIdentifier();
+	}
+	
+	@Override
+	public InventoryItem addIdentifier(Identifier t) {
+		beforeModify(InventoryItemFields.IDENTIFIER);
+		return super.addIdentifier(t);
+	}
+	
+	@Override
+	public Identifier getIdentifierFirstRep() {
+		beforeExpose(InventoryItemFields.IDENTIFIER);
+		return super.getIdentifierFirstRep();
+	}
+	
+	@Override
+	public Enumeration<InventoryItemStatusCodes> getStatusElement() {
+		beforeExpose(InventoryItemFields.STATUS);
+		return super.getStatusElement();
+	}
+	
+	@Override
+	public boolean hasStatusElement() {
+		beforeRead(InventoryItemFields.STATUS);
+		return super.hasStatusElement();
+	}
+	
+	@Override
+	public boolean hasStatus() {
+		beforeRead(InventoryItemFields.STATUS);
+		return super.hasStatus();
+	}
+	
+	@Override
+	public InventoryItem setStatusElement(Enumeration<InventoryItemStatusCodes> value) {
+		beforeReplace(InventoryItemFields.STATUS);
+		return super.setStatusElement(value);
+	}
+	
+	@Override
+	public InventoryItemStatusCodes getStatus() {
+		beforeRead(InventoryItemFields.STATUS);
+		return super.getStatus();
+	}
+	
+	@Override
+	public InventoryItem setStatus(InventoryItemStatusCodes value) {
+		beforeModify(InventoryItemFields.STATUS);
+		return super.setStatus(value);
+	}
+	
+	@Override
+	public List<CodeableConcept> getCategory() {
+		beforeExpose(InventoryItemFields.CATEGORY);
+		return super.getCategory();
+	}
+	
+	@Override
+	public InventoryItem setCategory(List<CodeableConcept> theCategory) {
+		beforeReplace(InventoryItemFields.CATEGORY);
+		return super.setCategory(theCategory);
+	}
+	
+	@Override
+	public boolean hasCategory() {
+		beforeRead(InventoryItemFields.CATEGORY);
+		return super.hasCategory();
+	}
+	
+	@Override
+	public CodeableConcept addCategory() {
+		beforeModify(InventoryItemFields.CATEGORY);
+		return super.addCategory();
+	}
+	
+	@Override
+	public InventoryItem addCategory(CodeableConcept t) {
+		beforeModify(InventoryItemFields.CATEGORY);
+		return super.addCategory(t);
+	}
+	
+	@Override
+	public CodeableConcept getCategoryFirstRep() {
+		beforeExpose(InventoryItemFields.CATEGORY);
+		return super.getCategoryFirstRep();
+	}
+	
+	@Override
+	public List<CodeableConcept> getCode() {
+		beforeExpose(InventoryItemFields.CODE);
+		return super.getCode();
+	}
+	
+	@Override
+	public InventoryItem setCode(List<CodeableConcept> theCode) {
+		beforeReplace(InventoryItemFields.CODE);
+		return super.setCode(theCode);
+	}
+	
+	@Override
+	public boolean hasCode() {
+		beforeRead(InventoryItemFields.CODE);
+		return super.hasCode();
+	}
+	
+	@Override
+	public CodeableConcept addCode() {
+		beforeModify(InventoryItemFields.CODE);
+		return super.addCode();
+	}
+	
+	@Override
+	public InventoryItem addCode(CodeableConcept t) {
+		beforeModify(InventoryItemFields.CODE);
+		return super.addCode(t);
+	}
+	
+	@Override
+	public CodeableConcept getCodeFirstRep() {
+		beforeExpose(InventoryItemFields.CODE);
+		return super.getCodeFirstRep();
+	}
+	
+	@Override
+	public List<InventoryItemNameComponent> getName() {
+		beforeExpose(InventoryItemFields.NAME);
+		return super.getName();
+	}
+	
+	@Override
+	public InventoryItem setName(List<InventoryItemNameComponent> theName) {
+		beforeReplace(InventoryItemFields.NAME);
+		return super.setName(theName);
+	}
+	
+	@Override
+	public boolean hasName() {
+		beforeRead(InventoryItemFields.NAME);
+		return super.hasName();
+	}
+	
+	@Override
+	public InventoryItemNameComponent addName() {
+		beforeModify(InventoryItemFields.NAME);
+		return super.addName();
+	}
+	
+	@Override
+	public InventoryItem addName(InventoryItemNameComponent t) {
+		beforeModify(InventoryItemFields.NAME);
+		return super.addName(t);
+	}
+	
+	@Override
+	public InventoryItemNameComponent getNameFirstRep() {
+		beforeExpose(InventoryItemFields.NAME);
+		return super.getNameFirstRep();
+	}
+	
+	@Override
+	public InventoryItemDescriptionComponent getDescription() {
+		beforeExpose(InventoryItemFields.DESCRIPTION);
+		return super.getDescription();
+	}
+	
+	@Override
+	public boolean hasDescription() {
+		beforeRead(InventoryItemFields.DESCRIPTION);
+		return super.hasDescription();
+	}
+	
+	@Override
+	public InventoryItem setDescription(InventoryItemDescriptionComponent value) {
+		beforeReplace(InventoryItemFields.DESCRIPTION);
+		return super.setDescription(value);
+	}
+	
+	@Override
+	public List<CodeableConcept> getInventoryStatus() {
+		beforeExpose(InventoryItemFields.INVENTORY_STATUS);
+		return super.getInventoryStatus();
+	}
+	
+	@Override
+	public InventoryItem setInventoryStatus(List<CodeableConcept> theInventoryStatus) {
+		beforeReplace(InventoryItemFields.INVENTORY_STATUS);
+		return super.setInventoryStatus(theInventoryStatus);
+	}
+	
+	@Override
+	public boolean hasInventoryStatus() {
+		beforeRead(InventoryItemFields.INVENTORY_STATUS);
+		return super.hasInventoryStatus();
+	}
+	
+	@Override
+	public CodeableConcept addInventoryStatus() {
+		beforeModify(InventoryItemFields.INVENTORY_STATUS);
+		return super.addInventoryStatus();
+	}
+	
+	@Override
+	public InventoryItem addInventoryStatus(CodeableConcept t) {
+		beforeModify(InventoryItemFields.INVENTORY_STATUS);
+		return super.addInventoryStatus(t);
+	}
+	
+	@Override
+	public CodeableConcept getInventoryStatusFirstRep() {
+		beforeExpose(InventoryItemFields.INVENTORY_STATUS);
+		return super.getInventoryStatusFirstRep();
+	}
+	
+	@Override
+	public CodeableConcept getBaseUnit() {
+		beforeExpose(InventoryItemFields.BASE_UNIT);
+		return super.getBaseUnit();
+	}
+	
+	@Override
+	public boolean hasBaseUnit() {
+		beforeRead(InventoryItemFields.BASE_UNIT);
+		return super.hasBaseUnit();
+	}
+	
+	@Override
+	public InventoryItem setBaseUnit(CodeableConcept value) {
+		beforeReplace(InventoryItemFields.BASE_UNIT);
+		return super.setBaseUnit(value);
+	}
+	
+	@Override
+	public Quantity getNetContent() {
+		beforeExpose(InventoryItemFields.NET_CONTENT);
+		return super.getNetContent();
+	}
+	
+	@Override
+	public boolean hasNetContent() {
+		beforeRead(InventoryItemFields.NET_CONTENT);
+		return super.hasNetContent();
+	}
+	
+	@Override
+	public InventoryItem setNetContent(Quantity value) {
+		beforeReplace(InventoryItemFields.NET_CONTENT);
+		return super.setNetContent(value);
+	}
+	
+	@Override
+	protected void listChildren(List<Property> children) {
+		for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+			beforeExpose(field);
+		}
+		super.listChildren(children);
+	}
+	
+	@Override
+	public Property getNamedProperty(int _hash, String _name, boolean _checkValid) throws FHIRException {
+		int field = forHash(_hash);
+		if (field >= 0) {
+			beforeExpose(field);
+		}
+		return super.getNamedProperty(_hash, _name, _checkValid);
+	}
+	
+	@Override
+	public Base[] getProperty(int hash, String name, boolean checkValid) throws FHIRException {
+		int field = forHash(hash);
+		if (field >= 0) {
+			beforeExpose(field);
+		}
+		return super.getProperty(hash, name, checkValid);
+	}
+	
+	@Override
+	public void forEachChild(int hash, String name, Consumer<? super Base> action) throws FHIRException {
+		int field = forHash(hash);
+		if (field >= 0) {
+			beforeExpose(field);
+		}
+		super.forEachChild(hash, name, action);
+	}
+	
+	@Override
+	public Base setProperty(int hash, String name, Base value) throws FHIRException {
+		int field = forHash(hash);
+		if (field >= 0) {
+			beforeModify(field);
+		}
+		return super.setProperty(hash, name, value);
+	}
+	
+	@Override
+	public Base setProperty(String name, Base value) throws FHIRException {
+		int field = forName(name);
+		if (field >= 0) {
+			beforeModify(field);
+		}
+		return super.setProperty(name, value);
+	}
+	
+	@Override
+	public Base makeProperty(int hash, String name) throws FHIRException {
+		int field = forHash(hash);
+		if (field >= 0) {
+			beforeModify(field);
+		}
+		return super.makeProperty(hash, name);
+	}
+	
+	@Override
+	public Base addChild(String name) throws FHIRException {
+		int field = forName(name);
+		if (field >= 0) {
+			beforeModify(field);
+		}
+		return super.addChild(name);
+	}
+	
+	@Override
+	public void copyValues(InventoryItem dst) {
+		loadChildren();
+		super.copyValues(dst);
+	}
+	
+	@Override
+	public boolean equalsDeep(Base other_) {
+		loadChildren();
+		return super.equalsDeep(other_);
+	}
+	
+	@Override
+	public boolean equalsShallow(Base other_) {
+		loadChildren();
+		return super.equalsShallow(other_);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		loadChildren();
+		return super.isEmpty();
+	}
+}
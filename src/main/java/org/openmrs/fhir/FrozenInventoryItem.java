@@ -0,0 +1,512 @@
+package org.openmrs.fhir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.BackboneElement;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.DomainResource;
+import org.hl7.fhir.r4.model.Element;
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Meta;
+import org.hl7.fhir.r4.model.Narrative;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.UriType;
+
+import ca.uhn.fhir.model.api.annotation.Block;
+import ca.uhn.fhir.model.api.annotation.ResourceDef;
+
+/**
+ * Read-only snapshot of an {@link InventoryItem}, created by {@link InventoryItem#freeze()}. Every element is created
+ * when the snapshot is taken, so getters never allocate or assign a field; lists are unmodifiable, and setters,
+ * {@code add*()} and the generic {@code setProperty}, {@code makeProperty} and {@code addChild} methods throw
+ * {@link UnsupportedOperationException}, as do the setters of its status element, even when it is empty or has an id
+ * or extensions, and of its name and description components. A snapshot that is published safely, e.g. through a
+ * concurrent map, can therefore be read by many threads without copying.
+ * <p>
+ * {@code get*FirstRep()} returns null when the list is empty rather than adding an element. Elements of the HAPI data
+ * types (identifiers, codings, quantities, extensions, ...) are private copies of the original values, but they do not
+ * reject changes themselves and must be treated as read-only. {@link #copy()} returns a regular, modifiable item.
+ */
+@ResourceDef(name = "InventoryItem", profile = "http://hl7.org/fhir/StructureDefinition/InventoryItem")
+public class FrozenInventoryItem extends FieldTrackingInventoryItem {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public FrozenInventoryItem() {
+	}
+	
+	static FrozenInventoryItem of(InventoryItem source) {
+		source.loadChildren();
+		FrozenInventoryItem frozen = new FrozenInventoryItem();
+		source.copyValues(frozen);
+		
+		if (frozen.id == null) {
+			frozen.id = new IdType();
+		}
+		if (frozen.meta == null) {
+			frozen.meta = new Meta();
+		}
+		if (frozen.implicitRules == null) {
+			frozen.implicitRules = new UriType();
+		}
+		if (frozen.language == null) {
+			frozen.language = new CodeType();
+		}
+		if (frozen.text == null) {
+			frozen.text = new Narrative();
+		}
+		frozen.contained = unmodifiable(frozen.contained);
+		frozen.extension = unmodifiable(frozen.extension);
+		frozen.modifierExtension = unmodifiable(frozen.modifierExtension);
+		
+		frozen.identifier = unmodifiable(frozen.identifier);
+		// HAPI's copy of an enumeration drops its id
+		frozen.status = freezeStatus(source.status);
+		frozen.category = unmodifiable(frozen.category);
+		frozen.code = unmodifiable(frozen.code);
+		List<InventoryItemNameComponent> names = new ArrayList<>(frozen.name == null ? 0 : frozen.name.size());
+		if (frozen.name != null) {
+			for (InventoryItemNameComponent name : frozen.name) {
+				names.add(FrozenNameComponent.of(name));
+			}
+		}
+		frozen.name = Collections.unmodifiableList(names);
+		frozen.description = FrozenDescriptionComponent.of(frozen.description);
+		frozen.inventoryStatus = unmodifiable(frozen.inventoryStatus);
+		if (frozen.baseUnit == null) {
+			frozen.baseUnit = new CodeableConcept();
+		}
+		if (frozen.netContent == null) {
+			frozen.netContent = new Quantity();
+		}
+		// memoizes the hashes of all children before the snapshot is shared
+		frozen.hashDeep();
+		return frozen;
+	}
+	
+	/**
+	 * @return this item, which is already frozen
+	 */
+	@Override
+	public FrozenInventoryItem freeze() {
+		return this;
+	}
+	
+	@Override
+	void beforeRead(int field) {
+	}
+	
+	@Override
+	void beforeExpose(int field) {
+	}
+	
+	/**
+	 * The values of a snapshot do not change, so handing them out is not recorded, which would assign a field.
+	 */
+	@Override
+	void expose(int fields) {
+	}
+	
+	@Override
+	void beforeModify(int field) {
+		throw frozen();
+	}
+	
+	@Override
+	void beforeReplace(int field) {
+		throw frozen();
+	}
+	
+	@Override
+	public Identifier getIdentifierFirstRep() {
+		return identifier.isEmpty() ? null : identifier.get(0);
+	}
+	
+	@Override
+	public CodeableConcept getCategoryFirstRep() {
+		return category.isEmpty() ? null : category.get(0);
+	}
+	
+	@Override
+	public CodeableConcept getCodeFirstRep() {
+		return code.isEmpty() ? null : code.get(0);
+	}
+	
+	@Override
+	public InventoryItemNameComponent getNameFirstRep() {
+		return name.isEmpty() ? null : name.get(0);
+	}
+	
+	@Override
+	public CodeableConcept getInventoryStatusFirstRep() {
+		return inventoryStatus.isEmpty() ? null : inventoryStatus.get(0);
+	}
+	
+	@Override
+	public Base setProperty(int hash, String name, Base value) throws FHIRException {
+		throw frozen();
+	}
+	
+	@Override
+	public Base setProperty(String name, Base value) throws FHIRException {
+		throw frozen();
+	}
+	
+	@Override
+	public Base makeProperty(int hash, String name) throws FHIRException {
+		throw frozen();
+	}
+	
+	@Override
+	public Base addChild(String name) throws FHIRException {
+		throw frozen();
+	}
+	
+	@Override
+	public Resource setIdElement(IdType value) {
+		throw frozen();
+	}
+	
+	@Override
+	public Resource setId(String value) {
+		throw frozen();
+	}
+	
+	@Override
+	public Resource setMeta(Meta value) {
+		throw frozen();
+	}
+	
+	@Override
+	public Resource setImplicitRulesElement(UriType value) {
+		throw frozen();
+	}
+	
+	@Override
+	public Resource setImplicitRules(String value) {
+		throw frozen();
+	}
+	
+	@Override
+	public Resource setLanguageElement(CodeType value) {
+		throw frozen();
+	}
+	
+	@Override
+	public Resource setLanguage(String value) {
+		throw frozen();
+	}
+	
+	@Override
+	public DomainResource setText(Narrative value) {
+		throw frozen();
+	}
+	
+	@Override
+	public DomainResource setContained(List<Resource> theContained) {
+		throw frozen();
+	}
+	
+	@Override
+	public DomainResource setExtension(List<Extension> theExtension) {
+		throw frozen();
+	}
+	
+	@Override
+	public DomainResource setModifierExtension(List<Extension> theModifierExtension) {
+		throw frozen();
+	}
+	
+	private static <T> List<T> unmodifiable(List<T> values) {
+		return values == null || values.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(values);
+	}
+	
+	private static Enumeration<InventoryItemStatusCodes> freezeStatus(Enumeration<InventoryItemStatusCodes> status) {
+		if (status != null && status.getValue() != null && !status.hasId() && !status.hasExtension()) {
+			return InventoryItemStatusCodesEnumFactory.getSharedEnumeration(status.getValue());
+		}
+		return new FrozenStatus(status);
+	}
+	
+	private static void freezeElement(BackboneElement element) {
+		// the getters create the missing elements
+		element.getIdElement();
+		element.setExtension(unmodifiable(element.getExtension()));
+		element.setModifierExtension(unmodifiable(element.getModifierExtension()));
+	}
+	
+	private static UnsupportedOperationException frozen() {
+		return new UnsupportedOperationException("Frozen InventoryItems cannot be modified");
+	}
+	
+	/**
+	 * A status that cannot be replaced by a shared enumeration, because it is missing or has an id or extensions.
+	 */
+	private static class FrozenStatus extends Enumeration<InventoryItemStatusCodes> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final boolean initialized;
+		
+		FrozenStatus(Enumeration<InventoryItemStatusCodes> source) {
+			super(InventoryItemStatusCodesEnumFactory.INSTANCE);
+			if (source != null) {
+				super.setValue(source.getValue());
+				super.setIdElement(source.hasId() ? source.getIdElement().copy() : new StringType());
+				List<Extension> extensions = new ArrayList<>();
+				if (source.hasExtension()) {
+					for (Extension extension : source.getExtension()) {
+						extensions.add(extension.copy());
+					}
+				}
+				super.setExtension(unmodifiable(extensions));
+			} else {
+				super.setIdElement(new StringType());
+				super.setExtension(Collections.emptyList());
+			}
+			initialized = true;
+		}
+		
+		@Override
+		public PrimitiveType<InventoryItemStatusCodes> setValue(InventoryItemStatusCodes value) {
+			if (initialized) {
+				throw frozen();
+			}
+			return super.setValue(value);
+		}
+		
+		@Override
+		public void setValueAsString(String value) {
+			throw frozen();
+		}
+		
+		@Override
+		public Element setIdElement(StringType value) {
+			if (initialized) {
+				throw frozen();
+			}
+			return super.setIdElement(value);
+		}
+		
+		@Override
+		public Element setId(String value) {
+			throw frozen();
+		}
+		
+		@Override
+		public Element setExtension(List<Extension> theExtension) {
+			if (initialized) {
+				throw frozen();
+			}
+			return super.setExtension(theExtension);
+		}
+		
+		@Override
+		public Extension addExtension() {
+			throw frozen();
+		}
+		
+		@Override
+		public Element addExtension(Extension extension) {
+			throw frozen();
+		}
+	}
+	
+	@Block
+	private static class FrozenNameComponent extends InventoryItemNameComponent {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private boolean initialized;
+		
+		private transient int hashDeep;
+		
+		static FrozenNameComponent of(InventoryItemNameComponent source) {
+			FrozenNameComponent frozen = new FrozenNameComponent();
+			source.copyValues(frozen);
+			if (frozen.nameType == null) {
+				frozen.nameType = new Coding();
+			}
+			if (frozen.name == null) {
+				frozen.name = new StringType();
+			}
+			freezeElement(frozen);
+			frozen.initialized = true;
+			frozen.hashDeep();
+			return frozen;
+		}
+		
+		@Override
+		public int hashDeep() {
+			int hash = this.hashDeep;
+			if (hash == 0) {
+				hash = super.hashDeep();
+				this.hashDeep = hash;
+			}
+			return hash;
+		}
+		
+		@Override
+		public InventoryItemNameComponent setNameType(Coding value) {
+			throw frozen();
+		}
+		
+		@Override
+		public InventoryItemNameComponent setNameElement(StringType value) {
+			throw frozen();
+		}
+		
+		@Override
+		public InventoryItemNameComponent setName(String value) {
+			throw frozen();
+		}
+		
+		@Override
+		public Base setProperty(int hash, String name, Base value) throws FHIRException {
+			throw frozen();
+		}
+		
+		@Override
+		public Base setProperty(String name, Base value) throws FHIRException {
+			throw frozen();
+		}
+		
+		@Override
+		public Base makeProperty(int hash, String name) throws FHIRException {
+			throw frozen();
+		}
+		
+		@Override
+		public Base addChild(String name) throws FHIRException {
+			throw frozen();
+		}
+		
+		@Override
+		public Element setIdElement(StringType value) {
+			throw frozen();
+		}
+		
+		@Override
+		public Element setId(String value) {
+			throw frozen();
+		}
+		
+		@Override
+		public Element setExtension(List<Extension> theExtension) {
+			if (initialized) {
+				throw frozen();
+			}
+			return super.setExtension(theExtension);
+		}
+		
+		@Override
+		public BackboneElement setModifierExtension(List<Extension> theModifierExtension) {
+			if (initialized) {
+				throw frozen();
+			}
+			return super.setModifierExtension(theModifierExtension);
+		}
+	}
+	
+	@Block
+	private static class FrozenDescriptionComponent extends InventoryItemDescriptionComponent {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private boolean initialized;
+		
+		private transient int hashDeep;
+		
+		static FrozenDescriptionComponent of(InventoryItemDescriptionComponent source) {
+			FrozenDescriptionComponent frozen = new FrozenDescriptionComponent();
+			if (source != null) {
+				source.copyValues(frozen);
+			}
+			if (frozen.description == null) {
+				frozen.description = new StringType();
+			}
+			freezeElement(frozen);
+			frozen.initialized = true;
+			frozen.hashDeep();
+			return frozen;
+		}
+		
+		@Override
+		public int hashDeep() {
+			int hash = this.hashDeep;
+			if (hash == 0) {
+				hash = super.hashDeep();
+				this.hashDeep = hash;
+			}
+			return hash;
+		}
+		
+		@Override
+		public InventoryItemDescriptionComponent setDescriptionElement(StringType value) {
+			throw frozen();
+		}
+		
+		@Override
+		public InventoryItemDescriptionComponent setDescription(String value) {
+			throw frozen();
+		}
+		
+		@Override
+		public Base setProperty(int hash, String name, Base value) throws FHIRException {
+			throw frozen();
+		}
+		
+		@Override
+		public Base setProperty(String name, Base value) throws FHIRException {
+			throw frozen();
+		}
+		
+		@Override
+		public Base makeProperty(int hash, String name) throws FHIRException {
+			throw frozen();
+		}
+		
+		@Override
+		public Base addChild(String name) throws FHIRException {
+			throw frozen();
+		}
+		
+		@Override
+		public Element setIdElement(StringType value) {
+			throw frozen();
+		}
+		
+		@Override
+		public Element setId(String value) {
+			throw frozen();
+		}
+		
+		@Override
+		public Element setExtension(List<Extension> theExtension) {
+			if (initialized) {
+				throw frozen();
+			}
+			return super.setExtension(theExtension);
+		}
+		
+		@Override
+		public BackboneElement setModifierExtension(List<Extension> theModifierExtension) {
+			if (initialized) {
+				throw frozen();
+			}
+			return super.setModifierExtension(theModifierExtension);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package org.openmrs.fhir;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads of an {@link InventoryItemBulkImport}. This is the Java 8 version, which always uses a pool of
+ * platform threads; the multi-release JAR replaces it on Java 21 and later with a version that can run every item on
+ * its own virtual thread, see {@code src/main/java21}.
+ */
+final class ImportThreads {
+	
+	private ImportThreads() {
+	}
+	
+	/**
+	 * @return whether {@link #newExecutor(int, boolean)} can create virtual threads
+	 */
+	static boolean supportsVirtualThreads() {
+		return false;
+	}
+	
+	/**
+	 * @param maxConcurrency the number of items processed at the same time
+	 * @param virtualThreads whether to run each item on a new virtual thread, if they are supported
+	 */
+	static ExecutorService newExecutor(int maxConcurrency, boolean virtualThreads) {
+		return Executors.newFixedThreadPool(maxConcurrency, platformThreadFactory());
+	}
+	
+	private static ThreadFactory platformThreadFactory() {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "inventory-item-import-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
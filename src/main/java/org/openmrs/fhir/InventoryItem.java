@@ -1,8 +1,15 @@
 package org.openmrs.fhir;
 
+import static org.openmrs.fhir.InventoryItemFields.bit;
+
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.instance.model.api.IBaseBackboneElement;
@@ -13,8 +20,10 @@ import org.hl7.fhir.r4.model.CodeableConcept;
 import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.Configuration;
 import org.hl7.fhir.r4.model.DomainResource;
+import org.hl7.fhir.r4.model.Element;
 import org.hl7.fhir.r4.model.EnumFactory;
 import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.Extension;
 import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.PrimitiveType;
 import org.hl7.fhir.r4.model.Property;
@@ -30,11 +39,13 @@ import ca.uhn.fhir.model.api.annotation.Child;
 import ca.uhn.fhir.model.api.annotation.Description;
 import ca.uhn.fhir.model.api.annotation.ResourceDef;
 import ca.uhn.fhir.model.api.annotation.SearchParamDefinition;
+import ca.uhn.fhir.rest.gclient.QuantityClientParam;
+import ca.uhn.fhir.rest.gclient.StringClientParam;
 import ca.uhn.fhir.rest.gclient.TokenClientParam;
 import ca.uhn.fhir.util.ElementUtil;
 
 @ResourceDef(name = "InventoryItem", profile = "http://hl7.org/fhir/StructureDefinition/InventoryItem")
-public class InventoryItem extends DomainResource {
+public class InventoryItem extends DomainResource implements ChildTraversable {
 	
 	@Child(name = "identifier", type = { Identifier.class }, order = 0, min = 0, max = -1, modifier = false, summary = true)
 	@Description(shortDefinition = "Business identifier for the inventory item", formalDefinition = "Business identifier for the inventory item.")
@@ -93,6 +104,54 @@ public class InventoryItem extends DomainResource {
 	
 	public static final TokenClientParam STATUS = new TokenClientParam("status");
 	
+	@SearchParamDefinition(name = "category", path = "InventoryItem.category", description = "The category of the item", type = "token")
+	public static final String SP_CATEGORY = "category";
+	
+	public static final TokenClientParam CATEGORY = new TokenClientParam("category");
+	
+	@SearchParamDefinition(name = "inventory-status", path = "InventoryItem.inventoryStatus", description = "The inventory status of the item", type = "token")
+	public static final String SP_INVENTORY_STATUS = "inventory-status";
+	
+	public static final TokenClientParam INVENTORY_STATUS = new TokenClientParam("inventory-status");
+	
+	@SearchParamDefinition(name = "name", path = "InventoryItem.name.name", description = "A name of the item", type = "string")
+	public static final String SP_NAME = "name";
+	
+	public static final StringClientParam NAME = new StringClientParam("name");
+	
+	@SearchParamDefinition(name = "base-unit", path = "InventoryItem.baseUnit", description = "The base unit of the item", type = "token")
+	public static final String SP_BASE_UNIT = "base-unit";
+	
+	public static final TokenClientParam BASE_UNIT = new TokenClientParam("base-unit");
+	
+	@SearchParamDefinition(name = "net-content", path = "InventoryItem.netContent", description = "The net content of the item", type = "quantity")
+	public static final String SP_NET_CONTENT = "net-content";
+	
+	public static final QuantityClientParam NET_CONTENT = new QuantityClientParam("net-content");
+	
+	private static final Base[] NO_VALUES = new Base[0];
+	
+	/** Whether changes are recorded, see {@link #setChangeTracking(boolean)}. */
+	private boolean changeTracking;
+	
+	/** Fields changed through this item since the last {@link #clearDirty()}. */
+	private int dirty;
+	
+	/**
+	 * Fields whose value was handed out or taken from a caller, so it can change without going through this item, see
+	 * {@link #expose(int)}.
+	 */
+	private int exposed;
+	
+	/** Copies of the exposed fields as they were at the last {@link #clearDirty()}, by field. */
+	private Object[] checkpoint;
+	
+	/** {@link DeepHash}es of the fields, by field, valid for the fields with the bits set in {@link #hashed}. */
+	private int[] hashes;
+	
+	/** Fields whose hash is memoized, which are never exposed ones. */
+	private int hashed;
+	
 	public InventoryItem() {
 	}
 	
@@ -101,6 +160,7 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public List<Identifier> getIdentifier() {
+		this.expose(bit(InventoryItemFields.IDENTIFIER));
 		if (this.identifier == null) {
 			this.identifier = new ArrayList();
 		}
@@ -109,6 +169,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setIdentifier(List<Identifier> theIdentifier) {
+		this.beforeChange(bit(InventoryItemFields.IDENTIFIER));
+		this.expose(bit(InventoryItemFields.IDENTIFIER));
 		this.identifier = theIdentifier;
 		return this;
 	}
@@ -133,6 +195,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public Identifier addIdentifier() {
+		this.beforeChange(bit(InventoryItemFields.IDENTIFIER));
+		this.expose(bit(InventoryItemFields.IDENTIFIER));
 		Identifier t = new Identifier();
 		if (this.identifier == null) {
 			this.identifier = new ArrayList();
@@ -143,6 +207,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem addIdentifier(Identifier t) {
+		this.beforeChange(bit(InventoryItemFields.IDENTIFIER));
+		this.expose(bit(InventoryItemFields.IDENTIFIER));
 		if (t == null) {
 			return this;
 		} else {
@@ -157,20 +223,21 @@ public class InventoryItem extends DomainResource {
 	
 	public Identifier getIdentifierFirstRep() {
 		if (this.getIdentifier().isEmpty()) {
-			this.addIdentifier();
+			this.getIdentifier().add(new Identifier());
 		}
 		
 		return this.getIdentifier().get(0);
 	}
 	
 	public Enumeration<InventoryItemStatusCodes> getStatusElement() {
+		this.expose(bit(InventoryItemFields.STATUS));
 		if (this.status == null) {
 			if (Configuration.errorOnAutoCreate()) {
 				throw new Error("Attempt to auto-create InventoryItem.status");
 			}
 			
 			if (Configuration.doAutoCreate()) {
-				this.status = new Enumeration(new InventoryItemStatusCodesEnumFactory());
+				this.status = new Enumeration(InventoryItemStatusCodesEnumFactory.INSTANCE);
 			}
 		}
 		
@@ -186,6 +253,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setStatusElement(Enumeration<InventoryItemStatusCodes> value) {
+		this.beforeChange(bit(InventoryItemFields.STATUS));
+		this.expose(bit(InventoryItemFields.STATUS));
 		this.status = value;
 		return this;
 	}
@@ -195,15 +264,18 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setStatus(InventoryItemStatusCodes value) {
-		if (this.status == null) {
-			this.status = new Enumeration(new InventoryItemStatusCodesEnumFactory());
+		this.beforeChange(bit(InventoryItemFields.STATUS));
+		if (this.status == null || InventoryItemStatusCodesEnumFactory.isShared(this.status)) {
+			this.status = InventoryItemStatusCodesEnumFactory.INSTANCE.newEnumeration(value);
+		} else {
+			this.status.setValue(value);
 		}
 		
-		this.status.setValue(value);
 		return this;
 	}
 	
 	public List<CodeableConcept> getCategory() {
+		this.expose(bit(InventoryItemFields.CATEGORY));
 		if (this.category == null) {
 			this.category = new ArrayList();
 		}
@@ -212,6 +284,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setCategory(List<CodeableConcept> theCategory) {
+		this.beforeChange(bit(InventoryItemFields.CATEGORY));
+		this.expose(bit(InventoryItemFields.CATEGORY));
 		this.category = theCategory;
 		return this;
 	}
@@ -236,6 +310,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public CodeableConcept addCategory() {
+		this.beforeChange(bit(InventoryItemFields.CATEGORY));
+		this.expose(bit(InventoryItemFields.CATEGORY));
 		CodeableConcept t = new CodeableConcept();
 		if (this.category == null) {
 			this.category = new ArrayList();
@@ -246,6 +322,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem addCategory(CodeableConcept t) {
+		this.beforeChange(bit(InventoryItemFields.CATEGORY));
+		this.expose(bit(InventoryItemFields.CATEGORY));
 		if (t == null) {
 			return this;
 		} else {
@@ -260,13 +338,14 @@ public class InventoryItem extends DomainResource {
 	
 	public CodeableConcept getCategoryFirstRep() {
 		if (this.getCategory().isEmpty()) {
-			this.addCategory();
+			this.getCategory().add(new CodeableConcept());
 		}
 		
 		return (CodeableConcept) this.getCategory().get(0);
 	}
 	
 	public List<CodeableConcept> getCode() {
+		this.expose(bit(InventoryItemFields.CODE));
 		if (this.code == null) {
 			this.code = new ArrayList();
 		}
@@ -275,6 +354,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setCode(List<CodeableConcept> theCode) {
+		this.beforeChange(bit(InventoryItemFields.CODE));
+		this.expose(bit(InventoryItemFields.CODE));
 		this.code = theCode;
 		return this;
 	}
@@ -299,6 +380,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public CodeableConcept addCode() {
+		this.beforeChange(bit(InventoryItemFields.CODE));
+		this.expose(bit(InventoryItemFields.CODE));
 		CodeableConcept t = new CodeableConcept();
 		if (this.code == null) {
 			this.code = new ArrayList();
@@ -309,6 +392,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem addCode(CodeableConcept t) {
+		this.beforeChange(bit(InventoryItemFields.CODE));
+		this.expose(bit(InventoryItemFields.CODE));
 		if (t == null) {
 			return this;
 		} else {
@@ -323,13 +408,14 @@ public class InventoryItem extends DomainResource {
 	
 	public CodeableConcept getCodeFirstRep() {
 		if (this.getCode().isEmpty()) {
-			this.addCode();
+			this.getCode().add(new CodeableConcept());
 		}
 		
 		return (CodeableConcept) this.getCode().get(0);
 	}
 	
 	public List<InventoryItemNameComponent> getName() {
+		this.expose(bit(InventoryItemFields.NAME));
 		if (this.name == null) {
 			this.name = new ArrayList();
 		}
@@ -338,6 +424,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setName(List<InventoryItemNameComponent> theName) {
+		this.beforeChange(bit(InventoryItemFields.NAME));
+		this.expose(bit(InventoryItemFields.NAME));
 		this.name = theName;
 		return this;
 	}
@@ -362,6 +450,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItemNameComponent addName() {
+		this.beforeChange(bit(InventoryItemFields.NAME));
+		this.expose(bit(InventoryItemFields.NAME));
 		InventoryItemNameComponent t = new InventoryItemNameComponent();
 		if (this.name == null) {
 			this.name = new ArrayList();
@@ -372,6 +462,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem addName(InventoryItemNameComponent t) {
+		this.beforeChange(bit(InventoryItemFields.NAME));
+		this.expose(bit(InventoryItemFields.NAME));
 		if (t == null) {
 			return this;
 		} else {
@@ -386,13 +478,14 @@ public class InventoryItem extends DomainResource {
 	
 	public InventoryItemNameComponent getNameFirstRep() {
 		if (this.getName().isEmpty()) {
-			this.addName();
+			this.getName().add(new InventoryItemNameComponent());
 		}
 		
 		return (InventoryItemNameComponent) this.getName().get(0);
 	}
 	
 	public InventoryItemDescriptionComponent getDescription() {
+		this.expose(bit(InventoryItemFields.DESCRIPTION));
 		if (this.description == null) {
 			if (Configuration.errorOnAutoCreate()) {
 				throw new Error("Attempt to auto-create InventoryItem.description");
@@ -411,11 +504,14 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setDescription(InventoryItemDescriptionComponent value) {
+		this.beforeChange(bit(InventoryItemFields.DESCRIPTION));
+		this.expose(bit(InventoryItemFields.DESCRIPTION));
 		this.description = value;
 		return this;
 	}
 	
 	public List<CodeableConcept> getInventoryStatus() {
+		this.expose(bit(InventoryItemFields.INVENTORY_STATUS));
 		if (this.inventoryStatus == null) {
 			this.inventoryStatus = new ArrayList();
 		}
@@ -424,6 +520,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setInventoryStatus(List<CodeableConcept> theInventoryStatus) {
+		this.beforeChange(bit(InventoryItemFields.INVENTORY_STATUS));
+		this.expose(bit(InventoryItemFields.INVENTORY_STATUS));
 		this.inventoryStatus = theInventoryStatus;
 		return this;
 	}
@@ -448,6 +546,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public CodeableConcept addInventoryStatus() {
+		this.beforeChange(bit(InventoryItemFields.INVENTORY_STATUS));
+		this.expose(bit(InventoryItemFields.INVENTORY_STATUS));
 		CodeableConcept t = new CodeableConcept();
 		if (this.inventoryStatus == null) {
 			this.inventoryStatus = new ArrayList();
@@ -458,6 +558,8 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem addInventoryStatus(CodeableConcept t) {
+		this.beforeChange(bit(InventoryItemFields.INVENTORY_STATUS));
+		this.expose(bit(InventoryItemFields.INVENTORY_STATUS));
 		if (t == null) {
 			return this;
 		} else {
@@ -472,13 +574,14 @@ public class InventoryItem extends DomainResource {
 	
 	public CodeableConcept getInventoryStatusFirstRep() {
 		if (this.getInventoryStatus().isEmpty()) {
-			this.addInventoryStatus();
+			this.getInventoryStatus().add(new CodeableConcept());
 		}
 		
 		return (CodeableConcept) this.getInventoryStatus().get(0);
 	}
 	
 	public CodeableConcept getBaseUnit() {
+		this.expose(bit(InventoryItemFields.BASE_UNIT));
 		if (this.baseUnit == null) {
 			if (Configuration.errorOnAutoCreate()) {
 				throw new Error("Attempt to auto-create InventoryItem.baseUnit");
@@ -497,11 +600,14 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setBaseUnit(CodeableConcept value) {
+		this.beforeChange(bit(InventoryItemFields.BASE_UNIT));
+		this.expose(bit(InventoryItemFields.BASE_UNIT));
 		this.baseUnit = value;
 		return this;
 	}
 	
 	public Quantity getNetContent() {
+		this.expose(bit(InventoryItemFields.NET_CONTENT));
 		if (this.netContent == null) {
 			if (Configuration.errorOnAutoCreate()) {
 				throw new Error("Attempt to auto-create InventoryItem.netContent");
@@ -520,11 +626,14 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public InventoryItem setNetContent(Quantity value) {
+		this.beforeChange(bit(InventoryItemFields.NET_CONTENT));
+		this.expose(bit(InventoryItemFields.NET_CONTENT));
 		this.netContent = value;
 		return this;
 	}
 	
 	protected void listChildren(List<Property> children) {
+		this.expose(InventoryItemFields.ALL);
 		super.listChildren(children);
 		children.add(new Property("identifier", "Identifier", "Business identifier for the inventory item.", 0,
 		        Integer.MAX_VALUE, this.identifier));
@@ -550,31 +659,40 @@ public class InventoryItem extends DomainResource {
 	public Property getNamedProperty(int _hash, String _name, boolean _checkValid) throws FHIRException {
 		switch (_hash) {
 			case -1724546052:
+				this.expose(bit(InventoryItemFields.DESCRIPTION));
 				return new Property("description", "", "The descriptive characteristics of the inventory item.", 0, 1,
 				        this.description);
 			case -1721465867:
+				this.expose(bit(InventoryItemFields.BASE_UNIT));
 				return new Property("baseUnit", "CodeableConcept",
 				        "The base unit of measure - the unit in which the product is used or counted.", 0, 1, this.baseUnit);
 			case -1618432855:
+				this.expose(bit(InventoryItemFields.IDENTIFIER));
 				return new Property("identifier", "Identifier", "Business identifier for the inventory item.", 0,
 				        Integer.MAX_VALUE, this.identifier);
 			case -1370922898:
+				this.expose(bit(InventoryItemFields.INVENTORY_STATUS));
 				return new Property("inventoryStatus", "CodeableConcept",
 				        "The usage status e.g. recalled, in use, discarded... This can be used to indicate that the items have been taken out of inventory, or are in use, etc.",
 				        0, Integer.MAX_VALUE, this.inventoryStatus);
 			case -892481550:
+				this.expose(bit(InventoryItemFields.STATUS));
 				return new Property("status", "code", "Status of the item entry.", 0, 1, this.status);
 			case 3059181:
+				this.expose(bit(InventoryItemFields.CODE));
 				return new Property("code", "CodeableConcept", "Code designating the specific type of item.", 0,
 				        Integer.MAX_VALUE, this.code);
 			case 3373707:
+				this.expose(bit(InventoryItemFields.NAME));
 				return new Property("name", "",
 				        "The item name(s) - the brand name, or common name, functional name, generic name.", 0,
 				        Integer.MAX_VALUE, this.name);
 			case 50511102:
+				this.expose(bit(InventoryItemFields.CATEGORY));
 				return new Property("category", "CodeableConcept", "Category or class of the item.", 0, Integer.MAX_VALUE,
 				        this.category);
 			case 612796444:
+				this.expose(bit(InventoryItemFields.NET_CONTENT));
 				return new Property("netContent", "Quantity", "Net content or amount present in the item.", 0, 1,
 				        this.netContent);
 			default:
@@ -585,56 +703,133 @@ public class InventoryItem extends DomainResource {
 	public Base[] getProperty(int hash, String name, boolean checkValid) throws FHIRException {
 		switch (hash) {
 			case -1724546052:
-				return this.description == null ? new Base[0] : new Base[] { this.description };
+				this.expose(bit(InventoryItemFields.DESCRIPTION));
+				return this.description == null ? NO_VALUES : new Base[] { this.description };
 			case -1721465867:
-				return this.baseUnit == null ? new Base[0] : new Base[] { this.baseUnit };
+				this.expose(bit(InventoryItemFields.BASE_UNIT));
+				return this.baseUnit == null ? NO_VALUES : new Base[] { this.baseUnit };
 			case -1618432855:
-				return this.identifier == null ? new Base[0]
+				this.expose(bit(InventoryItemFields.IDENTIFIER));
+				return this.identifier == null ? NO_VALUES
 				        : (Base[]) this.identifier.toArray(new Base[this.identifier.size()]);
 			case -1370922898:
-				return this.inventoryStatus == null ? new Base[0]
+				this.expose(bit(InventoryItemFields.INVENTORY_STATUS));
+				return this.inventoryStatus == null ? NO_VALUES
 				        : (Base[]) this.inventoryStatus.toArray(new Base[this.inventoryStatus.size()]);
 			case -892481550:
-				return this.status == null ? new Base[0] : new Base[] { this.status };
+				this.expose(bit(InventoryItemFields.STATUS));
+				return this.status == null ? NO_VALUES : new Base[] { this.status };
 			case 3059181:
-				return this.code == null ? new Base[0] : (Base[]) this.code.toArray(new Base[this.code.size()]);
+				this.expose(bit(InventoryItemFields.CODE));
+				return this.code == null ? NO_VALUES : (Base[]) this.code.toArray(new Base[this.code.size()]);
 			case 3373707:
-				return this.name == null ? new Base[0] : (Base[]) this.name.toArray(new Base[this.name.size()]);
+				this.expose(bit(InventoryItemFields.NAME));
+				return this.name == null ? NO_VALUES : (Base[]) this.name.toArray(new Base[this.name.size()]);
 			case 50511102:
-				return this.category == null ? new Base[0] : (Base[]) this.category.toArray(new Base[this.category.size()]);
+				this.expose(bit(InventoryItemFields.CATEGORY));
+				return this.category == null ? NO_VALUES : (Base[]) this.category.toArray(new Base[this.category.size()]);
 			case 612796444:
-				return this.netContent == null ? new Base[0] : new Base[] { this.netContent };
+				this.expose(bit(InventoryItemFields.NET_CONTENT));
+				return this.netContent == null ? NO_VALUES : new Base[] { this.netContent };
 			default:
 				return super.getProperty(hash, name, checkValid);
 		}
 	}
 	
+	public void forEachChild(int hash, String name, Consumer<? super Base> action) throws FHIRException {
+		switch (hash) {
+			case -1724546052:
+				this.expose(bit(InventoryItemFields.DESCRIPTION));
+				forEachValue(this.description, action);
+				break;
+			case -1721465867:
+				this.expose(bit(InventoryItemFields.BASE_UNIT));
+				forEachValue(this.baseUnit, action);
+				break;
+			case -1618432855:
+				this.expose(bit(InventoryItemFields.IDENTIFIER));
+				forEachValue(this.identifier, action);
+				break;
+			case -1370922898:
+				this.expose(bit(InventoryItemFields.INVENTORY_STATUS));
+				forEachValue(this.inventoryStatus, action);
+				break;
+			case -892481550:
+				this.expose(bit(InventoryItemFields.STATUS));
+				forEachValue(this.status, action);
+				break;
+			case 3059181:
+				this.expose(bit(InventoryItemFields.CODE));
+				forEachValue(this.code, action);
+				break;
+			case 3373707:
+				this.expose(bit(InventoryItemFields.NAME));
+				forEachValue(this.name, action);
+				break;
+			case 50511102:
+				this.expose(bit(InventoryItemFields.CATEGORY));
+				forEachValue(this.category, action);
+				break;
+			case 612796444:
+				this.expose(bit(InventoryItemFields.NET_CONTENT));
+				forEachValue(this.netContent, action);
+				break;
+			default:
+				forEachValue(super.getProperty(hash, name, false), action);
+		}
+	}
+	
+	static void forEachValue(Base value, Consumer<? super Base> action) {
+		if (value != null) {
+			action.accept(value);
+		}
+	}
+	
+	static void forEachValue(List<? extends Base> values, Consumer<? super Base> action) {
+		if (values != null) {
+			for (int i = 0; i < values.size(); i++) {
+				action.accept(values.get(i));
+			}
+		}
+	}
+	
+	static void forEachValue(Base[] values, Consumer<? super Base> action) {
+		if (values != null) {
+			for (Base value : values) {
+				action.accept(value);
+			}
+		}
+	}
+	
 	public Base setProperty(int hash, String name, Base value) throws FHIRException {
+		int field = InventoryItemFields.forHash(hash);
+		this.beforeChange(field < 0 ? 0 : bit(field));
+		this.expose(field < 0 ? 0 : bit(field));
 		switch (hash) {
 			case -1724546052:
 				this.description = (InventoryItemDescriptionComponent) value;
 				return value;
 			case -1721465867:
-				this.baseUnit = castToCodeableConcept(value);
+				this.baseUnit = CodingInterner.internDefault(castToCodeableConcept(value));
 				return value;
 			case -1618432855:
 				this.getIdentifier().add(castToIdentifier(value));
 				return value;
 			case -1370922898:
-				this.getInventoryStatus().add(castToCodeableConcept(value));
+				this.getInventoryStatus().add(CodingInterner.internDefault(castToCodeableConcept(value)));
 				return value;
 			case -892481550:
-				Base value1 = (new InventoryItemStatusCodesEnumFactory()).fromType(castToCode(value));
+				Base value1 = InventoryItemStatusCodesEnumFactory.INSTANCE.fromType(castToCode(value));
 				this.status = (Enumeration) value1;
 				return value1;
 			case 3059181:
-				this.getCode().add(castToCodeableConcept(value));
+				this.getCode().add(CodingInterner.internDefault(castToCodeableConcept(value)));
 				return value;
 			case 3373707:
 				this.getName().add((InventoryItemNameComponent) value);
 				return value;
 			case 50511102:
-				this.getCategory().add(castToCodeableConcept(value));
+				this.getCategory().add(CodingInterner.internDefault(castToCodeableConcept(value)));
 				return value;
 			case 612796444:
 				this.netContent = castToQuantity(value);
@@ -645,19 +840,22 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public Base setProperty(String name, Base value) throws FHIRException {
+		int field = InventoryItemFields.forName(name);
+		this.beforeChange(field < 0 ? 0 : bit(field));
+		this.expose(field < 0 ? 0 : bit(field));
 		switch (name) {
 			case "identifier":
 				this.getIdentifier().add(castToIdentifier((Base) value));
 				break;
 			case "status":
-				value = (new InventoryItemStatusCodesEnumFactory()).fromType(castToCode((Base) value));
+				value = InventoryItemStatusCodesEnumFactory.INSTANCE.fromType(castToCode((Base) value));
 				this.status = (Enumeration) value;
 				break;
 			case "category":
-				this.getCategory().add(castToCodeableConcept((Base) value));
+				this.getCategory().add(CodingInterner.internDefault(castToCodeableConcept((Base) value)));
 				break;
 			case "code":
-				this.getCode().add(castToCodeableConcept((Base) value));
+				this.getCode().add(CodingInterner.internDefault(castToCodeableConcept((Base) value)));
 				break;
 			case "name":
 				this.getName().add((InventoryItemNameComponent) value);
@@ -666,19 +864,24 @@ public class InventoryItem extends DomainResource {
 				this.description = (InventoryItemDescriptionComponent) value;
 				break;
 			case "inventoryStatus":
-				this.getInventoryStatus().add(castToCodeableConcept((Base) value));
+				this.getInventoryStatus().add(CodingInterner.internDefault(castToCodeableConcept((Base) value)));
 				break;
 			case "baseUnit":
-				this.baseUnit = castToCodeableConcept((Base) value);
+				this.baseUnit = CodingInterner.internDefault(castToCodeableConcept((Base) value));
 				break;
 			case "netContent":
 				this.netContent = castToQuantity((Base) value);
 				break;
+			default:
+				return super.setProperty(name, (Base) value);
 		}
 		return (Base) value;
 	}
 	
 	public Base makeProperty(int hash, String name) throws FHIRException {
+		int field = InventoryItemFields.forHash(hash);
+		this.beforeChange(field < 0 ? 0 : bit(field));
+		this.expose(field < 0 ? 0 : bit(field));
 		switch (hash) {
 			case -1724546052:
 				return this.getDescription();
@@ -739,6 +942,9 @@ public class InventoryItem extends DomainResource {
 	}
 	
 	public Base addChild(String name) throws FHIRException {
+		int field = InventoryItemFields.forName(name);
+		this.beforeChange(field < 0 ? 0 : bit(field));
+		this.expose(field < 0 ? 0 : bit(field));
 		switch (name) {
 			case "identifier":
 				return this.addIdentifier();
@@ -776,8 +982,20 @@ public class InventoryItem extends DomainResource {
 		return dst;
 	}
 	
+	/**
+	 * @return a read-only snapshot of this item that can be shared between threads, see {@link FrozenInventoryItem}
+	 */
+	public FrozenInventoryItem freeze() {
+		return FrozenInventoryItem.of(this);
+	}
+	
 	public void copyValues(InventoryItem dst) {
 		super.copyValues(dst);
+		if (this.changeTracking) {
+			dst.setChangeTracking(true);
+			dst.dirty |= this.changed(InventoryItemFields.ALL);
+		}
+		dst.hashed = 0;
 		Iterator var2;
 		if (this.identifier != null) {
 			dst.identifier = new ArrayList();
@@ -789,7 +1007,11 @@ public class InventoryItem extends DomainResource {
 			}
 		}
 		
-		dst.status = this.status == null ? null : this.status.copy();
+		if (this.status == null || InventoryItemStatusCodesEnumFactory.isShared(this.status)) {
+			dst.status = this.status;
+		} else {
+			dst.status = this.status.copy();
+		}
 		CodeableConcept i;
 		if (this.category != null) {
 			dst.category = new ArrayList();
@@ -847,7 +1069,12 @@ public class InventoryItem extends DomainResource {
 			return false;
 		} else {
 			InventoryItem o = (InventoryItem) other_;
-			return compareDeep(this.identifier, o.identifier, true) && compareDeep(this.status, o.status, true)
+			o.loadChildren();
+			if (this.hashed == InventoryItemFields.ALL && o.hashed == InventoryItemFields.ALL
+			        && this.hashDeep() != o.hashDeep()) {
+				return false;
+			}
+			return compareDeep(this.identifier, o.identifier, true) && compareStatus(this.status, o.status, true)
 			        && compareDeep(this.category, o.category, true) && compareDeep(this.code, o.code, true)
 			        && compareDeep(this.name, o.name, true) && compareDeep(this.description, o.description, true)
 			        && compareDeep(this.inventoryStatus, o.inventoryStatus, true)
@@ -862,10 +1089,26 @@ public class InventoryItem extends DomainResource {
 			return false;
 		} else {
 			InventoryItem o = (InventoryItem) other_;
-			return compareValues(this.status, o.status, true);
+			o.loadChildren();
+			return compareStatus(this.status, o.status, false);
 		}
 	}
 	
+	/**
+	 * Compares statuses like {@link #compareDeep(Base, Base, boolean)} or {@link #compareValues(PrimitiveType,
+	 * PrimitiveType, boolean)}. HAPI only considers primitives of the same class equal, which would tell a shared or
+	 * frozen status enumeration apart from a regular one with the same value.
+	 */
+	private static boolean compareStatus(Enumeration<InventoryItemStatusCodes> e1, Enumeration<InventoryItemStatusCodes> e2,
+	        boolean deep) {
+		if (e1 != null && e2 != null && e1.getClass() != e2.getClass()) {
+			return e1.getValue() == e2.getValue() && (!deep || (Objects.equals(e1.getId(), e2.getId())
+			        && compareDeep(e1.hasExtension() ? e1.getExtension() : null,
+			            e2.hasExtension() ? e2.getExtension() : null, true)));
+		}
+		return deep ? compareDeep(e1, e2, true) : compareValues(e1, e2, true);
+	}
+	
 	public boolean isEmpty() {
 		return super.isEmpty() && ElementUtil.isEmpty(new Object[] { this.identifier, this.status, this.category, this.code,
 		        this.name, this.description, this.inventoryStatus, this.baseUnit, this.netContent });
@@ -875,8 +1118,223 @@ public class InventoryItem extends DomainResource {
 		return null;
 	}
 	
+	/**
+	 * A hash of the fields of this item that is consistent with {@link #equalsDeep(Base)}: items that are deeply equal
+	 * have the same hash, so a catalog can be deduplicated by hashing instead of comparing every pair, see
+	 * {@link InventoryItemDeduplicator}. The id, meta, text, contained resources and extensions of the item, and the ids
+	 * and extensions of its elements, are left out.
+	 * <p>
+	 * The hash of each child is memoized until the child is changed through this item. Children that were handed out or
+	 * taken from a caller, see {@link #clearDirty()}, can change at any time, so they are hashed on every call. Items
+	 * read by a parser or codec, copies and frozen items have none of those, so after the first call their hash is
+	 * known, and {@code equalsDeep} returns false without comparing the children of two such items whose hashes
+	 * differ. HAPI's {@code FhirTerser} changes the fields reflectively, so an item that was hashed must not be changed
+	 * through it.
+	 */
+	public int hashDeep() {
+		// reads the fields directly, the getters of copy-on-write items would copy them
+		this.loadChildren();
+		if (this.hashes == null) {
+			this.hashes = new int[InventoryItemFields.COUNT];
+		}
+		int hash = 0;
+		for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+			hash = 31 * hash + this.hashDeep(field);
+		}
+		return hash;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private int hashDeep(int field) {
+		if ((this.hashed & bit(field)) != 0) {
+			return this.hashes[field];
+		}
+		Object value = InventoryItemFields.get(field, this);
+		int hash = value instanceof List ? DeepHash.of((List<? extends Base>) value) : DeepHash.of((Base) value);
+		if ((this.exposed & bit(field)) == 0) {
+			this.hashes[field] = hash;
+			this.hashed |= bit(field);
+		}
+		return hash;
+	}
+	
+	/**
+	 * Enables or disables recording which children are changed, which is disabled by default. Disabling it also clears
+	 * the recorded changes.
+	 */
+	public void setChangeTracking(boolean changeTracking) {
+		if (!changeTracking) {
+			this.dirty = 0;
+			this.checkpoint = null;
+		} else if (!this.changeTracking) {
+			this.checkpoint(this.exposed);
+		}
+		this.changeTracking = changeTracking;
+	}
+	
+	public boolean isChangeTracking() {
+		return this.changeTracking;
+	}
+	
+	/**
+	 * @return the children that were changed since change tracking was enabled or {@link #clearDirty()} was last
+	 *         called, with the bit of a child's {@code @Child} order set, so a storage layer can write and reindex only
+	 *         those
+	 */
+	public BitSet getDirtyChildren() {
+		int changed = this.changed(InventoryItemFields.ALL);
+		BitSet children = new BitSet();
+		for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+			if ((changed & bit(field)) != 0) {
+				children.set(InventoryItemFields.order(field));
+			}
+		}
+		return children;
+	}
+	
+	public boolean isDirty() {
+		return this.changed(InventoryItemFields.ALL) != 0;
+	}
+	
+	/**
+	 * @param childName the name of a child, e.g. {@code inventoryStatus}
+	 * @return whether the child was changed since change tracking was enabled or {@link #clearDirty()} was last called
+	 */
+	public boolean isDirty(String childName) {
+		int field = InventoryItemFields.forName(childName);
+		if (field < 0) {
+			throw new IllegalArgumentException("Unknown InventoryItem child '" + childName + "'");
+		}
+		return this.changed(bit(field)) != 0;
+	}
+	
+	/**
+	 * Marks all children as unchanged, e.g. after the item was written. A child counts as changed when it is set or
+	 * added to through this item, and when a list or element handed out by this item, or passed to one of its setters
+	 * or {@code add} methods, no longer has the content it had at the last call. Getters that create an empty child do
+	 * not change it. To tell, the children that were handed out are copied by this call, and the others when they are
+	 * first handed out after it. Changes made through HAPI's parsers or {@code FhirTerser}, which write the fields
+	 * reflectively, are only found for children that were handed out. Copies of an item with change tracking enabled
+	 * have it enabled too and start with the changes of their original.
+	 */
+	public void clearDirty() {
+		this.dirty = 0;
+		if (this.changeTracking) {
+			this.checkpoint(this.exposed);
+		}
+	}
+	
+	/**
+	 * Hands the change tracking state of this item on to a copy that shares its fields.
+	 */
+	void copyChangeTracking(InventoryItem dst) {
+		dst.changeTracking = this.changeTracking;
+		dst.dirty = this.changed(InventoryItemFields.ALL);
+	}
+	
+	/**
+	 * Records that the children of this item are no longer referenced from outside it, e.g. after a codec filled it, so
+	 * their hashes can be memoized.
+	 */
+	void ownChildren() {
+		this.dirty = this.changed(InventoryItemFields.ALL);
+		this.exposed = 0;
+	}
+	
+	/**
+	 * Called before the fields with the bits set in the mask change, which drops their memoized hashes.
+	 */
+	void beforeChange(int fields) {
+		this.hashed &= ~fields;
+		if (this.changeTracking) {
+			this.dirty |= fields;
+		}
+	}
+	
+	/**
+	 * Called before the values of the fields with the bits set in the mask are handed out or taken from a caller, after
+	 * which they can change without going through this item, so their hashes are no longer memoized. While change
+	 * tracking is enabled, a field that is not changed yet is copied first, so its changes are found by comparing it
+	 * with the copy.
+	 */
+	void expose(int fields) {
+		int added = fields & ~this.exposed;
+		if (added != 0) {
+			if (this.changeTracking) {
+				this.checkpoint(added & ~this.dirty);
+			}
+			this.exposed |= added;
+			this.hashed &= ~added;
+		}
+	}
+	
+	/**
+	 * Copies the values of the fields with the bits set in the mask, to compare them with later.
+	 */
+	private void checkpoint(int fields) {
+		for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+			if ((fields & bit(field)) != 0) {
+				if (this.checkpoint == null) {
+					this.checkpoint = new Object[InventoryItemFields.COUNT];
+				}
+				this.checkpoint[field] = InventoryItemFields.copy(InventoryItemFields.get(field, this));
+			}
+		}
+	}
+	
+	/**
+	 * @return the fields with the bits set in the mask that were changed through this item, or were exposed and differ
+	 *         from their copy
+	 */
+	private int changed(int fields) {
+		int changed = this.dirty & fields;
+		int exposed = this.changeTracking ? this.exposed & fields & ~changed : 0;
+		for (int field = 0; exposed != 0 && field < InventoryItemFields.COUNT; field++) {
+			if ((exposed & bit(field)) != 0
+			        && !sameContent(field, this.checkpoint[field], InventoryItemFields.get(field, this))) {
+				changed |= bit(field);
+			}
+		}
+		return changed;
+	}
+	
+	/**
+	 * Compares a field's values like {@link #equalsDeep(Base)}, which considers an absent value equal to an empty one,
+	 * and in addition ignores the empty elements of a list, like those added by {@code get*FirstRep()}.
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean sameContent(int field, Object value1, Object value2) {
+		if (field == InventoryItemFields.STATUS) {
+			return compareStatus((Enumeration<InventoryItemStatusCodes>) value1,
+			    (Enumeration<InventoryItemStatusCodes>) value2, true);
+		} else if (value1 instanceof List || value2 instanceof List) {
+			return compareDeep(nonEmpty((List<? extends Base>) value1), nonEmpty((List<? extends Base>) value2), true);
+		}
+		return compareDeep((Base) value1, (Base) value2, true);
+	}
+	
+	private static List<? extends Base> nonEmpty(List<? extends Base> values) {
+		if (values == null) {
+			return null;
+		}
+		List<Base> nonEmpty = new ArrayList<>(values.size());
+		for (Base value : values) {
+			if (!value.isEmpty()) {
+				nonEmpty.add(value);
+			}
+		}
+		return nonEmpty;
+	}
+	
+	/**
+	 * Called before the child fields of another item are read directly. Subclasses that populate the fields lazily load
+	 * them here.
+	 */
+	void loadChildren() {
+	}
+	
 	@Block
-	public static class InventoryItemDescriptionComponent extends BackboneElement implements IBaseBackboneElement {
+	public static class InventoryItemDescriptionComponent extends BackboneElement implements IBaseBackboneElement, ChildTraversable {
 		
 		@Child(name = "description", type = {
 		        StringType.class }, order = 2, min = 0, max = 1, modifier = false, summary = false)
@@ -947,11 +1405,19 @@ public class InventoryItem extends DomainResource {
 		
 		public Base[] getProperty(int hash, String name, boolean checkValid) throws FHIRException {
 			if (hash == -1724546052) {
-				return this.description == null ? new Base[0] : new Base[] { this.description };
+				return this.description == null ? NO_VALUES : new Base[] { this.description };
 			}
 			return super.getProperty(hash, name, checkValid);
 		}
 		
+		public void forEachChild(int hash, String name, Consumer<? super Base> action) throws FHIRException {
+			if (hash == -1724546052) {
+				forEachValue(this.description, action);
+			} else {
+				forEachValue(super.getProperty(hash, name, false), action);
+			}
+		}
+		
 		public Base setProperty(int hash, String name, Base value) throws FHIRException {
 			if (hash == -1724546052) {
 				this.description = castToString(value);
@@ -1035,10 +1501,17 @@ public class InventoryItem extends DomainResource {
 		public String fhirType() {
 			return "InventoryItem.description";
 		}
+		
+		/**
+		 * A hash of the description consistent with {@link #equalsDeep(Base)}, see {@link InventoryItem#hashDeep()}.
+		 */
+		public int hashDeep() {
+			return DeepHash.of(this.description);
+		}
 	}
 	
 	@Block
-	public static class InventoryItemNameComponent extends BackboneElement implements IBaseBackboneElement {
+	public static class InventoryItemNameComponent extends BackboneElement implements IBaseBackboneElement, ChildTraversable {
 		
 		@Child(name = "nameType", type = { Coding.class }, order = 1, min = 1, max = 1, modifier = false, summary = true)
 		@Description(shortDefinition = "The type of name e.g. 'brand-name', 'functional-name', 'common-name'", formalDefinition = "The type of name e.g. 'brand-name', 'functional-name', 'common-name'.")
@@ -1145,21 +1618,34 @@ public class InventoryItem extends DomainResource {
 		public Base[] getProperty(int hash, String name, boolean checkValid) throws FHIRException {
 			switch (hash) {
 				case 3373707:
-					return this.name == null ? new Base[0] : new Base[] { this.name };
+					return this.name == null ? NO_VALUES : new Base[] { this.name };
 				case 1840595045:
-					return this.nameType == null ? new Base[0] : new Base[] { this.nameType };
+					return this.nameType == null ? NO_VALUES : new Base[] { this.nameType };
 				default:
 					return super.getProperty(hash, name, checkValid);
 			}
 		}
 		
+		public void forEachChild(int hash, String name, Consumer<? super Base> action) throws FHIRException {
+			switch (hash) {
+				case 3373707:
+					forEachValue(this.name, action);
+					break;
+				case 1840595045:
+					forEachValue(this.nameType, action);
+					break;
+				default:
+					forEachValue(super.getProperty(hash, name, false), action);
+			}
+		}
+		
 		public Base setProperty(int hash, String name, Base value) throws FHIRException {
 			switch (hash) {
 				case 3373707:
 					this.name = castToString(value);
 					return value;
 				case 1840595045:
-					this.nameType = castToCoding(value);
+					this.nameType = CodingInterner.internDefault(castToCoding(value));
 					return value;
 				default:
 					return super.setProperty(hash, name, value);
@@ -1168,7 +1654,7 @@ public class InventoryItem extends DomainResource {
 		
 		public Base setProperty(String name, Base value) throws FHIRException {
 			if (name.equals("nameType")) {
-				this.nameType = castToCoding((Base) value);
+				this.nameType = CodingInterner.internDefault(castToCoding((Base) value));
 			} else {
 				if (!name.equals("name")) {
 					return super.setProperty(name, (Base) value);
@@ -1256,27 +1742,82 @@ public class InventoryItem extends DomainResource {
 		public String fhirType() {
 			return "InventoryItem.name";
 		}
+		
+		/**
+		 * A hash of the name type and name consistent with {@link #equalsDeep(Base)}, see
+		 * {@link InventoryItem#hashDeep()}.
+		 */
+		public int hashDeep() {
+			return 31 * DeepHash.of(this.nameType) + DeepHash.of(this.name);
+		}
 	}
 	
 	public static class InventoryItemStatusCodesEnumFactory implements EnumFactory<InventoryItemStatusCodes> {
 		
+		/**
+		 * Shared factory instance. The factory is stateless, so this can be used instead of creating a new factory for
+		 * every status.
+		 */
+		public static final InventoryItemStatusCodesEnumFactory INSTANCE = new InventoryItemStatusCodesEnumFactory();
+		
+		private static final SharedStatusEnumeration[] SHARED_ENUMERATIONS;
+		
+		private static volatile boolean useSharedEnumerations = false;
+		
+		static {
+			InventoryItemStatusCodes[] values = InventoryItemStatusCodes.values();
+			SHARED_ENUMERATIONS = new SharedStatusEnumeration[values.length];
+			for (InventoryItemStatusCodes value : values) {
+				SHARED_ENUMERATIONS[value.ordinal()] = new SharedStatusEnumeration(INSTANCE, value);
+			}
+		}
+		
 		public InventoryItemStatusCodesEnumFactory() {
 		}
 		
+		/**
+		 * Enables or disables the shared pool of status enumerations. When enabled, {@link #fromType(PrimitiveType)} and
+		 * {@link InventoryItem#setStatus(InventoryItemStatusCodes)} reuse one immutable {@link Enumeration} per status
+		 * instead of allocating a new one. This suits read-mostly catalogs; the shared instances throw
+		 * {@link UnsupportedOperationException} when modified, and items replace rather than modify them when their
+		 * status changes.
+		 */
+		public static void setUseSharedEnumerations(boolean useSharedEnumerations) {
+			InventoryItemStatusCodesEnumFactory.useSharedEnumerations = useSharedEnumerations;
+		}
+		
+		public static boolean isUseSharedEnumerations() {
+			return useSharedEnumerations;
+		}
+		
+		/**
+		 * @return the shared immutable enumeration for the given status
+		 */
+		public static Enumeration<InventoryItemStatusCodes> getSharedEnumeration(InventoryItemStatusCodes code) {
+			return code == null ? null : SHARED_ENUMERATIONS[code.ordinal()];
+		}
+		
+		public static boolean isShared(Enumeration<?> enumeration) {
+			return enumeration instanceof SharedStatusEnumeration;
+		}
+		
+		/**
+		 * @return the shared enumeration for the value when the shared pool is enabled, otherwise a new enumeration
+		 */
+		public Enumeration<InventoryItemStatusCodes> newEnumeration(InventoryItemStatusCodes value) {
+			if (value != null && useSharedEnumerations) {
+				return SHARED_ENUMERATIONS[value.ordinal()];
+			}
+			return new Enumeration<>(this, value);
+		}
+		
 		public InventoryItemStatusCodes fromCode(String codeString) throws IllegalArgumentException {
 			if (codeString != null && !codeString.isEmpty()) {
-				switch (codeString) {
-					case "active":
-						return InventoryItemStatusCodes.ACTIVE;
-					case "inactive":
-						return InventoryItemStatusCodes.INACTIVE;
-					case "entered-in-error":
-						return InventoryItemStatusCodes.ENTEREDINERROR;
-					case "unknown":
-						return InventoryItemStatusCodes.UNKNOWN;
-					default:
-						throw new IllegalArgumentException("Unknown InventoryItemStatusCodes code '" + codeString + "'");
+				InventoryItemStatusCodes value = InventoryItemStatusCodes.forCode(codeString);
+				if (value == null) {
+					throw new IllegalArgumentException("Unknown InventoryItemStatusCodes code '" + codeString + "'");
 				}
+				return value;
 			} else {
 				return null;
 			}
@@ -1286,38 +1827,26 @@ public class InventoryItem extends DomainResource {
 			if (code == null) {
 				return null;
 			} else if (code.isEmpty()) {
-				return new Enumeration<>(this, InventoryItem.InventoryItemStatusCodes.NULL);
+				return newEnumeration(InventoryItem.InventoryItemStatusCodes.NULL);
 			} else {
 				String codeString = code.asStringValue();
 				if (codeString != null && !codeString.isEmpty()) {
-					switch (codeString) {
-						case "active":
-							return new Enumeration<>(this, InventoryItemStatusCodes.ACTIVE);
-						case "inactive":
-							return new Enumeration<>(this, InventoryItemStatusCodes.INACTIVE);
-						case "entered-in-error":
-							return new Enumeration<>(this, InventoryItemStatusCodes.ENTEREDINERROR);
-						case "unknown":
-							return new Enumeration<>(this, InventoryItemStatusCodes.UNKNOWN);
-						default:
-							throw new FHIRException("Unknown InventoryItemStatusCodes code '" + codeString + "'");
+					InventoryItemStatusCodes value = InventoryItemStatusCodes.forCode(codeString);
+					if (value == null) {
+						throw new FHIRException("Unknown InventoryItemStatusCodes code '" + codeString + "'");
 					}
+					return newEnumeration(value);
 				} else {
-					return new Enumeration<>(this, InventoryItem.InventoryItemStatusCodes.NULL);
+					return newEnumeration(InventoryItem.InventoryItemStatusCodes.NULL);
 				}
 			}
 		}
 		
 		public String toCode(InventoryItemStatusCodes code) {
-			if (code == InventoryItem.InventoryItemStatusCodes.ACTIVE) {
-				return "active";
-			} else if (code == InventoryItem.InventoryItemStatusCodes.INACTIVE) {
-				return "inactive";
-			} else if (code == InventoryItem.InventoryItemStatusCodes.ENTEREDINERROR) {
-				return "entered-in-error";
-			} else {
-				return code == InventoryItem.InventoryItemStatusCodes.UNKNOWN ? "unknown" : "?";
+			if (code == null || code == InventoryItem.InventoryItemStatusCodes.NULL) {
+				return "?";
 			}
+			return code.toCode();
 		}
 		
 		public String toSystem(InventoryItemStatusCodes code) {
@@ -1325,27 +1854,88 @@ public class InventoryItem extends DomainResource {
 		}
 	}
 	
+	/**
+	 * Immutable status enumeration shared between items, see
+	 * {@link InventoryItemStatusCodesEnumFactory#setUseSharedEnumerations(boolean)}.
+	 */
+	private static class SharedStatusEnumeration extends Enumeration<InventoryItemStatusCodes> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final boolean initialized;
+		
+		SharedStatusEnumeration(InventoryItemStatusCodesEnumFactory factory, InventoryItemStatusCodes value) {
+			super(factory, value);
+			this.initialized = true;
+		}
+		
+		@Override
+		public PrimitiveType<InventoryItemStatusCodes> setValue(InventoryItemStatusCodes value) {
+			if (initialized) {
+				throw new UnsupportedOperationException("Shared InventoryItem status enumerations cannot be modified");
+			}
+			return super.setValue(value);
+		}
+		
+		@Override
+		public void setValueAsString(String value) {
+			throw new UnsupportedOperationException("Shared InventoryItem status enumerations cannot be modified");
+		}
+		
+		@Override
+		public Element setId(String value) {
+			throw new UnsupportedOperationException("Shared InventoryItem status enumerations cannot be modified");
+		}
+		
+		@Override
+		public Extension addExtension() {
+			throw new UnsupportedOperationException("Shared InventoryItem status enumerations cannot be modified");
+		}
+		
+		@Override
+		public Element addExtension(Extension extension) {
+			throw new UnsupportedOperationException("Shared InventoryItem status enumerations cannot be modified");
+		}
+	}
+	
 	public static enum InventoryItemStatusCodes {
 		
-		ACTIVE,
-		INACTIVE,
-		ENTEREDINERROR,
-		UNKNOWN,
-		NULL;
+		ACTIVE("active", "Active", "The item is active and can be referenced."),
+		INACTIVE("inactive", "Inactive",
+		        "The item is presently inactive - there may be references to it but the item is not expected to be used."),
+		ENTEREDINERROR("entered-in-error", "Entered in Error", "The item record was entered in error."),
+		UNKNOWN("unknown", "Unknown", "The item status has not been determined."),
+		NULL(null, null, null);
+		
+		private static final String SYSTEM = "http://hl7.org/fhir/inventoryitem-status";
 		
-		private InventoryItemStatusCodes() {
+		private static final Map<String, InventoryItemStatusCodes> BY_CODE = new HashMap<>();
+		
+		static {
+			for (InventoryItemStatusCodes value : values()) {
+				if (value.code != null) {
+					BY_CODE.put(value.code, value);
+				}
+			}
+		}
+		
+		private final String code;
+		
+		private final String display;
+		
+		private final String definition;
+		
+		private InventoryItemStatusCodes(String code, String display, String definition) {
+			this.code = code;
+			this.display = display;
+			this.definition = definition;
 		}
 		
 		public static InventoryItemStatusCodes fromCode(String codeString) throws FHIRException {
 			if (codeString != null && !"".equals(codeString)) {
-				if ("active".equals(codeString)) {
-					return ACTIVE;
-				} else if ("inactive".equals(codeString)) {
-					return INACTIVE;
-				} else if ("entered-in-error".equals(codeString)) {
-					return ENTEREDINERROR;
-				} else if ("unknown".equals(codeString)) {
-					return UNKNOWN;
+				InventoryItemStatusCodes value = BY_CODE.get(codeString);
+				if (value != null) {
+					return value;
 				} else if (Configuration.isAcceptInvalidEnums()) {
 					return null;
 				} else {
@@ -1356,72 +1946,27 @@ public class InventoryItem extends DomainResource {
 			}
 		}
 		
+		/**
+		 * @return the value for the code, or null if the code is unknown
+		 */
+		static InventoryItemStatusCodes forCode(String codeString) {
+			return BY_CODE.get(codeString);
+		}
+		
 		public String toCode() {
-			switch (this) {
-				case ACTIVE:
-					return "active";
-				case INACTIVE:
-					return "inactive";
-				case ENTEREDINERROR:
-					return "entered-in-error";
-				case UNKNOWN:
-					return "unknown";
-				case NULL:
-					return null;
-				default:
-					return "?";
-			}
+			return code;
 		}
 		
 		public String getSystem() {
-			switch (this) {
-				case ACTIVE:
-					return "http://hl7.org/fhir/inventoryitem-status";
-				case INACTIVE:
-					return "http://hl7.org/fhir/inventoryitem-status";
-				case ENTEREDINERROR:
-					return "http://hl7.org/fhir/inventoryitem-status";
-				case UNKNOWN:
-					return "http://hl7.org/fhir/inventoryitem-status";
-				case NULL:
-					return null;
-				default:
-					return "?";
-			}
+			return this == NULL ? null : SYSTEM;
 		}
 		
 		public String getDefinition() {
-			switch (this) {
-				case ACTIVE:
-					return "The item is active and can be referenced.";
-				case INACTIVE:
-					return "The item is presently inactive - there may be references to it but the item is not expected to be used.";
-				case ENTEREDINERROR:
-					return "The item record was entered in error.";
-				case UNKNOWN:
-					return "The item status has not been determined.";
-				case NULL:
-					return null;
-				default:
-					return "?";
-			}
+			return definition;
 		}
 		
 		public String getDisplay() {
-			switch (this) {
-				case ACTIVE:
-					return "Active";
-				case INACTIVE:
-					return "Inactive";
-				case ENTEREDINERROR:
-					return "Entered in Error";
-				case UNKNOWN:
-					return "Unknown";
-				case NULL:
-					return null;
-				default:
-					return "?";
-			}
+			return display;
 		}
 	}
 }
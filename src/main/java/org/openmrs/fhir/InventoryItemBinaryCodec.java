@@ -0,0 +1,955 @@
+package org.openmrs.fhir;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.Narrative;
+import org.hl7.fhir.r4.model.CanonicalType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Element;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Meta;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Property;
+import org.hl7.fhir.r4.model.Quantity;
+
+import ca.uhn.fhir.context.BaseRuntimeElementDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+
+/**
+ * Compact binary codec for {@link InventoryItem}, meant for caches holding many items. The encoding is a sequence of
+ * tagged fields: every tag is a varint made of the field number, taken from the {@code @Child} order of the element, and
+ * a wire type, followed by a varint, a length prefixed UTF-8 string or a nested message ended by a zero tag. Code system
+ * URIs and profiles are written once per item and referenced by index afterwards; the URIs known to the codec, see
+ * {@link #InventoryItemBinaryCodec(FhirContext, Collection)}, are never written.
+ * <p>
+ * Items using anything outside of the layout known to {@link InventoryItemJsonCodec} (extensions, contained resources,
+ * narrative, element ids, ...) are written in a generic form built from {@link Base#children()} instead, so that every
+ * item decodes to an item that {@link InventoryItem#equalsDeep(Base) equals} the original. Instances are immutable
+ * and can be shared between threads; data must be decoded by a codec with the same additional system URIs as the codec
+ * that encoded it.
+ */
+public class InventoryItemBinaryCodec {
+	
+	private static final int FORMAT_ITEM = 1;
+	
+	private static final int FORMAT_GENERIC = 2;
+	
+	private static final int WIRE_VARINT = 0;
+	
+	private static final int WIRE_BYTES = 2;
+	
+	private static final int WIRE_MESSAGE = 3;
+	
+	/**
+	 * Code system URIs that are never written. Only ever append to this list, the index of an entry is part of the format.
+	 */
+	private static final List<String> BUILT_IN_SYSTEMS = Collections.unmodifiableList(Arrays.asList(
+	    "http://snomed.info/sct", "http://loinc.org", "http://unitsofmeasure.org",
+	    "http://www.nlm.nih.gov/research/umls/rxnorm", "http://hl7.org/fhir/sid/ndc", "http://hl7.org/fhir/sid/gtin",
+	    "http://hl7.org/fhir/inventoryitem-nametype", "http://hl7.org/fhir/StructureDefinition/InventoryItem",
+	    "http://terminology.hl7.org/CodeSystem/v2-0203", "http://terminology.hl7.org/CodeSystem/v3-NullFlavor"));
+	
+	// InventoryItem, by @Child order, and the resource elements
+	
+	private static final int ITEM_IDENTIFIER = 0;
+	
+	private static final int ITEM_STATUS = 1;
+	
+	private static final int ITEM_CATEGORY = 2;
+	
+	private static final int ITEM_CODE = 3;
+	
+	private static final int ITEM_NAME = 4;
+	
+	private static final int ITEM_DESCRIPTION = 6;
+	
+	private static final int ITEM_INVENTORY_STATUS = 7;
+	
+	private static final int ITEM_BASE_UNIT = 8;
+	
+	private static final int ITEM_NET_CONTENT = 9;
+	
+	private static final int ITEM_ID = 14;
+	
+	private static final int ITEM_META = 15;
+	
+	private static final int NAME_NAME_TYPE = 1;
+	
+	private static final int NAME_NAME = 3;
+	
+	private static final int DESCRIPTION_DESCRIPTION = 2;
+	
+	private static final int IDENTIFIER_USE = 0;
+	
+	private static final int IDENTIFIER_TYPE = 1;
+	
+	private static final int IDENTIFIER_SYSTEM = 2;
+	
+	private static final int IDENTIFIER_VALUE = 3;
+	
+	private static final int CONCEPT_CODING = 0;
+	
+	private static final int CONCEPT_TEXT = 1;
+	
+	private static final int CODING_SYSTEM = 0;
+	
+	private static final int CODING_VERSION = 1;
+	
+	private static final int CODING_CODE = 2;
+	
+	private static final int CODING_DISPLAY = 3;
+	
+	private static final int CODING_USER_SELECTED = 4;
+	
+	private static final int QUANTITY_VALUE = 0;
+	
+	private static final int QUANTITY_COMPARATOR = 1;
+	
+	private static final int QUANTITY_UNIT = 2;
+	
+	private static final int QUANTITY_SYSTEM = 3;
+	
+	private static final int QUANTITY_CODE = 4;
+	
+	private static final int META_VERSION_ID = 0;
+	
+	private static final int META_LAST_UPDATED = 1;
+	
+	private static final int META_SOURCE = 2;
+	
+	private static final int META_PROFILE = 3;
+	
+	// generic elements
+	
+	private static final int ELEMENT_NAME = 0;
+	
+	private static final int ELEMENT_TYPE = 1;
+	
+	private static final int ELEMENT_VALUE = 2;
+	
+	private static final int ELEMENT_CHILD = 3;
+	
+	private static final int ELEMENT_DIV = 4;
+	
+	/** Written right after the type of a primitive child without a value, which is not the same as a NULL code. */
+	private static final int ELEMENT_NO_VALUE = 5;
+	
+	private final FhirContext fhirContext;
+	
+	private final InventoryItemJsonCodec jsonCodec;
+	
+	private final String[] systems;
+	
+	private final Map<String, Integer> systemIndexes;
+	
+	private final CodingInterner interner;
+	
+	/**
+	 * Creates a codec interning the codings it decodes with the {@link CodingInterner#getDefault() default pool}, if
+	 * there is one when the codec is created.
+	 */
+	public InventoryItemBinaryCodec(FhirContext fhirContext) {
+		this(fhirContext, Collections.emptyList());
+	}
+	
+	/**
+	 * @param systems code system URIs used by many items, in addition to the ones the codec knows
+	 */
+	public InventoryItemBinaryCodec(FhirContext fhirContext, Collection<String> systems) {
+		this(fhirContext, systems, CodingInterner.getDefault());
+	}
+	
+	/**
+	 * @param systems code system URIs used by many items, in addition to the ones the codec knows
+	 * @param interner the pool to intern the codings of decoded items with, or null
+	 */
+	public InventoryItemBinaryCodec(FhirContext fhirContext, Collection<String> systems, CodingInterner interner) {
+		this.fhirContext = fhirContext;
+		this.jsonCodec = new InventoryItemJsonCodec(fhirContext, interner);
+		this.interner = interner;
+		List<String> allSystems = new ArrayList<>(BUILT_IN_SYSTEMS);
+		allSystems.addAll(systems);
+		this.systems = allSystems.toArray(new String[0]);
+		this.systemIndexes = new HashMap<>();
+		for (int i = 0; i < this.systems.length; i++) {
+			systemIndexes.putIfAbsent(this.systems[i], i);
+		}
+	}
+	
+	public byte[] encode(InventoryItem item) {
+		item.loadChildren();
+		Writer writer = new Writer(systemIndexes, systems.length);
+		if (jsonCodec.canEncode(item)) {
+			writer.writeByte(FORMAT_ITEM);
+			writeItem(writer, item);
+		} else {
+			writer.writeByte(FORMAT_GENERIC);
+			writeElement(writer, item);
+		}
+		writer.writeEnd();
+		return writer.toByteArray();
+	}
+	
+	/**
+	 * @throws DataFormatException if the data is not a valid encoding
+	 */
+	public InventoryItem decode(byte[] data) {
+		return decode(data, 0, data.length);
+	}
+	
+	/**
+	 * @throws DataFormatException if the data is not a valid encoding
+	 */
+	public InventoryItem decode(byte[] data, int offset, int length) {
+		Reader reader = new Reader(data, offset, offset + length, systems);
+		try {
+			InventoryItem item = new InventoryItem();
+			int format = reader.readByte();
+			if (format == FORMAT_ITEM) {
+				readItem(reader, item);
+			} else if (format == FORMAT_GENERIC) {
+				readElement(reader, item);
+			} else {
+				throw new DataFormatException("Unknown InventoryItem binary format " + format);
+			}
+			if (reader.position != reader.limit) {
+				throw new DataFormatException("Unexpected data after InventoryItem at offset " + reader.position);
+			}
+			if (interner != null) {
+				interner.internChildren(item);
+			}
+			// the children were added through the item, but nothing else references them
+			item.ownChildren();
+			item.clearDirty();
+			return item;
+		}
+		catch (IndexOutOfBoundsException | IllegalArgumentException | ClassCastException | FHIRException e) {
+			throw new DataFormatException("Invalid InventoryItem binary data: " + e.getMessage(), e);
+		}
+	}
+	
+	// Encoding
+	
+	private static void writeItem(Writer writer, InventoryItem item) {
+		IdType id = item.getIdElement();
+		if (id.hasValue()) {
+			writer.writeString(ITEM_ID, id.getValue());
+		}
+		if (item.hasMeta()) {
+			writeMeta(writer, item.getMeta());
+		}
+		if (item.identifier != null) {
+			for (Identifier identifier : item.identifier) {
+				writer.startMessage(ITEM_IDENTIFIER);
+				writeIdentifier(writer, identifier);
+				writer.writeEnd();
+			}
+		}
+		if (item.status != null && item.status.getValue() != null) {
+			writer.writeVarint(ITEM_STATUS, item.status.getValue().ordinal());
+		}
+		writeConcepts(writer, ITEM_CATEGORY, item.category);
+		writeConcepts(writer, ITEM_CODE, item.code);
+		if (item.name != null) {
+			for (InventoryItem.InventoryItemNameComponent name : item.name) {
+				writer.startMessage(ITEM_NAME);
+				if (name.nameType != null && !name.nameType.isEmpty()) {
+					writer.startMessage(NAME_NAME_TYPE);
+					writeCoding(writer, name.nameType);
+					writer.writeEnd();
+				}
+				writeString(writer, NAME_NAME, name.name);
+				writer.writeEnd();
+			}
+		}
+		if (item.description != null && !item.description.isEmpty()) {
+			writer.startMessage(ITEM_DESCRIPTION);
+			writeString(writer, DESCRIPTION_DESCRIPTION, item.description.description);
+			writer.writeEnd();
+		}
+		writeConcepts(writer, ITEM_INVENTORY_STATUS, item.inventoryStatus);
+		if (item.baseUnit != null && !item.baseUnit.isEmpty()) {
+			writer.startMessage(ITEM_BASE_UNIT);
+			writeConcept(writer, item.baseUnit);
+			writer.writeEnd();
+		}
+		if (item.netContent != null && !item.netContent.isEmpty()) {
+			writer.startMessage(ITEM_NET_CONTENT);
+			writeQuantity(writer, item.netContent);
+			writer.writeEnd();
+		}
+	}
+	
+	private static void writeMeta(Writer writer, Meta meta) {
+		writer.startMessage(ITEM_META);
+		writeString(writer, META_VERSION_ID, meta.getVersionIdElement());
+		if (meta.getLastUpdatedElement().hasValue()) {
+			writer.writeString(META_LAST_UPDATED, meta.getLastUpdatedElement().getValueAsString());
+		}
+		writeString(writer, META_SOURCE, meta.getSourceElement());
+		for (CanonicalType profile : meta.getProfile()) {
+			writer.writeDictionaryString(META_PROFILE, profile.getValue());
+		}
+		writer.writeEnd();
+	}
+	
+	private static void writeIdentifier(Writer writer, Identifier identifier) {
+		if (identifier.hasUse()) {
+			writer.writeVarint(IDENTIFIER_USE, identifier.getUse().ordinal());
+		}
+		if (identifier.hasType()) {
+			writer.startMessage(IDENTIFIER_TYPE);
+			writeConcept(writer, identifier.getType());
+			writer.writeEnd();
+		}
+		if (identifier.hasSystem()) {
+			writer.writeDictionaryString(IDENTIFIER_SYSTEM, identifier.getSystem());
+		}
+		writeString(writer, IDENTIFIER_VALUE, identifier.getValueElement());
+	}
+	
+	private static void writeConcepts(Writer writer, int field, List<CodeableConcept> concepts) {
+		if (concepts != null) {
+			for (CodeableConcept concept : concepts) {
+				writer.startMessage(field);
+				writeConcept(writer, concept);
+				writer.writeEnd();
+			}
+		}
+	}
+	
+	private static void writeConcept(Writer writer, CodeableConcept concept) {
+		if (concept.hasCoding()) {
+			for (Coding coding : concept.getCoding()) {
+				writer.startMessage(CONCEPT_CODING);
+				writeCoding(writer, coding);
+				writer.writeEnd();
+			}
+		}
+		writeString(writer, CONCEPT_TEXT, concept.getTextElement());
+	}
+	
+	private static void writeCoding(Writer writer, Coding coding) {
+		if (coding.hasSystem()) {
+			writer.writeDictionaryString(CODING_SYSTEM, coding.getSystem());
+		}
+		writeString(writer, CODING_VERSION, coding.getVersionElement());
+		writeString(writer, CODING_CODE, coding.getCodeElement());
+		writeString(writer, CODING_DISPLAY, coding.getDisplayElement());
+		if (coding.hasUserSelected()) {
+			writer.writeVarint(CODING_USER_SELECTED, coding.getUserSelected() ? 1 : 0);
+		}
+	}
+	
+	private static void writeQuantity(Writer writer, Quantity quantity) {
+		if (quantity.hasValue()) {
+			writer.writeDecimal(QUANTITY_VALUE, quantity.getValue());
+		}
+		if (quantity.hasComparator()) {
+			writer.writeVarint(QUANTITY_COMPARATOR, quantity.getComparator().ordinal());
+		}
+		writeString(writer, QUANTITY_UNIT, quantity.getUnitElement());
+		if (quantity.hasSystem()) {
+			writer.writeDictionaryString(QUANTITY_SYSTEM, quantity.getSystem());
+		}
+		writeString(writer, QUANTITY_CODE, quantity.getCodeElement());
+	}
+	
+	private static void writeString(Writer writer, int field, PrimitiveType<?> value) {
+		if (value != null && value.hasValue()) {
+			writer.writeString(field, value.getValueAsString());
+		}
+	}
+	
+	private static void writeElement(Writer writer, Base element) {
+		if (element instanceof PrimitiveType && ((PrimitiveType<?>) element).hasValue()) {
+			writer.writeString(ELEMENT_VALUE, ((PrimitiveType<?>) element).getValueAsString());
+		}
+		if (element instanceof Narrative && ((Narrative) element).hasDiv()) {
+			writer.writeString(ELEMENT_DIV, ((Narrative) element).getDivAsString());
+		}
+		for (Property property : element.children()) {
+			if (!property.hasValues()) {
+				continue;
+			}
+			for (Base value : property.getValues()) {
+				if (value != null) {
+					writer.startMessage(ELEMENT_CHILD);
+					writer.writeDictionaryString(ELEMENT_NAME, property.getName());
+					writer.writeDictionaryString(ELEMENT_TYPE, value.fhirType());
+					if (value instanceof PrimitiveType && !((PrimitiveType<?>) value).hasValue()) {
+						writer.writeVarint(ELEMENT_NO_VALUE, 1);
+					}
+					writeElement(writer, value);
+					writer.writeEnd();
+				}
+			}
+		}
+	}
+	
+	// Decoding
+	
+	private static void readItem(Reader reader, InventoryItem item) {
+		for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+			switch (tag) {
+				case (ITEM_ID + 1) << 3 | WIRE_BYTES:
+					item.setIdElement(new IdType(reader.readString()));
+					break;
+				case (ITEM_META + 1) << 3 | WIRE_MESSAGE:
+					item.setMeta(readMeta(reader));
+					break;
+				case (ITEM_IDENTIFIER + 1) << 3 | WIRE_MESSAGE:
+					item.addIdentifier(readIdentifier(reader));
+					break;
+				case (ITEM_STATUS + 1) << 3 | WIRE_VARINT:
+					item.status = InventoryItem.InventoryItemStatusCodesEnumFactory.INSTANCE
+					        .newEnumeration(InventoryItem.InventoryItemStatusCodes.values()[reader.readInt()]);
+					break;
+				case (ITEM_CATEGORY + 1) << 3 | WIRE_MESSAGE:
+					item.addCategory(readConcept(reader));
+					break;
+				case (ITEM_CODE + 1) << 3 | WIRE_MESSAGE:
+					item.addCode(readConcept(reader));
+					break;
+				case (ITEM_NAME + 1) << 3 | WIRE_MESSAGE:
+					item.addName(readName(reader));
+					break;
+				case (ITEM_DESCRIPTION + 1) << 3 | WIRE_MESSAGE:
+					item.setDescription(readDescription(reader));
+					break;
+				case (ITEM_INVENTORY_STATUS + 1) << 3 | WIRE_MESSAGE:
+					item.addInventoryStatus(readConcept(reader));
+					break;
+				case (ITEM_BASE_UNIT + 1) << 3 | WIRE_MESSAGE:
+					item.setBaseUnit(readConcept(reader));
+					break;
+				case (ITEM_NET_CONTENT + 1) << 3 | WIRE_MESSAGE:
+					item.setNetContent(readQuantity(reader));
+					break;
+				default:
+					reader.skip(tag);
+			}
+		}
+	}
+	
+	private static Meta readMeta(Reader reader) {
+		Meta meta = new Meta();
+		for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+			switch (tag >>> 3) {
+				case META_VERSION_ID + 1:
+					meta.setVersionId(reader.readString(tag));
+					break;
+				case META_LAST_UPDATED + 1:
+					meta.getLastUpdatedElement().setValueAsString(reader.readString(tag));
+					break;
+				case META_SOURCE + 1:
+					meta.setSource(reader.readString(tag));
+					break;
+				case META_PROFILE + 1:
+					meta.addProfile(reader.readDictionaryString(tag));
+					break;
+				default:
+					reader.skip(tag);
+			}
+		}
+		return meta;
+	}
+	
+	private static Identifier readIdentifier(Reader reader) {
+		Identifier identifier = new Identifier();
+		for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+			switch (tag >>> 3) {
+				case IDENTIFIER_USE + 1:
+					identifier.setUse(Identifier.IdentifierUse.values()[reader.readInt(tag)]);
+					break;
+				case IDENTIFIER_TYPE + 1:
+					reader.expectMessage(tag);
+					identifier.setType(readConcept(reader));
+					break;
+				case IDENTIFIER_SYSTEM + 1:
+					identifier.setSystem(reader.readDictionaryString(tag));
+					break;
+				case IDENTIFIER_VALUE + 1:
+					identifier.setValue(reader.readString(tag));
+					break;
+				default:
+					reader.skip(tag);
+			}
+		}
+		return identifier;
+	}
+	
+	private static CodeableConcept readConcept(Reader reader) {
+		CodeableConcept concept = new CodeableConcept();
+		for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+			switch (tag >>> 3) {
+				case CONCEPT_CODING + 1:
+					reader.expectMessage(tag);
+					concept.addCoding(readCoding(reader));
+					break;
+				case CONCEPT_TEXT + 1:
+					concept.setText(reader.readString(tag));
+					break;
+				default:
+					reader.skip(tag);
+			}
+		}
+		return concept;
+	}
+	
+	private static Coding readCoding(Reader reader) {
+		Coding coding = new Coding();
+		for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+			switch (tag >>> 3) {
+				case CODING_SYSTEM + 1:
+					coding.setSystem(reader.readDictionaryString(tag));
+					break;
+				case CODING_VERSION + 1:
+					coding.setVersion(reader.readString(tag));
+					break;
+				case CODING_CODE + 1:
+					coding.setCode(reader.readString(tag));
+					break;
+				case CODING_DISPLAY + 1:
+					coding.setDisplay(reader.readString(tag));
+					break;
+				case CODING_USER_SELECTED + 1:
+					coding.setUserSelected(reader.readInt(tag) != 0);
+					break;
+				default:
+					reader.skip(tag);
+			}
+		}
+		return coding;
+	}
+	
+	private static InventoryItem.InventoryItemNameComponent readName(Reader reader) {
+		InventoryItem.InventoryItemNameComponent name = new InventoryItem.InventoryItemNameComponent();
+		for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+			switch (tag >>> 3) {
+				case NAME_NAME_TYPE + 1:
+					reader.expectMessage(tag);
+					name.setNameType(readCoding(reader));
+					break;
+				case NAME_NAME + 1:
+					name.setName(reader.readString(tag));
+					break;
+				default:
+					reader.skip(tag);
+			}
+		}
+		return name;
+	}
+	
+	private static InventoryItem.InventoryItemDescriptionComponent readDescription(Reader reader) {
+		InventoryItem.InventoryItemDescriptionComponent description = new InventoryItem.InventoryItemDescriptionComponent();
+		for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+			if (tag >>> 3 == DESCRIPTION_DESCRIPTION + 1) {
+				description.setDescription(reader.readString(tag));
+			} else {
+				reader.skip(tag);
+			}
+		}
+		return description;
+	}
+	
+	private static Quantity readQuantity(Reader reader) {
+		Quantity quantity = new Quantity();
+		for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+			switch (tag >>> 3) {
+				case QUANTITY_VALUE + 1:
+					quantity.setValue(reader.readDecimal(tag));
+					break;
+				case QUANTITY_COMPARATOR + 1:
+					quantity.setComparator(Quantity.QuantityComparator.values()[reader.readInt(tag)]);
+					break;
+				case QUANTITY_UNIT + 1:
+					quantity.setUnit(reader.readString(tag));
+					break;
+				case QUANTITY_SYSTEM + 1:
+					quantity.setSystem(reader.readDictionaryString(tag));
+					break;
+				case QUANTITY_CODE + 1:
+					quantity.setCode(reader.readString(tag));
+					break;
+				default:
+					reader.skip(tag);
+			}
+		}
+		return quantity;
+	}
+	
+	private void readElement(Reader reader, Base element) {
+		for (int tag = reader.readTag(); tag != 0; tag = reader.readTag()) {
+			switch (tag >>> 3) {
+				case ELEMENT_VALUE + 1:
+					((PrimitiveType<?>) element).setValueAsString(reader.readString(tag));
+					break;
+				case ELEMENT_DIV + 1:
+					((Narrative) element).setDivAsString(reader.readString(tag));
+					break;
+				case ELEMENT_CHILD + 1:
+					reader.expectMessage(tag);
+					readChild(reader, element);
+					break;
+				default:
+					reader.skip(tag);
+			}
+		}
+	}
+	
+	private void readChild(Reader reader, Base parent) {
+		int tag = reader.readTag();
+		if (tag >>> 3 != ELEMENT_NAME + 1) {
+			throw new DataFormatException("Expected element name at offset " + reader.position);
+		}
+		String name = reader.readDictionaryString(tag);
+		tag = reader.readTag();
+		if (tag >>> 3 != ELEMENT_TYPE + 1) {
+			throw new DataFormatException("Expected element type at offset " + reader.position);
+		}
+		String type = reader.readDictionaryString(tag);
+		
+		if (reader.readTagIf((ELEMENT_NO_VALUE + 1) << 3 | WIRE_VARINT)) {
+			reader.readInt();
+			// setProperty would turn a code without a value into the NULL code, let the parent create an empty element
+			Base empty = parent.makeProperty(name.hashCode(), name);
+			if (empty instanceof PrimitiveType) {
+				readElement(reader, empty);
+				return;
+			}
+		}
+		
+		if (type.indexOf('.') > 0) {
+			// backbone elements can only be created by their parent
+			readElement(reader, parent.makeProperty(name.hashCode(), name));
+			return;
+		}
+		
+		Base child = newInstance(type);
+		readElement(reader, child);
+		parent.setProperty(name, child);
+		if (child instanceof PrimitiveType && (((Element) child).hasId() || ((Element) child).hasExtension())) {
+			// setProperty converts codes to enumerations, which drops the id and extensions of the code
+			Base[] values = parent.getProperty(name.hashCode(), name, false);
+			Base stored = values.length == 0 ? null : values[values.length - 1];
+			if (stored instanceof Element && stored != child) {
+				((Element) stored).setIdElement(((Element) child).getIdElement());
+				((Element) stored).setExtension(((Element) child).getExtension());
+			}
+		}
+	}
+	
+	private Base newInstance(String type) {
+		BaseRuntimeElementDefinition<?> definition = fhirContext.getElementDefinition(type);
+		if (definition == null) {
+			definition = fhirContext.getResourceDefinition(type);
+		}
+		if (definition == null) {
+			throw new DataFormatException("Unknown element type '" + type + "'");
+		}
+		return (Base) definition.newInstance();
+	}
+	
+	/**
+	 * Growable output buffer. Dictionary strings are written as a varint index when they are known to the codec or
+	 * were written before in the same item, and as a string otherwise.
+	 */
+	private static final class Writer {
+		
+		private final Map<String, Integer> systemIndexes;
+		
+		private Map<String, Integer> dictionary;
+		
+		private int nextIndex;
+		
+		private byte[] buffer = new byte[256];
+		
+		private int position;
+		
+		Writer(Map<String, Integer> systemIndexes, int systemCount) {
+			this.systemIndexes = systemIndexes;
+			this.nextIndex = systemCount;
+		}
+		
+		void writeByte(int value) {
+			ensureCapacity(1);
+			buffer[position++] = (byte) value;
+		}
+		
+		void writeEnd() {
+			writeByte(0);
+		}
+		
+		void startMessage(int field) {
+			writeRawVarint((field + 1) << 3 | WIRE_MESSAGE);
+		}
+		
+		void writeVarint(int field, long value) {
+			writeRawVarint((field + 1) << 3 | WIRE_VARINT);
+			writeRawVarint(value);
+		}
+		
+		void writeString(int field, String value) {
+			writeRawVarint((field + 1) << 3 | WIRE_BYTES);
+			writeRawString(value);
+		}
+		
+		void writeDictionaryString(int field, String value) {
+			Integer index = systemIndexes.get(value);
+			if (index == null && dictionary != null) {
+				index = dictionary.get(value);
+			}
+			if (index != null) {
+				writeVarint(field, index);
+			} else {
+				if (dictionary == null) {
+					dictionary = new HashMap<>();
+				}
+				dictionary.put(value, nextIndex++);
+				writeString(field, value);
+			}
+		}
+		
+		/**
+		 * Writes the scale as a zigzag encoded varint followed by the unscaled value in two's complement.
+		 */
+		void writeDecimal(int field, BigDecimal value) {
+			writeRawVarint((field + 1) << 3 | WIRE_BYTES);
+			int scale = value.scale();
+			long zigzagScale = ((scale << 1) ^ (scale >> 31)) & 0xFFFFFFFFL;
+			BigInteger unscaled = value.unscaledValue();
+			if (unscaled.bitLength() < 63) {
+				long unscaledLong = unscaled.longValue();
+				// the magnitude bits plus a sign bit
+				int bytes = (64 - Long.numberOfLeadingZeros(unscaledLong < 0 ? ~unscaledLong : unscaledLong)) / 8 + 1;
+				writeRawVarint(varintSize(zigzagScale) + bytes);
+				writeRawVarint(zigzagScale);
+				ensureCapacity(bytes);
+				for (int i = bytes - 1; i >= 0; i--) {
+					buffer[position++] = (byte) (unscaledLong >> (i * 8));
+				}
+			} else {
+				byte[] bytes = unscaled.toByteArray();
+				writeRawVarint(varintSize(zigzagScale) + bytes.length);
+				writeRawVarint(zigzagScale);
+				ensureCapacity(bytes.length);
+				System.arraycopy(bytes, 0, buffer, position, bytes.length);
+				position += bytes.length;
+			}
+		}
+		
+		private void writeRawString(String value) {
+			int length = value.length();
+			boolean ascii = true;
+			for (int i = 0; i < length; i++) {
+				if (value.charAt(i) >= 0x80) {
+					ascii = false;
+					break;
+				}
+			}
+			if (ascii) {
+				writeRawVarint(length);
+				ensureCapacity(length);
+				for (int i = 0; i < length; i++) {
+					buffer[position++] = (byte) value.charAt(i);
+				}
+			} else {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeRawVarint(bytes.length);
+				ensureCapacity(bytes.length);
+				System.arraycopy(bytes, 0, buffer, position, bytes.length);
+				position += bytes.length;
+			}
+		}
+		
+		private void writeRawVarint(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[position++] = (byte) value;
+		}
+		
+		private void ensureCapacity(int length) {
+			if (position + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+			}
+		}
+		
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, position);
+		}
+		
+		private static int varintSize(long value) {
+			int size = 1;
+			while ((value & ~0x7FL) != 0) {
+				value >>>= 7;
+				size++;
+			}
+			return size;
+		}
+	}
+	
+	private static final class Reader {
+		
+		private final byte[] data;
+		
+		private final int limit;
+		
+		private final String[] systems;
+		
+		private List<String> dictionary;
+		
+		private int position;
+		
+		Reader(byte[] data, int offset, int limit, String[] systems) {
+			this.data = data;
+			this.position = offset;
+			this.limit = limit;
+			this.systems = systems;
+		}
+		
+		int readByte() {
+			checkAvailable(1);
+			return data[position++] & 0xFF;
+		}
+		
+		int readTag() {
+			return (int) readRawVarint();
+		}
+		
+		int readInt() {
+			return (int) readRawVarint();
+		}
+		
+		/**
+		 * Reads the next tag if it is the given one, otherwise leaves the position unchanged.
+		 */
+		boolean readTagIf(int tag) {
+			int start = position;
+			if (position < limit && readTag() == tag) {
+				return true;
+			}
+			position = start;
+			return false;
+		}
+		
+		int readInt(int tag) {
+			expectWireType(tag, WIRE_VARINT);
+			return readInt();
+		}
+		
+		String readString() {
+			int length = (int) readRawVarint();
+			checkAvailable(length);
+			String value = new String(data, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return value;
+		}
+		
+		String readString(int tag) {
+			expectWireType(tag, WIRE_BYTES);
+			return readString();
+		}
+		
+		String readDictionaryString(int tag) {
+			if ((tag & 7) == WIRE_VARINT) {
+				int index = readInt();
+				if (index < systems.length) {
+					return systems[index];
+				}
+				if (dictionary == null || index - systems.length >= dictionary.size()) {
+					throw new DataFormatException("Unknown dictionary entry " + index + " at offset " + position);
+				}
+				return dictionary.get(index - systems.length);
+			}
+			String value = readString(tag);
+			if (dictionary == null) {
+				dictionary = new ArrayList<>();
+			}
+			dictionary.add(value);
+			return value;
+		}
+		
+		BigDecimal readDecimal(int tag) {
+			expectWireType(tag, WIRE_BYTES);
+			int length = (int) readRawVarint();
+			int end = position + length;
+			long zigzagScale = readRawVarint();
+			int scale = (int) ((zigzagScale >>> 1) ^ -(zigzagScale & 1));
+			checkAvailable(end - position);
+			BigInteger unscaled = new BigInteger(Arrays.copyOfRange(data, position, end));
+			position = end;
+			return new BigDecimal(unscaled, scale);
+		}
+		
+		void expectMessage(int tag) {
+			expectWireType(tag, WIRE_MESSAGE);
+		}
+		
+		/**
+		 * Skips the value of a field unknown to this version of the codec.
+		 */
+		void skip(int tag) {
+			switch (tag & 7) {
+				case WIRE_VARINT:
+					readRawVarint();
+					break;
+				case WIRE_BYTES:
+					int length = (int) readRawVarint();
+					checkAvailable(length);
+					position += length;
+					break;
+				case WIRE_MESSAGE:
+					for (int nested = readTag(); nested != 0; nested = readTag()) {
+						skip(nested);
+					}
+					break;
+				default:
+					throw new DataFormatException("Unknown wire type " + (tag & 7) + " at offset " + position);
+			}
+		}
+		
+		private long readRawVarint() {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				checkAvailable(1);
+				byte b = data[position++];
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+			throw new DataFormatException("Malformed varint at offset " + position);
+		}
+		
+		private void expectWireType(int tag, int wireType) {
+			if ((tag & 7) != wireType) {
+				throw new DataFormatException("Unexpected wire type " + (tag & 7) + " for field " + ((tag >>> 3) - 1)
+				        + " at offset " + position);
+			}
+		}
+		
+		private void checkAvailable(int length) {
+			if (length < 0 || position + length > limit) {
+				throw new DataFormatException("Truncated InventoryItem binary data at offset " + position);
+			}
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package org.openmrs.fhir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hl7.fhir.r4.model.OperationOutcome;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * Imports {@link InventoryItem}s from JSON, one item per line as in NDJSON. The lines are read on the calling thread,
+ * and every item is parsed, validated with an {@link InventoryItemValidator}, persisted through a {@link Sink} and then
+ * indexed in an {@link InventoryItemRepository} on its own task, so storage that blocks does not hold up the other
+ * items.
+ * <p>
+ * At most {@link Builder#maxConcurrency(int) maxConcurrency} items are processed at the same time; reading waits while
+ * that many are in flight. On Java 8 to 20 the items run on a pool of that many platform threads. On Java 21 and later
+ * the multi-release JAR runs each item on its own virtual thread instead, unless
+ * {@link Builder#virtualThreads(boolean) virtual threads} are disabled, so the limit can be set to the number of
+ * concurrent requests the storage supports rather than the number of threads a server can afford.
+ * <p>
+ * Items that cannot be parsed, are invalid or fail to be stored are rejected with an {@link OperationOutcome}, and do
+ * not stop the import. An import can be run several times, but not by several threads at the same time.
+ */
+public class InventoryItemBulkImport {
+	
+	private final InventoryItemJsonCodec codec;
+	
+	private final InventoryItemValidator validator;
+	
+	private final InventoryItemRepository repository;
+	
+	private final Sink sink;
+	
+	private final int maxConcurrency;
+	
+	private final boolean virtualThreads;
+	
+	private InventoryItemBulkImport(Builder builder) {
+		this.codec = builder.codec;
+		this.validator = builder.validator;
+		this.repository = builder.repository;
+		this.sink = builder.sink;
+		this.virtualThreads = builder.virtualThreads && ImportThreads.supportsVirtualThreads();
+		this.maxConcurrency = builder.maxConcurrency > 0 ? builder.maxConcurrency
+		        : this.virtualThreads ? 1024 : Runtime.getRuntime().availableProcessors() * 2;
+	}
+	
+	public static Builder builder(FhirContext fhirContext) {
+		return new Builder(fhirContext);
+	}
+	
+	/**
+	 * @return whether the items are processed on virtual threads, which needs Java 21
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+	
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+	
+	/**
+	 * Imports the items of an NDJSON stream, skipping blank lines. The stream is not closed.
+	 *
+	 * @throws IOException if the stream cannot be read
+	 * @throws InterruptedException if the calling thread is interrupted while waiting for the items in flight
+	 */
+	public Result run(InputStream ndjson) throws IOException, InterruptedException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+		Run run = new Run();
+		try {
+			long lineNumber = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (!line.trim().isEmpty()) {
+					run.submit(lineNumber, line);
+				}
+			}
+		}
+		finally {
+			run.close();
+		}
+		return run.result();
+	}
+	
+	/**
+	 * Imports the items of the JSON documents, numbered from 1 in the order of the iterator.
+	 *
+	 * @throws InterruptedException if the calling thread is interrupted while waiting for the items in flight
+	 */
+	public Result run(Iterator<String> documents) throws InterruptedException {
+		Run run = new Run();
+		try {
+			long number = 0;
+			while (documents.hasNext()) {
+				run.submit(++number, documents.next());
+			}
+		}
+		finally {
+			run.close();
+		}
+		return run.result();
+	}
+	
+	/**
+	 * Processes one item; called on the thread of its task.
+	 *
+	 * @return the outcome of a rejected item, or null if it was imported
+	 */
+	private OperationOutcome process(String json) {
+		InventoryItem item;
+		try {
+			item = codec.decode(json);
+		}
+		catch (RuntimeException e) {
+			return outcome(OperationOutcome.IssueType.STRUCTURE, "Cannot parse InventoryItem: " + e.getMessage());
+		}
+		
+		OperationOutcome outcome = validator.validate(item);
+		if (InventoryItemValidator.hasErrors(outcome)) {
+			return outcome;
+		}
+		
+		try {
+			if (repository != null && item.getIdElement().getIdPart() == null) {
+				// the sink persists the item under the id it is indexed by
+				item.setId(UUID.randomUUID().toString());
+			}
+			if (sink != null) {
+				sink.store(item);
+			}
+			// indexed only once it is persisted, so searches do not find items that failed to be stored
+			if (repository != null) {
+				repository.update(item);
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			return outcome(OperationOutcome.IssueType.EXCEPTION, "Cannot store InventoryItem: " + e.getMessage());
+		}
+		return null;
+	}
+	
+	private static OperationOutcome outcome(OperationOutcome.IssueType type, String diagnostics) {
+		OperationOutcome outcome = new OperationOutcome();
+		outcome.addIssue().setSeverity(OperationOutcome.IssueSeverity.ERROR).setCode(type).setDiagnostics(diagnostics);
+		return outcome;
+	}
+	
+	/**
+	 * Persists imported items, e.g. {@code store::put} for a {@link MappedInventoryItemStore}. Called by several threads
+	 * at the same time.
+	 */
+	@FunctionalInterface
+	public interface Sink {
+		
+		void store(InventoryItem item) throws IOException;
+	}
+	
+	/**
+	 * The state of one run: the executor, the permits for the items in flight and the results.
+	 */
+	private final class Run {
+		
+		private final ExecutorService executor = ImportThreads.newExecutor(maxConcurrency, virtualThreads);
+		
+		private final Semaphore permits = new Semaphore(maxConcurrency);
+		
+		private final AtomicLong imported = new AtomicLong();
+		
+		private final SortedMap<Long, OperationOutcome> rejected = new ConcurrentSkipListMap<>();
+		
+		void submit(long number, String json) throws InterruptedException {
+			permits.acquire();
+			try {
+				executor.execute(() -> {
+					try {
+						OperationOutcome outcome = process(json);
+						if (outcome == null) {
+							imported.incrementAndGet();
+						} else {
+							rejected.put(number, outcome);
+						}
+					}
+					finally {
+						permits.release();
+					}
+				});
+			}
+			catch (RuntimeException e) {
+				permits.release();
+				throw e;
+			}
+		}
+		
+		void close() throws InterruptedException {
+			executor.shutdown();
+			// waits for the items in flight, however long storage takes
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		
+		Result result() {
+			return new Result(imported.get(), Collections.unmodifiableSortedMap(rejected));
+		}
+	}
+	
+	/**
+	 * The number of imported items and the outcomes of the rejected ones.
+	 */
+	public static final class Result {
+		
+		private final long imported;
+		
+		private final SortedMap<Long, OperationOutcome> rejected;
+		
+		Result(long imported, SortedMap<Long, OperationOutcome> rejected) {
+			this.imported = imported;
+			this.rejected = rejected;
+		}
+		
+		public long getImported() {
+			return imported;
+		}
+		
+		/**
+		 * @return the outcomes of the rejected items by line number, in order
+		 */
+		public Map<Long, OperationOutcome> getRejected() {
+			return rejected;
+		}
+		
+		@Override
+		public String toString() {
+			return imported + " imported, " + rejected.size() + " rejected";
+		}
+	}
+	
+	public static class Builder {
+		
+		private final InventoryItemJsonCodec codec;
+		
+		private InventoryItemValidator validator = new InventoryItemValidator();
+		
+		private InventoryItemRepository repository;
+		
+		private Sink sink;
+		
+		private int maxConcurrency;
+		
+		private boolean virtualThreads = true;
+		
+		private Builder(FhirContext fhirContext) {
+			this.codec = new InventoryItemJsonCodec(fhirContext);
+		}
+		
+		public Builder validator(InventoryItemValidator validator) {
+			this.validator = validator;
+			return this;
+		}
+		
+		/**
+		 * @param repository the repository to index the items in, or null
+		 */
+		public Builder repository(InventoryItemRepository repository) {
+			this.repository = repository;
+			return this;
+		}
+		
+		/**
+		 * @param sink the storage to persist the items to, before they are indexed, or null
+		 */
+		public Builder sink(Sink sink) {
+			this.sink = sink;
+			return this;
+		}
+		
+		/**
+		 * @param maxConcurrency the number of items processed at the same time, or 0 for twice the number of processors
+		 *            on platform threads and 1024 on virtual threads
+		 */
+		public Builder maxConcurrency(int maxConcurrency) {
+			if (maxConcurrency < 0) {
+				throw new IllegalArgumentException("maxConcurrency must not be negative");
+			}
+			this.maxConcurrency = maxConcurrency;
+			return this;
+		}
+		
+		/**
+		 * @param virtualThreads whether to run the items on virtual threads on Java 21 and later, true by default
+		 */
+		public Builder virtualThreads(boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+		
+		public InventoryItemBulkImport build() {
+			return new InventoryItemBulkImport(this);
+		}
+	}
+}
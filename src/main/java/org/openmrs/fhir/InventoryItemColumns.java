@@ -0,0 +1,530 @@
+package org.openmrs.fhir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Quantity;
+
+/**
+ * Column-oriented snapshot of a collection of {@link InventoryItem}s for aggregate queries. Every item is a row, and
+ * each column is a primitive array: the status ordinal, every category, code and base unit coding of an item as indexes
+ * into a dictionary of {@code system|code} tokens, and the net content value and unit. Filters return a {@link BitSet}
+ * of rows and the group-by operators count rows per value, scanning the arrays without creating objects per row.
+ * <p>
+ * Codings without a system use the token {@code |code}. Net contents in UCUM units are converted to their canonical
+ * unit, see {@link UcumUnits}, so {@code 500 mL} and {@code 0.5 L} are the same value, and net contents in other units
+ * are only compared and summed with values in the same unit. Net contents with a unit but no unit code are grouped by
+ * the displayed unit, under the token {@code |unit}. Snapshots are immutable and can be shared between threads.
+ */
+public class InventoryItemColumns {
+	
+	/** Value of a dictionary column for items without a value. */
+	public static final int NONE = -1;
+	
+	private static final InventoryItem.InventoryItemStatusCodes[] STATUSES = InventoryItem.InventoryItemStatusCodes
+	        .values();
+	
+	private final int rows;
+	
+	private final String[] ids;
+	
+	private final byte[] status;
+	
+	private final TokenColumn category;
+	
+	private final TokenColumn code;
+	
+	private final TokenColumn baseUnit;
+	
+	private final double[] netContent;
+	
+	private final int[] netContentUnit;
+	
+	private final List<String> tokens;
+	
+	private final Map<String, Integer> tokenIndexes;
+	
+	private InventoryItemColumns(Builder builder) {
+		this.rows = builder.rows;
+		this.ids = Arrays.copyOf(builder.ids, rows);
+		this.status = Arrays.copyOf(builder.status, rows);
+		this.category = builder.category.build(rows);
+		this.code = builder.code.build(rows);
+		this.baseUnit = builder.baseUnit.build(rows);
+		this.netContent = Arrays.copyOf(builder.netContent, rows);
+		this.netContentUnit = Arrays.copyOf(builder.netContentUnit, rows);
+		this.tokens = Collections.unmodifiableList(new ArrayList<>(builder.tokens));
+		this.tokenIndexes = new HashMap<>(builder.tokenIndexes);
+	}
+	
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	public static InventoryItemColumns of(Iterable<? extends InventoryItem> items) {
+		Builder builder = builder();
+		for (InventoryItem item : items) {
+			builder.add(item);
+		}
+		return builder.build();
+	}
+	
+	public int getRowCount() {
+		return rows;
+	}
+	
+	/**
+	 * @return the id part of the item in the row, or null if it had none
+	 */
+	public String getId(int row) {
+		return ids[row];
+	}
+	
+	/**
+	 * @return the status of the item in the row, or null if it had none
+	 */
+	public InventoryItem.InventoryItemStatusCodes getStatus(int row) {
+		return status[row] == NONE ? null : STATUSES[status[row]];
+	}
+	
+	/**
+	 * @return the dictionary indexes of the distinct category codings of the item in the row, in order
+	 */
+	public int[] getCategories(int row) {
+		return category.get(row);
+	}
+	
+	/**
+	 * @return the dictionary indexes of the distinct code codings of the item in the row, in order
+	 */
+	public int[] getCodes(int row) {
+		return code.get(row);
+	}
+	
+	/**
+	 * @return the dictionary indexes of the distinct base unit codings of the item in the row, in order
+	 */
+	public int[] getBaseUnits(int row) {
+		return baseUnit.get(row);
+	}
+	
+	/**
+	 * @return the net content value of the item in the row in its canonical unit, or {@link Double#NaN} if it had none
+	 */
+	public double getNetContent(int row) {
+		return netContent[row];
+	}
+	
+	/**
+	 * @return the dictionary index of the canonical {@code system|code} unit of the net content of the item in the row,
+	 *         or {@link #NONE} if it had no value or no unit
+	 */
+	public int getNetContentUnit(int row) {
+		return netContentUnit[row];
+	}
+	
+	/**
+	 * @return the {@code system|code} token with the dictionary index
+	 */
+	public String getToken(int index) {
+		return tokens.get(index);
+	}
+	
+	/**
+	 * @return the dictionary index of the token, or {@link #NONE} if no item uses it
+	 */
+	public int indexOf(String system, String code) {
+		return indexOf(token(system, code));
+	}
+	
+	private int indexOf(String token) {
+		Integer index = tokenIndexes.get(token);
+		return index == null ? NONE : index;
+	}
+	
+	/**
+	 * @return the number of dictionary entries, which is the length of the arrays returned by the group-by operators
+	 *         for dictionary columns
+	 */
+	public int getTokenCount() {
+		return tokens.size();
+	}
+	
+	// Filters
+	
+	public BitSet all() {
+		BitSet selection = new BitSet(rows);
+		selection.set(0, rows);
+		return selection;
+	}
+	
+	/**
+	 * @param value the status, or null to select the items without a status
+	 */
+	public BitSet whereStatus(InventoryItem.InventoryItemStatusCodes value) {
+		BitSet selection = new BitSet(rows);
+		byte ordinal = value == null || value == InventoryItem.InventoryItemStatusCodes.NULL ? NONE
+		        : (byte) value.ordinal();
+		for (int row = 0; row < rows; row++) {
+			if (status[row] == ordinal) {
+				selection.set(row);
+			}
+		}
+		return selection;
+	}
+	
+	public BitSet whereCategory(String system, String code) {
+		return whereEquals(category, indexOf(system, code));
+	}
+	
+	public BitSet whereCode(String system, String code) {
+		return whereEquals(this.code, indexOf(system, code));
+	}
+	
+	public BitSet whereBaseUnit(String system, String code) {
+		return whereEquals(baseUnit, indexOf(system, code));
+	}
+	
+	/**
+	 * Selects the rows with a net content between the bounds, inclusive, in a unit that converts to the unit of the
+	 * bounds. A null code selects the net contents without a unit.
+	 *
+	 * @param system the system of the unit of the bounds, null for UCUM, or empty for a unit that is only displayed
+	 */
+	public BitSet whereNetContentBetween(double min, double max, String system, String code) {
+		BitSet selection = new BitSet(rows);
+		CanonicalUnit unit = CanonicalUnit.of(system, code);
+		int unitIndex = unit == null ? NONE : indexOf(unit.token);
+		if (unit == null || unitIndex != NONE) {
+			double low = unit == null ? min : min * unit.factor;
+			double high = unit == null ? max : max * unit.factor;
+			for (int row = 0; row < rows; row++) {
+				double value = netContent[row];
+				if (netContentUnit[row] == unitIndex && value >= low && value <= high) {
+					selection.set(row);
+				}
+			}
+		}
+		return selection;
+	}
+	
+	private BitSet whereEquals(TokenColumn column, int index) {
+		BitSet selection = new BitSet(rows);
+		if (index != NONE) {
+			for (int row = 0; row < rows; row++) {
+				if (column.contains(row, index)) {
+					selection.set(row);
+				}
+			}
+		}
+		return selection;
+	}
+	
+	// Group-by operators, selection may be null for all rows
+	
+	/**
+	 * @return the number of selected rows per status, indexed by
+	 *         {@link InventoryItem.InventoryItemStatusCodes#ordinal()}
+	 */
+	public int[] countByStatus(BitSet selection) {
+		int[] counts = new int[STATUSES.length];
+		if (selection == null) {
+			for (int row = 0; row < rows; row++) {
+				if (status[row] != NONE) {
+					counts[status[row]]++;
+				}
+			}
+		} else {
+			for (int row = selection.nextSetBit(0); row >= 0 && row < rows; row = selection.nextSetBit(row + 1)) {
+				if (status[row] != NONE) {
+					counts[status[row]]++;
+				}
+			}
+		}
+		return counts;
+	}
+	
+	/**
+	 * @return the number of selected rows per category, indexed by dictionary index, where a row with several
+	 *         categories counts for each of them
+	 */
+	public int[] countByCategory(BitSet selection) {
+		return countBy(category, selection);
+	}
+	
+	/**
+	 * @return the number of selected rows per code, indexed by dictionary index, where a row with several codes counts
+	 *         for each of them
+	 */
+	public int[] countByCode(BitSet selection) {
+		return countBy(code, selection);
+	}
+	
+	/**
+	 * @return the number of selected rows per base unit, indexed by dictionary index, where a row with several base
+	 *         unit codings counts for each of them
+	 */
+	public int[] countByBaseUnit(BitSet selection) {
+		return countBy(baseUnit, selection);
+	}
+	
+	/**
+	 * Sums the net contents of the selected rows in a unit that converts to the given unit. A null code sums the net
+	 * contents without a unit.
+	 *
+	 * @param system the system of the unit, null for UCUM, or empty for a unit that is only displayed
+	 * @return the sum in the given unit
+	 */
+	public double sumNetContent(BitSet selection, String system, String code) {
+		CanonicalUnit unit = CanonicalUnit.of(system, code);
+		int unitIndex = unit == null ? NONE : indexOf(unit.token);
+		if (unit != null && unitIndex == NONE) {
+			return 0;
+		}
+		double sum = 0;
+		if (selection == null) {
+			for (int row = 0; row < rows; row++) {
+				if (netContentUnit[row] == unitIndex && !Double.isNaN(netContent[row])) {
+					sum += netContent[row];
+				}
+			}
+		} else {
+			for (int row = selection.nextSetBit(0); row >= 0 && row < rows; row = selection.nextSetBit(row + 1)) {
+				if (netContentUnit[row] == unitIndex && !Double.isNaN(netContent[row])) {
+					sum += netContent[row];
+				}
+			}
+		}
+		return unit == null ? sum : sum / unit.factor;
+	}
+	
+	private int[] countBy(TokenColumn column, BitSet selection) {
+		int[] counts = new int[tokens.size()];
+		if (selection == null) {
+			for (int i = column.starts[0]; i < column.starts[rows]; i++) {
+				counts[column.tokens[i]]++;
+			}
+		} else {
+			for (int row = selection.nextSetBit(0); row >= 0 && row < rows; row = selection.nextSetBit(row + 1)) {
+				for (int i = column.starts[row]; i < column.starts[row + 1]; i++) {
+					counts[column.tokens[i]]++;
+				}
+			}
+		}
+		return counts;
+	}
+	
+	private static String token(String system, String code) {
+		return (system == null ? "" : system) + "|" + (code == null ? "" : code);
+	}
+	
+	/**
+	 * The dictionary indexes of the codings of every row, stored one row after the other. The codings of a row are at
+	 * the indexes from {@code starts[row]} up to {@code starts[row + 1]}.
+	 */
+	private static final class TokenColumn {
+		
+		private int[] starts;
+		
+		private int[] tokens;
+		
+		private int size;
+		
+		TokenColumn(int capacity) {
+			this.starts = new int[capacity + 1];
+			this.tokens = new int[capacity];
+		}
+		
+		private TokenColumn(int[] starts, int[] tokens) {
+			this.starts = starts;
+			this.tokens = tokens;
+			this.size = tokens.length;
+		}
+		
+		int[] get(int row) {
+			return Arrays.copyOfRange(tokens, starts[row], starts[row + 1]);
+		}
+		
+		boolean contains(int row, int token) {
+			for (int i = starts[row]; i < starts[row + 1]; i++) {
+				if (tokens[i] == token) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Adds the token to the last row, unless the row already has it.
+		 */
+		void add(int row, int token) {
+			for (int i = starts[row]; i < size; i++) {
+				if (tokens[i] == token) {
+					return;
+				}
+			}
+			if (size == tokens.length) {
+				tokens = Arrays.copyOf(tokens, size * 2);
+			}
+			tokens[size++] = token;
+		}
+		
+		/**
+		 * Ends the row, after which the next row starts.
+		 */
+		void endRow(int row) {
+			if (row + 2 > starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
+			}
+			starts[row + 1] = size;
+		}
+		
+		TokenColumn build(int rows) {
+			return new TokenColumn(Arrays.copyOf(starts, rows + 1), Arrays.copyOf(tokens, size));
+		}
+	}
+	
+	/**
+	 * The canonical unit of a net content as a dictionary token, and the factor that converts values to it.
+	 */
+	private static final class CanonicalUnit {
+		
+		final String token;
+		
+		final double factor;
+		
+		private CanonicalUnit(String token, double factor) {
+			this.token = token;
+			this.factor = factor;
+		}
+		
+		/**
+		 * @return the canonical unit, or null if there is no unit
+		 */
+		static CanonicalUnit of(String system, String code) {
+			if (code == null || code.isEmpty()) {
+				return null;
+			}
+			if (system == null || UcumUnits.SYSTEM.equals(system)) {
+				UcumUnits.Unit unit = UcumUnits.canonical(code);
+				return new CanonicalUnit(token(UcumUnits.SYSTEM, unit.code), unit.factor.doubleValue());
+			}
+			return new CanonicalUnit(token(system, code), 1);
+		}
+	}
+	
+	/**
+	 * Adds items row by row. The columns only hold primitive values and the dictionary, not the items.
+	 */
+	public static class Builder {
+		
+		private int rows;
+		
+		private String[] ids = new String[16];
+		
+		private byte[] status = new byte[16];
+		
+		private final TokenColumn category = new TokenColumn(16);
+		
+		private final TokenColumn code = new TokenColumn(16);
+		
+		private final TokenColumn baseUnit = new TokenColumn(16);
+		
+		private double[] netContent = new double[16];
+		
+		private int[] netContentUnit = new int[16];
+		
+		private final List<String> tokens = new ArrayList<>();
+		
+		private final Map<String, Integer> tokenIndexes = new HashMap<>();
+		
+		private Builder() {
+		}
+		
+		public Builder add(InventoryItem item) {
+			if (rows == status.length) {
+				int capacity = rows * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				status = Arrays.copyOf(status, capacity);
+				netContent = Arrays.copyOf(netContent, capacity);
+				netContentUnit = Arrays.copyOf(netContentUnit, capacity);
+			}
+			
+			// reads the fields directly, the getters of copy-on-write items would copy them
+			item.loadChildren();
+			ids[rows] = item.getIdElement().getIdPart();
+			InventoryItem.InventoryItemStatusCodes itemStatus = item.status == null ? null : item.status.getValue();
+			status[rows] = itemStatus == null || itemStatus == InventoryItem.InventoryItemStatusCodes.NULL ? NONE
+			        : (byte) itemStatus.ordinal();
+			add(category, item.category);
+			add(code, item.code);
+			add(baseUnit, item.baseUnit);
+			addNetContent(item.netContent);
+			rows++;
+			return this;
+		}
+		
+		public InventoryItemColumns build() {
+			return new InventoryItemColumns(this);
+		}
+		
+		private void add(TokenColumn column, List<CodeableConcept> concepts) {
+			if (concepts != null) {
+				for (CodeableConcept concept : concepts) {
+					addCodings(column, concept);
+				}
+			}
+			column.endRow(rows);
+		}
+		
+		private void add(TokenColumn column, CodeableConcept concept) {
+			addCodings(column, concept);
+			column.endRow(rows);
+		}
+		
+		private void addCodings(TokenColumn column, CodeableConcept concept) {
+			if (concept != null && concept.hasCoding()) {
+				for (Coding coding : concept.getCoding()) {
+					if (coding.hasSystem() || coding.hasCode()) {
+						column.add(rows, index(token(coding.getSystem(), coding.getCode())));
+					}
+				}
+			}
+		}
+		
+		private void addNetContent(Quantity quantity) {
+			if (quantity == null || !quantity.hasValue()) {
+				netContent[rows] = Double.NaN;
+				netContentUnit[rows] = NONE;
+				return;
+			}
+			// a unit that is only displayed is not a code, so it is grouped by its text rather than converted
+			CanonicalUnit unit = quantity.hasCode() ? CanonicalUnit.of(quantity.getSystem(), quantity.getCode())
+			        : CanonicalUnit.of("", quantity.getUnit());
+			if (unit == null) {
+				netContent[rows] = quantity.getValue().doubleValue();
+				netContentUnit[rows] = NONE;
+			} else {
+				netContent[rows] = quantity.getValue().doubleValue() * unit.factor;
+				netContentUnit[rows] = index(unit.token);
+			}
+		}
+		
+		private int index(String token) {
+			Integer index = tokenIndexes.get(token);
+			if (index == null) {
+				index = tokens.size();
+				tokens.add(token);
+				tokenIndexes.put(token, index);
+			}
+			return index;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package org.openmrs.fhir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.r4.model.Base;
+
+/**
+ * Finds deeply equal {@link InventoryItem}s, e.g. to deduplicate an import, by bucketing the items by their
+ * {@link InventoryItem#hashDeep()} and only comparing the items within a bucket with
+ * {@link InventoryItem#equalsDeep(Base)}. The hash of an item is computed once, when it is added, so the items must not
+ * be changed while the deduplicator holds them. Instances are not safe for use by multiple threads.
+ */
+public class InventoryItemDeduplicator<T extends InventoryItem> {
+	
+	private final Map<Integer, List<T>> buckets = new HashMap<>();
+	
+	private final List<T> distinct = new ArrayList<>();
+	
+	/**
+	 * @return the distinct items in the order they were added
+	 */
+	public static <T extends InventoryItem> List<T> distinct(Iterable<? extends T> items) {
+		InventoryItemDeduplicator<T> deduplicator = new InventoryItemDeduplicator<>();
+		for (T item : items) {
+			deduplicator.add(item);
+		}
+		return deduplicator.getDistinct();
+	}
+	
+	/**
+	 * @return the item added before that is deeply equal to the item, or the item itself if there is none
+	 */
+	public T add(T item) {
+		List<T> bucket = buckets.computeIfAbsent(item.hashDeep(), hash -> new ArrayList<>(1));
+		for (T other : bucket) {
+			if (other.equalsDeep(item)) {
+				return other;
+			}
+		}
+		bucket.add(item);
+		distinct.add(item);
+		return item;
+	}
+	
+	/**
+	 * @return the distinct items added so far, in the order they were added
+	 */
+	public List<T> getDistinct() {
+		return Collections.unmodifiableList(distinct);
+	}
+}
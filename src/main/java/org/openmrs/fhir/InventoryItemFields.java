@@ -0,0 +1,188 @@
+package org.openmrs.fhir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Element;
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Quantity;
+
+/**
+ * Numbers the child fields of {@link InventoryItem} in {@code @Child} order, for subclasses that track the state of each
+ * field in a bit mask.
+ */
+final class InventoryItemFields {
+	
+	static final int IDENTIFIER = 0;
+	
+	static final int STATUS = 1;
+	
+	static final int CATEGORY = 2;
+	
+	static final int CODE = 3;
+	
+	static final int NAME = 4;
+	
+	static final int DESCRIPTION = 5;
+	
+	static final int INVENTORY_STATUS = 6;
+	
+	static final int BASE_UNIT = 7;
+	
+	static final int NET_CONTENT = 8;
+	
+	static final int COUNT = 9;
+	
+	static final int ALL = (1 << COUNT) - 1;
+	
+	private InventoryItemFields() {
+	}
+	
+	static int bit(int field) {
+		return 1 << field;
+	}
+	
+	/**
+	 * @return the {@code @Child} order of the field, which skips 5
+	 */
+	static int order(int field) {
+		return field < DESCRIPTION ? field : field + 1;
+	}
+	
+	/**
+	 * @return the field with the JSON and property name, or -1
+	 */
+	static int forName(String name) {
+		switch (name) {
+			case "identifier":
+				return IDENTIFIER;
+			case "status":
+				return STATUS;
+			case "category":
+				return CATEGORY;
+			case "code":
+				return CODE;
+			case "name":
+				return NAME;
+			case "description":
+				return DESCRIPTION;
+			case "inventoryStatus":
+				return INVENTORY_STATUS;
+			case "baseUnit":
+				return BASE_UNIT;
+			case "netContent":
+				return NET_CONTENT;
+			default:
+				return -1;
+		}
+	}
+	
+	/**
+	 * @return the field with the property name hash, or -1
+	 */
+	static int forHash(int hash) {
+		switch (hash) {
+			case -1618432855:
+				return IDENTIFIER;
+			case -892481550:
+				return STATUS;
+			case 50511102:
+				return CATEGORY;
+			case 3059181:
+				return CODE;
+			case 3373707:
+				return NAME;
+			case -1724546052:
+				return DESCRIPTION;
+			case -1370922898:
+				return INVENTORY_STATUS;
+			case -1721465867:
+				return BASE_UNIT;
+			case 612796444:
+				return NET_CONTENT;
+			default:
+				return -1;
+		}
+	}
+	
+	/**
+	 * @return the value of the field, a list for repeating fields
+	 */
+	static Object get(int field, InventoryItem item) {
+		switch (field) {
+			case IDENTIFIER:
+				return item.identifier;
+			case STATUS:
+				return item.status;
+			case CATEGORY:
+				return item.category;
+			case CODE:
+				return item.code;
+			case NAME:
+				return item.name;
+			case DESCRIPTION:
+				return item.description;
+			case INVENTORY_STATUS:
+				return item.inventoryStatus;
+			case BASE_UNIT:
+				return item.baseUnit;
+			default:
+				return item.netContent;
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	static void set(int field, InventoryItem item, Object value) {
+		switch (field) {
+			case IDENTIFIER:
+				item.identifier = (List<Identifier>) value;
+				break;
+			case STATUS:
+				item.status = (Enumeration<InventoryItem.InventoryItemStatusCodes>) value;
+				break;
+			case CATEGORY:
+				item.category = (List<CodeableConcept>) value;
+				break;
+			case CODE:
+				item.code = (List<CodeableConcept>) value;
+				break;
+			case NAME:
+				item.name = (List<InventoryItem.InventoryItemNameComponent>) value;
+				break;
+			case DESCRIPTION:
+				item.description = (InventoryItem.InventoryItemDescriptionComponent) value;
+				break;
+			case INVENTORY_STATUS:
+				item.inventoryStatus = (List<CodeableConcept>) value;
+				break;
+			case BASE_UNIT:
+				item.baseUnit = (CodeableConcept) value;
+				break;
+			default:
+				item.netContent = (Quantity) value;
+		}
+	}
+	
+	/**
+	 * @return a deep copy of a field value returned by {@link #get(int, InventoryItem)}
+	 */
+	static Object copy(Object value) {
+		if (value == null) {
+			return null;
+		} else if (value instanceof List) {
+			List<?> values = (List<?>) value;
+			List<Element> copies = new ArrayList<>(values.size());
+			for (Object element : values) {
+				copies.add(((Element) element).copy());
+			}
+			return copies;
+		} else if (value instanceof Enumeration && InventoryItem.InventoryItemStatusCodesEnumFactory
+		        .isShared((Enumeration<?>) value)) {
+			return value;
+		} else {
+			return ((Element) value).copy();
+		}
+	}
+}
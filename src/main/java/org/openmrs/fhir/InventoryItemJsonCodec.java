@@ -0,0 +1,780 @@
+package org.openmrs.fhir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.r4.model.CanonicalType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Element;
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Meta;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.api.AddProfileTagEnum;
+import ca.uhn.fhir.model.api.annotation.ResourceDef;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IParser;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * JSON codec specialised for {@link InventoryItem}. Items are decoded straight from a streaming token parser into the
+ * resource fields and encoded straight from them, without walking the model definitions. The output is identical to
+ * the compact output of HAPI's JSON parser; resources using anything outside of the known field layout (extensions,
+ * contained resources, narrative, element ids, ...) are handed to HAPI instead.
+ */
+public class InventoryItemJsonCodec {
+	
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	
+	static final String RESOURCE_TYPE = "InventoryItem";
+	
+	/**
+	 * Taken from the annotation rather than the resource definition: the first definition requested from a context makes
+	 * HAPI scan every type of its model, which takes seconds on a cold JVM and is not needed to encode plain items.
+	 */
+	static final String PROFILE = InventoryItem.class.getAnnotation(ResourceDef.class).profile();
+	
+	private final FhirContext fhirContext;
+	
+	private final CodingInterner interner;
+	
+	/**
+	 * Creates a codec interning the codings it decodes with the {@link CodingInterner#getDefault() default pool}, if
+	 * there is one when the codec is created.
+	 */
+	public InventoryItemJsonCodec(FhirContext fhirContext) {
+		this(fhirContext, CodingInterner.getDefault());
+	}
+	
+	/**
+	 * @param interner the pool to intern the codings of decoded items with, or null
+	 */
+	public InventoryItemJsonCodec(FhirContext fhirContext, CodingInterner interner) {
+		this.fhirContext = fhirContext;
+		this.interner = interner;
+	}
+	
+	public InventoryItem decode(String json) {
+		try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+			return intern(readItem(parser));
+		}
+		catch (UnsupportedContentException | JsonProcessingException e) {
+			return intern(newParser().parseResource(InventoryItem.class, json));
+		}
+		catch (IOException e) {
+			// the JSON is in memory
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	public InventoryItem decode(byte[] json) {
+		try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+			return intern(readItem(parser));
+		}
+		catch (UnsupportedContentException | JsonProcessingException e) {
+			return decodeWithHapi(json);
+		}
+		catch (IOException e) {
+			// the JSON is in memory
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Decodes the item lazily: each child is only decoded the first time it is read through the returned view, see
+	 * {@link LazyInventoryItem}.
+	 */
+	public LazyInventoryItem decodeLazily(byte[] json) {
+		return new LazyInventoryItem(JsonBackedInventoryItem.create(this, json));
+	}
+	
+	/**
+	 * @return the bytes the view was decoded from, unless the item it was loaded into has been modified since
+	 */
+	public byte[] encodeToBytes(LazyInventoryItem item) {
+		return encodeToBytes(item.getItem());
+	}
+	
+	public byte[] encodeToBytes(InventoryItem item) {
+		if (item instanceof JsonBackedInventoryItem && ((JsonBackedInventoryItem) item).isUnmodified()) {
+			return ((JsonBackedInventoryItem) item).getOriginalBytes();
+		}
+		return encodeToString(item).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	public String encodeToString(InventoryItem item) {
+		StringWriter writer = new StringWriter();
+		try {
+			encode(item, writer);
+		}
+		catch (IOException e) {
+			// StringWriter does not throw
+			throw new IllegalStateException(e);
+		}
+		return writer.toString();
+	}
+	
+	public void encode(InventoryItem item, Writer writer) throws IOException {
+		if (item instanceof JsonBackedInventoryItem && ((JsonBackedInventoryItem) item).isUnmodified()) {
+			writer.write(new String(((JsonBackedInventoryItem) item).getOriginalBytes(), StandardCharsets.UTF_8));
+			return;
+		}
+		item.loadChildren();
+		if (!canEncode(item)) {
+			newParser().encodeResourceToWriter(item, writer);
+			return;
+		}
+		
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			writeItem(item, generator);
+		}
+	}
+	
+	/**
+	 * @return whether the item only uses content the specialised encoder writes itself
+	 */
+	boolean canEncode(InventoryItem item) {
+		if (item.hasExtension() || item.hasModifierExtension() || item.hasContained() || item.hasText()
+		        || item.hasImplicitRules() || item.hasLanguage() || item.getIdElement().hasVersionIdPart()) {
+			return false;
+		}
+		if (item.hasMeta() && !isSupportedMeta(item.getMeta())) {
+			return false;
+		}
+		if (item.identifier != null) {
+			for (Identifier identifier : item.identifier) {
+				if (!isPlain(identifier)) {
+					return false;
+				}
+			}
+		}
+		if (!isPlain(item.status) || !isPlainConcepts(item.category) || !isPlainConcepts(item.code)
+		        || !isPlainConcepts(item.inventoryStatus) || !isPlain(item.baseUnit)) {
+			return false;
+		}
+		if (item.name != null) {
+			for (InventoryItem.InventoryItemNameComponent name : item.name) {
+				if (!isPlain(name)) {
+					return false;
+				}
+			}
+		}
+		return isPlain(item.description) && isPlain(item.netContent);
+	}
+	
+	InventoryItem decodeWithHapi(byte[] json) {
+		return intern(newParser().parseResource(InventoryItem.class, new String(json, StandardCharsets.UTF_8)));
+	}
+	
+	CodingInterner getInterner() {
+		return interner;
+	}
+	
+	private InventoryItem intern(InventoryItem item) {
+		if (interner != null) {
+			interner.internChildren(item);
+		}
+		return item;
+	}
+	
+	private IParser newParser() {
+		return fhirContext.newJsonParser();
+	}
+	
+	private String getProfileToAdd() {
+		// InventoryItem is never a standard R4 type, so ONLY_FOR_CUSTOM adds the profile as well
+		return fhirContext.getAddProfileTagWhenEncoding() == AddProfileTagEnum.NEVER ? null : PROFILE;
+	}
+	
+	static boolean isSupportedMeta(Meta meta) {
+		if (!isPlain(meta) || meta.hasSecurity() || meta.hasTag() || !isPlain(meta.getVersionIdElement())
+		        || !isPlain(meta.getLastUpdatedElement()) || !isPlain(meta.getSourceElement())) {
+			return false;
+		}
+		for (CanonicalType profile : meta.getProfile()) {
+			if (!isPlain(profile)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean isPlainConcepts(List<CodeableConcept> concepts) {
+		if (concepts != null) {
+			for (CodeableConcept concept : concepts) {
+				if (!isPlain(concept)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	static boolean isPlain(Identifier identifier) {
+		return identifier == null || (isPlain((Element) identifier) && !identifier.hasPeriod()
+		        && !identifier.hasAssigner() && isPlain(identifier.getUseElement()) && isPlain(identifier.getSystemElement())
+		        && isPlain(identifier.getValueElement()) && (!identifier.hasType() || isPlain(identifier.getType())));
+	}
+	
+	static boolean isPlain(CodeableConcept concept) {
+		if (concept == null) {
+			return true;
+		}
+		if (!isPlain((Element) concept) || !isPlain(concept.getTextElement())) {
+			return false;
+		}
+		if (concept.hasCoding()) {
+			for (Coding coding : concept.getCoding()) {
+				if (!isPlain(coding)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	static boolean isPlain(Coding coding) {
+		return coding == null || (isPlain((Element) coding) && isPlain(coding.getSystemElement())
+		        && isPlain(coding.getVersionElement()) && isPlain(coding.getCodeElement())
+		        && isPlain(coding.getDisplayElement()) && isPlain(coding.getUserSelectedElement()));
+	}
+	
+	static boolean isPlain(InventoryItem.InventoryItemNameComponent name) {
+		return name == null || (isPlain((Element) name) && !name.hasModifierExtension() && isPlain(name.nameType)
+		        && isPlain(name.name));
+	}
+	
+	static boolean isPlain(InventoryItem.InventoryItemDescriptionComponent description) {
+		return description == null || (isPlain((Element) description) && !description.hasModifierExtension()
+		        && isPlain(description.description));
+	}
+	
+	static boolean isPlain(Quantity quantity) {
+		return quantity == null || (isPlain((Element) quantity) && isPlain(quantity.getValueElement())
+		        && isPlain(quantity.getComparatorElement()) && isPlain(quantity.getUnitElement())
+		        && isPlain(quantity.getSystemElement()) && isPlain(quantity.getCodeElement()));
+	}
+	
+	static boolean isPlain(Element element) {
+		return element == null || (!element.hasId() && !element.hasExtension());
+	}
+	
+	// Encoding
+	
+	private void writeItem(InventoryItem item, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("resourceType", RESOURCE_TYPE);
+		if (item.getIdElement().hasIdPart()) {
+			generator.writeStringField("id", item.getIdElement().getIdPart());
+		}
+		writeMeta(item.hasMeta() ? item.getMeta() : null, generator);
+		
+		if (item.identifier != null && hasNonEmpty(item.identifier)) {
+			generator.writeArrayFieldStart("identifier");
+			for (Identifier identifier : item.identifier) {
+				if (!identifier.isEmpty()) {
+					writeIdentifier(identifier, generator);
+				}
+			}
+			generator.writeEndArray();
+		}
+		writePrimitive("status", item.status, generator);
+		writeConcepts("category", item.category, generator);
+		writeConcepts("code", item.code, generator);
+		if (item.name != null && hasNonEmpty(item.name)) {
+			generator.writeArrayFieldStart("name");
+			for (InventoryItem.InventoryItemNameComponent name : item.name) {
+				if (!name.isEmpty()) {
+					writeName(name, generator);
+				}
+			}
+			generator.writeEndArray();
+		}
+		if (item.description != null && !item.description.isEmpty()) {
+			generator.writeFieldName("description");
+			writeDescription(item.description, generator);
+		}
+		writeConcepts("inventoryStatus", item.inventoryStatus, generator);
+		if (item.baseUnit != null && !item.baseUnit.isEmpty()) {
+			generator.writeFieldName("baseUnit");
+			writeConcept(item.baseUnit, generator);
+		}
+		if (item.netContent != null && !item.netContent.isEmpty()) {
+			generator.writeFieldName("netContent");
+			writeQuantity(item.netContent, generator);
+		}
+		generator.writeEndObject();
+	}
+	
+	private void writeMeta(Meta meta, JsonGenerator generator) throws IOException {
+		String profileToAdd = getProfileToAdd();
+		boolean hasProfile = meta != null && meta.hasProfile(profileToAdd);
+		boolean writeProfileToAdd = profileToAdd != null && !hasProfile;
+		if ((meta == null || meta.isEmpty()) && !writeProfileToAdd) {
+			return;
+		}
+		
+		generator.writeObjectFieldStart("meta");
+		if (meta != null) {
+			writePrimitive("versionId", meta.getVersionIdElement(), generator);
+			writePrimitive("lastUpdated", meta.getLastUpdatedElement(), generator);
+			writePrimitive("source", meta.getSourceElement(), generator);
+		}
+		if ((meta != null && meta.hasProfile()) || writeProfileToAdd) {
+			generator.writeArrayFieldStart("profile");
+			if (meta != null) {
+				for (CanonicalType profile : meta.getProfile()) {
+					if (!profile.isEmpty()) {
+						generator.writeString(profile.getValueAsString());
+					}
+				}
+			}
+			if (writeProfileToAdd) {
+				generator.writeString(profileToAdd);
+			}
+			generator.writeEndArray();
+		}
+		generator.writeEndObject();
+	}
+	
+	static void writeIdentifier(Identifier identifier, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		writePrimitive("use", identifier.getUseElement(), generator);
+		if (identifier.hasType()) {
+			generator.writeFieldName("type");
+			writeConcept(identifier.getType(), generator);
+		}
+		writePrimitive("system", identifier.getSystemElement(), generator);
+		writePrimitive("value", identifier.getValueElement(), generator);
+		generator.writeEndObject();
+	}
+	
+	private static void writeConcepts(String fieldName, List<CodeableConcept> concepts, JsonGenerator generator)
+	        throws IOException {
+		if (concepts == null || !hasNonEmpty(concepts)) {
+			return;
+		}
+		generator.writeArrayFieldStart(fieldName);
+		for (CodeableConcept concept : concepts) {
+			if (!concept.isEmpty()) {
+				writeConcept(concept, generator);
+			}
+		}
+		generator.writeEndArray();
+	}
+	
+	static void writeConcept(CodeableConcept concept, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		if (concept.hasCoding() && hasNonEmpty(concept.getCoding())) {
+			generator.writeArrayFieldStart("coding");
+			for (Coding coding : concept.getCoding()) {
+				if (!coding.isEmpty()) {
+					writeCoding(coding, generator);
+				}
+			}
+			generator.writeEndArray();
+		}
+		writePrimitive("text", concept.getTextElement(), generator);
+		generator.writeEndObject();
+	}
+	
+	static void writeCoding(Coding coding, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		writePrimitive("system", coding.getSystemElement(), generator);
+		writePrimitive("version", coding.getVersionElement(), generator);
+		writePrimitive("code", coding.getCodeElement(), generator);
+		writePrimitive("display", coding.getDisplayElement(), generator);
+		if (!coding.getUserSelectedElement().isEmpty()) {
+			generator.writeBooleanField("userSelected", coding.getUserSelected());
+		}
+		generator.writeEndObject();
+	}
+	
+	static void writeName(InventoryItem.InventoryItemNameComponent name, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		if (name.nameType != null && !name.nameType.isEmpty()) {
+			generator.writeFieldName("nameType");
+			writeCoding(name.nameType, generator);
+		}
+		writePrimitive("name", name.name, generator);
+		generator.writeEndObject();
+	}
+	
+	static void writeDescription(InventoryItem.InventoryItemDescriptionComponent description, JsonGenerator generator)
+	        throws IOException {
+		generator.writeStartObject();
+		writePrimitive("description", description.description, generator);
+		generator.writeEndObject();
+	}
+	
+	static void writeQuantity(Quantity quantity, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		if (!quantity.getValueElement().isEmpty()) {
+			generator.writeFieldName("value");
+			generator.writeNumber(quantity.getValueElement().getValueAsString());
+		}
+		writePrimitive("comparator", quantity.getComparatorElement(), generator);
+		writePrimitive("unit", quantity.getUnitElement(), generator);
+		writePrimitive("system", quantity.getSystemElement(), generator);
+		writePrimitive("code", quantity.getCodeElement(), generator);
+		generator.writeEndObject();
+	}
+	
+	static void writePrimitive(String fieldName, PrimitiveType<?> primitive, JsonGenerator generator)
+	        throws IOException {
+		if (primitive != null && !primitive.isEmpty()) {
+			generator.writeStringField(fieldName, primitive.getValueAsString());
+		}
+	}
+	
+	private static boolean hasNonEmpty(List<? extends Element> elements) {
+		for (Element element : elements) {
+			if (!element.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// Decoding
+	
+	static JsonFactory getJsonFactory() {
+		return JSON_FACTORY;
+	}
+	
+	private static InventoryItem readItem(JsonParser parser) throws IOException, UnsupportedContentException {
+		expect(parser.nextToken(), JsonToken.START_OBJECT);
+		InventoryItem item = new InventoryItem();
+		String id = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			switch (fieldName) {
+				case "resourceType":
+					if (!RESOURCE_TYPE.equals(readString(parser, token))) {
+						throw UnsupportedContentException.INSTANCE;
+					}
+					break;
+				case "id":
+					id = readString(parser, token);
+					break;
+				case "meta":
+					item.setMeta(readMeta(parser, token));
+					break;
+				case "identifier":
+					item.identifier = readIdentifiers(parser, token);
+					break;
+				case "status":
+					item.status = readStatus(parser, token);
+					break;
+				case "category":
+					item.category = readConcepts(parser, token);
+					break;
+				case "code":
+					item.code = readConcepts(parser, token);
+					break;
+				case "name":
+					item.name = readNames(parser, token);
+					break;
+				case "description":
+					item.description = readDescription(parser, token);
+					break;
+				case "inventoryStatus":
+					item.inventoryStatus = readConcepts(parser, token);
+					break;
+				case "baseUnit":
+					item.baseUnit = readConcept(parser, token);
+					break;
+				case "netContent":
+					item.netContent = readQuantity(parser, token);
+					break;
+				default:
+					throw UnsupportedContentException.INSTANCE;
+			}
+		}
+		expect(parser.currentToken(), JsonToken.END_OBJECT);
+		if (parser.nextToken() != null) {
+			throw UnsupportedContentException.INSTANCE;
+		}
+		
+		if (id != null) {
+			item.setIdElement(new IdType(RESOURCE_TYPE, id, item.hasMeta() ? item.getMeta().getVersionId() : null));
+		}
+		return item;
+	}
+	
+	static Enumeration<InventoryItem.InventoryItemStatusCodes> readStatus(JsonParser parser, JsonToken token)
+	        throws IOException, UnsupportedContentException {
+		InventoryItem.InventoryItemStatusCodes status = InventoryItem.InventoryItemStatusCodes
+		        .forCode(readString(parser, token));
+		if (status == null) {
+			throw UnsupportedContentException.INSTANCE;
+		}
+		return InventoryItem.InventoryItemStatusCodesEnumFactory.INSTANCE.newEnumeration(status);
+	}
+	
+	static Meta readMeta(JsonParser parser, JsonToken token) throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_OBJECT);
+		Meta meta = new Meta();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "versionId":
+					meta.getVersionIdElement().setValueAsString(readString(parser, valueToken));
+					break;
+				case "lastUpdated":
+					setValue(meta.getLastUpdatedElement(), readString(parser, valueToken));
+					break;
+				case "source":
+					meta.getSourceElement().setValueAsString(readString(parser, valueToken));
+					break;
+				case "profile":
+					expect(valueToken, JsonToken.START_ARRAY);
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						meta.addProfileElement().setValueAsString(readString(parser, parser.currentToken()));
+					}
+					break;
+				default:
+					throw UnsupportedContentException.INSTANCE;
+			}
+		}
+		return meta;
+	}
+	
+	static List<Identifier> readIdentifiers(JsonParser parser, JsonToken token)
+	        throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_ARRAY);
+		List<Identifier> identifiers = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			identifiers.add(readIdentifier(parser, parser.currentToken()));
+		}
+		return identifiers;
+	}
+	
+	static Identifier readIdentifier(JsonParser parser, JsonToken token)
+	        throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_OBJECT);
+		Identifier identifier = new Identifier();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "use":
+					setValue(identifier.getUseElement(), readString(parser, valueToken));
+					break;
+				case "type":
+					identifier.setType(readConcept(parser, valueToken));
+					break;
+				case "system":
+					identifier.getSystemElement().setValueAsString(readString(parser, valueToken));
+					break;
+				case "value":
+					identifier.getValueElement().setValueAsString(readString(parser, valueToken));
+					break;
+				default:
+					throw UnsupportedContentException.INSTANCE;
+			}
+		}
+		return identifier;
+	}
+	
+	static List<CodeableConcept> readConcepts(JsonParser parser, JsonToken token)
+	        throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_ARRAY);
+		List<CodeableConcept> concepts = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			concepts.add(readConcept(parser, parser.currentToken()));
+		}
+		return concepts;
+	}
+	
+	static CodeableConcept readConcept(JsonParser parser, JsonToken token)
+	        throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_OBJECT);
+		CodeableConcept concept = new CodeableConcept();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "coding":
+					expect(valueToken, JsonToken.START_ARRAY);
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						concept.addCoding(readCoding(parser, parser.currentToken()));
+					}
+					break;
+				case "text":
+					concept.getTextElement().setValueAsString(readString(parser, valueToken));
+					break;
+				default:
+					throw UnsupportedContentException.INSTANCE;
+			}
+		}
+		return concept;
+	}
+	
+	static Coding readCoding(JsonParser parser, JsonToken token) throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_OBJECT);
+		Coding coding = new Coding();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "system":
+					coding.getSystemElement().setValueAsString(readString(parser, valueToken));
+					break;
+				case "version":
+					coding.getVersionElement().setValueAsString(readString(parser, valueToken));
+					break;
+				case "code":
+					coding.getCodeElement().setValueAsString(readString(parser, valueToken));
+					break;
+				case "display":
+					coding.getDisplayElement().setValueAsString(readString(parser, valueToken));
+					break;
+				case "userSelected":
+					if (valueToken != JsonToken.VALUE_TRUE && valueToken != JsonToken.VALUE_FALSE) {
+						throw UnsupportedContentException.INSTANCE;
+					}
+					coding.setUserSelected(valueToken == JsonToken.VALUE_TRUE);
+					break;
+				default:
+					throw UnsupportedContentException.INSTANCE;
+			}
+		}
+		return coding;
+	}
+	
+	static List<InventoryItem.InventoryItemNameComponent> readNames(JsonParser parser, JsonToken token)
+	        throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_ARRAY);
+		List<InventoryItem.InventoryItemNameComponent> names = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			names.add(readName(parser, parser.currentToken()));
+		}
+		return names;
+	}
+	
+	static InventoryItem.InventoryItemNameComponent readName(JsonParser parser, JsonToken token)
+	        throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_OBJECT);
+		InventoryItem.InventoryItemNameComponent name = new InventoryItem.InventoryItemNameComponent();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "nameType":
+					name.nameType = readCoding(parser, valueToken);
+					break;
+				case "name":
+					name.name = new StringType();
+					name.name.setValueAsString(readString(parser, valueToken));
+					break;
+				default:
+					throw UnsupportedContentException.INSTANCE;
+			}
+		}
+		return name;
+	}
+	
+	static InventoryItem.InventoryItemDescriptionComponent readDescription(JsonParser parser, JsonToken token)
+	        throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_OBJECT);
+		InventoryItem.InventoryItemDescriptionComponent description = new InventoryItem.InventoryItemDescriptionComponent();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			if (!"description".equals(parser.getCurrentName())) {
+				throw UnsupportedContentException.INSTANCE;
+			}
+			description.description = new StringType();
+			description.description.setValueAsString(readString(parser, parser.nextToken()));
+		}
+		return description;
+	}
+	
+	static Quantity readQuantity(JsonParser parser, JsonToken token)
+	        throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.START_OBJECT);
+		Quantity quantity = new Quantity();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "value":
+					if (valueToken != JsonToken.VALUE_NUMBER_INT && valueToken != JsonToken.VALUE_NUMBER_FLOAT) {
+						throw UnsupportedContentException.INSTANCE;
+					}
+					quantity.getValueElement().setValueAsString(parser.getText());
+					break;
+				case "comparator":
+					setValue(quantity.getComparatorElement(), readString(parser, valueToken));
+					break;
+				case "unit":
+					quantity.getUnitElement().setValueAsString(readString(parser, valueToken));
+					break;
+				case "system":
+					quantity.getSystemElement().setValueAsString(readString(parser, valueToken));
+					break;
+				case "code":
+					quantity.getCodeElement().setValueAsString(readString(parser, valueToken));
+					break;
+				default:
+					throw UnsupportedContentException.INSTANCE;
+			}
+		}
+		return quantity;
+	}
+	
+	static String readString(JsonParser parser, JsonToken token) throws IOException, UnsupportedContentException {
+		expect(token, JsonToken.VALUE_STRING);
+		return parser.getText();
+	}
+	
+	/**
+	 * Sets a primitive parsed from its string value. A value the primitive cannot parse, such as an unknown code, is
+	 * left to HAPI, whose parser handles it according to its error handler.
+	 */
+	static void setValue(PrimitiveType<?> primitive, String value) throws UnsupportedContentException {
+		try {
+			primitive.setValueAsString(value);
+		}
+		catch (IllegalArgumentException | DataFormatException e) {
+			throw UnsupportedContentException.INSTANCE;
+		}
+	}
+	
+	static void expect(JsonToken actual, JsonToken expected) throws UnsupportedContentException {
+		if (actual != expected) {
+			throw UnsupportedContentException.INSTANCE;
+		}
+	}
+	
+	/**
+	 * Signals content the specialised decoder does not handle itself. Thrown as a shared instance without a stack trace,
+	 * since it only ever triggers the fallback to HAPI.
+	 */
+	static final class UnsupportedContentException extends Exception {
+		
+		private static final long serialVersionUID = 1L;
+		
+		static final UnsupportedContentException INSTANCE = new UnsupportedContentException();
+		
+		private UnsupportedContentException() {
+			super(null, null, false, false);
+		}
+	}
+}
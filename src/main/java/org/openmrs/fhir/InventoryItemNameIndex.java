@@ -0,0 +1,297 @@
+package org.openmrs.fhir;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Typeahead index over the {@link InventoryItem.InventoryItemNameComponent#getName() names} of items, partitioned by the
+ * code of their name type, such as {@code brand-name}, {@code functional-name} and {@code common-name}.
+ * <p>
+ * A name matches a search text if the name, or the part of it starting at one of its later words, starts with the text.
+ * Case, accents and punctuation are ignored. Matches of the whole name rank before matches of a later word, and matches
+ * of the same rank are ordered by name, which is the order the index keeps them in. A search therefore only reads the
+ * first matching entries of each partition instead of scanning the names.
+ * <p>
+ * The index is updated incrementally with {@link #add(String, InventoryItem)} and {@link #remove(String)}. It is not
+ * safe for use by multiple threads.
+ */
+public final class InventoryItemNameIndex {
+	
+	private static final Comparator<Entry> ORDER = InventoryItemNameIndex::compare;
+	
+	/** The partitions by name type code, names without a name type code are in the partition of the empty string. */
+	private final Map<String, Partition> partitions = new HashMap<>();
+	
+	private final Map<String, List<Entry>> entries = new HashMap<>();
+	
+	/**
+	 * Indexes the names of the item under the id, replacing the names previously indexed under it.
+	 */
+	public void add(String id, InventoryItem item) {
+		remove(id);
+		if (!item.hasName()) {
+			return;
+		}
+		
+		List<Entry> itemEntries = new ArrayList<>();
+		for (InventoryItem.InventoryItemNameComponent component : item.getName()) {
+			String key = component.hasName() ? normalize(component.getName()) : "";
+			if (key.isEmpty()) {
+				continue;
+			}
+			String nameType = component.hasNameType() && component.getNameType().hasCode()
+			        ? component.getNameType().getCode()
+			        : "";
+			Partition partition = partitions.computeIfAbsent(nameType, code -> new Partition());
+			int start = 0;
+			do {
+				Entry entry = new Entry(key.substring(start), id, component.getName(), nameType);
+				if ((start == 0 ? partition.names : partition.words).add(entry)) {
+					itemEntries.add(entry);
+				}
+				start = key.indexOf(' ', start) + 1;
+			} while (start > 0);
+		}
+		if (!itemEntries.isEmpty()) {
+			entries.put(id, itemEntries);
+		}
+	}
+	
+	/**
+	 * @return true if names were indexed under the id
+	 */
+	public boolean remove(String id) {
+		List<Entry> itemEntries = entries.remove(id);
+		if (itemEntries == null) {
+			return false;
+		}
+		for (Entry entry : itemEntries) {
+			Partition partition = partitions.get(entry.nameType);
+			if (!partition.names.remove(entry)) {
+				partition.words.remove(entry);
+			}
+			if (partition.names.isEmpty() && partition.words.isEmpty()) {
+				partitions.remove(entry.nameType);
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @param nameType the name type code to search, or null to search the names of every type
+	 * @param text the text typed so far
+	 * @param limit the maximum number of matches
+	 * @return the best matches, at most one per item, which is the best matching name of the item
+	 */
+	public List<Match> search(String nameType, String text, int limit) {
+		String prefix = text == null ? "" : normalize(text);
+		if (prefix.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+		
+		Collection<Partition> searched;
+		if (nameType == null) {
+			searched = partitions.values();
+		} else {
+			Partition partition = partitions.get(nameType);
+			searched = partition == null ? Collections.emptyList() : Collections.singletonList(partition);
+		}
+		
+		Map<String, Match> matches = new LinkedHashMap<>();
+		collect(searched, true, prefix, limit, matches);
+		if (matches.size() < limit) {
+			collect(searched, false, prefix, limit, matches);
+		}
+		return new ArrayList<>(matches.values());
+	}
+	
+	/**
+	 * Finds the items with a whole name starting with the text, ignoring case, accents and punctuation, which is how a
+	 * FHIR string search matches.
+	 *
+	 * @return the ids of the matching items, ordered by name
+	 */
+	public Set<String> startingWith(String text) {
+		String prefix = text == null ? "" : normalize(text);
+		if (prefix.isEmpty()) {
+			return Collections.emptySet();
+		}
+		
+		List<Entry> matches = new ArrayList<>();
+		Entry first = new Entry(prefix, "", "", "");
+		for (Partition partition : partitions.values()) {
+			for (Entry entry : partition.names.tailSet(first, true)) {
+				if (!entry.key.startsWith(prefix)) {
+					break;
+				}
+				matches.add(entry);
+			}
+		}
+		matches.sort(ORDER);
+		Set<String> ids = new LinkedHashSet<>();
+		for (Entry entry : matches) {
+			ids.add(entry.id);
+		}
+		return ids;
+	}
+	
+	/**
+	 * @return the number of indexed items
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Adds the matches of one rank, taking at most the remaining number of new items from each partition and merging
+	 * them in order.
+	 */
+	private static void collect(Collection<Partition> searched, boolean names, String prefix, int limit,
+	        Map<String, Match> matches) {
+		int remaining = limit - matches.size();
+		List<Entry> candidates = new ArrayList<>();
+		Entry first = new Entry(prefix, "", "", "");
+		for (Partition partition : searched) {
+			Set<String> ids = new HashSet<>();
+			for (Entry entry : (names ? partition.names : partition.words).tailSet(first, true)) {
+				if (!entry.key.startsWith(prefix)) {
+					break;
+				}
+				if (!matches.containsKey(entry.id) && ids.add(entry.id)) {
+					candidates.add(entry);
+					if (ids.size() == remaining) {
+						break;
+					}
+				}
+			}
+		}
+		
+		candidates.sort(ORDER);
+		for (Entry entry : candidates) {
+			if (!matches.containsKey(entry.id)) {
+				matches.put(entry.id, new Match(entry.id, entry.name, entry.nameType.isEmpty() ? null : entry.nameType));
+				if (matches.size() == limit) {
+					return;
+				}
+			}
+		}
+	}
+	
+	private static int compare(Entry entry1, Entry entry2) {
+		int result = entry1.key.compareTo(entry2.key);
+		if (result == 0) {
+			result = entry1.id.compareTo(entry2.id);
+		}
+		return result == 0 ? entry1.name.compareTo(entry2.name) : result;
+	}
+	
+	/**
+	 * Lower cases the text and removes accents, and replaces every run of other characters than letters and digits by a
+	 * single space between words.
+	 */
+	static String normalize(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				text = Normalizer.normalize(text, Normalizer.Form.NFD);
+				break;
+			}
+		}
+		
+		StringBuilder builder = new StringBuilder(text.length());
+		boolean separated = false;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				if (separated && builder.length() > 0) {
+					builder.append(' ');
+				}
+				builder.append(Character.toLowerCase(c));
+				separated = false;
+			} else if (Character.getType(c) != Character.NON_SPACING_MARK) {
+				separated = true;
+			}
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * A name matching a search.
+	 */
+	public static final class Match {
+		
+		private final String id;
+		
+		private final String name;
+		
+		private final String nameType;
+		
+		Match(String id, String name, String nameType) {
+			this.id = id;
+			this.name = name;
+			this.nameType = nameType;
+		}
+		
+		/**
+		 * @return the id the item was indexed under
+		 */
+		public String getId() {
+			return id;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * @return the name type code, or null if the name has none
+		 */
+		public String getNameType() {
+			return nameType;
+		}
+		
+		@Override
+		public String toString() {
+			return id + ": " + name + (nameType == null ? "" : " (" + nameType + ")");
+		}
+	}
+	
+	private static final class Partition {
+		
+		/** Entries for whole names. */
+		final NavigableSet<Entry> names = new TreeSet<>(ORDER);
+		
+		/** Entries for the parts of names starting at a later word. */
+		final NavigableSet<Entry> words = new TreeSet<>(ORDER);
+	}
+	
+	private static final class Entry {
+		
+		/** The normalized name or the part of it starting at a later word. */
+		final String key;
+		
+		final String id;
+		
+		final String name;
+		
+		final String nameType;
+		
+		Entry(String key, String id, String name, String nameType) {
+			this.key = key;
+			this.id = id;
+			this.name = name;
+			this.nameType = nameType;
+		}
+	}
+}
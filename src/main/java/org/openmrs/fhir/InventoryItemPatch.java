@@ -0,0 +1,1075 @@
+package org.openmrs.fhir;
+
+import static org.openmrs.fhir.InventoryItemJsonCodec.isPlain;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Objects;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.BackboneElement;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Element;
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.Type;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Computes and applies the changes between two versions of an {@link InventoryItem}, as a FHIR Patch
+ * {@link Parameters} resource or an RFC 6902 JSON Patch. The items are compared field by field in the known child
+ * layout: lists are matched on their common prefix and suffix, the remaining entries are replaced pairwise and the
+ * surplus inserted or deleted, and names and descriptions are compared child by child. The diff takes time linear in the
+ * size of the items and does not allocate anything if they are equal.
+ * <p>
+ * Only the fields of InventoryItem itself are compared; the id, meta, narrative, contained resources and extensions of
+ * the resource are left to the caller, as a server maintains them itself. The patches only use paths and operations this
+ * class generates. Names and descriptions with element ids or extensions are only patched as a whole, FHIR Patches cannot
+ * carry their extensions, and JSON Patches are limited to the content {@link InventoryItemJsonCodec} writes itself.
+ */
+public final class InventoryItemPatch {
+	
+	/** The JSON Patch without operations. */
+	public static final String EMPTY_JSON_PATCH = "[]";
+	
+	private static final String[] FIELD_NAMES = { "identifier", "status", "category", "code", "name", "description",
+	        "inventoryStatus", "baseUnit", "netContent" };
+	
+	/** Types of the values of the datatype fields, by field. */
+	private static final Class<?>[] TYPES = { Identifier.class, null, CodeableConcept.class, CodeableConcept.class, null,
+	        null, CodeableConcept.class, CodeableConcept.class, Quantity.class };
+	
+	private InventoryItemPatch() {
+	}
+	
+	/**
+	 * @return a FHIR Patch turning {@code from} into {@code to}, or null if the items are equal
+	 */
+	public static Parameters toFhirPatch(InventoryItem from, InventoryItem to) {
+		FhirPatchWriter writer = diff(from, to, false);
+		return writer == null ? null : writer.parameters;
+	}
+	
+	/**
+	 * @return a JSON Patch turning {@code from} into {@code to}, {@link #EMPTY_JSON_PATCH} if the items are equal
+	 * @throws IllegalArgumentException if a changed value cannot be written as JSON by {@link InventoryItemJsonCodec}
+	 */
+	public static String toJsonPatch(InventoryItem from, InventoryItem to) {
+		JsonPatchWriter writer = diff(from, to, true);
+		return writer == null ? EMPTY_JSON_PATCH : writer.finish();
+	}
+	
+	// Diff
+	
+	/**
+	 * @return the writer of the patch, created with the first change, or null if the items are equal
+	 */
+	@SuppressWarnings("unchecked")
+	private static <W extends PatchWriter> W diff(InventoryItem from, InventoryItem to, boolean json) {
+		// reads the fields directly, the getters of copy-on-write items would copy them
+		from.loadChildren();
+		to.loadChildren();
+		PatchWriter writer = null;
+		for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+			Object a = InventoryItemFields.get(field, from);
+			Object b = InventoryItemFields.get(field, to);
+			if (isList(field)) {
+				List<? extends Element> listA = (List<? extends Element>) a;
+				List<? extends Element> listB = (List<? extends Element>) b;
+				if (!equalLists(listA, listB)) {
+					writer = writer != null ? writer : json ? new JsonPatchWriter() : new FhirPatchWriter();
+					diffList(field, listA, listB, writer);
+				}
+			} else if (!equal((Element) a, (Element) b)) {
+				writer = writer != null ? writer : json ? new JsonPatchWriter() : new FhirPatchWriter();
+				diffValue(field, (Element) a, (Element) b, writer);
+			}
+		}
+		return (W) writer;
+	}
+	
+	private static void diffList(int field, List<? extends Element> a, List<? extends Element> b, PatchWriter writer) {
+		int sizeA = a == null ? 0 : a.size();
+		int sizeB = b == null ? 0 : b.size();
+		if (sizeA == 0) {
+			writer.addList(field, b);
+			return;
+		} else if (sizeB == 0) {
+			writer.removeList(field, sizeA);
+			return;
+		}
+		
+		int common = Math.min(sizeA, sizeB);
+		int prefix = 0;
+		while (prefix < common && equal(a.get(prefix), b.get(prefix))) {
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < common - prefix && equal(a.get(sizeA - 1 - suffix), b.get(sizeB - 1 - suffix))) {
+			suffix++;
+		}
+		
+		int end = common - suffix;
+		for (int i = prefix; i < end; i++) {
+			Element elementA = a.get(i);
+			Element elementB = b.get(i);
+			if (!equal(elementA, elementB)) {
+				if (field == InventoryItemFields.NAME && isPlainFrames(elementA, elementB)) {
+					diffName(i, (InventoryItem.InventoryItemNameComponent) elementA,
+					    (InventoryItem.InventoryItemNameComponent) elementB, writer);
+				} else {
+					writer.replace(field, i, null, elementB);
+				}
+			}
+		}
+		// the entries before the end are in place, so the surplus is deleted from or inserted at the end one by one
+		for (int i = sizeA - suffix; i > end; i--) {
+			writer.remove(field, end, null);
+		}
+		for (int i = end; i < sizeB - suffix; i++) {
+			writer.insert(field, i, b.get(i));
+		}
+	}
+	
+	private static void diffValue(int field, Element a, Element b, PatchWriter writer) {
+		if (isAbsent(a)) {
+			writer.add(field, -1, null, b);
+		} else if (isAbsent(b)) {
+			writer.remove(field, -1, null);
+		} else if (field == InventoryItemFields.DESCRIPTION && isPlainFrames(a, b)) {
+			diffChild(InventoryItemFields.DESCRIPTION, -1, "description",
+			    ((InventoryItem.InventoryItemDescriptionComponent) a).description,
+			    ((InventoryItem.InventoryItemDescriptionComponent) b).description, writer);
+		} else {
+			writer.replace(field, -1, null, b);
+		}
+	}
+	
+	private static void diffName(int index, InventoryItem.InventoryItemNameComponent a,
+	        InventoryItem.InventoryItemNameComponent b, PatchWriter writer) {
+		diffChild(InventoryItemFields.NAME, index, "nameType", a.nameType, b.nameType, writer);
+		diffChild(InventoryItemFields.NAME, index, "name", a.name, b.name, writer);
+	}
+	
+	private static void diffChild(int field, int index, String child, Element a, Element b, PatchWriter writer) {
+		if (equal(a, b)) {
+			return;
+		}
+		if (isAbsent(a)) {
+			writer.add(field, index, child, b);
+		} else if (isAbsent(b)) {
+			writer.remove(field, index, child);
+		} else {
+			writer.replace(field, index, child, b);
+		}
+	}
+	
+	/**
+	 * Compares like {@link InventoryItem#equalsDeep}, except that empty elements equal absent ones and a shared status
+	 * equals a regular one. Elements are only checked for emptiness once they differ, as {@code isEmpty()} allocates.
+	 */
+	private static boolean equal(Element a, Element b) {
+		if (a == null || b == null) {
+			return isAbsent(a) && isAbsent(b);
+		}
+		return same(a, b) || (a.isEmpty() && b.isEmpty());
+	}
+	
+	private static boolean equalLists(List<? extends Element> a, List<? extends Element> b) {
+		int size = a == null ? 0 : a.size();
+		if (size != (b == null ? 0 : b.size())) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (!equal(a.get(i), b.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Comparison of the known types, as HAPI allocates for every primitive it compares
+	
+	private static boolean same(Element a, Element b) {
+		if (a == null || b == null) {
+			return isAbsent(a) && isAbsent(b);
+		} else if (a instanceof PrimitiveType) {
+			return b instanceof PrimitiveType && Objects.equals(((PrimitiveType<?>) a).getValue(),
+			    ((PrimitiveType<?>) b).getValue()) && sameFrame(a, b);
+		} else if (a instanceof Coding) {
+			return b instanceof Coding && sameCoding((Coding) a, (Coding) b);
+		} else if (a instanceof CodeableConcept) {
+			return b instanceof CodeableConcept && sameConcept((CodeableConcept) a, (CodeableConcept) b);
+		} else if (a instanceof Identifier) {
+			return b instanceof Identifier && sameIdentifier((Identifier) a, (Identifier) b);
+		} else if (a instanceof Quantity) {
+			return b instanceof Quantity && sameQuantity((Quantity) a, (Quantity) b);
+		} else if (a instanceof BackboneElement
+		        && (((BackboneElement) a).hasModifierExtension() || ((BackboneElement) b).hasModifierExtension())) {
+			return a.equalsDeep(b);
+		} else if (a instanceof InventoryItem.InventoryItemNameComponent) {
+			InventoryItem.InventoryItemNameComponent nameA = (InventoryItem.InventoryItemNameComponent) a;
+			InventoryItem.InventoryItemNameComponent nameB = (InventoryItem.InventoryItemNameComponent) b;
+			return sameFrame(nameA, nameB) && same(nameA.nameType, nameB.nameType) && same(nameA.name, nameB.name);
+		} else if (a instanceof InventoryItem.InventoryItemDescriptionComponent) {
+			InventoryItem.InventoryItemDescriptionComponent descriptionA = (InventoryItem.InventoryItemDescriptionComponent) a;
+			InventoryItem.InventoryItemDescriptionComponent descriptionB = (InventoryItem.InventoryItemDescriptionComponent) b;
+			return sameFrame(descriptionA, descriptionB) && same(descriptionA.description, descriptionB.description);
+		}
+		return a.equalsDeep(b);
+	}
+	
+	private static boolean sameCoding(Coding a, Coding b) {
+		return sameFrame(a, b) && Objects.equals(a.getSystem(), b.getSystem())
+		        && Objects.equals(a.getVersion(), b.getVersion()) && Objects.equals(a.getCode(), b.getCode())
+		        && Objects.equals(a.getDisplay(), b.getDisplay())
+		        && (a.hasUserSelected() ? b.hasUserSelected() && a.getUserSelected() == b.getUserSelected()
+		                : !b.hasUserSelected())
+		        && samePrimitiveFrames(a, b);
+	}
+	
+	private static boolean sameConcept(CodeableConcept a, CodeableConcept b) {
+		if (!sameFrame(a, b) || !Objects.equals(a.getText(), b.getText())) {
+			return false;
+		}
+		// hasCoding() checks the codings for emptiness, which allocates; the getter only creates a list if there is none
+		List<Coding> codingA = a.getCoding();
+		List<Coding> codingB = b.getCoding();
+		if (codingA.size() != codingB.size()) {
+			return false;
+		}
+		for (int i = 0; i < codingA.size(); i++) {
+			if (!same(codingA.get(i), codingB.get(i))) {
+				return false;
+			}
+		}
+		return samePrimitiveFrames(a, b);
+	}
+	
+	private static boolean sameIdentifier(Identifier a, Identifier b) {
+		if (a.hasPeriod() || b.hasPeriod() || a.hasAssigner() || b.hasAssigner()) {
+			return a.equalsDeep(b);
+		}
+		return sameFrame(a, b) && a.getUse() == b.getUse() && Objects.equals(a.getSystem(), b.getSystem())
+		        && Objects.equals(a.getValue(), b.getValue())
+		        && (a.hasType() ? b.hasType() && sameConcept(a.getType(), b.getType()) : !b.hasType())
+		        && samePrimitiveFrames(a, b);
+	}
+	
+	private static boolean sameQuantity(Quantity a, Quantity b) {
+		return sameFrame(a, b) && Objects.equals(a.getValue(), b.getValue()) && a.getComparator() == b.getComparator()
+		        && Objects.equals(a.getUnit(), b.getUnit()) && Objects.equals(a.getSystem(), b.getSystem())
+		        && Objects.equals(a.getCode(), b.getCode()) && samePrimitiveFrames(a, b);
+	}
+	
+	/**
+	 * @return whether the ids and extensions of the elements are equal
+	 */
+	private static boolean sameFrame(Element a, Element b) {
+		if (a.hasId() || b.hasId() || a.hasExtension() || b.hasExtension()) {
+			return Objects.equals(a.getId(), b.getId()) && a.hasExtension() == b.hasExtension()
+			        && (!a.hasExtension() || Base.compareDeep(a.getExtension(), b.getExtension(), true));
+		}
+		return true;
+	}
+	
+	/**
+	 * Compares the datatypes again with HAPI if any of their primitives has an id or extensions, which the comparisons by
+	 * value above do not see.
+	 */
+	private static boolean samePrimitiveFrames(Element a, Element b) {
+		return !hasPrimitiveFrame(a) && !hasPrimitiveFrame(b) || a.equalsDeep(b);
+	}
+	
+	private static boolean hasPrimitiveFrame(Element element) {
+		// checks the value before hasXElement(), which is only needed for elements without a value and allocates
+		if (element instanceof Coding) {
+			Coding coding = (Coding) element;
+			return (coding.getSystem() != null || coding.hasSystemElement()) && hasFrame(coding.getSystemElement())
+			        || (coding.getVersion() != null || coding.hasVersionElement()) && hasFrame(coding.getVersionElement())
+			        || (coding.getCode() != null || coding.hasCodeElement()) && hasFrame(coding.getCodeElement())
+			        || (coding.getDisplay() != null || coding.hasDisplayElement()) && hasFrame(coding.getDisplayElement())
+			        || coding.hasUserSelectedElement() && hasFrame(coding.getUserSelectedElement());
+		} else if (element instanceof CodeableConcept) {
+			CodeableConcept concept = (CodeableConcept) element;
+			return (concept.getText() != null || concept.hasTextElement()) && hasFrame(concept.getTextElement());
+		} else if (element instanceof Identifier) {
+			Identifier identifier = (Identifier) element;
+			return (identifier.getUse() != null || identifier.hasUseElement()) && hasFrame(identifier.getUseElement())
+			        || (identifier.getSystem() != null || identifier.hasSystemElement())
+			                && hasFrame(identifier.getSystemElement())
+			        || (identifier.getValue() != null || identifier.hasValueElement())
+			                && hasFrame(identifier.getValueElement());
+		}
+		Quantity quantity = (Quantity) element;
+		return (quantity.getValue() != null || quantity.hasValueElement()) && hasFrame(quantity.getValueElement())
+		        || (quantity.getComparator() != null || quantity.hasComparatorElement())
+		                && hasFrame(quantity.getComparatorElement())
+		        || (quantity.getUnit() != null || quantity.hasUnitElement()) && hasFrame(quantity.getUnitElement())
+		        || (quantity.getSystem() != null || quantity.hasSystemElement()) && hasFrame(quantity.getSystemElement())
+		        || (quantity.getCode() != null || quantity.hasCodeElement()) && hasFrame(quantity.getCodeElement());
+	}
+	
+	private static boolean hasFrame(Element element) {
+		return element.hasId() || element.hasExtension();
+	}
+	
+	/**
+	 * @return whether the backbone elements have neither ids nor extensions, so they can be compared child by child
+	 */
+	private static boolean isPlainFrames(Element a, Element b) {
+		return isPlainFrame(a) && isPlainFrame(b);
+	}
+	
+	private static boolean isPlainFrame(Element element) {
+		return !element.hasId() && !element.hasExtension()
+		        && !((BackboneElement) element).hasModifierExtension();
+	}
+	
+	private static boolean isAbsent(Element element) {
+		return element == null || element.isEmpty();
+	}
+	
+	private static boolean isList(int field) {
+		return field != InventoryItemFields.STATUS && field != InventoryItemFields.DESCRIPTION
+		        && field != InventoryItemFields.BASE_UNIT && field != InventoryItemFields.NET_CONTENT;
+	}
+	
+	// Apply
+	
+	/**
+	 * Applies a FHIR Patch created by {@link #toFhirPatch(InventoryItem, InventoryItem)} to the item.
+	 *
+	 * @throws IllegalArgumentException if the patch has an operation, path or value this class does not generate, or an
+	 *             index out of range
+	 */
+	public static void applyFhirPatch(InventoryItem item, Parameters patch) {
+		for (Parameters.ParametersParameterComponent operation : patch.getParameter()) {
+			if (!"operation".equals(operation.getName())) {
+				throw new IllegalArgumentException("Unsupported patch parameter: " + operation.getName());
+			}
+			String type = null;
+			String path = null;
+			String name = null;
+			Integer index = null;
+			Parameters.ParametersParameterComponent value = null;
+			for (Parameters.ParametersParameterComponent part : operation.getPart()) {
+				switch (part.getName()) {
+					case "type":
+						type = part.getValue().primitiveValue();
+						break;
+					case "path":
+						path = part.getValue().primitiveValue();
+						break;
+					case "name":
+						name = part.getValue().primitiveValue();
+						break;
+					case "index":
+						index = ((IntegerType) part.getValue()).getValue();
+						break;
+					case "value":
+						value = part;
+						break;
+					default:
+						throw new IllegalArgumentException("Unsupported operation part: " + part.getName());
+				}
+			}
+			
+			Path target = Path.parseFhirPath(path);
+			if ("add".equals(type) && name != null) {
+				target = target.field == -1 ? new Path(InventoryItemFields.forName(name), -1, null)
+				        : new Path(target.field, target.index, name);
+				target.check(path + "." + name);
+			} else {
+				target.check(path);
+			}
+			if ("add".equals(type) && name != null) {
+				if (target.child == null && isList(target.field)) {
+					insert(item, target.field, list(item, target.field).size(), fromParameter(target, value));
+				} else {
+					set(item, target, fromParameter(target, value));
+				}
+			} else if ("insert".equals(type) && index != null && target.index == -1 && target.child == null
+			        && isList(target.field)) {
+				insert(item, target.field, index, fromParameter(target, value));
+			} else if ("replace".equals(type)) {
+				set(item, target, fromParameter(target, value));
+			} else if ("delete".equals(type)) {
+				remove(item, target);
+			} else {
+				throw new IllegalArgumentException("Unsupported " + type + " operation on " + path);
+			}
+		}
+	}
+	
+	/**
+	 * Applies a JSON Patch created by {@link #toJsonPatch(InventoryItem, InventoryItem)} to the item.
+	 *
+	 * @throws IllegalArgumentException if the patch is not valid JSON or has an operation, path or value this class does
+	 *             not generate, or an index out of range
+	 */
+	public static void applyJsonPatch(InventoryItem item, String patch) {
+		try (JsonParser parser = InventoryItemJsonCodec.getJsonFactory().createParser(patch)) {
+			InventoryItemJsonCodec.expect(parser.nextToken(), JsonToken.START_ARRAY);
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				applyJsonOperation(item, parser);
+			}
+		}
+		catch (IOException | InventoryItemJsonCodec.UnsupportedContentException | FHIRException e) {
+			throw new IllegalArgumentException("Unsupported JSON Patch", e);
+		}
+	}
+	
+	private static void applyJsonOperation(InventoryItem item, JsonParser parser)
+	        throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		InventoryItemJsonCodec.expect(parser.currentToken(), JsonToken.START_OBJECT);
+		String op = null;
+		String pointer = null;
+		Path path = null;
+		Object value = null;
+		String bufferedValue = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			switch (fieldName) {
+				case "op":
+					op = InventoryItemJsonCodec.readString(parser, token);
+					break;
+				case "path":
+					pointer = InventoryItemJsonCodec.readString(parser, token);
+					path = Path.parsePointer(pointer);
+					break;
+				case "value":
+					if (path != null) {
+						value = readValue(parser, token, path);
+					} else {
+						// the reader depends on the path, so a value before it is read once the path is known
+						StringWriter buffer = new StringWriter();
+						try (JsonGenerator generator = InventoryItemJsonCodec.getJsonFactory().createGenerator(buffer)) {
+							generator.copyCurrentStructure(parser);
+						}
+						bufferedValue = buffer.toString();
+					}
+					break;
+				default:
+					throw new IllegalArgumentException("Unsupported JSON Patch member: " + fieldName);
+			}
+		}
+		if (path == null || op == null) {
+			throw new IllegalArgumentException("JSON Patch operation without op or path");
+		}
+		if (bufferedValue != null) {
+			try (JsonParser valueParser = InventoryItemJsonCodec.getJsonFactory().createParser(bufferedValue)) {
+				value = readValue(valueParser, valueParser.nextToken(), path);
+			}
+		}
+		
+		switch (op) {
+			case "add":
+				if (path.index != -1 && path.child == null) {
+					insert(item, path.field, path.index == Path.APPEND ? list(item, path.field).size() : path.index,
+					    (Element) value);
+				} else if (isList(path.field) && path.index == -1) {
+					setList(item, path.field, value);
+				} else {
+					set(item, path, (Element) value);
+				}
+				break;
+			case "replace":
+				if (isList(path.field) && path.index == -1) {
+					setList(item, path.field, value);
+				} else {
+					set(item, path, (Element) value);
+				}
+				break;
+			case "remove":
+				remove(item, path);
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported " + op + " operation on " + pointer);
+		}
+	}
+	
+	private static void set(InventoryItem item, Path path, Element value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Missing value for " + path);
+		}
+		if (path.child != null) {
+			setChild(item, path, value);
+		} else if (path.index != -1) {
+			element(item, path);
+			list(item, path.field).set(path.index, value);
+		} else if (isList(path.field)) {
+			throw new IllegalArgumentException("Cannot set the list " + path + " to a single value");
+		} else {
+			setValue(item, path.field, value);
+		}
+	}
+	
+	/**
+	 * Sets a child of a name or the description, removing it if the value is null.
+	 */
+	private static void setChild(InventoryItem item, Path path, Element value) {
+		Element target = path.index == -1 ? item.getDescription() : element(item, path);
+		if (target instanceof InventoryItem.InventoryItemNameComponent) {
+			InventoryItem.InventoryItemNameComponent name = (InventoryItem.InventoryItemNameComponent) target;
+			if ("nameType".equals(path.child)) {
+				name.setNameType((Coding) value);
+			} else {
+				name.setNameElement((StringType) value);
+			}
+		} else {
+			((InventoryItem.InventoryItemDescriptionComponent) target).setDescriptionElement((StringType) value);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static void setValue(InventoryItem item, int field, Element value) {
+		switch (field) {
+			case InventoryItemFields.STATUS:
+				item.setStatusElement((Enumeration<InventoryItem.InventoryItemStatusCodes>) value);
+				break;
+			case InventoryItemFields.DESCRIPTION:
+				item.setDescription((InventoryItem.InventoryItemDescriptionComponent) value);
+				break;
+			case InventoryItemFields.BASE_UNIT:
+				item.setBaseUnit((CodeableConcept) value);
+				break;
+			default:
+				item.setNetContent((Quantity) value);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static void setList(InventoryItem item, int field, Object values) {
+		List<Element> list = list(item, field);
+		list.clear();
+		list.addAll((List<Element>) values);
+	}
+	
+	private static void insert(InventoryItem item, int field, int index, Element value) {
+		List<Element> list = list(item, field);
+		if (index < 0 || index > list.size()) {
+			throw new IllegalArgumentException("Index " + index + " out of range for " + FIELD_NAMES[field]);
+		}
+		list.add(index, value);
+	}
+	
+	private static void remove(InventoryItem item, Path path) {
+		if (path.child != null) {
+			setChild(item, path, null);
+		} else if (path.index != -1) {
+			element(item, path);
+			list(item, path.field).remove(path.index);
+		} else if (isList(path.field)) {
+			list(item, path.field).clear();
+		} else {
+			setValue(item, path.field, null);
+		}
+	}
+	
+	private static Element element(InventoryItem item, Path path) {
+		List<Element> list = list(item, path.field);
+		if (path.index < 0 || path.index >= list.size()) {
+			throw new IllegalArgumentException("Index " + path.index + " out of range for " + FIELD_NAMES[path.field]);
+		}
+		return list.get(path.index);
+	}
+	
+	/**
+	 * @return the list of the field through the getter, which lets tracking subclasses see the change
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<Element> list(InventoryItem item, int field) {
+		switch (field) {
+			case InventoryItemFields.IDENTIFIER:
+				return (List<Element>) (List<?>) item.getIdentifier();
+			case InventoryItemFields.CATEGORY:
+				return (List<Element>) (List<?>) item.getCategory();
+			case InventoryItemFields.CODE:
+				return (List<Element>) (List<?>) item.getCode();
+			case InventoryItemFields.NAME:
+				return (List<Element>) (List<?>) item.getName();
+			default:
+				return (List<Element>) (List<?>) item.getInventoryStatus();
+		}
+	}
+	
+	/**
+	 * @return the element a FHIR Patch value part holds for the path
+	 */
+	private static Element fromParameter(Path path, Parameters.ParametersParameterComponent parameter) {
+		if (parameter == null) {
+			throw new IllegalArgumentException("Missing value for " + path);
+		}
+		try {
+			if (path.child == null && path.field == InventoryItemFields.NAME
+			        || path.child == null && path.field == InventoryItemFields.DESCRIPTION) {
+				Element component = path.field == InventoryItemFields.NAME ? new InventoryItem.InventoryItemNameComponent()
+				        : new InventoryItem.InventoryItemDescriptionComponent();
+				for (Parameters.ParametersParameterComponent part : parameter.getPart()) {
+					if (part.getValue() == null) {
+						throw new IllegalArgumentException("Missing value for " + path + "." + part.getName());
+					}
+					component.setProperty(part.getName(), part.getValue().copy());
+				}
+				return component;
+			}
+			Type value = parameter.getValue();
+			if (value == null) {
+				throw new IllegalArgumentException("Missing value for " + path);
+			} else if (path.child == null && path.field == InventoryItemFields.STATUS) {
+				if (!(value instanceof CodeType)) {
+					throw new IllegalArgumentException("Expected a CodeType value for " + path);
+				}
+				InventoryItem.InventoryItemStatusCodesEnumFactory factory = InventoryItem.InventoryItemStatusCodesEnumFactory.INSTANCE;
+				Enumeration<InventoryItem.InventoryItemStatusCodes> status = factory.fromType((CodeType) value);
+				if (value.hasId() || value.hasExtension()) {
+					// never changes a shared enumeration
+					status = new Enumeration<>(factory, status.getValue());
+					status.setId(value.getId());
+					for (Extension extension : value.getExtension()) {
+						status.addExtension(extension.copy());
+					}
+				}
+				return status;
+			}
+			Class<?> type = path.child == null ? TYPES[path.field] : "nameType".equals(path.child) ? Coding.class
+			        : StringType.class;
+			if (!type.isInstance(value)) {
+				throw new IllegalArgumentException("Expected a " + type.getSimpleName() + " value for " + path);
+			}
+			return value.copy();
+		}
+		catch (FHIRException e) {
+			throw new IllegalArgumentException("Invalid value for " + path, e);
+		}
+	}
+	
+	/**
+	 * @return the value of a JSON Patch operation for the path, a list for a whole list field
+	 */
+	private static Object readValue(JsonParser parser, JsonToken token, Path path)
+	        throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		if (path.child != null) {
+			if ("nameType".equals(path.child)) {
+				return InventoryItemJsonCodec.readCoding(parser, token);
+			}
+			return new StringType(InventoryItemJsonCodec.readString(parser, token));
+		}
+		boolean whole = path.index == -1;
+		switch (path.field) {
+			case InventoryItemFields.IDENTIFIER:
+				return whole ? InventoryItemJsonCodec.readIdentifiers(parser, token)
+				        : InventoryItemJsonCodec.readIdentifier(parser, token);
+			case InventoryItemFields.STATUS:
+				return InventoryItemJsonCodec.readStatus(parser, token);
+			case InventoryItemFields.NAME:
+				return whole ? InventoryItemJsonCodec.readNames(parser, token)
+				        : InventoryItemJsonCodec.readName(parser, token);
+			case InventoryItemFields.DESCRIPTION:
+				return InventoryItemJsonCodec.readDescription(parser, token);
+			case InventoryItemFields.BASE_UNIT:
+				return InventoryItemJsonCodec.readConcept(parser, token);
+			case InventoryItemFields.NET_CONTENT:
+				return InventoryItemJsonCodec.readQuantity(parser, token);
+			default:
+				return whole ? InventoryItemJsonCodec.readConcepts(parser, token)
+				        : InventoryItemJsonCodec.readConcept(parser, token);
+		}
+	}
+	
+	/**
+	 * A field of the item, optionally an entry of a list field by index and a child of a name or the description.
+	 */
+	private static final class Path {
+		
+		/** Index of the JSON Pointer {@code -}, past the end of the list. */
+		static final int APPEND = Integer.MAX_VALUE;
+		
+		final int field;
+		
+		final int index;
+		
+		final String child;
+		
+		Path(int field, int index, String child) {
+			this.field = field;
+			this.index = index;
+			this.child = child;
+		}
+		
+		/**
+		 * Parses {@code InventoryItem}, {@code InventoryItem.field}, {@code InventoryItem.field[index]} and either of the
+		 * latter followed by {@code .child}. The first has no field.
+		 */
+		static Path parseFhirPath(String path) {
+			if (path == null || !path.startsWith(InventoryItemJsonCodec.RESOURCE_TYPE)) {
+				throw new IllegalArgumentException("Unsupported patch path: " + path);
+			}
+			int length = InventoryItemJsonCodec.RESOURCE_TYPE.length();
+			if (path.length() == length) {
+				return new Path(-1, -1, null);
+			}
+			try {
+				if (path.charAt(length) != '.') {
+					throw new IllegalArgumentException("Unsupported patch path: " + path);
+				}
+				int end = length + 1;
+				while (end < path.length() && path.charAt(end) != '[' && path.charAt(end) != '.') {
+					end++;
+				}
+				int field = InventoryItemFields.forName(path.substring(length + 1, end));
+				int index = -1;
+				if (end < path.length() && path.charAt(end) == '[') {
+					int close = path.indexOf(']', end);
+					index = Integer.parseInt(path.substring(end + 1, close));
+					end = close + 1;
+				}
+				String child = null;
+				if (end < path.length()) {
+					if (path.charAt(end) != '.') {
+						throw new IllegalArgumentException("Unsupported patch path: " + path);
+					}
+					child = path.substring(end + 1);
+				}
+				Path parsed = new Path(field, index, child);
+				parsed.check(path);
+				return parsed;
+			}
+			catch (IndexOutOfBoundsException | NumberFormatException e) {
+				throw new IllegalArgumentException("Unsupported patch path: " + path, e);
+			}
+		}
+		
+		/**
+		 * Parses the JSON Pointers {@code /field}, {@code /field/index} and {@code /field/index/child}, or
+		 * {@code /description/description}. An index may be {@code -} to add to the end of the list.
+		 */
+		static Path parsePointer(String pointer) {
+			String[] tokens = pointer.split("/", -1);
+			if (tokens.length < 2 || tokens.length > 4 || !tokens[0].isEmpty()) {
+				throw new IllegalArgumentException("Unsupported JSON Patch path: " + pointer);
+			}
+			int field = InventoryItemFields.forName(tokens[1]);
+			int index = -1;
+			String child = null;
+			if (field == InventoryItemFields.DESCRIPTION) {
+				if (tokens.length == 4) {
+					throw new IllegalArgumentException("Unsupported JSON Patch path: " + pointer);
+				}
+				child = tokens.length == 3 ? tokens[2] : null;
+			} else if (tokens.length > 2) {
+				try {
+					index = "-".equals(tokens[2]) ? APPEND : Integer.parseInt(tokens[2]);
+				}
+				catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Unsupported JSON Patch path: " + pointer, e);
+				}
+				child = tokens.length == 4 ? tokens[3] : null;
+			}
+			Path path = new Path(field, index, child);
+			path.check(pointer);
+			return path;
+		}
+		
+		void check(String path) {
+			boolean valid;
+			if (field == -1) {
+				valid = false;
+			} else if (field == InventoryItemFields.DESCRIPTION) {
+				valid = index == -1 && (child == null || child.equals("description"));
+			} else if (field == InventoryItemFields.NAME) {
+				valid = child == null || (index != -1 && (child.equals("nameType") || child.equals("name")));
+			} else {
+				valid = child == null && (index == -1 || isList(field));
+			}
+			if (!valid) {
+				throw new IllegalArgumentException("Unsupported patch path: " + path);
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return FIELD_NAMES[field] + (index == -1 ? "" : "[" + index + "]") + (child == null ? "" : "." + child);
+		}
+	}
+	
+	// Writers
+	
+	/**
+	 * Receives the changes of a diff. An index of -1 addresses the field as a whole, and a child a child of the name at
+	 * the index or of the description.
+	 */
+	private abstract static class PatchWriter {
+		
+		/** Sets an absent value of a single field or child. */
+		abstract void add(int field, int index, String child, Element value);
+		
+		/** Sets an empty list field. */
+		abstract void addList(int field, List<? extends Element> values);
+		
+		abstract void insert(int field, int index, Element value);
+		
+		abstract void replace(int field, int index, String child, Element value);
+		
+		abstract void remove(int field, int index, String child);
+		
+		/** Removes all entries of a list field. */
+		abstract void removeList(int field, int size);
+	}
+	
+	private static final class FhirPatchWriter extends PatchWriter {
+		
+		final Parameters parameters = new Parameters();
+		
+		@Override
+		void add(int field, int index, String child, Element value) {
+			Parameters.ParametersParameterComponent operation = operation("add",
+			    child == null ? InventoryItemJsonCodec.RESOURCE_TYPE : path(field, index, null));
+			operation.addPart().setName("name").setValue(new StringType(child == null ? FIELD_NAMES[field] : child));
+			addValue(operation, field, child, value);
+		}
+		
+		@Override
+		void addList(int field, List<? extends Element> values) {
+			for (Element value : values) {
+				add(field, -1, null, value);
+			}
+		}
+		
+		@Override
+		void insert(int field, int index, Element value) {
+			Parameters.ParametersParameterComponent operation = operation("insert", path(field, -1, null));
+			operation.addPart().setName("index").setValue(new IntegerType(index));
+			addValue(operation, field, null, value);
+		}
+		
+		@Override
+		void replace(int field, int index, String child, Element value) {
+			addValue(operation("replace", path(field, index, child)), field, child, value);
+		}
+		
+		@Override
+		void remove(int field, int index, String child) {
+			operation("delete", path(field, index, child));
+		}
+		
+		@Override
+		void removeList(int field, int size) {
+			for (int i = 0; i < size; i++) {
+				remove(field, 0, null);
+			}
+		}
+		
+		private Parameters.ParametersParameterComponent operation(String type, String path) {
+			Parameters.ParametersParameterComponent operation = parameters.addParameter().setName("operation");
+			operation.addPart().setName("type").setValue(new CodeType(type));
+			operation.addPart().setName("path").setValue(new StringType(path));
+			return operation;
+		}
+		
+		private static void addValue(Parameters.ParametersParameterComponent operation, int field, String child,
+		        Element value) {
+			Parameters.ParametersParameterComponent part = operation.addPart().setName("value");
+			if (child != null) {
+				part.setValue((Type) value.copy());
+			} else if (field == InventoryItemFields.STATUS) {
+				CodeType code = new CodeType(((Enumeration<?>) value).getValueAsString());
+				code.setId(value.getId());
+				for (Extension extension : value.getExtension()) {
+					code.addExtension(extension.copy());
+				}
+				part.setValue(code);
+			} else if (field == InventoryItemFields.NAME) {
+				InventoryItem.InventoryItemNameComponent name = (InventoryItem.InventoryItemNameComponent) value;
+				requireNoExtensions(name, field);
+				addPart(part, "id", name.hasId() ? new StringType(name.getId()) : null);
+				addPart(part, "nameType", name.nameType);
+				addPart(part, "name", name.name);
+			} else if (field == InventoryItemFields.DESCRIPTION) {
+				InventoryItem.InventoryItemDescriptionComponent description = (InventoryItem.InventoryItemDescriptionComponent) value;
+				requireNoExtensions(description, field);
+				addPart(part, "id", description.hasId() ? new StringType(description.getId()) : null);
+				addPart(part, "description", description.description);
+			} else {
+				part.setValue((Type) value.copy());
+			}
+		}
+		
+		private static void addPart(Parameters.ParametersParameterComponent parent, String name, Type value) {
+			if (!isAbsent(value)) {
+				parent.addPart().setName(name).setValue(value.copy());
+			}
+		}
+		
+		private static void requireNoExtensions(BackboneElement value, int field) {
+			if (value.hasExtension() || value.hasModifierExtension()) {
+				throw new IllegalArgumentException(
+				        "Cannot write a " + FIELD_NAMES[field] + " with extensions as a FHIR Patch value");
+			}
+		}
+		
+		private static String path(int field, int index, String child) {
+			StringBuilder path = new StringBuilder(InventoryItemJsonCodec.RESOURCE_TYPE).append('.')
+			        .append(FIELD_NAMES[field]);
+			if (index != -1) {
+				path.append('[').append(index).append(']');
+			}
+			if (child != null) {
+				path.append('.').append(child);
+			}
+			return path.toString();
+		}
+	}
+	
+	private static final class JsonPatchWriter extends PatchWriter {
+		
+		private final StringWriter writer = new StringWriter();
+		
+		private final JsonGenerator generator;
+		
+		JsonPatchWriter() {
+			try {
+				generator = InventoryItemJsonCodec.getJsonFactory().createGenerator(writer);
+				generator.writeStartArray();
+			}
+			catch (IOException e) {
+				// StringWriter does not throw
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		@Override
+		void add(int field, int index, String child, Element value) {
+			operation("add", field, index, child, value);
+		}
+		
+		@Override
+		void addList(int field, List<? extends Element> values) {
+			try {
+				startOperation("add", field, -1, null);
+				generator.writeArrayFieldStart("value");
+				for (Element value : values) {
+					writeValue(field, null, value);
+				}
+				generator.writeEndArray();
+				generator.writeEndObject();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		@Override
+		void insert(int field, int index, Element value) {
+			operation("add", field, index, null, value);
+		}
+		
+		@Override
+		void replace(int field, int index, String child, Element value) {
+			operation("replace", field, index, child, value);
+		}
+		
+		@Override
+		void remove(int field, int index, String child) {
+			operation("remove", field, index, child, null);
+		}
+		
+		@Override
+		void removeList(int field, int size) {
+			remove(field, -1, null);
+		}
+		
+		String finish() {
+			try {
+				generator.writeEndArray();
+				generator.close();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return writer.toString();
+		}
+		
+		private void operation(String op, int field, int index, String child, Element value) {
+			try {
+				startOperation(op, field, index, child);
+				if (value != null) {
+					generator.writeFieldName("value");
+					writeValue(field, child, value);
+				}
+				generator.writeEndObject();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		private void startOperation(String op, int field, int index, String child) throws IOException {
+			generator.writeStartObject();
+			generator.writeStringField("op", op);
+			StringBuilder pointer = new StringBuilder().append('/').append(FIELD_NAMES[field]);
+			if (index != -1) {
+				pointer.append('/').append(index);
+			}
+			if (child != null) {
+				pointer.append('/').append(child);
+			}
+			generator.writeStringField("path", pointer.toString());
+		}
+		
+		private void writeValue(int field, String child, Element value) throws IOException {
+			if (!isPlainValue(value)) {
+				throw new IllegalArgumentException("Cannot write a " + FIELD_NAMES[field] + (child == null ? "" : "." + child)
+				        + " with ids or extensions as a JSON Patch value");
+			}
+			if (value instanceof Identifier) {
+				InventoryItemJsonCodec.writeIdentifier((Identifier) value, generator);
+			} else if (value instanceof CodeableConcept) {
+				InventoryItemJsonCodec.writeConcept((CodeableConcept) value, generator);
+			} else if (value instanceof Coding) {
+				InventoryItemJsonCodec.writeCoding((Coding) value, generator);
+			} else if (value instanceof InventoryItem.InventoryItemNameComponent) {
+				InventoryItemJsonCodec.writeName((InventoryItem.InventoryItemNameComponent) value, generator);
+			} else if (value instanceof InventoryItem.InventoryItemDescriptionComponent) {
+				InventoryItemJsonCodec.writeDescription((InventoryItem.InventoryItemDescriptionComponent) value, generator);
+			} else if (value instanceof Quantity) {
+				InventoryItemJsonCodec.writeQuantity((Quantity) value, generator);
+			} else {
+				// status, name and description strings
+				generator.writeString(value.primitiveValue());
+			}
+		}
+		
+		private static boolean isPlainValue(Element value) {
+			if (value instanceof Identifier) {
+				return isPlain((Identifier) value);
+			} else if (value instanceof CodeableConcept) {
+				return isPlain((CodeableConcept) value);
+			} else if (value instanceof Coding) {
+				return isPlain((Coding) value);
+			} else if (value instanceof InventoryItem.InventoryItemNameComponent) {
+				return isPlain((InventoryItem.InventoryItemNameComponent) value);
+			} else if (value instanceof InventoryItem.InventoryItemDescriptionComponent) {
+				return isPlain((InventoryItem.InventoryItemDescriptionComponent) value);
+			} else if (value instanceof Quantity) {
+				return isPlain((Quantity) value);
+			}
+			return isPlain(value);
+		}
+	}
+}
@@ -0,0 +1,1280 @@
+package org.openmrs.fhir;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.DecimalType;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Quantity;
+
+/**
+ * A FHIRPath expression on an {@link InventoryItem}, compiled once into a pipeline of steps. Supported are member
+ * invocations, {@code where(criteria)}, {@code first()}, and {@code exists()} or {@code empty()} at the end of a path.
+ * Criteria combine paths relative to {@code $this} with {@code and}, {@code or} and parentheses, and compare them to
+ * string, number or boolean literals with {@code =} and {@code !=}, e.g.
+ * {@code name.where(nameType.code = 'brand-name').name}. The expression itself may also end in such a comparison, e.g.
+ * {@code status = 'active'}. Other operators, functions, variables than {@code $this}, and literals of other types are
+ * rejected when the expression is compiled.
+ * <p>
+ * Each step maps the whole collection selected by the step before it, as FHIRPath does, into a buffer that is reused
+ * by later evaluations on the same thread. The children of items, their components and the common data types are read
+ * from their fields by a loop over the collection for each member, chosen when the expression is compiled if the type
+ * of the collection is known then, and otherwise for each class of element the first time it is seen. A chain of
+ * members that do not repeat is read in one step, and {@code where()} reads the members it compares for the whole
+ * collection at once. Other elements are read through {@link Base#getProperty(int, String, boolean)}. Nothing is
+ * copied, so the selected elements must be treated as read-only. Instances are immutable and can be shared between
+ * threads.
+ */
+public final class InventoryItemPath {
+	
+	/** Compiled expressions are cached up to this number, beyond it they are only compiled. */
+	private static final int CACHE_SIZE = 1024;
+	
+	private static final ConcurrentMap<String, InventoryItemPath> CACHE = new ConcurrentHashMap<>();
+	
+	private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+	
+	private static final Map<Class<?>, Map<String, Member>> MEMBERS = new HashMap<>();
+	
+	// Members read directly, see children(int, Base[], int, int, Buffer, int) and read(int, Base[], int, int)
+	
+	private static final int ITEM_IDENTIFIER = 0;
+	
+	private static final int ITEM_STATUS = 1;
+	
+	private static final int ITEM_CATEGORY = 2;
+	
+	private static final int ITEM_CODE = 3;
+	
+	private static final int ITEM_NAME = 4;
+	
+	private static final int ITEM_DESCRIPTION = 5;
+	
+	private static final int ITEM_INVENTORY_STATUS = 6;
+	
+	private static final int ITEM_BASE_UNIT = 7;
+	
+	private static final int ITEM_NET_CONTENT = 8;
+	
+	private static final int NAME_NAME_TYPE = 9;
+	
+	private static final int NAME_NAME = 10;
+	
+	private static final int DESCRIPTION_DESCRIPTION = 11;
+	
+	private static final int CONCEPT_CODING = 12;
+	
+	private static final int CONCEPT_TEXT = 13;
+	
+	private static final int CODING_SYSTEM = 14;
+	
+	private static final int CODING_VERSION = 15;
+	
+	private static final int CODING_CODE = 16;
+	
+	private static final int CODING_DISPLAY = 17;
+	
+	private static final int CODING_USER_SELECTED = 18;
+	
+	private static final int IDENTIFIER_USE = 19;
+	
+	private static final int IDENTIFIER_TYPE = 20;
+	
+	private static final int IDENTIFIER_SYSTEM = 21;
+	
+	private static final int IDENTIFIER_VALUE = 22;
+	
+	private static final int QUANTITY_VALUE = 23;
+	
+	private static final int QUANTITY_COMPARATOR = 24;
+	
+	private static final int QUANTITY_UNIT = 25;
+	
+	private static final int QUANTITY_SYSTEM = 26;
+	
+	private static final int QUANTITY_CODE = 27;
+	
+	static {
+		member(InventoryItem.class, "identifier", Identifier.class, ITEM_IDENTIFIER, true);
+		member(InventoryItem.class, "status", null, ITEM_STATUS, false);
+		member(InventoryItem.class, "category", CodeableConcept.class, ITEM_CATEGORY, true);
+		member(InventoryItem.class, "code", CodeableConcept.class, ITEM_CODE, true);
+		member(InventoryItem.class, "name", InventoryItem.InventoryItemNameComponent.class, ITEM_NAME, true);
+		member(InventoryItem.class, "description", InventoryItem.InventoryItemDescriptionComponent.class,
+		    ITEM_DESCRIPTION, false);
+		member(InventoryItem.class, "inventoryStatus", CodeableConcept.class, ITEM_INVENTORY_STATUS, true);
+		member(InventoryItem.class, "baseUnit", CodeableConcept.class, ITEM_BASE_UNIT, false);
+		member(InventoryItem.class, "netContent", Quantity.class, ITEM_NET_CONTENT, false);
+		
+		member(InventoryItem.InventoryItemNameComponent.class, "nameType", Coding.class, NAME_NAME_TYPE, false);
+		member(InventoryItem.InventoryItemNameComponent.class, "name", null, NAME_NAME, false);
+		member(InventoryItem.InventoryItemDescriptionComponent.class, "description", null, DESCRIPTION_DESCRIPTION,
+		    false);
+		
+		member(CodeableConcept.class, "coding", Coding.class, CONCEPT_CODING, true);
+		member(CodeableConcept.class, "text", null, CONCEPT_TEXT, false);
+		
+		member(Coding.class, "system", null, CODING_SYSTEM, false);
+		member(Coding.class, "version", null, CODING_VERSION, false);
+		member(Coding.class, "code", null, CODING_CODE, false);
+		member(Coding.class, "display", null, CODING_DISPLAY, false);
+		member(Coding.class, "userSelected", null, CODING_USER_SELECTED, false);
+		
+		member(Identifier.class, "use", null, IDENTIFIER_USE, false);
+		member(Identifier.class, "type", CodeableConcept.class, IDENTIFIER_TYPE, false);
+		member(Identifier.class, "system", null, IDENTIFIER_SYSTEM, false);
+		member(Identifier.class, "value", null, IDENTIFIER_VALUE, false);
+		
+		member(Quantity.class, "value", null, QUANTITY_VALUE, false);
+		member(Quantity.class, "comparator", null, QUANTITY_COMPARATOR, false);
+		member(Quantity.class, "unit", null, QUANTITY_UNIT, false);
+		member(Quantity.class, "system", null, QUANTITY_SYSTEM, false);
+		member(Quantity.class, "code", null, QUANTITY_CODE, false);
+	}
+	
+	private final String expression;
+	
+	private final Path path;
+	
+	private final Criteria criteria;
+	
+	private InventoryItemPath(String expression, Path path) {
+		this.expression = expression;
+		this.path = path;
+		this.criteria = path.toCriteria();
+	}
+	
+	/**
+	 * @return the compiled expression, which is cached for later calls
+	 * @throws IllegalArgumentException if the expression uses syntax that is not supported
+	 */
+	public static InventoryItemPath compile(String expression) {
+		if (expression == null) {
+			throw new IllegalArgumentException("Empty FHIRPath expression");
+		}
+		InventoryItemPath path = CACHE.get(expression);
+		if (path == null) {
+			path = new InventoryItemPath(expression, new Parser(expression).parseExpression());
+			if (CACHE.size() < CACHE_SIZE) {
+				CACHE.putIfAbsent(expression, path);
+			}
+		}
+		return path;
+	}
+	
+	/**
+	 * Compiles a chain of member invocations that starts at an element of any type, for {@link MemberPath}.
+	 */
+	static InventoryItemPath compileMembers(String expression, List<String> names) {
+		Path path = new Path(null);
+		for (String name : names) {
+			path.member(name);
+		}
+		path.build();
+		return new InventoryItemPath(expression, path);
+	}
+	
+	/**
+	 * Passes every element the expression selects from the item to the action, in document order. An expression ending
+	 * in {@code exists()}, {@code empty()} or a comparison selects a single boolean.
+	 */
+	public void evaluate(InventoryItem item, Consumer<? super Base> action) throws FHIRException {
+		if (path.isBoolean()) {
+			action.accept(new BooleanType(test(item)));
+		} else {
+			select(item, action);
+		}
+	}
+	
+	/**
+	 * @return the elements the expression selects from the item
+	 */
+	public List<Base> evaluate(InventoryItem item) throws FHIRException {
+		List<Base> result = new ArrayList<>();
+		evaluate(item, result::add);
+		return result;
+	}
+	
+	/**
+	 * @return the first element the expression selects from the item, or null; the steps stop once they have selected
+	 *         the elements the first element is selected from
+	 */
+	public Base evaluateFirst(InventoryItem item) throws FHIRException {
+		if (path.isBoolean()) {
+			return new BooleanType(test(item));
+		}
+		return selectFirst(item);
+	}
+	
+	/**
+	 * Evaluates the expression as a FHIRPath boolean: true if it selects a single true boolean, or a single value of
+	 * another type, and false if it selects nothing.
+	 *
+	 * @throws FHIRException if the expression selects several values
+	 */
+	public boolean test(InventoryItem item) throws FHIRException {
+		return criteria.test(item, BUFFERS.get());
+	}
+	
+	public String getExpression() {
+		return expression;
+	}
+	
+	@Override
+	public String toString() {
+		return expression;
+	}
+	
+	/**
+	 * Passes the selected elements of a focus of any type to the action, for {@link MemberPath}.
+	 */
+	void select(Base focus, Consumer<? super Base> action) {
+		Buffers buffers = BUFFERS.get();
+		int mark = buffers.top;
+		try {
+			Buffer result = path.run(focus, Integer.MAX_VALUE, buffers);
+			for (int i = 0; i < result.size; i++) {
+				action.accept(result.values[i]);
+			}
+		}
+		finally {
+			buffers.release(mark);
+		}
+	}
+	
+	/**
+	 * @return the first selected element of a focus of any type, or null, for {@link MemberPath}
+	 */
+	Base selectFirst(Base focus) {
+		Buffers buffers = BUFFERS.get();
+		int mark = buffers.top;
+		try {
+			Buffer result = path.run(focus, 1, buffers);
+			return result.size == 0 ? null : result.values[0];
+		}
+		finally {
+			buffers.release(mark);
+		}
+	}
+	
+	private static boolean isTrue(Buffer selection) {
+		if (selection.size > 1) {
+			throw new FHIRException("Expected a single value for a boolean, but the expression selected several");
+		} else if (selection.size == 1 && selection.values[0] instanceof BooleanType) {
+			return Boolean.TRUE.equals(((BooleanType) selection.values[0]).getValue());
+		}
+		return selection.size > 0;
+	}
+	
+	private static void member(Class<?> owner, String name, Class<?> type, int id, boolean repeating) {
+		MEMBERS.computeIfAbsent(owner, key -> new HashMap<>()).put(name, new Member(type, id, repeating));
+	}
+	
+	/**
+	 * @return the member read directly for the class or one of its superclasses, or null
+	 */
+	private static Member findMember(Class<?> type, String name) {
+		for (Class<?> owner = type; owner != null; owner = owner.getSuperclass()) {
+			Map<String, Member> members = MEMBERS.get(owner);
+			if (members != null) {
+				return members.get(name);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Lets items that populate their fields lazily load the field before it is read directly, and tells the item that
+	 * its values are handed out.
+	 */
+	private static InventoryItem load(Base focus, int field) {
+		InventoryItem item = (InventoryItem) focus;
+		if (item instanceof FieldTrackingInventoryItem) {
+			((FieldTrackingInventoryItem) item).beforeRead(field);
+		}
+		item.expose(InventoryItemFields.bit(field));
+		return item;
+	}
+	
+	/**
+	 * Adds the values of a repeating member of the values from..to, which are all of one class, to the buffer until it
+	 * holds the limit. Without a member the values are read through {@code getProperty}.
+	 */
+	private static void select(Member member, int hash, String name, Base[] values, int from, int to, Buffer out,
+	        int limit) {
+		if (member == null) {
+			for (int i = from; i < to && out.size < limit; i++) {
+				out.addAll(values[i].getProperty(hash, name, false));
+			}
+		} else {
+			children(member.id, values, from, to, out, limit);
+		}
+		out.truncate(limit);
+	}
+	
+	/**
+	 * Adds the values of a chain of members that do not repeat of the values from..to to the buffer until it holds the
+	 * limit. As a value can be absent, a bounded selection reads as many values as it could still take at a time.
+	 */
+	private static void select(int[] members, Base[] values, int from, int to, Buffer out, int limit) {
+		for (int start = from; start < to && out.size < limit;) {
+			int end = limit == Integer.MAX_VALUE ? to : Math.min(to, start + limit - out.size);
+			int position = out.extend(end - start);
+			read(members, values, start, end, out.values, position);
+			out.compact(position);
+			start = end;
+		}
+	}
+	
+	/**
+	 * Adds the values of a repeating member of the values from..to to the buffer until it holds the limit. The switch
+	 * is outside the loops, so that a step reads its member without dispatching on it for every value.
+	 */
+	private static void children(int member, Base[] values, int from, int to, Buffer out, int limit) {
+		switch (member) {
+			case ITEM_IDENTIFIER:
+				for (int i = from; i < to && out.size < limit; i++) {
+					out.addAll(load(values[i], InventoryItemFields.IDENTIFIER).identifier);
+				}
+				break;
+			case ITEM_CATEGORY:
+				for (int i = from; i < to && out.size < limit; i++) {
+					out.addAll(load(values[i], InventoryItemFields.CATEGORY).category);
+				}
+				break;
+			case ITEM_CODE:
+				for (int i = from; i < to && out.size < limit; i++) {
+					out.addAll(load(values[i], InventoryItemFields.CODE).code);
+				}
+				break;
+			case ITEM_NAME:
+				for (int i = from; i < to && out.size < limit; i++) {
+					out.addAll(load(values[i], InventoryItemFields.NAME).name);
+				}
+				break;
+			case ITEM_INVENTORY_STATUS:
+				for (int i = from; i < to && out.size < limit; i++) {
+					out.addAll(load(values[i], InventoryItemFields.INVENTORY_STATUS).inventoryStatus);
+				}
+				break;
+			case CONCEPT_CODING:
+				// hasCoding() would check every coding for emptiness and getCoding() would create the list, so the
+				// codings are copied out of getProperty
+				for (int i = from; i < to && out.size < limit; i++) {
+					out.addAll(values[i].getProperty(-1355086998, "coding", false));
+				}
+				break;
+			default:
+				throw new IllegalStateException("Member " + member + " does not repeat");
+		}
+	}
+	
+	/**
+	 * Writes the value of a member that does not repeat of each of the values from..to to the target from the
+	 * position on, or null if the value or the member is absent. The target may be the array of the values. Primitive
+	 * values are checked for a value before falling back to the {@code hasXxxElement()} methods, which walk the element
+	 * and its extensions to find out whether it is empty.
+	 */
+	private static void read(int member, Base[] values, int from, int to, Base[] target, int position) {
+		switch (member) {
+			case ITEM_STATUS:
+				for (int i = from; i < to; i++) {
+					Base value = values[i];
+					target[position++] = value == null ? null : load(value, InventoryItemFields.STATUS).status;
+				}
+				break;
+			case ITEM_DESCRIPTION:
+				for (int i = from; i < to; i++) {
+					Base value = values[i];
+					target[position++] = value == null ? null
+					        : load(value, InventoryItemFields.DESCRIPTION).description;
+				}
+				break;
+			case ITEM_BASE_UNIT:
+				for (int i = from; i < to; i++) {
+					Base value = values[i];
+					target[position++] = value == null ? null : load(value, InventoryItemFields.BASE_UNIT).baseUnit;
+				}
+				break;
+			case ITEM_NET_CONTENT:
+				for (int i = from; i < to; i++) {
+					Base value = values[i];
+					target[position++] = value == null ? null : load(value, InventoryItemFields.NET_CONTENT).netContent;
+				}
+				break;
+			case NAME_NAME_TYPE:
+				for (int i = from; i < to; i++) {
+					Base value = values[i];
+					target[position++] = value == null ? null
+					        : ((InventoryItem.InventoryItemNameComponent) value).nameType;
+				}
+				break;
+			case NAME_NAME:
+				for (int i = from; i < to; i++) {
+					Base value = values[i];
+					target[position++] = value == null ? null : ((InventoryItem.InventoryItemNameComponent) value).name;
+				}
+				break;
+			case DESCRIPTION_DESCRIPTION:
+				for (int i = from; i < to; i++) {
+					Base value = values[i];
+					target[position++] = value == null ? null
+					        : ((InventoryItem.InventoryItemDescriptionComponent) value).description;
+				}
+				break;
+			case CONCEPT_TEXT:
+				for (int i = from; i < to; i++) {
+					CodeableConcept concept = (CodeableConcept) values[i];
+					boolean present = concept != null && (concept.getText() != null || concept.hasTextElement());
+					target[position++] = present ? concept.getTextElement() : null;
+				}
+				break;
+			case CODING_SYSTEM:
+				for (int i = from; i < to; i++) {
+					Coding coding = (Coding) values[i];
+					boolean present = coding != null && (coding.getSystem() != null || coding.hasSystemElement());
+					target[position++] = present ? coding.getSystemElement() : null;
+				}
+				break;
+			case CODING_VERSION:
+				for (int i = from; i < to; i++) {
+					Coding coding = (Coding) values[i];
+					boolean present = coding != null && (coding.getVersion() != null || coding.hasVersionElement());
+					target[position++] = present ? coding.getVersionElement() : null;
+				}
+				break;
+			case CODING_CODE:
+				for (int i = from; i < to; i++) {
+					Coding coding = (Coding) values[i];
+					boolean present = coding != null && (coding.getCode() != null || coding.hasCodeElement());
+					target[position++] = present ? coding.getCodeElement() : null;
+				}
+				break;
+			case CODING_DISPLAY:
+				for (int i = from; i < to; i++) {
+					Coding coding = (Coding) values[i];
+					boolean present = coding != null && (coding.getDisplay() != null || coding.hasDisplayElement());
+					target[position++] = present ? coding.getDisplayElement() : null;
+				}
+				break;
+			case CODING_USER_SELECTED:
+				for (int i = from; i < to; i++) {
+					Coding coding = (Coding) values[i];
+					boolean present = coding != null && coding.hasUserSelectedElement();
+					target[position++] = present ? coding.getUserSelectedElement() : null;
+				}
+				break;
+			case IDENTIFIER_USE:
+				for (int i = from; i < to; i++) {
+					Identifier identifier = (Identifier) values[i];
+					boolean present = identifier != null && (identifier.getUse() != null || identifier.hasUseElement());
+					target[position++] = present ? identifier.getUseElement() : null;
+				}
+				break;
+			case IDENTIFIER_TYPE:
+				for (int i = from; i < to; i++) {
+					Identifier identifier = (Identifier) values[i];
+					target[position++] = identifier != null && identifier.hasType() ? identifier.getType() : null;
+				}
+				break;
+			case IDENTIFIER_SYSTEM:
+				for (int i = from; i < to; i++) {
+					Identifier identifier = (Identifier) values[i];
+					boolean present = identifier != null
+					        && (identifier.getSystem() != null || identifier.hasSystemElement());
+					target[position++] = present ? identifier.getSystemElement() : null;
+				}
+				break;
+			case IDENTIFIER_VALUE:
+				for (int i = from; i < to; i++) {
+					Identifier identifier = (Identifier) values[i];
+					boolean present = identifier != null
+					        && (identifier.getValue() != null || identifier.hasValueElement());
+					target[position++] = present ? identifier.getValueElement() : null;
+				}
+				break;
+			case QUANTITY_VALUE:
+				for (int i = from; i < to; i++) {
+					Quantity quantity = (Quantity) values[i];
+					boolean present = quantity != null && (quantity.getValue() != null || quantity.hasValueElement());
+					target[position++] = present ? quantity.getValueElement() : null;
+				}
+				break;
+			case QUANTITY_COMPARATOR:
+				for (int i = from; i < to; i++) {
+					Quantity quantity = (Quantity) values[i];
+					boolean present = quantity != null
+					        && (quantity.getComparator() != null || quantity.hasComparatorElement());
+					target[position++] = present ? quantity.getComparatorElement() : null;
+				}
+				break;
+			case QUANTITY_UNIT:
+				for (int i = from; i < to; i++) {
+					Quantity quantity = (Quantity) values[i];
+					boolean present = quantity != null && (quantity.getUnit() != null || quantity.hasUnitElement());
+					target[position++] = present ? quantity.getUnitElement() : null;
+				}
+				break;
+			case QUANTITY_SYSTEM:
+				for (int i = from; i < to; i++) {
+					Quantity quantity = (Quantity) values[i];
+					boolean present = quantity != null && (quantity.getSystem() != null || quantity.hasSystemElement());
+					target[position++] = present ? quantity.getSystemElement() : null;
+				}
+				break;
+			case QUANTITY_CODE:
+				for (int i = from; i < to; i++) {
+					Quantity quantity = (Quantity) values[i];
+					boolean present = quantity != null && (quantity.getCode() != null || quantity.hasCodeElement());
+					target[position++] = present ? quantity.getCodeElement() : null;
+				}
+				break;
+			default:
+				throw new IllegalStateException("Member " + member + " repeats");
+		}
+	}
+	
+	/**
+	 * Writes the values of a chain of members that do not repeat, reading each member for all values before the next.
+	 *
+	 * @see #read(int, Base[], int, int, Base[], int)
+	 */
+	private static void read(int[] members, Base[] values, int from, int to, Base[] target, int position) {
+		if (members.length == 0) {
+			System.arraycopy(values, from, target, position, to - from);
+			return;
+		}
+		read(members[0], values, from, to, target, position);
+		for (int i = 1; i < members.length; i++) {
+			read(members[i], target, position, position + to - from, target, position);
+		}
+	}
+	
+	private enum Terminal {
+		EXISTS,
+		EMPTY
+	}
+	
+	private interface Criteria {
+		
+		boolean test(Base focus, Buffers buffers);
+	}
+	
+	private static final class Member {
+		
+		/** The class of the values if it is known at compile time, or null. */
+		final Class<?> type;
+		
+		final int id;
+		
+		final boolean repeating;
+		
+		Member(Class<?> type, int id, boolean repeating) {
+			this.type = type;
+			this.id = id;
+			this.repeating = repeating;
+		}
+	}
+	
+	/**
+	 * A collection of selected elements, reused between evaluations.
+	 */
+	private static final class Buffer {
+		
+		Base[] values = new Base[16];
+		
+		int size;
+		
+		void add(Base value) {
+			if (value != null) {
+				if (size == values.length) {
+					values = Arrays.copyOf(values, size * 2);
+				}
+				values[size++] = value;
+			}
+		}
+		
+		void addAll(List<? extends Base> list) {
+			if (list != null) {
+				for (int i = 0; i < list.size(); i++) {
+					add(list.get(i));
+				}
+			}
+		}
+		
+		void addAll(Base[] array) {
+			if (array != null) {
+				for (Base value : array) {
+					add(value);
+				}
+			}
+		}
+		
+		/**
+		 * Makes room for a number of values, which the caller writes from the returned position on.
+		 */
+		int extend(int count) {
+			if (size + count > values.length) {
+				values = Arrays.copyOf(values, Math.max(size * 2, size + count));
+			}
+			size += count;
+			return size - count;
+		}
+		
+		/**
+		 * Removes the nulls written from the position on.
+		 */
+		void compact(int position) {
+			int end = position;
+			for (int i = position; i < size; i++) {
+				if (values[i] != null) {
+					values[end++] = values[i];
+				}
+			}
+			Arrays.fill(values, end, size, null);
+			size = end;
+		}
+		
+		void truncate(int limit) {
+			if (size > limit) {
+				Arrays.fill(values, limit, size, null);
+				size = limit;
+			}
+		}
+		
+		void clear() {
+			Arrays.fill(values, 0, size, null);
+			size = 0;
+		}
+	}
+	
+	/**
+	 * The buffers of a thread, used as a stack so that criteria and actions can evaluate other expressions while an
+	 * evaluation holds its buffers.
+	 */
+	private static final class Buffers {
+		
+		private Buffer[] buffers = new Buffer[8];
+		
+		int top;
+		
+		Buffer acquire() {
+			if (top == buffers.length) {
+				buffers = Arrays.copyOf(buffers, top * 2);
+			}
+			Buffer buffer = buffers[top];
+			if (buffer == null) {
+				buffer = new Buffer();
+				buffers[top] = buffer;
+			}
+			top++;
+			return buffer;
+		}
+		
+		/**
+		 * Clears the buffers acquired since the mark, so they do not keep the selected elements reachable.
+		 */
+		void release(int mark) {
+			while (top > mark) {
+				buffers[--top].clear();
+			}
+		}
+	}
+	
+	/**
+	 * A stage of a pipeline. It maps the collection selected by the stage before it into the next buffer, stopping once
+	 * that holds the limit.
+	 */
+	private abstract static class Step {
+		
+		abstract void apply(Buffer in, Buffer out, int limit, Buffers buffers);
+	}
+	
+	/**
+	 * Selects a repeating member resolved when the expression is compiled, read directly or, if there is none, through
+	 * {@code getProperty}.
+	 */
+	private static final class Children extends Step {
+		
+		/** The member read directly, or null. */
+		final Member member;
+		
+		private final int hash;
+		
+		private final String name;
+		
+		Children(Member member, String name) {
+			this.member = member;
+			this.hash = name.hashCode();
+			this.name = name;
+		}
+		
+		@Override
+		void apply(Buffer in, Buffer out, int limit, Buffers buffers) {
+			select(member, hash, name, in.values, 0, in.size, out, limit);
+		}
+	}
+	
+	/**
+	 * Selects a chain of members that do not repeat, resolved when the expression is compiled.
+	 */
+	private static final class Reads extends Step {
+		
+		final int[] members;
+		
+		Reads(int... members) {
+			this.members = members;
+		}
+		
+		Reads then(int member) {
+			int[] chain = Arrays.copyOf(members, members.length + 1);
+			chain[members.length] = member;
+			return new Reads(chain);
+		}
+		
+		@Override
+		void apply(Buffer in, Buffer out, int limit, Buffers buffers) {
+			select(members, in.values, 0, in.size, out, limit);
+		}
+	}
+	
+	/**
+	 * A member of elements whose type is not known at compile time, resolved for each run of elements of one class. The
+	 * last class and its member are cached together, so a collection of one class resolves once.
+	 */
+	private static final class DynamicChildren extends Step {
+		
+		private final int hash;
+		
+		private final String name;
+		
+		private Resolution last = new Resolution(null, null);
+		
+		DynamicChildren(String name) {
+			this.hash = name.hashCode();
+			this.name = name;
+		}
+		
+		@Override
+		void apply(Buffer in, Buffer out, int limit, Buffers buffers) {
+			for (int from = 0; from < in.size && out.size < limit;) {
+				Class<?> type = in.values[from].getClass();
+				int to = from + 1;
+				while (to < in.size && in.values[to].getClass() == type) {
+					to++;
+				}
+				Resolution resolution = last;
+				if (resolution.type != type) {
+					resolution = new Resolution(type, findMember(type, name));
+					last = resolution;
+				}
+				if (resolution.members != null) {
+					select(resolution.members, in.values, from, to, out, limit);
+				} else {
+					select(resolution.member, hash, name, in.values, from, to, out, limit);
+				}
+				from = to;
+			}
+		}
+	}
+	
+	private static final class Resolution {
+		
+		final Class<?> type;
+		
+		final Member member;
+		
+		/** The member as a chain if it does not repeat, otherwise null. */
+		final int[] members;
+		
+		Resolution(Class<?> type, Member member) {
+			this.type = type;
+			this.member = member;
+			this.members = member != null && !member.repeating ? new int[] { member.id } : null;
+		}
+	}
+	
+	private static final class Where extends Step {
+		
+		private final Criteria criteria;
+		
+		/** The criteria if they compare members that do not repeat, which are then read for all values at once. */
+		private final Comparison comparison;
+		
+		Where(Criteria criteria) {
+			this.criteria = criteria;
+			this.comparison = criteria instanceof Comparison && ((Comparison) criteria).members != null
+			        ? (Comparison) criteria
+			        : null;
+		}
+		
+		@Override
+		void apply(Buffer in, Buffer out, int limit, Buffers buffers) {
+			if (comparison != null) {
+				comparison.filter(in, out, limit, buffers);
+				return;
+			}
+			for (int i = 0; i < in.size && out.size < limit; i++) {
+				if (criteria.test(in.values[i], buffers)) {
+					out.add(in.values[i]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Selects the first value. The step before it stops after selecting one.
+	 */
+	private static final class First extends Step {
+		
+		@Override
+		void apply(Buffer in, Buffer out, int limit, Buffers buffers) {
+			out.add(in.values[0]);
+		}
+	}
+	
+	/**
+	 * Compares the single value of a path with a literal. Like FHIRPath equality, it is false if the path selects nothing
+	 * for both operators, and several values are not equal to the literal.
+	 */
+	private static final class Comparison implements Criteria {
+		
+		private final Path path;
+		
+		/** The members of a path that cannot select several values, or null. */
+		final int[] members;
+		
+		private final Object literal;
+		
+		private final boolean equal;
+		
+		Comparison(Path path, Object literal, boolean equal) {
+			this.path = path;
+			this.members = path.toMembers();
+			this.literal = literal;
+			this.equal = equal;
+		}
+		
+		@Override
+		public boolean test(Base focus, Buffers buffers) {
+			int mark = buffers.top;
+			try {
+				if (members != null) {
+					Buffer selection = buffers.acquire();
+					selection.add(focus);
+					read(members, selection.values, 0, 1, selection.values, 0);
+					return selection.values[0] != null && matches(selection.values[0]) == equal;
+				}
+				Buffer selection = path.run(focus, 2, buffers);
+				if (selection.size == 0) {
+					return false;
+				} else if (selection.size > 1) {
+					return !equal;
+				}
+				return matches(selection.values[0]) == equal;
+			}
+			finally {
+				buffers.release(mark);
+			}
+		}
+		
+		/**
+		 * Adds the values the comparison is true for to the buffer until it holds the limit. The members are read for
+		 * all values of a chunk at once, and a bounded selection reads no more values than it could still take.
+		 */
+		void filter(Buffer in, Buffer out, int limit, Buffers buffers) {
+			int mark = buffers.top;
+			try {
+				Buffer selection = buffers.acquire();
+				for (int from = 0; from < in.size && out.size < limit;) {
+					int to = limit == Integer.MAX_VALUE ? in.size : Math.min(in.size, from + limit - out.size);
+					int position = selection.extend(to - from);
+					read(members, in.values, from, to, selection.values, position);
+					for (int i = 0; i < selection.size; i++) {
+						if (selection.values[i] != null && matches(selection.values[i]) == equal) {
+							out.add(in.values[from + i]);
+						}
+					}
+					selection.clear();
+					from = to;
+				}
+			}
+			finally {
+				buffers.release(mark);
+			}
+		}
+		
+		private boolean matches(Base value) {
+			String text = value.primitiveValue();
+			if (text == null) {
+				return false;
+			} else if (literal instanceof String) {
+				return literal.equals(text);
+			} else if (literal instanceof Boolean) {
+				return value instanceof BooleanType && literal.toString().equals(text);
+			} else if (value instanceof DecimalType || value instanceof IntegerType) {
+				return new BigDecimal(text).compareTo((BigDecimal) literal) == 0;
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * A parsed path: a chain of steps and an optional terminal function.
+	 */
+	private static final class Path {
+		
+		private final List<Step> chain = new ArrayList<>();
+		
+		private Step[] steps;
+		
+		/** The limit of each step but the last, one if it is followed by {@code first()}. */
+		private int[] limits;
+		
+		/** The class of the selected values if it is known at compile time, or null. */
+		Class<?> type;
+		
+		Terminal terminal;
+		
+		/** The comparison with a literal that ends the expression, or null. */
+		Criteria comparison;
+		
+		Path(Class<?> type) {
+			this.type = type;
+		}
+		
+		boolean isBoolean() {
+			return terminal != null || comparison != null;
+		}
+		
+		boolean isFocus() {
+			return chain.isEmpty();
+		}
+		
+		void append(Step step) {
+			if (terminal != null) {
+				throw new IllegalArgumentException("exists() and empty() must end a path");
+			}
+			chain.add(step);
+		}
+		
+		void member(String name) {
+			if (type == null) {
+				append(new DynamicChildren(name));
+				return;
+			}
+			Member member = findMember(type, name);
+			if (member == null || member.repeating) {
+				append(new Children(member, name));
+			} else if (terminal == null && !chain.isEmpty() && chain.get(chain.size() - 1) instanceof Reads) {
+				chain.set(chain.size() - 1, ((Reads) chain.get(chain.size() - 1)).then(member.id));
+			} else {
+				append(new Reads(member.id));
+			}
+			type = member == null ? null : member.type;
+		}
+		
+		void build() {
+			steps = chain.toArray(new Step[0]);
+			limits = new int[steps.length];
+			for (int i = 0; i < steps.length; i++) {
+				limits[i] = i + 1 < steps.length && steps[i + 1] instanceof First ? 1 : Integer.MAX_VALUE;
+			}
+		}
+		
+		/**
+		 * Selects at most limit values from the focus into a buffer acquired from the given ones, which the caller
+		 * releases.
+		 */
+		Buffer run(Base focus, int limit, Buffers buffers) {
+			Buffer current = buffers.acquire();
+			current.add(focus);
+			for (int i = 0; i < steps.length && current.size > 0; i++) {
+				Buffer next = buffers.acquire();
+				steps[i].apply(current, next, i == steps.length - 1 ? limit : limits[i], buffers);
+				current = next;
+			}
+			return current;
+		}
+		
+		/**
+		 * @return the members if there is no terminal and the steps only read members that do not repeat directly,
+		 *         otherwise null
+		 */
+		int[] toMembers() {
+			if (terminal != null) {
+				return null;
+			}
+			if (steps.length == 0) {
+				return new int[0];
+			}
+			return steps.length == 1 && steps[0] instanceof Reads ? ((Reads) steps[0]).members : null;
+		}
+		
+		Criteria toCriteria() {
+			if (comparison != null) {
+				return comparison;
+			} else if (terminal == Terminal.EXISTS) {
+				return (focus, buffers) -> count(focus, buffers) > 0;
+			} else if (terminal == Terminal.EMPTY) {
+				return (focus, buffers) -> count(focus, buffers) == 0;
+			}
+			return (focus, buffers) -> {
+				int mark = buffers.top;
+				try {
+					return isTrue(run(focus, 2, buffers));
+				}
+				finally {
+					buffers.release(mark);
+				}
+			};
+		}
+		
+		private int count(Base focus, Buffers buffers) {
+			int mark = buffers.top;
+			try {
+				return run(focus, 1, buffers).size;
+			}
+			finally {
+				buffers.release(mark);
+			}
+		}
+	}
+	
+	private static final class Parser {
+		
+		private final String expression;
+		
+		private int position;
+		
+		Parser(String expression) {
+			this.expression = expression;
+		}
+		
+		Path parseExpression() {
+			skipWhitespace();
+			if (position == expression.length()) {
+				throw error("empty expression");
+			}
+			int start = position;
+			String first = identifier();
+			if (Character.isUpperCase(first.charAt(0))) {
+				if (!"InventoryItem".equals(first)) {
+					throw error("the expression must start at InventoryItem");
+				}
+				if (!consume('.')) {
+					expectEnd();
+					Path path = new Path(InventoryItem.class);
+					path.build();
+					return path;
+				}
+			} else {
+				position = start;
+			}
+			Path path = parsePath(InventoryItem.class);
+			path.comparison = parseComparison(path);
+			expectEnd();
+			return path;
+		}
+		
+		private Path parsePath(Class<?> type) {
+			Path path = new Path(type);
+			do {
+				String name = identifier();
+				if (!consume('(')) {
+					member(path, name);
+				} else if ("where".equals(name)) {
+					Criteria criteria = parseCriteria(path.type);
+					expect(')');
+					path.append(new Where(criteria));
+				} else {
+					expect(')');
+					if ("first".equals(name)) {
+						path.append(new First());
+					} else if ("exists".equals(name) || "empty".equals(name)) {
+						if (path.terminal != null) {
+							throw error("exists() and empty() must end a path");
+						}
+						path.terminal = "exists".equals(name) ? Terminal.EXISTS : Terminal.EMPTY;
+					} else {
+						throw error("function " + name + "() is not supported");
+					}
+				}
+			} while (consume('.'));
+			path.build();
+			return path;
+		}
+		
+		private void member(Path path, String name) {
+			if ("$this".equals(name)) {
+				if (!path.isFocus() || path.terminal != null) {
+					throw error("$this must start a path");
+				}
+				return;
+			}
+			path.member(name);
+		}
+		
+		private Criteria parseCriteria(Class<?> type) {
+			Criteria criteria = parseConjunction(type);
+			while (keyword("or")) {
+				Criteria left = criteria;
+				Criteria right = parseConjunction(type);
+				criteria = (focus, buffers) -> left.test(focus, buffers) || right.test(focus, buffers);
+			}
+			return criteria;
+		}
+		
+		private Criteria parseConjunction(Class<?> type) {
+			Criteria criteria = parseTerm(type);
+			while (keyword("and")) {
+				Criteria left = criteria;
+				Criteria right = parseTerm(type);
+				criteria = (focus, buffers) -> left.test(focus, buffers) && right.test(focus, buffers);
+			}
+			return criteria;
+		}
+		
+		private Criteria parseTerm(Class<?> type) {
+			if (consume('(')) {
+				Criteria criteria = parseCriteria(type);
+				expect(')');
+				return criteria;
+			}
+			Path path = parsePath(type);
+			Criteria comparison = parseComparison(path);
+			return comparison == null ? path.toCriteria() : comparison;
+		}
+		
+		/**
+		 * @return the comparison of the path with the literal that follows it, or null if no operator follows the path
+		 */
+		private Criteria parseComparison(Path path) {
+			boolean equal = consume('=');
+			if (!equal && consume('!')) {
+				expect('=');
+			} else if (!equal) {
+				return null;
+			}
+			Object literal = literal();
+			if (path.terminal == null) {
+				return new Comparison(path, literal, equal);
+			} else if (!(literal instanceof Boolean)) {
+				throw error("exists() and empty() can only be compared to a boolean");
+			}
+			Criteria criteria = path.toCriteria();
+			return equal == (Boolean) literal ? criteria : (focus, buffers) -> !criteria.test(focus, buffers);
+		}
+		
+		private Object literal() {
+			skipWhitespace();
+			if (consume('\'')) {
+				StringBuilder value = new StringBuilder();
+				while (position < expression.length() && expression.charAt(position) != '\'') {
+					char c = expression.charAt(position++);
+					if (c == '\\' && position < expression.length()) {
+						c = expression.charAt(position++);
+					}
+					value.append(c);
+				}
+				expect('\'');
+				return value.toString();
+			}
+			int start = position;
+			if (position < expression.length() && expression.charAt(position) == '-') {
+				position++;
+			}
+			while (position < expression.length()
+			        && (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+				position++;
+			}
+			if (position > start) {
+				try {
+					return new BigDecimal(expression.substring(start, position));
+				}
+				catch (NumberFormatException e) {
+					throw error("invalid number " + expression.substring(start, position));
+				}
+			}
+			String word = identifier();
+			if ("true".equals(word) || "false".equals(word)) {
+				return Boolean.valueOf(word);
+			}
+			throw error("expected a string, number or boolean literal");
+		}
+		
+		private String identifier() {
+			skipWhitespace();
+			int start = position;
+			if (position < expression.length()
+			        && (expression.charAt(position) == '$' || Character.isJavaIdentifierStart(expression.charAt(position)))) {
+				position++;
+				while (position < expression.length() && Character.isJavaIdentifierPart(expression.charAt(position))
+				        && expression.charAt(position) != '$') {
+					position++;
+				}
+			}
+			if (position == start) {
+				throw error("expected a name");
+			}
+			return expression.substring(start, position);
+		}
+		
+		private boolean keyword(String keyword) {
+			skipWhitespace();
+			int end = position + keyword.length();
+			if (expression.startsWith(keyword, position)
+			        && (end == expression.length() || !Character.isJavaIdentifierPart(expression.charAt(end)))) {
+				position = end;
+				return true;
+			}
+			return false;
+		}
+		
+		private boolean consume(char c) {
+			skipWhitespace();
+			if (position < expression.length() && expression.charAt(position) == c) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+		
+		private void expect(char c) {
+			if (!consume(c)) {
+				throw error("expected '" + c + "'");
+			}
+		}
+		
+		private void expectEnd() {
+			skipWhitespace();
+			if (position != expression.length()) {
+				throw error("unexpected '" + expression.charAt(position) + "'");
+			}
+		}
+		
+		private void skipWhitespace() {
+			while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+				position++;
+			}
+		}
+		
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(
+			        "Unsupported FHIRPath expression '" + expression + "' at " + position + ": " + message);
+		}
+	}
+}
@@ -0,0 +1,1331 @@
+package org.openmrs.fhir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CanonicalType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.DecimalType;
+import org.hl7.fhir.r4.model.Element;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Meta;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Ratio;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.Type;
+import org.hl7.fhir.r4.model.UrlType;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Converts {@link InventoryItem}s between R5 JSON and this R4 backport without an R5 object model: R5 JSON is read from a
+ * streaming token parser straight into the fields of the item, and items are written straight to R5 JSON.
+ * <p>
+ * The R5 elements the backport does not have are carried as the cross-version extensions FHIR defines for them,
+ * {@code http://hl7.org/fhir/5.0/StructureDefinition/extension-InventoryItem.[path]}. An element with children becomes a
+ * complex extension with one extension per child value, whose URL is the name of the child, e.g. the lot number of
+ * {@code instance} is the {@code lotNumber} extension of the {@code extension-InventoryItem.instance} extension.
+ * <p>
+ * Like {@link InventoryItemJsonCodec}, items using anything outside of the common layout (other extensions, element
+ * ids, narrative, ...) go through a slower path: the JSON is rewritten into the other version with a streaming parser
+ * and generator, and parsed or encoded by HAPI. Extensions on the primitive values of R5 elements that have no R4
+ * counterpart cannot be carried, and fail the conversion.
+ */
+public class InventoryItemR5Converter {
+	
+	public static final String EXTENSION_URL_PREFIX = "http://hl7.org/fhir/5.0/StructureDefinition/extension-InventoryItem.";
+	
+	public static final String EXTENSION_NAME_LANGUAGE = EXTENSION_URL_PREFIX + "name.language";
+	
+	public static final String EXTENSION_RESPONSIBLE_ORGANIZATION = EXTENSION_URL_PREFIX + "responsibleOrganization";
+	
+	public static final String EXTENSION_DESCRIPTION_LANGUAGE = EXTENSION_URL_PREFIX + "description.language";
+	
+	public static final String EXTENSION_ASSOCIATION = EXTENSION_URL_PREFIX + "association";
+	
+	public static final String EXTENSION_CHARACTERISTIC = EXTENSION_URL_PREFIX + "characteristic";
+	
+	public static final String EXTENSION_INSTANCE = EXTENSION_URL_PREFIX + "instance";
+	
+	public static final String EXTENSION_PRODUCT_REFERENCE = EXTENSION_URL_PREFIX + "productReference";
+	
+	private static final String CHOICE = "value";
+	
+	private static final Set<String> PRIMITIVE_TYPES = new HashSet<>(
+	        Arrays.asList("string", "code", "url", "dateTime", "integer", "decimal", "boolean"));
+	
+	private static final R5Element NAME_LANGUAGE = new R5Element("language", EXTENSION_NAME_LANGUAGE, false, "code");
+	
+	private static final R5Element DESCRIPTION_LANGUAGE = new R5Element("language", EXTENSION_DESCRIPTION_LANGUAGE, false,
+	        "code");
+	
+	/** The elements of the item without an R4 counterpart, in R5 order. */
+	private static final Map<String, R5Element> ELEMENTS = elements(
+	    new R5Element("responsibleOrganization", EXTENSION_RESPONSIBLE_ORGANIZATION, true, null)
+	            .child("role", "CodeableConcept").child("organization", "Reference"),
+	    new R5Element("association", EXTENSION_ASSOCIATION, true, null).child("associationType", "CodeableConcept")
+	            .child("relatedItem", "Reference").child("quantity", "Ratio"),
+	    new R5Element("characteristic", EXTENSION_CHARACTERISTIC, true, null)
+	            .child("characteristicType", "CodeableConcept").choiceChild(CHOICE, "string", "integer", "decimal", "boolean",
+	                "url", "dateTime", "Quantity", "Range", "Ratio", "Annotation", "Address", "Duration",
+	                "CodeableConcept"),
+	    new R5Element("instance", EXTENSION_INSTANCE, false, null).repeatingChild("identifier", "Identifier")
+	            .child("lotNumber", "string").child("expiry", "dateTime").child("subject", "Reference")
+	            .child("location", "Reference"),
+	    new R5Element("productReference", EXTENSION_PRODUCT_REFERENCE, false, "Reference"));
+	
+	private static final Map<String, R5Element> NAME_ELEMENTS = elements(NAME_LANGUAGE);
+	
+	private static final Map<String, R5Element> DESCRIPTION_ELEMENTS = elements(DESCRIPTION_LANGUAGE);
+	
+	private static final Map<String, R5Element> ELEMENTS_BY_URL = byUrl(ELEMENTS);
+	
+	private static final Map<String, R5Element> NAME_ELEMENTS_BY_URL = byUrl(NAME_ELEMENTS);
+	
+	private static final Map<String, R5Element> DESCRIPTION_ELEMENTS_BY_URL = byUrl(DESCRIPTION_ELEMENTS);
+	
+	private final InventoryItemJsonCodec codec;
+	
+	public InventoryItemR5Converter(FhirContext fhirContext) {
+		this(new InventoryItemJsonCodec(fhirContext));
+	}
+	
+	/**
+	 * @param codec the codec to parse and encode the items that are not converted directly with, whose interning pool
+	 *            is used for all converted items
+	 */
+	public InventoryItemR5Converter(InventoryItemJsonCodec codec) {
+		this.codec = codec;
+	}
+	
+	/**
+	 * Converts an R5 InventoryItem.
+	 *
+	 * @throws DataFormatException if the JSON is not an InventoryItem that can be converted
+	 */
+	public InventoryItem fromR5(String json) {
+		return fromR5(json.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Converts an R5 InventoryItem encoded in UTF-8.
+	 *
+	 * @throws DataFormatException if the JSON is not an InventoryItem that can be converted
+	 */
+	public InventoryItem fromR5(byte[] json) {
+		InventoryItem item;
+		try (JsonParser parser = getJsonFactory().createParser(json)) {
+			item = readItem(parser);
+		}
+		catch (InventoryItemJsonCodec.UnsupportedContentException | JsonProcessingException e) {
+			return codec.decode(rewriteToR4(json));
+		}
+		catch (IOException e) {
+			// the JSON is in memory
+			throw new IllegalStateException(e);
+		}
+		if (codec.getInterner() != null) {
+			codec.getInterner().internChildren(item);
+		}
+		return item;
+	}
+	
+	/**
+	 * Converts the item to R5 JSON.
+	 *
+	 * @throws DataFormatException if an extension for an R5 element does not match that element
+	 */
+	public String toR5(InventoryItem item) {
+		StringWriter writer = new StringWriter();
+		try {
+			toR5(item, writer);
+		}
+		catch (IOException e) {
+			// StringWriter does not throw
+			throw new IllegalStateException(e);
+		}
+		return writer.toString();
+	}
+	
+	/**
+	 * Writes the item as R5 JSON, on a single line so the items of an NDJSON file can be written one after the other.
+	 * The writer is not closed.
+	 *
+	 * @throws DataFormatException if an extension for an R5 element does not match that element
+	 */
+	public void toR5(InventoryItem item, Writer writer) throws IOException {
+		item.loadChildren();
+		if (!canWrite(item)) {
+			rewriteToR5(codec.encodeToString(item), writer);
+			return;
+		}
+		
+		try (JsonGenerator generator = getJsonFactory().createGenerator(writer)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			writeItem(item, generator);
+		}
+	}
+	
+	private static JsonFactory getJsonFactory() {
+		return InventoryItemJsonCodec.getJsonFactory();
+	}
+	
+	private static Map<String, R5Element> elements(R5Element... elements) {
+		Map<String, R5Element> byName = new LinkedHashMap<>();
+		for (R5Element element : elements) {
+			byName.put(element.name, element);
+		}
+		return Collections.unmodifiableMap(byName);
+	}
+	
+	private static Map<String, R5Element> byUrl(Map<String, R5Element> elements) {
+		Map<String, R5Element> byUrl = new LinkedHashMap<>();
+		for (R5Element element : elements.values()) {
+			byUrl.put(element.url, element);
+		}
+		return Collections.unmodifiableMap(byUrl);
+	}
+	
+	// R5 to R4
+	
+	private static InventoryItem readItem(JsonParser parser)
+	        throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		InventoryItemJsonCodec.expect(parser.nextToken(), JsonToken.START_OBJECT);
+		InventoryItem item = new InventoryItem();
+		String id = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			switch (fieldName) {
+				case "resourceType":
+					if (!InventoryItemJsonCodec.RESOURCE_TYPE.equals(InventoryItemJsonCodec.readString(parser, token))) {
+						throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+					}
+					break;
+				case "id":
+					id = InventoryItemJsonCodec.readString(parser, token);
+					break;
+				case "meta":
+					item.setMeta(InventoryItemJsonCodec.readMeta(parser, token));
+					break;
+				case "identifier":
+					item.identifier = InventoryItemJsonCodec.readIdentifiers(parser, token);
+					break;
+				case "status":
+					item.status = InventoryItemJsonCodec.readStatus(parser, token);
+					break;
+				case "category":
+					item.category = InventoryItemJsonCodec.readConcepts(parser, token);
+					break;
+				case "code":
+					item.code = InventoryItemJsonCodec.readConcepts(parser, token);
+					break;
+				case "name":
+					item.name = readNames(parser, token);
+					break;
+				case "description":
+					item.description = readDescription(parser, token);
+					break;
+				case "inventoryStatus":
+					item.inventoryStatus = InventoryItemJsonCodec.readConcepts(parser, token);
+					break;
+				case "baseUnit":
+					item.baseUnit = InventoryItemJsonCodec.readConcept(parser, token);
+					break;
+				case "netContent":
+					item.netContent = InventoryItemJsonCodec.readQuantity(parser, token);
+					break;
+				default:
+					R5Element element = ELEMENTS.get(fieldName);
+					if (element == null) {
+						throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+					}
+					if (element.repeating) {
+						InventoryItemJsonCodec.expect(token, JsonToken.START_ARRAY);
+						while (parser.nextToken() != JsonToken.END_ARRAY) {
+							item.addExtension(readExtension(element, parser, parser.currentToken()));
+						}
+					} else {
+						item.addExtension(readExtension(element, parser, token));
+					}
+			}
+		}
+		InventoryItemJsonCodec.expect(parser.currentToken(), JsonToken.END_OBJECT);
+		if (parser.nextToken() != null) {
+			throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+		}
+		
+		if (id != null) {
+			item.setIdElement(new IdType(InventoryItemJsonCodec.RESOURCE_TYPE, id,
+			        item.hasMeta() ? item.getMeta().getVersionId() : null));
+		}
+		return item;
+	}
+	
+	private static List<InventoryItem.InventoryItemNameComponent> readNames(JsonParser parser, JsonToken token)
+	        throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		InventoryItemJsonCodec.expect(token, JsonToken.START_ARRAY);
+		List<InventoryItem.InventoryItemNameComponent> names = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			InventoryItemJsonCodec.expect(parser.currentToken(), JsonToken.START_OBJECT);
+			InventoryItem.InventoryItemNameComponent name = new InventoryItem.InventoryItemNameComponent();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken valueToken = parser.nextToken();
+				switch (fieldName) {
+					case "nameType":
+						name.nameType = InventoryItemJsonCodec.readCoding(parser, valueToken);
+						break;
+					case "language":
+						name.addExtension(readExtension(NAME_LANGUAGE, parser, valueToken));
+						break;
+					case "name":
+						name.name = new StringType();
+						name.name.setValueAsString(InventoryItemJsonCodec.readString(parser, valueToken));
+						break;
+					default:
+						throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+				}
+			}
+			names.add(name);
+		}
+		return names;
+	}
+	
+	private static InventoryItem.InventoryItemDescriptionComponent readDescription(JsonParser parser, JsonToken token)
+	        throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		InventoryItemJsonCodec.expect(token, JsonToken.START_OBJECT);
+		InventoryItem.InventoryItemDescriptionComponent description = new InventoryItem.InventoryItemDescriptionComponent();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "language":
+					description.addExtension(readExtension(DESCRIPTION_LANGUAGE, parser, valueToken));
+					break;
+				case "description":
+					description.description = new StringType();
+					description.description.setValueAsString(InventoryItemJsonCodec.readString(parser, valueToken));
+					break;
+				default:
+					throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+			}
+		}
+		return description;
+	}
+	
+	private static Extension readExtension(R5Element element, JsonParser parser, JsonToken token)
+	        throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		if (element.type != null) {
+			return new Extension(element.url, readValue(element.type, parser, token));
+		}
+		
+		InventoryItemJsonCodec.expect(token, JsonToken.START_OBJECT);
+		Extension extension = new Extension(element.url);
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			String type = element.getChildType(fieldName);
+			if (type == null) {
+				throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+			}
+			String url = element.getChildName(fieldName);
+			if (element.isRepeating(url)) {
+				InventoryItemJsonCodec.expect(valueToken, JsonToken.START_ARRAY);
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					extension.addExtension(url, readValue(type, parser, parser.currentToken()));
+				}
+			} else {
+				extension.addExtension(url, readValue(type, parser, valueToken));
+			}
+		}
+		return extension;
+	}
+	
+	private static Type readValue(String type, JsonParser parser, JsonToken token)
+	        throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		switch (type) {
+			case "CodeableConcept":
+				return InventoryItemJsonCodec.readConcept(parser, token);
+			case "Identifier":
+				return InventoryItemJsonCodec.readIdentifier(parser, token);
+			case "Quantity":
+				return InventoryItemJsonCodec.readQuantity(parser, token);
+			case "Reference":
+				return readReference(parser, token);
+			case "Ratio":
+				return readRatio(parser, token);
+			case "string":
+				return new StringType(InventoryItemJsonCodec.readString(parser, token));
+			case "code":
+				return new CodeType(InventoryItemJsonCodec.readString(parser, token));
+			case "url":
+				return new UrlType(InventoryItemJsonCodec.readString(parser, token));
+			case "dateTime":
+				DateTimeType dateTime = new DateTimeType();
+				InventoryItemJsonCodec.setValue(dateTime, InventoryItemJsonCodec.readString(parser, token));
+				return dateTime;
+			case "boolean":
+				if (token != JsonToken.VALUE_TRUE && token != JsonToken.VALUE_FALSE) {
+					throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+				}
+				return new BooleanType(token == JsonToken.VALUE_TRUE);
+			case "integer":
+				InventoryItemJsonCodec.expect(token, JsonToken.VALUE_NUMBER_INT);
+				return new IntegerType(parser.getIntValue());
+			case "decimal":
+				if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+					throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+				}
+				DecimalType decimal = new DecimalType();
+				decimal.setValueAsString(parser.getText());
+				return decimal;
+			default:
+				// Range, Annotation, Address, Duration
+				throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+		}
+	}
+	
+	private static Reference readReference(JsonParser parser, JsonToken token)
+	        throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		InventoryItemJsonCodec.expect(token, JsonToken.START_OBJECT);
+		Reference reference = new Reference();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "reference":
+					reference.setReference(InventoryItemJsonCodec.readString(parser, valueToken));
+					break;
+				case "type":
+					reference.setType(InventoryItemJsonCodec.readString(parser, valueToken));
+					break;
+				case "identifier":
+					reference.setIdentifier(InventoryItemJsonCodec.readIdentifier(parser, valueToken));
+					break;
+				case "display":
+					reference.setDisplay(InventoryItemJsonCodec.readString(parser, valueToken));
+					break;
+				default:
+					throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+			}
+		}
+		return reference;
+	}
+	
+	private static Ratio readRatio(JsonParser parser, JsonToken token)
+	        throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		InventoryItemJsonCodec.expect(token, JsonToken.START_OBJECT);
+		Ratio ratio = new Ratio();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "numerator":
+					ratio.setNumerator(InventoryItemJsonCodec.readQuantity(parser, valueToken));
+					break;
+				case "denominator":
+					ratio.setDenominator(InventoryItemJsonCodec.readQuantity(parser, valueToken));
+					break;
+				default:
+					throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+			}
+		}
+		return ratio;
+	}
+	
+	/**
+	 * Rewrites R5 JSON into R4 JSON, turning the R5 elements into extensions and copying everything else.
+	 */
+	private static byte[] rewriteToR4(byte[] json) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(json.length + 256);
+		try (JsonParser parser = getJsonFactory().createParser(json);
+		        JsonGenerator generator = getJsonFactory().createGenerator(output)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new DataFormatException("Invalid R5 InventoryItem: not a JSON object");
+			}
+			rewriteObjectToR4(parser, generator, ELEMENTS, true);
+		}
+		catch (JsonProcessingException e) {
+			throw new DataFormatException("Invalid R5 InventoryItem JSON: " + e.getOriginalMessage(), e);
+		}
+		catch (IOException e) {
+			// the input is in memory
+			throw new IllegalStateException(e);
+		}
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Copies the object the parser is at, appending the given R5 elements to its extensions.
+	 */
+	private static void rewriteObjectToR4(JsonParser parser, JsonGenerator generator, Map<String, R5Element> elements,
+	        boolean root) throws IOException {
+		StringWriter extensionJson = new StringWriter();
+		int extensionCount = 0;
+		generator.writeStartObject();
+		try (JsonGenerator extensions = getJsonFactory().createGenerator(extensionJson)) {
+			extensions.writeStartArray();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				R5Element element = elements.get(fieldName);
+				if ("extension".equals(fieldName) && token == JsonToken.START_ARRAY) {
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						extensions.copyCurrentStructure(parser);
+						extensionCount++;
+					}
+				} else if (element != null && element.repeating && token == JsonToken.START_ARRAY) {
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						rewriteElementToR4(element, parser, extensions);
+						extensionCount++;
+					}
+				} else if (element != null) {
+					rewriteElementToR4(element, parser, extensions);
+					extensionCount++;
+				} else if (root && ("name".equals(fieldName) || "description".equals(fieldName))) {
+					Map<String, R5Element> componentElements = "name".equals(fieldName) ? NAME_ELEMENTS
+					        : DESCRIPTION_ELEMENTS;
+					generator.writeFieldName(fieldName);
+					if (token == JsonToken.START_ARRAY) {
+						generator.writeStartArray();
+						while (parser.nextToken() == JsonToken.START_OBJECT) {
+							rewriteObjectToR4(parser, generator, componentElements, false);
+						}
+						generator.writeEndArray();
+					} else if (token == JsonToken.START_OBJECT) {
+						rewriteObjectToR4(parser, generator, componentElements, false);
+					} else {
+						generator.copyCurrentStructure(parser);
+					}
+				} else if (fieldName.startsWith("_") && elements.containsKey(fieldName.substring(1))) {
+					throw new DataFormatException("Cannot convert the extensions of R5 element " + fieldName.substring(1));
+				} else {
+					generator.writeFieldName(fieldName);
+					generator.copyCurrentStructure(parser);
+				}
+			}
+			extensions.writeEndArray();
+		}
+		if (extensionCount > 0) {
+			generator.writeFieldName("extension");
+			generator.writeRawValue(extensionJson.toString());
+		}
+		generator.writeEndObject();
+	}
+	
+	/**
+	 * Writes the R5 element the parser is at as an extension.
+	 */
+	private static void rewriteElementToR4(R5Element element, JsonParser parser, JsonGenerator generator)
+	        throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("url", element.url);
+		if (element.type != null) {
+			generator.writeFieldName(CHOICE + typeSuffix(element.type));
+			generator.copyCurrentStructure(parser);
+			generator.writeEndObject();
+			return;
+		}
+		
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			throw new DataFormatException("Invalid R5 element " + element.name + ": not a JSON object");
+		}
+		String id = null;
+		generator.writeArrayFieldStart("extension");
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("id".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+				id = parser.getText();
+			} else if ("extension".equals(fieldName) && token == JsonToken.START_ARRAY) {
+				// the extensions of the element are extensions of its extension
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					generator.copyCurrentStructure(parser);
+				}
+			} else {
+				String type = element.getChildType(fieldName);
+				if (type == null) {
+					throw new DataFormatException("Cannot convert R5 element " + element.name + "." + fieldName);
+				}
+				String url = element.getChildName(fieldName);
+				if (token == JsonToken.START_ARRAY) {
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						rewriteValueToR4(url, type, parser, generator);
+					}
+				} else {
+					rewriteValueToR4(url, type, parser, generator);
+				}
+			}
+		}
+		generator.writeEndArray();
+		if (id != null) {
+			generator.writeStringField("id", id);
+		}
+		generator.writeEndObject();
+	}
+	
+	private static void rewriteValueToR4(String url, String type, JsonParser parser, JsonGenerator generator)
+	        throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("url", url);
+		generator.writeFieldName(CHOICE + typeSuffix(type));
+		generator.copyCurrentStructure(parser);
+		generator.writeEndObject();
+	}
+	
+	// R4 to R5
+	
+	/**
+	 * @return whether the item only uses content the direct writer handles
+	 */
+	private static boolean canWrite(InventoryItem item) {
+		if (item.hasModifierExtension() || item.hasContained() || item.hasText() || item.hasImplicitRules()
+		        || item.hasLanguage() || item.getIdElement().hasVersionIdPart()) {
+			return false;
+		}
+		if (item.hasMeta() && !InventoryItemJsonCodec.isSupportedMeta(item.getMeta())) {
+			return false;
+		}
+		if (item.hasExtension()) {
+			Set<R5Element> single = new HashSet<>();
+			for (Extension extension : item.getExtension()) {
+				R5Element element = ELEMENTS_BY_URL.get(extension.getUrl());
+				if (element == null || !canWrite(element, extension) || (!element.repeating && !single.add(element))) {
+					return false;
+				}
+			}
+		}
+		if (item.identifier != null) {
+			for (Identifier identifier : item.identifier) {
+				if (!InventoryItemJsonCodec.isPlain(identifier)) {
+					return false;
+				}
+			}
+		}
+		if (!InventoryItemJsonCodec.isPlain(item.status) || !isPlain(item.category) || !isPlain(item.code)
+		        || !isPlain(item.inventoryStatus) || !InventoryItemJsonCodec.isPlain(item.baseUnit)
+		        || !InventoryItemJsonCodec.isPlain(item.netContent)) {
+			return false;
+		}
+		if (item.name != null) {
+			for (InventoryItem.InventoryItemNameComponent name : item.name) {
+				if (name.hasId() || name.hasModifierExtension() || !canWriteLanguage(name, NAME_LANGUAGE)
+				        || !InventoryItemJsonCodec.isPlain(name.nameType) || !InventoryItemJsonCodec.isPlain(name.name)) {
+					return false;
+				}
+			}
+		}
+		return item.description == null || (!item.description.hasId() && !item.description.hasModifierExtension()
+		        && canWriteLanguage(item.description, DESCRIPTION_LANGUAGE)
+		        && InventoryItemJsonCodec.isPlain(item.description.description));
+	}
+	
+	private static boolean canWriteLanguage(Element component, R5Element language) {
+		if (!component.hasExtension()) {
+			return true;
+		}
+		List<Extension> extensions = component.getExtension();
+		return extensions.size() == 1 && language.url.equals(extensions.get(0).getUrl())
+		        && canWrite(language, extensions.get(0));
+	}
+	
+	private static boolean canWrite(R5Element element, Extension extension) {
+		if (extension.hasId()) {
+			return false;
+		}
+		if (element.type != null) {
+			return !extension.hasExtension() && extension.hasValue()
+			        && element.type.equals(extension.getValue().fhirType()) && isPlain(extension.getValue());
+		}
+		if (extension.hasValue() || !extension.hasExtension()) {
+			return false;
+		}
+		Set<String> single = new HashSet<>();
+		for (Extension child : extension.getExtension()) {
+			String url = child.getUrl();
+			if (url == null || child.hasId() || child.hasExtension() || !child.hasValue()
+			        || !isPlain(child.getValue())) {
+				return false;
+			}
+			String type = child.getValue().fhirType();
+			String expected = element.getChildType(element.isChoice(url) ? url + typeSuffix(type) : url);
+			if (!type.equals(expected) || (!element.isRepeating(url) && !single.add(url))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean isPlain(List<CodeableConcept> concepts) {
+		if (concepts != null) {
+			for (CodeableConcept concept : concepts) {
+				if (!InventoryItemJsonCodec.isPlain(concept)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return whether the value is a type the direct writer handles, without ids or extensions
+	 */
+	private static boolean isPlain(Type value) {
+		if (value.isEmpty()) {
+			return false;
+		}
+		if (value instanceof CodeableConcept) {
+			return InventoryItemJsonCodec.isPlain((CodeableConcept) value);
+		}
+		if (value instanceof Identifier) {
+			return InventoryItemJsonCodec.isPlain((Identifier) value);
+		}
+		if (value instanceof Reference) {
+			Reference reference = (Reference) value;
+			return InventoryItemJsonCodec.isPlain(reference)
+			        && (!reference.hasReferenceElement() || InventoryItemJsonCodec.isPlain(reference.getReferenceElement_()))
+			        && (!reference.hasTypeElement() || InventoryItemJsonCodec.isPlain(reference.getTypeElement()))
+			        && (!reference.hasIdentifier() || InventoryItemJsonCodec.isPlain(reference.getIdentifier()))
+			        && (!reference.hasDisplayElement() || InventoryItemJsonCodec.isPlain(reference.getDisplayElement()));
+		}
+		if (value instanceof Ratio) {
+			Ratio ratio = (Ratio) value;
+			return InventoryItemJsonCodec.isPlain(ratio)
+			        && (!ratio.hasNumerator() || InventoryItemJsonCodec.isPlain(ratio.getNumerator()))
+			        && (!ratio.hasDenominator() || InventoryItemJsonCodec.isPlain(ratio.getDenominator()));
+		}
+		if (value.getClass() == Quantity.class) {
+			return InventoryItemJsonCodec.isPlain((Quantity) value);
+		}
+		return PRIMITIVE_TYPES.contains(value.fhirType()) && InventoryItemJsonCodec.isPlain(value);
+	}
+	
+	private static void writeItem(InventoryItem item, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("resourceType", InventoryItemJsonCodec.RESOURCE_TYPE);
+		if (item.getIdElement().hasIdPart()) {
+			generator.writeStringField("id", item.getIdElement().getIdPart());
+		}
+		if (item.hasMeta()) {
+			writeMeta(item.getMeta(), generator);
+		}
+		if (item.identifier != null && !item.identifier.isEmpty()) {
+			generator.writeArrayFieldStart("identifier");
+			for (Identifier identifier : item.identifier) {
+				if (!identifier.isEmpty()) {
+					InventoryItemJsonCodec.writeIdentifier(identifier, generator);
+				}
+			}
+			generator.writeEndArray();
+		}
+		InventoryItemJsonCodec.writePrimitive("status", item.status, generator);
+		writeConcepts("category", item.category, generator);
+		writeConcepts("code", item.code, generator);
+		if (item.name != null && !item.name.isEmpty()) {
+			generator.writeArrayFieldStart("name");
+			for (InventoryItem.InventoryItemNameComponent name : item.name) {
+				if (!name.isEmpty()) {
+					generator.writeStartObject();
+					if (name.nameType != null && !name.nameType.isEmpty()) {
+						generator.writeFieldName("nameType");
+						InventoryItemJsonCodec.writeCoding(name.nameType, generator);
+					}
+					writeLanguage(name, generator);
+					InventoryItemJsonCodec.writePrimitive("name", name.name, generator);
+					generator.writeEndObject();
+				}
+			}
+			generator.writeEndArray();
+		}
+		writeElement(ELEMENTS.get("responsibleOrganization"), item, generator);
+		if (item.description != null && !item.description.isEmpty()) {
+			generator.writeObjectFieldStart("description");
+			writeLanguage(item.description, generator);
+			InventoryItemJsonCodec.writePrimitive("description", item.description.description, generator);
+			generator.writeEndObject();
+		}
+		writeConcepts("inventoryStatus", item.inventoryStatus, generator);
+		if (item.baseUnit != null && !item.baseUnit.isEmpty()) {
+			generator.writeFieldName("baseUnit");
+			InventoryItemJsonCodec.writeConcept(item.baseUnit, generator);
+		}
+		if (item.netContent != null && !item.netContent.isEmpty()) {
+			generator.writeFieldName("netContent");
+			InventoryItemJsonCodec.writeQuantity(item.netContent, generator);
+		}
+		writeElement(ELEMENTS.get("association"), item, generator);
+		writeElement(ELEMENTS.get("characteristic"), item, generator);
+		writeElement(ELEMENTS.get("instance"), item, generator);
+		writeElement(ELEMENTS.get("productReference"), item, generator);
+		generator.writeEndObject();
+	}
+	
+	/**
+	 * Writes the meta of the item, without the InventoryItem profile the R4 encoders add, which is the definition of the
+	 * resource itself in R5.
+	 */
+	private static void writeMeta(Meta meta, JsonGenerator generator) throws IOException {
+		boolean hasProfile = false;
+		for (CanonicalType profile : meta.getProfile()) {
+			hasProfile |= !profile.isEmpty() && !InventoryItemJsonCodec.PROFILE.equals(profile.getValue());
+		}
+		if (meta.getVersionIdElement().isEmpty() && meta.getLastUpdatedElement().isEmpty()
+		        && meta.getSourceElement().isEmpty() && !hasProfile) {
+			return;
+		}
+		
+		generator.writeObjectFieldStart("meta");
+		InventoryItemJsonCodec.writePrimitive("versionId", meta.getVersionIdElement(), generator);
+		InventoryItemJsonCodec.writePrimitive("lastUpdated", meta.getLastUpdatedElement(), generator);
+		InventoryItemJsonCodec.writePrimitive("source", meta.getSourceElement(), generator);
+		if (hasProfile) {
+			generator.writeArrayFieldStart("profile");
+			for (CanonicalType profile : meta.getProfile()) {
+				if (!profile.isEmpty() && !InventoryItemJsonCodec.PROFILE.equals(profile.getValue())) {
+					generator.writeString(profile.getValue());
+				}
+			}
+			generator.writeEndArray();
+		}
+		generator.writeEndObject();
+	}
+	
+	private static void writeConcepts(String fieldName, List<CodeableConcept> concepts, JsonGenerator generator)
+	        throws IOException {
+		if (concepts == null || concepts.isEmpty()) {
+			return;
+		}
+		generator.writeArrayFieldStart(fieldName);
+		for (CodeableConcept concept : concepts) {
+			if (!concept.isEmpty()) {
+				InventoryItemJsonCodec.writeConcept(concept, generator);
+			}
+		}
+		generator.writeEndArray();
+	}
+	
+	private static void writeLanguage(Element component, JsonGenerator generator) throws IOException {
+		if (component.hasExtension()) {
+			generator.writeFieldName("language");
+			writeValue(component.getExtension().get(0).getValue(), generator);
+		}
+	}
+	
+	/**
+	 * Writes the R5 element carried by the extensions of the item, if there are any.
+	 */
+	private static void writeElement(R5Element element, InventoryItem item, JsonGenerator generator) throws IOException {
+		if (!item.hasExtension(element.url)) {
+			return;
+		}
+		generator.writeFieldName(element.name);
+		if (element.repeating) {
+			generator.writeStartArray();
+		}
+		for (Extension extension : item.getExtension()) {
+			if (element.url.equals(extension.getUrl())) {
+				if (element.type != null) {
+					writeValue(extension.getValue(), generator);
+				} else {
+					writeChildren(element, extension, generator);
+				}
+			}
+		}
+		if (element.repeating) {
+			generator.writeEndArray();
+		}
+	}
+	
+	private static void writeChildren(R5Element element, Extension extension, JsonGenerator generator)
+	        throws IOException {
+		generator.writeStartObject();
+		for (String child : element.childNames) {
+			boolean repeating = element.isRepeating(child);
+			boolean written = false;
+			for (Extension childExtension : extension.getExtension()) {
+				if (child.equals(childExtension.getUrl())) {
+					if (!written) {
+						generator.writeFieldName(element.isChoice(child)
+						        ? CHOICE + typeSuffix(childExtension.getValue().fhirType()) : child);
+						if (repeating) {
+							generator.writeStartArray();
+						}
+						written = true;
+					}
+					writeValue(childExtension.getValue(), generator);
+				}
+			}
+			if (written && repeating) {
+				generator.writeEndArray();
+			}
+		}
+		generator.writeEndObject();
+	}
+	
+	private static void writeValue(Type value, JsonGenerator generator) throws IOException {
+		if (value instanceof CodeableConcept) {
+			InventoryItemJsonCodec.writeConcept((CodeableConcept) value, generator);
+		} else if (value instanceof Identifier) {
+			InventoryItemJsonCodec.writeIdentifier((Identifier) value, generator);
+		} else if (value instanceof Quantity) {
+			InventoryItemJsonCodec.writeQuantity((Quantity) value, generator);
+		} else if (value instanceof Reference) {
+			Reference reference = (Reference) value;
+			generator.writeStartObject();
+			InventoryItemJsonCodec.writePrimitive("reference", reference.getReferenceElement_(), generator);
+			InventoryItemJsonCodec.writePrimitive("type", reference.getTypeElement(), generator);
+			if (reference.hasIdentifier()) {
+				generator.writeFieldName("identifier");
+				InventoryItemJsonCodec.writeIdentifier(reference.getIdentifier(), generator);
+			}
+			InventoryItemJsonCodec.writePrimitive("display", reference.getDisplayElement(), generator);
+			generator.writeEndObject();
+		} else if (value instanceof Ratio) {
+			Ratio ratio = (Ratio) value;
+			generator.writeStartObject();
+			if (ratio.hasNumerator()) {
+				generator.writeFieldName("numerator");
+				InventoryItemJsonCodec.writeQuantity(ratio.getNumerator(), generator);
+			}
+			if (ratio.hasDenominator()) {
+				generator.writeFieldName("denominator");
+				InventoryItemJsonCodec.writeQuantity(ratio.getDenominator(), generator);
+			}
+			generator.writeEndObject();
+		} else if (value instanceof BooleanType) {
+			generator.writeBoolean(((BooleanType) value).booleanValue());
+		} else if (value instanceof IntegerType || value instanceof DecimalType) {
+			generator.writeNumber(((PrimitiveType<?>) value).getValueAsString());
+		} else {
+			generator.writeString(((PrimitiveType<?>) value).getValueAsString());
+		}
+	}
+	
+	/**
+	 * Rewrites R4 JSON as encoded by HAPI into R5 JSON, turning the extensions for R5 elements into those elements.
+	 */
+	private static void rewriteToR5(String json, Writer writer) throws IOException {
+		try (JsonParser parser = getJsonFactory().createParser(json);
+		        JsonGenerator generator = getJsonFactory().createGenerator(writer)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			parser.nextToken();
+			rewriteObjectToR5(parser, generator, ELEMENTS_BY_URL, true);
+		}
+	}
+	
+	/**
+	 * Copies the object the parser is at, turning its extensions for the given R5 elements into those elements.
+	 */
+	private static void rewriteObjectToR5(JsonParser parser, JsonGenerator generator, Map<String, R5Element> elements,
+	        boolean root) throws IOException {
+		Map<R5Element, List<String>> converted = new LinkedHashMap<>();
+		StringWriter extensionJson = new StringWriter();
+		int extensionCount = 0;
+		generator.writeStartObject();
+		try (JsonGenerator extensions = getJsonFactory().createGenerator(extensionJson)) {
+			extensions.writeStartArray();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if ("extension".equals(fieldName) && token == JsonToken.START_ARRAY) {
+					while (parser.nextToken() == JsonToken.START_OBJECT) {
+						if (!rewriteExtensionToR5(parser, elements, converted, extensions)) {
+							extensionCount++;
+						}
+					}
+				} else if (root && "meta".equals(fieldName) && token == JsonToken.START_OBJECT) {
+					rewriteMetaToR5(parser, generator);
+				} else if (root && ("name".equals(fieldName) || "description".equals(fieldName))) {
+					Map<String, R5Element> componentElements = "name".equals(fieldName) ? NAME_ELEMENTS_BY_URL
+					        : DESCRIPTION_ELEMENTS_BY_URL;
+					generator.writeFieldName(fieldName);
+					if (token == JsonToken.START_ARRAY) {
+						generator.writeStartArray();
+						while (parser.nextToken() == JsonToken.START_OBJECT) {
+							rewriteObjectToR5(parser, generator, componentElements, false);
+						}
+						generator.writeEndArray();
+					} else if (token == JsonToken.START_OBJECT) {
+						rewriteObjectToR5(parser, generator, componentElements, false);
+					} else {
+						generator.copyCurrentStructure(parser);
+					}
+				} else {
+					generator.writeFieldName(fieldName);
+					generator.copyCurrentStructure(parser);
+				}
+			}
+			extensions.writeEndArray();
+		}
+		if (extensionCount > 0) {
+			generator.writeFieldName("extension");
+			generator.writeRawValue(extensionJson.toString());
+		}
+		for (Map.Entry<R5Element, List<String>> entry : converted.entrySet()) {
+			R5Element element = entry.getKey();
+			if (!element.repeating && entry.getValue().size() > 1) {
+				throw new DataFormatException("Cannot convert more than one extension " + element.url);
+			}
+			writeRawValues(element.name, entry.getValue(), element.repeating, generator);
+		}
+		generator.writeEndObject();
+	}
+	
+	/**
+	 * Reads the extension the parser is at: an extension for one of the R5 elements is converted into the JSON of that
+	 * element, and any other one is copied to the other extensions.
+	 *
+	 * @return whether the extension was converted
+	 */
+	private static boolean rewriteExtensionToR5(JsonParser parser, Map<String, R5Element> elements,
+	        Map<R5Element, List<String>> converted, JsonGenerator extensions) throws IOException {
+		ExtensionStart start = readStart(parser);
+		R5Element element = start.url == null ? null : elements.get(start.url);
+		if (element == null) {
+			copyExtension(start, parser, extensions);
+			return false;
+		}
+		String url = start.url;
+		
+		StringWriter elementJson = new StringWriter();
+		try (JsonGenerator generator = getJsonFactory().createGenerator(elementJson)) {
+			if (element.type != null) {
+				if (start.id != null) {
+					throw new DataFormatException("Cannot convert the id of extension " + url);
+				}
+				String valueField = CHOICE + typeSuffix(element.type);
+				boolean hasValue = false;
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String fieldName = parser.getCurrentName();
+					parser.nextToken();
+					if (!valueField.equals(fieldName) || hasValue) {
+						throw new DataFormatException("Cannot convert " + fieldName + " of extension " + url);
+					}
+					generator.copyCurrentStructure(parser);
+					hasValue = true;
+				}
+				if (!hasValue) {
+					throw new DataFormatException("Extension " + url + " has no " + valueField);
+				}
+			} else {
+				rewriteChildrenToR5(element, start.id, parser, generator);
+			}
+		}
+		converted.computeIfAbsent(element, key -> new ArrayList<>()).add(elementJson.toString());
+		return true;
+	}
+	
+	/**
+	 * Writes the object of the R5 element from the extensions of the complex extension the parser is in.
+	 */
+	private static void rewriteChildrenToR5(R5Element element, String id, JsonParser parser, JsonGenerator generator)
+	        throws IOException {
+		Map<String, List<String>> children = new LinkedHashMap<>();
+		StringWriter extensionJson = new StringWriter();
+		int extensionCount = 0;
+		try (JsonGenerator extensions = getJsonFactory().createGenerator(extensionJson)) {
+			extensions.writeStartArray();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if ("id".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+					id = parser.getText();
+				} else if ("extension".equals(fieldName) && token == JsonToken.START_ARRAY) {
+					while (parser.nextToken() == JsonToken.START_OBJECT) {
+						ExtensionStart start = readStart(parser);
+						if (start.url != null && element.childNames.contains(start.url)) {
+							if (start.id != null) {
+								throw new DataFormatException("Cannot convert the id of extension " + start.url + " of "
+								        + element.url);
+							}
+							rewriteChildToR5(element, start.url, parser, children);
+						} else {
+							// an extension of the element itself, see rewriteElementToR4
+							copyExtension(start, parser, extensions);
+							extensionCount++;
+						}
+					}
+				} else {
+					throw new DataFormatException("Cannot convert " + fieldName + " of extension " + element.url);
+				}
+			}
+			extensions.writeEndArray();
+		}
+		
+		generator.writeStartObject();
+		if (id != null) {
+			generator.writeStringField("id", id);
+		}
+		if (extensionCount > 0) {
+			generator.writeFieldName("extension");
+			generator.writeRawValue(extensionJson.toString());
+		}
+		int choiceCount = 0;
+		for (Map.Entry<String, List<String>> child : children.entrySet()) {
+			String childName = element.getChildName(child.getKey());
+			boolean repeating = element.isRepeating(childName);
+			if (element.isChoice(childName)) {
+				choiceCount += child.getValue().size();
+			}
+			if ((!repeating && child.getValue().size() > 1) || choiceCount > 1) {
+				throw new DataFormatException("Cannot convert more than one " + childName + " of extension " + element.url);
+			}
+			writeRawValues(child.getKey(), child.getValue(), repeating, generator);
+		}
+		generator.writeEndObject();
+	}
+	
+	/**
+	 * Reads the value of the extension for a child of the R5 element, after its URL.
+	 */
+	private static void rewriteChildToR5(R5Element element, String child, JsonParser parser,
+	        Map<String, List<String>> children) throws IOException {
+		String fieldName = null;
+		StringWriter value = new StringWriter();
+		try (JsonGenerator generator = getJsonFactory().createGenerator(value)) {
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				parser.nextToken();
+				boolean isValue = element.isChoice(child) ? element.isChoiceField(name)
+				        : name.equals(CHOICE + typeSuffix(element.getChildType(child)));
+				if (!isValue || fieldName != null) {
+					throw new DataFormatException("Cannot convert " + name + " of extension " + child + " of "
+					        + element.url);
+				}
+				fieldName = element.isChoice(child) ? name : child;
+				generator.copyCurrentStructure(parser);
+			}
+		}
+		if (fieldName == null) {
+			throw new DataFormatException("Extension " + child + " of " + element.url + " has no value");
+		}
+		children.computeIfAbsent(fieldName, key -> new ArrayList<>()).add(value.toString());
+	}
+	
+	/**
+	 * Copies the meta of the item, without the InventoryItem profile, see {@link #writeMeta(Meta, JsonGenerator)}.
+	 */
+	private static void rewriteMetaToR5(JsonParser parser, JsonGenerator generator) throws IOException {
+		StringWriter metaJson = new StringWriter();
+		int fieldCount = 0;
+		try (JsonGenerator meta = getJsonFactory().createGenerator(metaJson)) {
+			meta.writeStartObject();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if ("profile".equals(fieldName) && token == JsonToken.START_ARRAY) {
+					List<String> profiles = new ArrayList<>();
+					while (parser.nextToken() == JsonToken.VALUE_STRING) {
+						if (!InventoryItemJsonCodec.PROFILE.equals(parser.getText())) {
+							profiles.add(parser.getText());
+						}
+					}
+					if (!profiles.isEmpty()) {
+						meta.writeArrayFieldStart(fieldName);
+						for (String profile : profiles) {
+							meta.writeString(profile);
+						}
+						meta.writeEndArray();
+						fieldCount++;
+					}
+				} else {
+					meta.writeFieldName(fieldName);
+					meta.copyCurrentStructure(parser);
+					fieldCount++;
+				}
+			}
+			meta.writeEndObject();
+		}
+		if (fieldCount > 0) {
+			generator.writeFieldName("meta");
+			generator.writeRawValue(metaJson.toString());
+		}
+	}
+	
+	private static void writeRawValues(String fieldName, List<String> values, boolean array, JsonGenerator generator)
+	        throws IOException {
+		generator.writeFieldName(fieldName);
+		if (array) {
+			generator.writeStartArray();
+		}
+		for (String value : values) {
+			generator.writeRawValue(value);
+		}
+		if (array) {
+			generator.writeEndArray();
+		}
+	}
+	
+	/**
+	 * Reads the id and URL of the extension the parser is at, which HAPI writes before its other fields.
+	 */
+	private static ExtensionStart readStart(JsonParser parser) throws IOException {
+		ExtensionStart start = new ExtensionStart();
+		JsonToken token = parser.nextToken();
+		if (token == JsonToken.FIELD_NAME && "id".equals(parser.getCurrentName())
+		        && parser.nextToken() == JsonToken.VALUE_STRING) {
+			start.id = parser.getText();
+			token = parser.nextToken();
+		}
+		if (token == JsonToken.FIELD_NAME && "url".equals(parser.getCurrentName())
+		        && parser.nextToken() == JsonToken.VALUE_STRING) {
+			start.url = parser.getText();
+		}
+		return start;
+	}
+	
+	/**
+	 * Copies the extension the parser is in, after {@link #readStart(JsonParser)}.
+	 */
+	private static void copyExtension(ExtensionStart start, JsonParser parser, JsonGenerator generator)
+	        throws IOException {
+		generator.writeStartObject();
+		if (start.id != null) {
+			generator.writeStringField("id", start.id);
+		}
+		if (start.url != null) {
+			generator.writeStringField("url", start.url);
+		} else if (parser.currentToken() == JsonToken.FIELD_NAME) {
+			generator.writeFieldName(parser.getCurrentName());
+			parser.nextToken();
+			generator.copyCurrentStructure(parser);
+		} else if (parser.currentToken() == JsonToken.END_OBJECT) {
+			generator.writeEndObject();
+			return;
+		} else {
+			// a url that is not a string
+			generator.writeFieldName("url");
+			generator.copyCurrentStructure(parser);
+		}
+		copyFields(parser, generator);
+	}
+	
+	private static void copyFields(JsonParser parser, JsonGenerator generator) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			generator.writeFieldName(parser.getCurrentName());
+			parser.nextToken();
+			generator.copyCurrentStructure(parser);
+		}
+		generator.writeEndObject();
+	}
+	
+	/**
+	 * @return the name of the type as it is appended to {@code value} in JSON
+	 */
+	private static String typeSuffix(String type) {
+		return Character.toUpperCase(type.charAt(0)) + type.substring(1);
+	}
+	
+	private static final class ExtensionStart {
+		
+		String id;
+		
+		String url;
+	}
+	
+	/**
+	 * An R5 element of InventoryItem without an R4 counterpart.
+	 */
+	private static final class R5Element {
+		
+		final String name;
+		
+		final String url;
+		
+		final boolean repeating;
+		
+		/** The type of the value of an element without children, or null. */
+		final String type;
+		
+		/** The names of the children in R5 order, which are the URLs of their extensions. */
+		final List<String> childNames = new ArrayList<>();
+		
+		/** The types of the children by their JSON field names, with one field per type of a choice. */
+		private final Map<String, String> fieldTypes = new LinkedHashMap<>();
+		
+		private final Set<String> repeatingChildren = new HashSet<>();
+		
+		private String choice;
+		
+		R5Element(String name, String url, boolean repeating, String type) {
+			this.name = name;
+			this.url = url;
+			this.repeating = repeating;
+			this.type = type;
+		}
+		
+		R5Element child(String name, String type) {
+			childNames.add(name);
+			fieldTypes.put(name, type);
+			return this;
+		}
+		
+		R5Element repeatingChild(String name, String type) {
+			repeatingChildren.add(name);
+			return child(name, type);
+		}
+		
+		R5Element choiceChild(String name, String... types) {
+			childNames.add(name);
+			choice = name;
+			for (String choiceType : types) {
+				fieldTypes.put(name + typeSuffix(choiceType), choiceType);
+			}
+			return this;
+		}
+		
+		/**
+		 * @return the type of the child with the JSON field name, e.g. {@code valueString} for a choice, or null if
+		 *         there is no such child
+		 */
+		String getChildType(String fieldName) {
+			return fieldTypes.get(fieldName);
+		}
+		
+		/**
+		 * @return the name of the child with the JSON field name
+		 */
+		String getChildName(String fieldName) {
+			return isChoiceField(fieldName) ? choice : fieldName;
+		}
+		
+		boolean isChoice(String childName) {
+			return childName.equals(choice);
+		}
+		
+		boolean isChoiceField(String fieldName) {
+			return choice != null && fieldName.startsWith(choice) && fieldName.length() > choice.length()
+			        && fieldTypes.containsKey(fieldName);
+		}
+		
+		boolean isRepeating(String childName) {
+			return repeatingChildren.contains(childName);
+		}
+	}
+}
@@ -0,0 +1,426 @@
+package org.openmrs.fhir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory store of {@link InventoryItem}s with hash indexes for the
+ * {@link InventoryItemSearchParameters#TOKEN_PARAMETERS token search parameters}, a sorted {@link QuantityIndex} for
+ * the {@link InventoryItem#SP_NET_CONTENT} quantity search parameter, and an {@link InventoryItemNameIndex} for the
+ * {@link InventoryItem#SP_NAME} string search parameter and typeahead searches by name. The indexes are updated
+ * incrementally on every create, update and delete, so a search does not scan the stored items.
+ * <p>
+ * Tokens use the FHIR search syntax: {@code [code]}, {@code [system]|[code]}, {@code |[code]} (no system) and
+ * {@code [system]|}, and quantities {@code [prefix][number]|[system]|[code]}, e.g. {@code ge500||mL}. Several values
+ * can be combined with commas, any of which must match, and with the list overloads, all of which must match. Items are
+ * deeply copied when stored and when returned, so changing an item after storing it or after reading it, including
+ * reflectively through a parser or terser, does not affect the repository. The repository is safe for use by multiple
+ * threads.
+ */
+public class InventoryItemRepository {
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+	
+	private final Map<String, TokenIndex> indexes = new LinkedHashMap<>();
+	
+	private final InventoryItemNameIndex names = new InventoryItemNameIndex();
+	
+	private final QuantityIndex netContents = new QuantityIndex();
+	
+	public InventoryItemRepository() {
+		for (String parameter : InventoryItemSearchParameters.TOKEN_PARAMETERS) {
+			indexes.put(parameter, new TokenIndex());
+		}
+	}
+	
+	/**
+	 * Stores a copy of the item under its id, or under a new random id if it has none.
+	 *
+	 * @return the id of the stored item
+	 * @throws IllegalArgumentException if an item with the same id is already stored
+	 */
+	public String create(InventoryItem item) {
+		String id = item.getIdElement().getIdPart();
+		if (id == null) {
+			id = UUID.randomUUID().toString();
+		}
+		
+		lock.writeLock().lock();
+		try {
+			if (entries.containsKey(id)) {
+				throw new IllegalArgumentException("InventoryItem/" + id + " already exists");
+			}
+			store(id, item);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		return id;
+	}
+	
+	/**
+	 * Replaces the stored item with the same id by a copy of the given item, creating it if it does not exist.
+	 *
+	 * @return true if an existing item was replaced
+	 * @throws IllegalArgumentException if the item has no id
+	 */
+	public boolean update(InventoryItem item) {
+		String id = item.getIdElement().getIdPart();
+		if (id == null) {
+			throw new IllegalArgumentException("Cannot update an InventoryItem without an id");
+		}
+		
+		lock.writeLock().lock();
+		try {
+			Entry previous = entries.get(id);
+			if (previous != null) {
+				unindex(id, previous);
+			}
+			store(id, item);
+			return previous != null;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return true if an item with the id was stored
+	 */
+	public boolean delete(String id) {
+		lock.writeLock().lock();
+		try {
+			Entry entry = entries.remove(id);
+			if (entry == null) {
+				return false;
+			}
+			unindex(id, entry);
+			return true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return a copy of the item with the id, or null if there is none
+	 */
+	public InventoryItem read(String id) {
+		lock.readLock().lock();
+		try {
+			Entry entry = entries.get(id);
+			return entry == null ? null : deepCopy(entry.item);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return entries.size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @param parameter one of the {@link InventoryItemSearchParameters#TOKEN_PARAMETERS},
+	 *            {@link InventoryItem#SP_NAME} or {@link InventoryItem#SP_NET_CONTENT}
+	 * @param tokens one or more comma separated tokens
+	 * @return copies of the matching items, in the order they were last created or updated for a token parameter, by
+	 *         name for the name and by value for the net content
+	 * @throws IllegalArgumentException if the parameter is not supported or a value is not valid
+	 */
+	public List<InventoryItem> search(String parameter, String tokens) {
+		lock.readLock().lock();
+		try {
+			return copies(match(parameter, tokens));
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Like {@link #search(String, String)}, but the items must match every element of the list, e.g.
+	 * {@code ge100||mL} and {@code le1||L}.
+	 */
+	public List<InventoryItem> search(String parameter, List<String> andTokens) {
+		lock.readLock().lock();
+		try {
+			return copies(matchAll(parameter, andTokens));
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Like {@link #search(String, String)}, but only returns the ids of the matching items.
+	 */
+	public List<String> searchIds(String parameter, String tokens) {
+		lock.readLock().lock();
+		try {
+			return new ArrayList<>(match(parameter, tokens));
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Like {@link #search(String, List)}, but only returns the ids of the matching items.
+	 */
+	public List<String> searchIds(String parameter, List<String> andTokens) {
+		lock.readLock().lock();
+		try {
+			return new ArrayList<>(matchAll(parameter, andTokens));
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return the number of items matching the tokens, see {@link #search(String, String)}
+	 */
+	public int count(String parameter, String tokens) {
+		lock.readLock().lock();
+		try {
+			return match(parameter, tokens).size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Finds the items with a name starting with the text as it is typed, see {@link InventoryItemNameIndex}.
+	 *
+	 * @param nameType the name type code to search, such as {@code brand-name}, or null to search every name
+	 * @return the best matches, at most one per item
+	 */
+	public List<InventoryItemNameIndex.Match> searchNames(String nameType, String text, int limit) {
+		lock.readLock().lock();
+		try {
+			return names.search(nameType, text, limit);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return a column-oriented snapshot of the stored items for aggregate queries
+	 */
+	public InventoryItemColumns toColumns() {
+		lock.readLock().lock();
+		try {
+			InventoryItemColumns.Builder builder = InventoryItemColumns.builder();
+			for (Entry entry : entries.values()) {
+				builder.add(entry.item);
+			}
+			return builder.build();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private void store(String id, InventoryItem item) {
+		InventoryItem copy = deepCopy(item);
+		copy.setId(id);
+		
+		Map<String, Set<String>> keys = new HashMap<>();
+		for (String parameter : InventoryItemSearchParameters.TOKEN_PARAMETERS) {
+			keys.put(parameter, keys(InventoryItemSearchParameters.extract(copy, parameter)));
+		}
+		
+		Entry entry = new Entry(copy, keys);
+		entries.put(id, entry);
+		for (Map.Entry<String, Set<String>> parameterKeys : keys.entrySet()) {
+			indexes.get(parameterKeys.getKey()).add(id, parameterKeys.getValue());
+		}
+		names.add(id, copy);
+		netContents.add(id, copy.hasNetContent() ? copy.getNetContent() : null);
+	}
+	
+	private void unindex(String id, Entry entry) {
+		for (Map.Entry<String, Set<String>> parameterKeys : entry.keys.entrySet()) {
+			indexes.get(parameterKeys.getKey()).remove(id, parameterKeys.getValue());
+		}
+		names.remove(id);
+		netContents.remove(id);
+	}
+	
+	private List<InventoryItem> copies(Set<String> ids) {
+		List<InventoryItem> result = new ArrayList<>(ids.size());
+		for (String id : ids) {
+			result.add(deepCopy(entries.get(id).item));
+		}
+		return result;
+	}
+	
+	private Set<String> match(String parameter, String tokens) {
+		TokenIndex index = index(parameter);
+		if (tokens == null || tokens.isEmpty()) {
+			return Collections.emptySet();
+		}
+		if (index == null) {
+			return InventoryItem.SP_NAME.equals(parameter) ? matchNames(tokens) : netContents.get(tokens);
+		}
+		
+		if (tokens.indexOf(',') < 0) {
+			return index.get(tokens);
+		}
+		
+		Set<String> ids = new LinkedHashSet<>();
+		for (String token : tokens.split(",")) {
+			ids.addAll(index.get(token));
+		}
+		return ids;
+	}
+	
+	private Set<String> matchAll(String parameter, List<String> andTokens) {
+		TokenIndex index = index(parameter);
+		if (andTokens.isEmpty() || andTokens.contains(null) || andTokens.contains("")) {
+			return Collections.emptySet();
+		}
+		if (InventoryItem.SP_NET_CONTENT.equals(parameter)) {
+			return netContents.get(andTokens);
+		}
+		
+		Set<String> ids = null;
+		for (String tokens : andTokens) {
+			Set<String> matches = match(parameter, tokens);
+			if (ids == null) {
+				ids = new LinkedHashSet<>(matches);
+			} else {
+				ids.retainAll(matches);
+			}
+			if (ids.isEmpty()) {
+				break;
+			}
+		}
+		return ids;
+	}
+	
+	private Set<String> matchNames(String values) {
+		if (values.indexOf(',') < 0) {
+			return names.startingWith(values);
+		}
+		
+		Set<String> ids = new LinkedHashSet<>();
+		for (String value : values.split(",")) {
+			ids.addAll(names.startingWith(value));
+		}
+		return ids;
+	}
+	
+	/**
+	 * @return the index of a token parameter, or null for {@link InventoryItem#SP_NAME} and
+	 *         {@link InventoryItem#SP_NET_CONTENT}
+	 */
+	private TokenIndex index(String parameter) {
+		TokenIndex index = indexes.get(parameter);
+		if (index == null && !InventoryItem.SP_NAME.equals(parameter)
+		        && !InventoryItem.SP_NET_CONTENT.equals(parameter)) {
+			throw new IllegalArgumentException("Unsupported InventoryItem search parameter '" + parameter + "'");
+		}
+		return index;
+	}
+	
+	/**
+	 * Copies the item into a plain {@link InventoryItem} with its own elements, where {@code copy()} of a
+	 * {@link CopyOnWriteInventoryItem} would share them.
+	 */
+	private static InventoryItem deepCopy(InventoryItem item) {
+		InventoryItem copy = new InventoryItem();
+		item.copyValues(copy);
+		return copy;
+	}
+	
+	private static Set<String> keys(List<InventoryItemSearchParameters.Token> tokens) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (InventoryItemSearchParameters.Token token : tokens) {
+			addKeys(keys, token.getSystem(), token.getValue());
+		}
+		return keys;
+	}
+	
+	/**
+	 * Adds the keys a token search for the system and code looks up: {@code code}, {@code system|code} and
+	 * {@code system|}, or {@code code} and {@code |code} if there is no system.
+	 */
+	private static void addKeys(Set<String> keys, String system, String code) {
+		if (system == null || system.isEmpty()) {
+			if (code != null && !code.isEmpty()) {
+				keys.add(code);
+				keys.add("|" + code);
+			}
+		} else {
+			keys.add(system + "|");
+			if (code != null && !code.isEmpty()) {
+				keys.add(code);
+				keys.add(system + "|" + code);
+			}
+		}
+	}
+	
+	private static final class Entry {
+		
+		private final InventoryItem item;
+		
+		private final Map<String, Set<String>> keys;
+		
+		Entry(InventoryItem item, Map<String, Set<String>> keys) {
+			this.item = item;
+			this.keys = keys;
+		}
+	}
+	
+	/**
+	 * Maps every token key to the ids of the items having it.
+	 */
+	private static final class TokenIndex {
+		
+		private final Map<String, Set<String>> ids = new HashMap<>();
+		
+		Set<String> get(String key) {
+			Set<String> result = ids.get(key);
+			return result == null ? Collections.emptySet() : result;
+		}
+		
+		void add(String id, Set<String> keys) {
+			for (String key : keys) {
+				ids.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(id);
+			}
+		}
+		
+		void remove(String id, Set<String> keys) {
+			for (String key : keys) {
+				Set<String> keyIds = ids.get(key);
+				if (keyIds != null) {
+					keyIds.remove(id);
+					if (keyIds.isEmpty()) {
+						ids.remove(key);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package org.openmrs.fhir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Identifier;
+
+/**
+ * Extracts the values of the {@link InventoryItem} search parameters straight from the fields of an item, instead of
+ * evaluating the paths of their {@link ca.uhn.fhir.model.api.annotation.SearchParamDefinition}s. The values are flat
+ * {@link Token}s: the token parameters extract one token per coding, identifier or status, and
+ * {@link InventoryItem#SP_NAME} extracts one token per name, with the name as its value.
+ * <p>
+ * Extracting reads the fields directly, so it neither creates empty elements nor makes a
+ * {@link CopyOnWriteInventoryItem} copy the elements it shares.
+ */
+public final class InventoryItemSearchParameters {
+	
+	/** The token search parameters, in the order their fields are declared. */
+	public static final List<String> TOKEN_PARAMETERS = Collections.unmodifiableList(
+	    Arrays.asList(InventoryItem.SP_IDENTIFIER, InventoryItem.SP_STATUS, InventoryItem.SP_CATEGORY,
+	        InventoryItem.SP_CODE, InventoryItem.SP_INVENTORY_STATUS, InventoryItem.SP_BASE_UNIT));
+	
+	private InventoryItemSearchParameters() {
+	}
+	
+	/**
+	 * @param parameter {@link InventoryItem#SP_NAME} or one of the {@link #TOKEN_PARAMETERS}
+	 * @return the values of the parameter, in document order
+	 * @throws IllegalArgumentException if the parameter is not supported
+	 */
+	public static List<Token> extract(InventoryItem item, String parameter) {
+		item.loadChildren();
+		List<Token> tokens = new ArrayList<>();
+		switch (parameter) {
+			case InventoryItem.SP_IDENTIFIER:
+				if (item.identifier != null) {
+					for (Identifier identifier : item.identifier) {
+						String system = identifier.getSystem();
+						String value = identifier.getValue();
+						if (!isEmpty(system) || !isEmpty(value)) {
+							tokens.add(new Token(system, value, identifier.hasType() ? identifier.getType().getText() : null));
+						}
+					}
+				}
+				break;
+			case InventoryItem.SP_STATUS:
+				InventoryItem.InventoryItemStatusCodes status = item.status == null ? null : item.status.getValue();
+				if (status != null && status != InventoryItem.InventoryItemStatusCodes.NULL) {
+					tokens.add(new Token(status.getSystem(), status.toCode(), status.getDisplay()));
+				}
+				break;
+			case InventoryItem.SP_CATEGORY:
+				addConcepts(tokens, item.category);
+				break;
+			case InventoryItem.SP_CODE:
+				addConcepts(tokens, item.code);
+				break;
+			case InventoryItem.SP_NAME:
+				if (item.name != null) {
+					for (InventoryItem.InventoryItemNameComponent name : item.name) {
+						String value = name.getName();
+						if (!isEmpty(value)) {
+							tokens.add(new Token(null, value, null));
+						}
+					}
+				}
+				break;
+			case InventoryItem.SP_INVENTORY_STATUS:
+				addConcepts(tokens, item.inventoryStatus);
+				break;
+			case InventoryItem.SP_BASE_UNIT:
+				if (item.baseUnit != null) {
+					addConcept(tokens, item.baseUnit);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported InventoryItem search parameter '" + parameter + "'");
+		}
+		return tokens;
+	}
+	
+	private static void addConcepts(List<Token> tokens, List<CodeableConcept> concepts) {
+		if (concepts != null) {
+			for (CodeableConcept concept : concepts) {
+				addConcept(tokens, concept);
+			}
+		}
+	}
+	
+	/**
+	 * Adds a token per coding, with the display of the coding or else the text of the concept as its text, or a single
+	 * token with only the text if the concept has no codings.
+	 */
+	private static void addConcept(List<Token> tokens, CodeableConcept concept) {
+		// the value getters do not create elements, unlike getCoding() without codings
+		String text = concept.getText();
+		if (!concept.hasCoding()) {
+			if (!isEmpty(text)) {
+				tokens.add(new Token(null, null, text));
+			}
+			return;
+		}
+		for (Coding coding : concept.getCoding()) {
+			String system = coding.getSystem();
+			String code = coding.getCode();
+			if (!isEmpty(system) || !isEmpty(code)) {
+				String display = coding.getDisplay();
+				tokens.add(new Token(system, code, isEmpty(display) ? text : display));
+			}
+		}
+	}
+	
+	private static boolean isEmpty(String value) {
+		return value == null || value.isEmpty();
+	}
+	
+	/**
+	 * The system, value and text of a search parameter value, any of which may be null.
+	 */
+	public static final class Token {
+		
+		private final String system;
+		
+		private final String value;
+		
+		private final String text;
+		
+		public Token(String system, String value, String text) {
+			this.system = system;
+			this.value = value;
+			this.text = text;
+		}
+		
+		public String getSystem() {
+			return system;
+		}
+		
+		/**
+		 * @return the code, the identifier value or the name
+		 */
+		public String getValue() {
+			return value;
+		}
+		
+		/**
+		 * @return the display of the coding or the text of the concept, or the type text of an identifier
+		 */
+		public String getText() {
+			return text;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Token)) {
+				return false;
+			}
+			Token other = (Token) obj;
+			return Objects.equals(system, other.system) && Objects.equals(value, other.value)
+			        && Objects.equals(text, other.text);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(system, value, text);
+		}
+		
+		/**
+		 * @return the token in the search syntax, {@code [system]|[value]}, or only the value if there is no system
+		 */
+		@Override
+		public String toString() {
+			String token = value == null ? "" : value;
+			return system == null ? token : system + "|" + token;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package org.openmrs.fhir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.OperationOutcome;
+
+/**
+ * Checks the constraints of {@link InventoryItem} that a bulk upload must meet: a status with a code of
+ * {@link InventoryItem.InventoryItemStatusCodes}, and a name type and a name for every name. The checks are written out
+ * instead of interpreting the structure definition, so a large batch is validated in parallel on a {@link ForkJoinPool}
+ * in a fraction of the time the generic validator needs per item.
+ * <p>
+ * Every item gets an {@link OperationOutcome} with an issue per violation and an {@code expression} relative to the
+ * item, or a single informational issue if it is valid. Instances can be shared between threads.
+ */
+public class InventoryItemValidator {
+	
+	/** Items validated by a task before it is split further. */
+	private static final int BATCH_SIZE = 256;
+	
+	private final ForkJoinPool pool;
+	
+	/**
+	 * Creates a validator using the common pool.
+	 */
+	public InventoryItemValidator() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	public InventoryItemValidator(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	public OperationOutcome validate(InventoryItem item) {
+		OperationOutcome outcome = new OperationOutcome();
+		// reads the fields directly, the getters of copy-on-write items would copy them
+		item.loadChildren();
+		
+		Enumeration<InventoryItem.InventoryItemStatusCodes> status = item.status;
+		if (status == null || status.isEmpty()) {
+			addError(outcome, OperationOutcome.IssueType.REQUIRED, "InventoryItem.status", "status: minimum required = 1");
+		} else if (status.getValue() == null || status.getValue() == InventoryItem.InventoryItemStatusCodes.NULL) {
+			addError(outcome, OperationOutcome.IssueType.CODEINVALID, "InventoryItem.status",
+			    "status: code is not an InventoryItemStatusCodes code");
+		}
+		
+		if (item.name != null) {
+			for (int i = 0; i < item.name.size(); i++) {
+				InventoryItem.InventoryItemNameComponent name = item.name.get(i);
+				if (name.nameType == null || name.nameType.isEmpty()) {
+					addError(outcome, OperationOutcome.IssueType.REQUIRED, "InventoryItem.name[" + i + "].nameType",
+					    "nameType: minimum required = 1");
+				}
+				if (name.name == null || name.name.isEmpty()) {
+					addError(outcome, OperationOutcome.IssueType.REQUIRED, "InventoryItem.name[" + i + "].name",
+					    "name: minimum required = 1");
+				}
+			}
+		}
+		
+		if (!outcome.hasIssue()) {
+			outcome.addIssue().setSeverity(OperationOutcome.IssueSeverity.INFORMATION)
+			        .setCode(OperationOutcome.IssueType.INFORMATIONAL).setDiagnostics("No issues detected during validation");
+		}
+		return outcome;
+	}
+	
+	/**
+	 * Validates the items in parallel. Each item must only be reachable once from the list, as items are not safe for
+	 * use by multiple threads.
+	 *
+	 * @return an outcome per item, in the order of the items
+	 */
+	public List<OperationOutcome> validateAll(List<? extends InventoryItem> items) {
+		OperationOutcome[] outcomes = new OperationOutcome[items.size()];
+		if (outcomes.length <= BATCH_SIZE) {
+			for (int i = 0; i < outcomes.length; i++) {
+				outcomes[i] = validate(items.get(i));
+			}
+		} else {
+			// random access keeps the tasks from walking a linked list
+			List<? extends InventoryItem> input = items instanceof RandomAccess ? items : new ArrayList<>(items);
+			pool.invoke(new ValidationTask(input, outcomes, 0, outcomes.length));
+		}
+		return Collections.unmodifiableList(Arrays.asList(outcomes));
+	}
+	
+	/**
+	 * @return whether the outcome has an issue with error or fatal severity
+	 */
+	public static boolean hasErrors(OperationOutcome outcome) {
+		for (OperationOutcome.OperationOutcomeIssueComponent issue : outcome.getIssue()) {
+			if (issue.getSeverity() == OperationOutcome.IssueSeverity.ERROR
+			        || issue.getSeverity() == OperationOutcome.IssueSeverity.FATAL) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static void addError(OperationOutcome outcome, OperationOutcome.IssueType type, String expression,
+	        String diagnostics) {
+		outcome.addIssue().setSeverity(OperationOutcome.IssueSeverity.ERROR).setCode(type).setDiagnostics(diagnostics)
+		        .addExpression(expression);
+	}
+	
+	/**
+	 * Validates a range of the items, writing each outcome to the slot of its item so no merging is needed.
+	 */
+	private class ValidationTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final List<? extends InventoryItem> items;
+		
+		private final OperationOutcome[] outcomes;
+		
+		private final int from;
+		
+		private final int to;
+		
+		ValidationTask(List<? extends InventoryItem> items, OperationOutcome[] outcomes, int from, int to) {
+			this.items = items;
+			this.outcomes = outcomes;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_SIZE) {
+				for (int i = from; i < to; i++) {
+					outcomes[i] = validate(items.get(i));
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ValidationTask(items, outcomes, from, middle), new ValidationTask(items, outcomes, middle, to));
+			}
+		}
+	}
+}
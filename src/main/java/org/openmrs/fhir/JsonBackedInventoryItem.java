@@ -0,0 +1,321 @@
+package org.openmrs.fhir;
+
+import static org.openmrs.fhir.InventoryItemFields.bit;
+import static org.openmrs.fhir.InventoryItemFields.forName;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Meta;
+
+import ca.uhn.fhir.model.api.annotation.ResourceDef;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * An {@link InventoryItem} decoded from JSON by {@link LazyInventoryItem#load()}, which keeps the bytes it was decoded
+ * from. As long as the item is not modified, {@link InventoryItemJsonCodec} encodes it back to those bytes; the
+ * children are compared with the original bytes to tell, including changes made reflectively, e.g. through
+ * {@code FhirTerser}.
+ * <p>
+ * Until it is loaded, the item only decodes each child the first time a {@link LazyInventoryItem} reads it. It is only
+ * handed out once all children are decoded, as HAPI's parsers, {@code FhirTerser}, validator and FHIRPath engine read
+ * the child fields reflectively, without going through the accessors that decode them. Items using content outside of
+ * the layout known to {@link InventoryItemJsonCodec} at the top level are decoded eagerly.
+ */
+@ResourceDef(name = "InventoryItem", profile = "http://hl7.org/fhir/StructureDefinition/InventoryItem")
+public class JsonBackedInventoryItem extends FieldTrackingInventoryItem {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private transient InventoryItemJsonCodec codec;
+	
+	private transient byte[] original;
+	
+	private transient int[] offsets;
+	
+	private transient String originalIdPart;
+	
+	private transient Meta originalMeta;
+	
+	/** Fields with an encoded value that has not been decoded yet. */
+	private transient int pending;
+	
+	/** Fields whose value has been handed out and may have been modified by the caller. */
+	private transient int exposed;
+	
+	/** Fields that have been replaced or added to. */
+	private transient int modified;
+	
+	public JsonBackedInventoryItem() {
+	}
+	
+	static JsonBackedInventoryItem create(InventoryItemJsonCodec codec, byte[] json) {
+		JsonBackedInventoryItem item = new JsonBackedInventoryItem();
+		item.codec = codec;
+		item.original = json;
+		item.offsets = new int[InventoryItemFields.COUNT * 2];
+		try {
+			item.scan();
+		}
+		catch (InventoryItemJsonCodec.UnsupportedContentException | JsonProcessingException e) {
+			item.decodeEagerly();
+		}
+		catch (IOException e) {
+			// the JSON is in memory
+			throw new IllegalStateException(e);
+		}
+		return item;
+	}
+	
+	/**
+	 * @return whether encoding the item would still produce the bytes it was decoded from
+	 */
+	public boolean isUnmodified() {
+		if (original == null || modified != 0 || hasExtension() || hasModifierExtension() || hasContained() || hasText()
+		        || hasImplicitRules() || hasLanguage()) {
+			return false;
+		}
+		String idPart = getIdElement().getIdPart();
+		if (!(originalIdPart == null ? idPart == null : originalIdPart.equals(idPart))) {
+			return false;
+		}
+		if (!(originalMeta == null ? meta == null || meta.isEmpty() : originalMeta.equalsDeep(meta))) {
+			return false;
+		}
+		for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+			if ((exposed & bit(field)) != 0 && !isUnchanged(field)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return a copy of the bytes this item was decoded from, or null if it was decoded eagerly
+	 */
+	public byte[] getOriginalBytes() {
+		return original == null ? null : original.clone();
+	}
+	
+	/**
+	 * Decodes every child that has not been decoded yet, and compares all children with the original bytes from then
+	 * on, so changes made reflectively, e.g. through {@code FhirTerser}, are encoded.
+	 *
+	 * @return this item
+	 */
+	JsonBackedInventoryItem load() {
+		for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+			beforeExpose(field);
+		}
+		return this;
+	}
+	
+	/**
+	 * Decodes the field if it has not been decoded yet, for a {@link LazyInventoryItem} that hands it out read-only.
+	 *
+	 * @return the value of the field
+	 */
+	Object read(int field) {
+		loadField(field);
+		return InventoryItemFields.get(field, this);
+	}
+	
+	@Override
+	void loadChildren() {
+		if (pending != 0) {
+			for (int field = 0; field < InventoryItemFields.COUNT; field++) {
+				loadField(field);
+			}
+		}
+	}
+	
+	// Scanning and decoding
+	
+	private void scan() throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		try (JsonParser parser = InventoryItemJsonCodec.getJsonFactory().createParser(original)) {
+			InventoryItemJsonCodec.expect(parser.nextToken(), JsonToken.START_OBJECT);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				int field = forName(fieldName);
+				if (field >= 0) {
+					offsets[field * 2] = (int) parser.getTokenLocation().getByteOffset();
+					if (token.isScalarValue()) {
+						// the parser reads the rest of a string value on demand
+						parser.getTextLength();
+					} else {
+						parser.skipChildren();
+					}
+					offsets[field * 2 + 1] = (int) parser.getCurrentLocation().getByteOffset();
+					pending |= bit(field);
+				} else if ("resourceType".equals(fieldName)) {
+					if (!InventoryItemJsonCodec.RESOURCE_TYPE.equals(InventoryItemJsonCodec.readString(parser, token))) {
+						throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+					}
+				} else if ("id".equals(fieldName)) {
+					originalIdPart = InventoryItemJsonCodec.readString(parser, token);
+				} else if ("meta".equals(fieldName)) {
+					originalMeta = InventoryItemJsonCodec.readMeta(parser, token);
+				} else {
+					throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+				}
+			}
+			InventoryItemJsonCodec.expect(parser.currentToken(), JsonToken.END_OBJECT);
+			if (parser.nextToken() != null) {
+				throw InventoryItemJsonCodec.UnsupportedContentException.INSTANCE;
+			}
+		}
+		
+		if (originalMeta != null) {
+			meta = originalMeta.copy();
+		}
+		if (originalIdPart != null) {
+			setIdElement(new IdType(InventoryItemJsonCodec.RESOURCE_TYPE, originalIdPart,
+			        originalMeta == null ? null : originalMeta.getVersionId()));
+		}
+	}
+	
+	private void decodeEagerly() {
+		InventoryItem decoded = codec.decode(original);
+		decoded.copyValues(this);
+		original = null;
+		offsets = null;
+		pending = 0;
+	}
+	
+	private void loadField(int field) {
+		if ((pending & bit(field)) == 0) {
+			return;
+		}
+		try {
+			Object value = decodeField(field);
+			CodingInterner interner = codec.getInterner();
+			InventoryItemFields.set(field, this, interner == null ? value : interner.internChild(field, value));
+			pending &= ~bit(field);
+		}
+		catch (InventoryItemJsonCodec.UnsupportedContentException | JsonProcessingException e) {
+			InventoryItem decoded = codec.decodeWithHapi(original);
+			for (int other = 0; other < InventoryItemFields.COUNT; other++) {
+				if ((pending & bit(other)) != 0) {
+					InventoryItemFields.set(other, this, InventoryItemFields.get(other, decoded));
+				}
+			}
+			pending = 0;
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private Object decodeField(int field) throws IOException, InventoryItemJsonCodec.UnsupportedContentException {
+		int start = offsets[field * 2];
+		try (JsonParser parser = InventoryItemJsonCodec.getJsonFactory().createParser(original, start,
+		    offsets[field * 2 + 1] - start)) {
+			JsonToken token = parser.nextToken();
+			switch (field) {
+				case InventoryItemFields.IDENTIFIER:
+					return InventoryItemJsonCodec.readIdentifiers(parser, token);
+				case InventoryItemFields.STATUS:
+					return InventoryItemJsonCodec.readStatus(parser, token);
+				case InventoryItemFields.CATEGORY:
+				case InventoryItemFields.CODE:
+				case InventoryItemFields.INVENTORY_STATUS:
+					return InventoryItemJsonCodec.readConcepts(parser, token);
+				case InventoryItemFields.NAME:
+					return InventoryItemJsonCodec.readNames(parser, token);
+				case InventoryItemFields.DESCRIPTION:
+					return InventoryItemJsonCodec.readDescription(parser, token);
+				case InventoryItemFields.BASE_UNIT:
+					return InventoryItemJsonCodec.readConcept(parser, token);
+				default:
+					return InventoryItemJsonCodec.readQuantity(parser, token);
+			}
+		}
+	}
+	
+	/**
+	 * Compares the current value of an exposed field with a fresh decode of its original bytes.
+	 */
+	private boolean isUnchanged(int field) {
+		Object current = InventoryItemFields.get(field, this);
+		Object originalValue;
+		if (offsets[field * 2 + 1] == 0) {
+			originalValue = null;
+		} else {
+			try {
+				originalValue = decodeField(field);
+			}
+			catch (InventoryItemJsonCodec.UnsupportedContentException | JsonProcessingException e) {
+				originalValue = InventoryItemFields.get(field, codec.decodeWithHapi(original));
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		if (current instanceof List || originalValue instanceof List) {
+			List<?> currentValues = current == null ? null : (List<?>) current;
+			List<?> originalValues = originalValue == null ? null : (List<?>) originalValue;
+			if (isEmpty(currentValues) && isEmpty(originalValues)) {
+				return true;
+			}
+			return currentValues != null && originalValues != null && currentValues.size() == originalValues.size()
+			        && compareDeep(cast(currentValues), cast(originalValues), true);
+		}
+		Base currentElement = (Base) current;
+		Base originalElement = (Base) originalValue;
+		if ((currentElement == null || currentElement.isEmpty()) && (originalElement == null || originalElement.isEmpty())) {
+			return true;
+		}
+		return compareDeep(currentElement, originalElement, true);
+	}
+	
+	private static boolean isEmpty(List<?> values) {
+		if (values != null) {
+			for (Object value : values) {
+				if (!((Base) value).isEmpty()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static List<Base> cast(List<?> values) {
+		return (List<Base>) values;
+	}
+	
+	@Override
+	void beforeRead(int field) {
+		loadField(field);
+	}
+	
+	@Override
+	void beforeExpose(int field) {
+		loadField(field);
+		exposed |= bit(field);
+	}
+	
+	@Override
+	void beforeModify(int field) {
+		loadField(field);
+		modified |= bit(field);
+	}
+	
+	@Override
+	void beforeReplace(int field) {
+		pending &= ~bit(field);
+		modified |= bit(field);
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		loadChildren();
+		out.defaultWriteObject();
+	}
+}
@@ -0,0 +1,103 @@
+package org.openmrs.fhir;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Quantity;
+
+/**
+ * A read-only view of an {@link InventoryItem} encoded as JSON, created by
+ * {@link InventoryItemJsonCodec#decodeLazily(byte[])}, which only decodes each child the first time it is read, so
+ * reading the status and identifiers of an item does not decode its codes, names and quantities. The view encodes back
+ * to the bytes it was decoded from.
+ * <p>
+ * The view is not an {@code InventoryItem}: HAPI's parsers, {@code FhirTerser}, validator and FHIRPath engine read and
+ * write the child fields reflectively, which cannot decode them on demand, so they would see the children that were not
+ * decoded yet as absent. {@link #load()} decodes the remaining children and returns the item to hand to them, or to
+ * modify. The lists returned by the getters are unmodifiable, and their elements must be treated as read-only.
+ */
+public final class LazyInventoryItem {
+	
+	private final JsonBackedInventoryItem item;
+	
+	LazyInventoryItem(JsonBackedInventoryItem item) {
+		this.item = item;
+	}
+	
+	/**
+	 * @return the id of the item without its resource type and version, or null
+	 */
+	public String getIdPart() {
+		return item.getIdElement().getIdPart();
+	}
+	
+	public List<Identifier> getIdentifier() {
+		return list(InventoryItemFields.IDENTIFIER);
+	}
+	
+	public InventoryItem.InventoryItemStatusCodes getStatus() {
+		return item.getStatus();
+	}
+	
+	public List<CodeableConcept> getCategory() {
+		return list(InventoryItemFields.CATEGORY);
+	}
+	
+	public List<CodeableConcept> getCode() {
+		return list(InventoryItemFields.CODE);
+	}
+	
+	public List<InventoryItem.InventoryItemNameComponent> getName() {
+		return list(InventoryItemFields.NAME);
+	}
+	
+	/**
+	 * @return the description, or null
+	 */
+	public InventoryItem.InventoryItemDescriptionComponent getDescription() {
+		return (InventoryItem.InventoryItemDescriptionComponent) item.read(InventoryItemFields.DESCRIPTION);
+	}
+	
+	public List<CodeableConcept> getInventoryStatus() {
+		return list(InventoryItemFields.INVENTORY_STATUS);
+	}
+	
+	/**
+	 * @return the base unit, or null
+	 */
+	public CodeableConcept getBaseUnit() {
+		return (CodeableConcept) item.read(InventoryItemFields.BASE_UNIT);
+	}
+	
+	/**
+	 * @return the net content, or null
+	 */
+	public Quantity getNetContent() {
+		return (Quantity) item.read(InventoryItemFields.NET_CONTENT);
+	}
+	
+	/**
+	 * Decodes the children that were not read yet. The view reads from the returned item from then on, so changes made
+	 * to it are seen through the view and encoded with it.
+	 *
+	 * @return the decoded item, which encodes back to the original bytes as long as it is not modified
+	 */
+	public JsonBackedInventoryItem load() {
+		return item.load();
+	}
+	
+	/**
+	 * @return the item behind the view, which may not be loaded yet, for the codec to encode
+	 */
+	JsonBackedInventoryItem getItem() {
+		return item;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T> List<T> list(int field) {
+		List<T> values = (List<T>) item.read(field);
+		return values == null ? Collections.emptyList() : Collections.unmodifiableList(values);
+	}
+}
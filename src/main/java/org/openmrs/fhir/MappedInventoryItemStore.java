@@ -0,0 +1,547 @@
+package org.openmrs.fhir;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+
+/**
+ * Persistent store of {@link InventoryItem}s kept in memory-mapped files, for catalogs too large to hold as object
+ * graphs on the heap. Items are encoded with {@link InventoryItemBinaryCodec} and appended to a data file, and an
+ * open-addressing hash table in a second file maps every id to the offset of its latest record. Neither file is read
+ * into the heap: both are mapped, so the operating system page cache holds the data and reopening a store does not load
+ * anything. Items are only decoded by {@link #get(String)}.
+ * <p>
+ * The data file grows in segments of 64 MiB that records never cross. Deleting an item appends a tombstone, a record
+ * with an empty payload, so that an index rebuilt from the data file does not bring the item back. Replaced and deleted
+ * records are not reclaimed. Changes survive the process ending abruptly, but only survive a system crash after
+ * {@link #flush()} or {@link #close()}. A directory must not be opened by two stores at the same time. The store is
+ * safe for use by multiple threads.
+ */
+public class MappedInventoryItemStore implements Closeable {
+	
+	static final String DATA_FILE = "items.dat";
+	
+	static final String INDEX_FILE = "items.idx";
+	
+	private static final int DATA_MAGIC = 0x49494430;
+	
+	private static final int INDEX_MAGIC = 0x49494931;
+	
+	private static final int VERSION = 1;
+	
+	private static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+	
+	/** Magic, version, segment size and the end of the last record. */
+	private static final int DATA_HEADER_SIZE = 24;
+	
+	private static final int DATA_END_OFFSET = 16;
+	
+	/** Record length and id length. A record without a payload is the tombstone of a deleted item. */
+	private static final int RECORD_HEADER_SIZE = 6;
+	
+	/** Magic, version, capacity, size and used slots. */
+	private static final int INDEX_HEADER_SIZE = 24;
+	
+	private static final int INDEX_CAPACITY_OFFSET = 8;
+	
+	private static final int INDEX_SIZE_OFFSET = 12;
+	
+	private static final int INDEX_USED_OFFSET = 16;
+	
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	private static final long EMPTY = 0;
+	
+	private static final long DELETED = -1;
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	private final Path directory;
+	
+	private final InventoryItemBinaryCodec codec;
+	
+	private final int segmentSize;
+	
+	private final FileChannel dataChannel;
+	
+	private final List<MappedByteBuffer> segments = new ArrayList<>();
+	
+	private long end;
+	
+	private FileChannel indexChannel;
+	
+	private MappedByteBuffer index;
+	
+	private int capacity;
+	
+	private int size;
+	
+	/** Slots that are not empty, including deleted ones. */
+	private int used;
+	
+	private boolean closed;
+	
+	MappedInventoryItemStore(Path directory, FhirContext fhirContext, int segmentSize) throws IOException {
+		this.directory = directory;
+		this.codec = new InventoryItemBinaryCodec(fhirContext);
+		Files.createDirectories(directory);
+		
+		Path dataPath = directory.resolve(DATA_FILE);
+		boolean exists = Files.exists(dataPath) && Files.size(dataPath) > 0;
+		this.dataChannel = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+		    StandardOpenOption.WRITE);
+		try {
+			if (exists) {
+				MappedByteBuffer first = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_HEADER_SIZE);
+				if (first.getInt(0) != DATA_MAGIC || first.getInt(4) != VERSION) {
+					throw new IOException(dataPath + " is not an InventoryItem store");
+				}
+				this.segmentSize = first.getInt(8);
+				this.end = first.getLong(DATA_END_OFFSET);
+				for (long mapped = 0; mapped < end; mapped += this.segmentSize) {
+					mapSegment();
+				}
+			} else {
+				this.segmentSize = segmentSize;
+				MappedByteBuffer first = mapSegment();
+				first.putInt(0, DATA_MAGIC);
+				first.putInt(4, VERSION);
+				first.putInt(8, segmentSize);
+				this.end = DATA_HEADER_SIZE;
+				first.putLong(DATA_END_OFFSET, end);
+			}
+			openIndex(exists);
+		}
+		catch (IOException | RuntimeException e) {
+			closeChannels();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Opens the store in the directory, creating it if the directory does not contain one.
+	 */
+	public static MappedInventoryItemStore open(Path directory, FhirContext fhirContext) throws IOException {
+		return new MappedInventoryItemStore(directory, fhirContext, DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Stores the item under its id, replacing the item stored under the same id.
+	 *
+	 * @return true if an existing item was replaced
+	 * @throws IllegalArgumentException if the item has no id
+	 */
+	public boolean put(InventoryItem item) throws IOException {
+		String id = item.getIdElement().getIdPart();
+		if (id == null) {
+			throw new IllegalArgumentException("Cannot store an InventoryItem without an id");
+		}
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		if (idBytes.length > 0xFFFF) {
+			throw new IllegalArgumentException("InventoryItem id is too long");
+		}
+		byte[] payload = codec.encode(item);
+		
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			long offset = append(idBytes, payload);
+			int slot = findSlot(idBytes);
+			boolean replaced = slot >= 0;
+			if (replaced) {
+				setSlot(slot, offset);
+			} else {
+				if ((long) (used + 1) * 2 > capacity) {
+					// grows the index, or only drops the deleted slots if there are many
+					rehash(size + 1 > capacity / 4 ? capacity * 2 : capacity);
+					slot = findSlot(idBytes);
+				}
+				int free = -slot - 1;
+				if (slotValue(free) == EMPTY) {
+					used++;
+				}
+				setSlot(free, offset);
+				size++;
+				writeCounts();
+			}
+			return replaced;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Decodes the item stored under the id.
+	 *
+	 * @return the item, or null if there is none
+	 * @throws DataFormatException if the stored record is corrupt
+	 */
+	public InventoryItem get(String id) {
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		byte[] payload;
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			int slot = findSlot(idBytes);
+			if (slot < 0) {
+				return null;
+			}
+			long offset = slotValue(slot);
+			ByteBuffer segment = duplicate(offset);
+			int recordLength = segment.getInt();
+			int idLength = segment.getShort() & 0xFFFF;
+			payload = new byte[recordLength - RECORD_HEADER_SIZE - idLength];
+			((Buffer) segment).position(segment.position() + idLength);
+			segment.get(payload);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+		return codec.decode(payload);
+	}
+	
+	public boolean contains(String id) {
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		lock.readLock().lock();
+		try {
+			ensureOpen();
+			return findSlot(idBytes) >= 0;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return true if an item with the id was stored
+	 */
+	public boolean delete(String id) throws IOException {
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			int slot = findSlot(idBytes);
+			if (slot < 0) {
+				return false;
+			}
+			append(idBytes, new byte[0]);
+			setSlot(slot, DELETED);
+			size--;
+			writeCounts();
+			return true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Writes all changes to the storage device.
+	 */
+	public void flush() {
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			for (MappedByteBuffer segment : segments) {
+				segment.force();
+			}
+			index.force();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (!closed) {
+				flush();
+				closed = true;
+				segments.clear();
+				index = null;
+				closeChannels();
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	// Data file
+	
+	private long append(byte[] idBytes, byte[] payload) throws IOException {
+		int recordLength = RECORD_HEADER_SIZE + idBytes.length + payload.length;
+		if (recordLength > segmentSize) {
+			throw new IllegalArgumentException("Encoded InventoryItem of " + recordLength + " bytes is too large");
+		}
+		long offset = end;
+		if (offset / segmentSize != (offset + recordLength - 1) / segmentSize) {
+			// records never cross a segment, a zero length marks the rest of the segment as padding
+			if (offset % segmentSize + 4 <= segmentSize) {
+				segment(offset).putInt((int) (offset % segmentSize), 0);
+			}
+			offset = (offset / segmentSize + 1) * segmentSize;
+		}
+		while (segments.size() <= offset / segmentSize) {
+			mapSegment();
+		}
+		
+		ByteBuffer segment = duplicate(offset);
+		segment.putInt(recordLength);
+		segment.putShort((short) idBytes.length);
+		segment.put(idBytes);
+		segment.put(payload);
+		end = offset + recordLength;
+		segments.get(0).putLong(DATA_END_OFFSET, end);
+		return offset;
+	}
+	
+	private MappedByteBuffer mapSegment() throws IOException {
+		MappedByteBuffer segment = dataChannel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentSize,
+		    segmentSize);
+		segments.add(segment);
+		return segment;
+	}
+	
+	private MappedByteBuffer segment(long offset) {
+		return segments.get((int) (offset / segmentSize));
+	}
+	
+	/**
+	 * @return a buffer positioned at the offset, which can be used without affecting other threads
+	 */
+	private ByteBuffer duplicate(long offset) {
+		ByteBuffer segment = ((ByteBuffer) segment(offset)).duplicate();
+		((Buffer) segment).position((int) (offset % segmentSize));
+		return segment;
+	}
+	
+	private boolean idEquals(long offset, byte[] idBytes) {
+		ByteBuffer segment = segment(offset);
+		int position = (int) (offset % segmentSize);
+		if ((segment.getShort(position + 4) & 0xFFFF) != idBytes.length) {
+			return false;
+		}
+		position += RECORD_HEADER_SIZE;
+		for (int i = 0; i < idBytes.length; i++) {
+			if (segment.get(position + i) != idBytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Index file
+	
+	private void openIndex(boolean exists) throws IOException {
+		Path indexPath = directory.resolve(INDEX_FILE);
+		if (exists && Files.exists(indexPath)) {
+			indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+			if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != VERSION) {
+				throw new IOException(indexPath + " is not an InventoryItem store index");
+			}
+			capacity = index.getInt(INDEX_CAPACITY_OFFSET);
+			size = index.getInt(INDEX_SIZE_OFFSET);
+			used = index.getInt(INDEX_USED_OFFSET);
+		} else if (exists) {
+			rebuildIndex();
+		} else {
+			rehash(INITIAL_CAPACITY);
+		}
+	}
+	
+	/**
+	 * Recreates a missing index from the data file, where the last record of every id wins and ids whose last record is
+	 * a tombstone are left out.
+	 */
+	private void rebuildIndex() throws IOException {
+		rehash(INITIAL_CAPACITY);
+		long offset = DATA_HEADER_SIZE;
+		while (offset < end) {
+			ByteBuffer segment = segment(offset);
+			int position = (int) (offset % segmentSize);
+			int recordLength = position + RECORD_HEADER_SIZE > segmentSize ? 0 : segment.getInt(position);
+			if (recordLength == 0) {
+				// the rest of the segment is padding
+				offset = (offset / segmentSize + 1) * segmentSize;
+				continue;
+			}
+			byte[] idBytes = new byte[segment.getShort(position + 4) & 0xFFFF];
+			for (int i = 0; i < idBytes.length; i++) {
+				idBytes[i] = segment.get(position + RECORD_HEADER_SIZE + i);
+			}
+			int slot = findSlot(idBytes);
+			if (recordLength == RECORD_HEADER_SIZE + idBytes.length) {
+				if (slot >= 0) {
+					setSlot(slot, DELETED);
+					size--;
+				}
+			} else if (slot >= 0) {
+				setSlot(slot, offset);
+			} else {
+				if ((long) (used + 1) * 2 > capacity) {
+					rehash(capacity * 2);
+					slot = findSlot(idBytes);
+				}
+				setSlot(-slot - 1, offset);
+				size++;
+				used++;
+			}
+			offset += recordLength;
+		}
+		writeCounts();
+	}
+	
+	/**
+	 * Writes a new index with the capacity, dropping deleted slots, and replaces the current one with it.
+	 */
+	private void rehash(int newCapacity) throws IOException {
+		Path indexPath = directory.resolve(INDEX_FILE);
+		Path newPath = directory.resolve(INDEX_FILE + ".new");
+		FileChannel newChannel = FileChannel.open(newPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+		    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		MappedByteBuffer oldIndex = index;
+		int oldCapacity = capacity;
+		try {
+			index = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) newCapacity * 8);
+			index.putInt(0, INDEX_MAGIC);
+			index.putInt(4, VERSION);
+			index.putInt(INDEX_CAPACITY_OFFSET, newCapacity);
+			capacity = newCapacity;
+			used = 0;
+			if (oldIndex != null) {
+				for (int slot = 0; slot < oldCapacity; slot++) {
+					long offset = oldIndex.getLong(INDEX_HEADER_SIZE + slot * 8);
+					if (offset != EMPTY && offset != DELETED) {
+						setSlot(findEmptySlot(offset), offset);
+						used++;
+					}
+				}
+			}
+			writeCounts();
+			index.force();
+			Files.move(newPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException | RuntimeException e) {
+			newChannel.close();
+			index = oldIndex;
+			capacity = oldCapacity;
+			throw e;
+		}
+		if (indexChannel != null) {
+			indexChannel.close();
+		}
+		indexChannel = newChannel;
+	}
+	
+	/**
+	 * @return the slot of the id, or {@code -(insertion slot) - 1} if the id is not in the index
+	 */
+	private int findSlot(byte[] idBytes) {
+		int mask = capacity - 1;
+		int firstDeleted = -1;
+		for (int slot = hash(idBytes) & mask;; slot = (slot + 1) & mask) {
+			long offset = slotValue(slot);
+			if (offset == EMPTY) {
+				return -(firstDeleted >= 0 ? firstDeleted : slot) - 1;
+			} else if (offset == DELETED) {
+				if (firstDeleted < 0) {
+					firstDeleted = slot;
+				}
+			} else if (idEquals(offset, idBytes)) {
+				return slot;
+			}
+		}
+	}
+	
+	private int findEmptySlot(long recordOffset) {
+		ByteBuffer segment = segment(recordOffset);
+		int position = (int) (recordOffset % segmentSize);
+		int idLength = segment.getShort(position + 4) & 0xFFFF;
+		int hash = 1;
+		for (int i = 0; i < idLength; i++) {
+			hash = 31 * hash + segment.get(position + RECORD_HEADER_SIZE + i);
+		}
+		int mask = capacity - 1;
+		int slot = mix(hash) & mask;
+		while (slotValue(slot) != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	private long slotValue(int slot) {
+		return index.getLong(INDEX_HEADER_SIZE + slot * 8);
+	}
+	
+	private void setSlot(int slot, long value) {
+		index.putLong(INDEX_HEADER_SIZE + slot * 8, value);
+	}
+	
+	private void writeCounts() {
+		index.putInt(INDEX_SIZE_OFFSET, size);
+		index.putInt(INDEX_USED_OFFSET, used);
+	}
+	
+	/**
+	 * Hashes the UTF-8 bytes of an id. The hash is part of the index file format and must not change.
+	 */
+	private static int hash(byte[] idBytes) {
+		int hash = 1;
+		for (byte b : idBytes) {
+			hash = 31 * hash + b;
+		}
+		return mix(hash);
+	}
+	
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+	
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("The InventoryItem store has been closed");
+		}
+	}
+	
+	private void closeChannels() throws IOException {
+		try {
+			dataChannel.close();
+		}
+		finally {
+			if (indexChannel != null) {
+				indexChannel.close();
+			}
+		}
+	}
+}
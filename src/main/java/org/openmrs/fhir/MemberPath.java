@@ -0,0 +1,98 @@
+package org.openmrs.fhir;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Base;
+
+/**
+ * A FHIRPath expression made of member invocations only, e.g. {@code InventoryItem.name.nameType}, that can be
+ * evaluated on an element of any type. The expression is parsed once and evaluated by the pipeline of
+ * {@link InventoryItemPath}: the children of items, their components and the common data types are read directly, and
+ * other elements through {@link Base#getProperty(int, String, boolean)}, for every element of a collection of the same
+ * class with the member resolved once. Instances are immutable and can be shared between threads.
+ */
+public final class MemberPath {
+	
+	private final InventoryItemPath path;
+	
+	private MemberPath(String expression, List<String> names) {
+		this.path = InventoryItemPath.compileMembers(expression, names);
+	}
+	
+	/**
+	 * @param expression a dot separated list of element names, optionally starting with the resource type
+	 * @return the parsed path
+	 * @throws IllegalArgumentException if the expression is not a plain member invocation chain
+	 */
+	public static MemberPath parse(String expression) {
+		if (expression == null || expression.isEmpty()) {
+			throw new IllegalArgumentException("Empty FHIRPath expression");
+		}
+		
+		String[] segments = expression.split("\\.", -1);
+		int start = 0;
+		if (Character.isUpperCase(segments[0].charAt(0))) {
+			start = 1;
+		}
+		
+		List<String> names = new ArrayList<>(segments.length);
+		for (int i = start; i < segments.length; i++) {
+			String segment = segments[i];
+			if (segment.isEmpty() || !isIdentifier(segment)) {
+				throw new IllegalArgumentException(
+				        "Unsupported FHIRPath expression '" + expression + "': only member invocations are supported");
+			}
+			names.add(segment);
+		}
+		return new MemberPath(expression, names);
+	}
+	
+	/**
+	 * Passes every element the path selects from the focus to the action, in document order.
+	 */
+	public void evaluate(Base focus, Consumer<? super Base> action) throws FHIRException {
+		if (focus != null) {
+			path.select(focus, action);
+		}
+	}
+	
+	/**
+	 * @return the elements the path selects from the focus
+	 */
+	public List<Base> evaluate(Base focus) throws FHIRException {
+		List<Base> result = new ArrayList<>();
+		evaluate(focus, result::add);
+		return result;
+	}
+	
+	/**
+	 * @return the first element the path selects from the focus, or null
+	 */
+	public Base evaluateFirst(Base focus) throws FHIRException {
+		return focus == null ? null : path.selectFirst(focus);
+	}
+	
+	public String getExpression() {
+		return path.getExpression();
+	}
+	
+	@Override
+	public String toString() {
+		return path.getExpression();
+	}
+	
+	private static boolean isIdentifier(String segment) {
+		if (!Character.isJavaIdentifierStart(segment.charAt(0))) {
+			return false;
+		}
+		for (int i = 1; i < segment.length(); i++) {
+			if (!Character.isJavaIdentifierPart(segment.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
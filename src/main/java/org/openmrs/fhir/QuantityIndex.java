@@ -0,0 +1,321 @@
+package org.openmrs.fhir;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.hl7.fhir.r4.model.Quantity;
+
+/**
+ * Sorted index for a quantity search parameter. Values in UCUM units are converted to their canonical unit, see
+ * {@link UcumUnits}, so that {@code 500 mL} and {@code 0.5 L} are the same value, and a search is a seek in the sorted
+ * values of one unit. Values are also indexed as they are, for searches without a unit.
+ * <p>
+ * Search values use the FHIR syntax {@code [prefix][number]|[system]|[code]}, where the system and code are optional and
+ * the prefix is one of {@code eq} (the default), {@code ne}, {@code gt}, {@code lt}, {@code ge}, {@code le}, {@code sa},
+ * {@code eb} and {@code ap}. Like in FHIR, {@code eq}, {@code ne} and {@code ap} match the range implied by the
+ * precision of the number, e.g. {@code 100} matches values from 99.5 up to 100.5, and {@code ap} widens it by 10%.
+ */
+final class QuantityIndex {
+	
+	private static final BigDecimal HALF = new BigDecimal("0.5");
+	
+	private static final BigDecimal APPROXIMATION = new BigDecimal("0.1");
+	
+	/** The ids by canonical value, by canonical system and unit. */
+	private final Map<String, NavigableMap<BigDecimal, Set<String>>> byUnit = new HashMap<>();
+	
+	/** The ids by the value as it is, for searches without a unit. */
+	private final NavigableMap<BigDecimal, Set<String>> byValue = new TreeMap<>();
+	
+	private final Map<String, Value> values = new HashMap<>();
+	
+	void add(String id, Quantity quantity) {
+		remove(id);
+		if (quantity == null || !quantity.hasValue()) {
+			return;
+		}
+		
+		BigDecimal value = quantity.getValue();
+		String unit = quantity.hasCode() ? quantity.getCode() : quantity.hasUnit() ? quantity.getUnit() : null;
+		Value indexed;
+		if (unit == null) {
+			indexed = new Value(value, null, null);
+		} else {
+			Range canonical = Range.between(quantity.hasSystem() ? quantity.getSystem() : null, unit, value, value);
+			indexed = new Value(value, canonical.unit, canonical.low);
+			add(byUnit.computeIfAbsent(canonical.unit, key -> new TreeMap<>()), canonical.low, id);
+		}
+		add(byValue, value, id);
+		values.put(id, indexed);
+	}
+	
+	void remove(String id) {
+		Value indexed = values.remove(id);
+		if (indexed != null) {
+			remove(byValue, indexed.value, id);
+			if (indexed.unit != null) {
+				NavigableMap<BigDecimal, Set<String>> unitValues = byUnit.get(indexed.unit);
+				remove(unitValues, indexed.canonicalValue, id);
+				if (unitValues.isEmpty()) {
+					byUnit.remove(indexed.unit);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param values one or more comma separated search values, any of which must match
+	 * @return the ids of the matching items, ordered by value within each search value
+	 * @throws IllegalArgumentException if a value is not a valid quantity search value
+	 */
+	Set<String> get(String values) {
+		if (values.indexOf(',') < 0) {
+			return seek(Range.parse(values));
+		}
+		Set<String> ids = new LinkedHashSet<>();
+		for (String value : values.split(",")) {
+			ids.addAll(seek(Range.parse(value)));
+		}
+		return ids;
+	}
+	
+	/**
+	 * @param andValues search values that must all match, each of which can be a comma separated list
+	 * @return the ids of the matching items; ranges in the same unit are combined into a single seek
+	 */
+	Set<String> get(List<String> andValues) {
+		Range combined = null;
+		for (String values : andValues) {
+			if (values.indexOf(',') >= 0) {
+				combined = null;
+				break;
+			}
+			Range range = Range.parse(values);
+			combined = combined == null ? range : combined.intersect(range);
+			if (combined == null) {
+				break;
+			}
+		}
+		if (combined != null) {
+			return seek(combined);
+		}
+		
+		Set<String> ids = null;
+		for (String values : andValues) {
+			Set<String> matches = get(values);
+			if (ids == null) {
+				ids = new LinkedHashSet<>(matches);
+			} else {
+				ids.retainAll(matches);
+			}
+			if (ids.isEmpty()) {
+				break;
+			}
+		}
+		return ids == null ? Collections.emptySet() : ids;
+	}
+	
+	private Set<String> seek(Range range) {
+		NavigableMap<BigDecimal, Set<String>> sorted = range.unit == null ? byValue : byUnit.get(range.unit);
+		if (sorted == null || sorted.isEmpty()) {
+			return Collections.emptySet();
+		}
+		
+		Set<String> ids = new LinkedHashSet<>();
+		if (range.negated) {
+			collect(range.low == null ? Collections.emptyMap() : sorted.headMap(range.low, !range.lowInclusive), ids);
+			collect(range.high == null ? Collections.emptyMap() : sorted.tailMap(range.high, !range.highInclusive), ids);
+			return ids;
+		}
+		
+		if (range.isEmpty()) {
+			return ids;
+		}
+		NavigableMap<BigDecimal, Set<String>> selected = sorted;
+		if (range.low != null) {
+			selected = selected.tailMap(range.low, range.lowInclusive);
+		}
+		if (range.high != null) {
+			selected = selected.headMap(range.high, range.highInclusive);
+		}
+		collect(selected, ids);
+		return ids;
+	}
+	
+	private static void collect(Map<BigDecimal, Set<String>> selected, Set<String> ids) {
+		for (Set<String> valueIds : selected.values()) {
+			ids.addAll(valueIds);
+		}
+	}
+	
+	private static void add(NavigableMap<BigDecimal, Set<String>> sorted, BigDecimal value, String id) {
+		sorted.computeIfAbsent(value, key -> new LinkedHashSet<>()).add(id);
+	}
+	
+	private static void remove(NavigableMap<BigDecimal, Set<String>> sorted, BigDecimal value, String id) {
+		Set<String> ids = sorted.get(value);
+		if (ids != null) {
+			ids.remove(id);
+			if (ids.isEmpty()) {
+				sorted.remove(value);
+			}
+		}
+	}
+	
+	private static final class Value {
+		
+		final BigDecimal value;
+		
+		/** The canonical system and unit, or null if the value has no unit. */
+		final String unit;
+		
+		final BigDecimal canonicalValue;
+		
+		Value(BigDecimal value, String unit, BigDecimal canonicalValue) {
+			this.value = value;
+			this.unit = unit;
+			this.canonicalValue = canonicalValue;
+		}
+	}
+	
+	/**
+	 * The canonical values a search value matches. A null bound is unbounded.
+	 */
+	private static final class Range {
+		
+		/** The canonical system and unit, or null to match values in any unit as they are. */
+		final String unit;
+		
+		final BigDecimal low;
+		
+		final boolean lowInclusive;
+		
+		final BigDecimal high;
+		
+		final boolean highInclusive;
+		
+		/** Whether the range matches the values outside of the bounds instead. */
+		final boolean negated;
+		
+		Range(String unit, BigDecimal low, boolean lowInclusive, BigDecimal high, boolean highInclusive,
+		    boolean negated) {
+			this.unit = unit;
+			this.low = low;
+			this.lowInclusive = lowInclusive;
+			this.high = high;
+			this.highInclusive = highInclusive;
+			this.negated = negated;
+		}
+		
+		/**
+		 * @return the closed range between the two values converted to the canonical unit
+		 */
+		static Range between(String system, String code, BigDecimal low, BigDecimal high) {
+			if (system == null || system.isEmpty() || UcumUnits.SYSTEM.equals(system)) {
+				UcumUnits.Unit unit = UcumUnits.canonical(code);
+				return new Range(UcumUnits.SYSTEM + "|" + unit.code, unit.convert(low), true, unit.convert(high), true,
+				        false);
+			}
+			return new Range(system + "|" + code, low, true, high, true, false);
+		}
+		
+		static Range parse(String value) {
+			String[] parts = value.split("\\|", -1);
+			if (parts.length != 1 && parts.length != 3) {
+				throw invalid(value);
+			}
+			String number = parts[0];
+			String prefix = "eq";
+			if (number.length() > 2 && Character.isLetter(number.charAt(0))) {
+				prefix = number.substring(0, 2);
+				number = number.substring(2);
+			}
+			
+			BigDecimal parsed;
+			try {
+				parsed = new BigDecimal(number);
+			}
+			catch (NumberFormatException e) {
+				throw invalid(value);
+			}
+			BigDecimal low = parsed;
+			BigDecimal high = parsed;
+			if ("eq".equals(prefix) || "ne".equals(prefix) || "ap".equals(prefix)) {
+				BigDecimal precision = HALF.scaleByPowerOfTen(-parsed.scale());
+				if ("ap".equals(prefix)) {
+					precision = precision.max(parsed.abs().multiply(APPROXIMATION));
+				}
+				low = parsed.subtract(precision);
+				high = parsed.add(precision);
+			}
+			
+			String code = parts.length == 3 ? parts[2] : "";
+			Range canonical = code.isEmpty() ? new Range(null, low, true, high, true, false)
+			        : between(parts[1], code, low, high);
+			switch (prefix) {
+				case "eq":
+					return new Range(canonical.unit, canonical.low, true, canonical.high, false, false);
+				case "ne":
+					return new Range(canonical.unit, canonical.low, true, canonical.high, false, true);
+				case "ap":
+					return canonical;
+				case "gt":
+				case "sa":
+					return new Range(canonical.unit, canonical.low, false, null, false, false);
+				case "ge":
+					return new Range(canonical.unit, canonical.low, true, null, false, false);
+				case "lt":
+				case "eb":
+					return new Range(canonical.unit, null, false, canonical.high, false, false);
+				case "le":
+					return new Range(canonical.unit, null, false, canonical.high, true, false);
+				default:
+					throw invalid(value);
+			}
+		}
+		
+		/**
+		 * @return the range matching the values of both ranges, or null if they cannot be combined
+		 */
+		Range intersect(Range other) {
+			if (negated || other.negated || !Objects.equals(unit, other.unit)) {
+				return null;
+			}
+			BigDecimal newLow = low;
+			boolean newLowInclusive = lowInclusive;
+			if (newLow == null || other.low != null && (other.low.compareTo(newLow) > 0
+			        || other.low.compareTo(newLow) == 0 && !other.lowInclusive)) {
+				newLow = other.low;
+				newLowInclusive = other.lowInclusive;
+			}
+			BigDecimal newHigh = high;
+			boolean newHighInclusive = highInclusive;
+			if (newHigh == null || other.high != null && (other.high.compareTo(newHigh) < 0
+			        || other.high.compareTo(newHigh) == 0 && !other.highInclusive)) {
+				newHigh = other.high;
+				newHighInclusive = other.highInclusive;
+			}
+			return new Range(unit, newLow, newLowInclusive, newHigh, newHighInclusive, false);
+		}
+		
+		boolean isEmpty() {
+			if (low == null || high == null) {
+				return false;
+			}
+			int order = low.compareTo(high);
+			return order > 0 || order == 0 && !(lowInclusive && highInclusive);
+		}
+		
+		private static IllegalArgumentException invalid(String value) {
+			return new IllegalArgumentException("Invalid quantity search value '" + value + "'");
+		}
+	}
+}
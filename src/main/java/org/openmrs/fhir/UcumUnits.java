@@ -0,0 +1,131 @@
+package org.openmrs.fhir;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Converts quantities in UCUM units to canonical units: metric units with a prefix, such as {@code mL}, {@code cL} and
+ * {@code kg}, lengths, areas and volumes such as {@code cm3}, and the customary units used for net contents. Volumes
+ * are converted to {@code m3}, masses to {@code g} and lengths to {@code m}. Other units, including annotations such as
+ * {@code {tbl}}, are their own canonical unit, so they only compare with quantities in the same unit. The conversion of
+ * a unit code is cached the first time it is used.
+ */
+final class UcumUnits {
+	
+	static final String SYSTEM = "http://unitsofmeasure.org";
+	
+	/** The metric base units that take a prefix, and the canonical unit and factor of each. */
+	private static final Map<String, Unit> METRIC = new HashMap<>();
+	
+	private static final Map<String, BigDecimal> PREFIXES = new HashMap<>();
+	
+	private static final Map<String, Unit> CUSTOMARY = new HashMap<>();
+	
+	private static final int CACHE_SIZE = 1024;
+	
+	private static final ConcurrentMap<String, Unit> CACHE = new ConcurrentHashMap<>();
+	
+	static {
+		METRIC.put("m", new Unit("m", BigDecimal.ONE));
+		METRIC.put("g", new Unit("g", BigDecimal.ONE));
+		METRIC.put("L", new Unit("m3", new BigDecimal("0.001")));
+		METRIC.put("l", new Unit("m3", new BigDecimal("0.001")));
+		METRIC.put("mol", new Unit("mol", BigDecimal.ONE));
+		METRIC.put("s", new Unit("s", BigDecimal.ONE));
+		
+		PREFIXES.put("G", new BigDecimal("1e9"));
+		PREFIXES.put("M", new BigDecimal("1e6"));
+		PREFIXES.put("k", new BigDecimal("1e3"));
+		PREFIXES.put("h", new BigDecimal("1e2"));
+		PREFIXES.put("da", BigDecimal.TEN);
+		PREFIXES.put("d", new BigDecimal("1e-1"));
+		PREFIXES.put("c", new BigDecimal("1e-2"));
+		PREFIXES.put("m", new BigDecimal("1e-3"));
+		PREFIXES.put("u", new BigDecimal("1e-6"));
+		PREFIXES.put("n", new BigDecimal("1e-9"));
+		PREFIXES.put("p", new BigDecimal("1e-12"));
+		
+		CUSTOMARY.put("[foz_us]", new Unit("m3", new BigDecimal("0.0000295735295625")));
+		CUSTOMARY.put("[foz_br]", new Unit("m3", new BigDecimal("0.0000284130625")));
+		CUSTOMARY.put("[pt_us]", new Unit("m3", new BigDecimal("0.000473176473")));
+		CUSTOMARY.put("[gal_us]", new Unit("m3", new BigDecimal("0.003785411784")));
+		CUSTOMARY.put("[tsp_us]", new Unit("m3", new BigDecimal("0.00000492892159375")));
+		CUSTOMARY.put("[tbs_us]", new Unit("m3", new BigDecimal("0.00001478676478125")));
+		CUSTOMARY.put("[oz_av]", new Unit("g", new BigDecimal("28.349523125")));
+		CUSTOMARY.put("[lb_av]", new Unit("g", new BigDecimal("453.59237")));
+		CUSTOMARY.put("[gr]", new Unit("g", new BigDecimal("0.06479891")));
+	}
+	
+	private UcumUnits() {
+	}
+	
+	/**
+	 * @return the canonical unit and factor of the unit code, which is the code itself with a factor of 1 if it cannot
+	 *         be converted
+	 */
+	static Unit canonical(String code) {
+		Unit unit = CACHE.get(code);
+		if (unit == null) {
+			unit = parse(code);
+			if (CACHE.size() < CACHE_SIZE) {
+				CACHE.putIfAbsent(code, unit);
+			}
+		}
+		return unit;
+	}
+	
+	private static Unit parse(String code) {
+		Unit unit = CUSTOMARY.get(code);
+		if (unit != null) {
+			return unit;
+		}
+		
+		// an exponent only applies to lengths, e.g. cm3 is a volume
+		int exponent = 1;
+		String base = code;
+		char last = code.isEmpty() ? ' ' : code.charAt(code.length() - 1);
+		if (last == '2' || last == '3') {
+			exponent = last - '0';
+			base = code.substring(0, code.length() - 1);
+		}
+		
+		unit = prefixed(base, exponent);
+		return unit == null ? new Unit(code, BigDecimal.ONE) : unit;
+	}
+	
+	private static Unit prefixed(String code, int exponent) {
+		Unit unit = METRIC.get(code);
+		BigDecimal prefix = BigDecimal.ONE;
+		for (int length = 1; unit == null && length <= 2 && length < code.length(); length++) {
+			prefix = PREFIXES.get(code.substring(0, length));
+			unit = prefix == null ? null : METRIC.get(code.substring(length));
+		}
+		if (unit == null || exponent > 1 && !"m".equals(unit.code)) {
+			return null;
+		}
+		BigDecimal factor = unit.factor.multiply(prefix).pow(exponent);
+		return exponent == 1 ? new Unit(unit.code, factor) : new Unit(unit.code + exponent, factor);
+	}
+	
+	/**
+	 * A canonical unit and the factor that converts values to it.
+	 */
+	static final class Unit {
+		
+		final String code;
+		
+		final BigDecimal factor;
+		
+		Unit(String code, BigDecimal factor) {
+			this.code = code;
+			this.factor = factor;
+		}
+		
+		BigDecimal convert(BigDecimal value) {
+			return factor.compareTo(BigDecimal.ONE) == 0 ? value : value.multiply(factor);
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package org.openmrs.fhir.bundle;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmrs.fhir.InventoryItem;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes the {@link InventoryItem}s of a Bundle read by an {@link InventoryItemBundleReader} to a subscriber, with
+ * backpressure: an entry is only read once the subscriber has requested it, so at most one item is held that the
+ * subscriber has not received, however large the Bundle is.
+ * <p>
+ * It is a Reactive Streams {@link Publisher}; on Java 9 and later, {@code FlowAdapters.toFlowPublisher} turns it into a
+ * {@code java.util.concurrent.Flow.Publisher}. The signals to a subscriber are serialized and run on the executor, or
+ * on the thread requesting items if there is none. The publisher can only be subscribed to once, as the Bundle can
+ * only be read once; the reader is closed when the subscriber is completed, fails or cancels. A subscriber that throws
+ * from a signal is cancelled, and the exception is passed to the uncaught exception handler of the signalling thread.
+ */
+public class InventoryItemBundlePublisher implements Publisher<InventoryItem> {
+	
+	private final InventoryItemBundleReader reader;
+	
+	private final Executor executor;
+	
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+	
+	public InventoryItemBundlePublisher(InventoryItemBundleReader reader) {
+		this(reader, Runnable::run);
+	}
+	
+	/**
+	 * @param executor the executor to read the entries and signal the subscriber on, which should allow blocking I/O
+	 */
+	public InventoryItemBundlePublisher(InventoryItemBundleReader reader, Executor executor) {
+		this.reader = reader;
+		this.executor = executor;
+	}
+	
+	@Override
+	public void subscribe(Subscriber<? super InventoryItem> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber");
+		}
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Subscription() {
+				
+				@Override
+				public void request(long n) {
+				}
+				
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("The Bundle can only be subscribed to once"));
+			return;
+		}
+		BundleSubscription subscription = new BundleSubscription(subscriber);
+		try {
+			subscriber.onSubscribe(subscription);
+		}
+		catch (Throwable e) {
+			subscription.cancel();
+			report(e);
+		}
+	}
+	
+	/**
+	 * Reports an exception thrown by a subscriber, which Reactive Streams rule 2.13 does not allow, and which cannot be
+	 * signalled to it anymore.
+	 */
+	private static void report(Throwable throwable) {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, throwable);
+	}
+	
+	/**
+	 * Emits the items as long as there is demand. Whichever thread makes the work counter leave 0 runs the loop, so
+	 * a request from {@code onNext} only adds to the demand instead of recursing.
+	 */
+	private final class BundleSubscription implements Subscription, Runnable {
+		
+		private final Subscriber<? super InventoryItem> subscriber;
+		
+		private final AtomicLong requested = new AtomicLong();
+		
+		private final AtomicInteger work = new AtomicInteger();
+		
+		private volatile boolean cancelled;
+		
+		private volatile IllegalArgumentException invalidRequest;
+		
+		/** Only accessed by the loop. */
+		private boolean done;
+		
+		BundleSubscription(Subscriber<? super InventoryItem> subscriber) {
+			this.subscriber = subscriber;
+		}
+		
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("The number of requested items must be positive: " + n);
+			} else {
+				requested.getAndAccumulate(n, (current, added) -> {
+					long sum = current + added;
+					return sum < 0 ? Long.MAX_VALUE : sum;
+				});
+			}
+			schedule();
+		}
+		
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+		
+		private void schedule() {
+			if (work.getAndIncrement() == 0) {
+				try {
+					executor.execute(this);
+				}
+				catch (RejectedExecutionException e) {
+					fail(e);
+				}
+			}
+		}
+		
+		@Override
+		public void run() {
+			int missed = 1;
+			do {
+				long demand = requested.get();
+				long emitted = 0;
+				while (!done) {
+					if (cancelled) {
+						done = true;
+						closeReader();
+					} else if (invalidRequest != null) {
+						fail(invalidRequest);
+					} else if (emitted == demand) {
+						break;
+					} else {
+						InventoryItem item;
+						try {
+							item = reader.hasNext() ? reader.next() : null;
+						}
+						catch (RuntimeException e) {
+							fail(e);
+							break;
+						}
+						if (item == null) {
+							done = true;
+							closeReader();
+							try {
+								subscriber.onComplete();
+							}
+							catch (Throwable e) {
+								report(e);
+							}
+						} else {
+							try {
+								subscriber.onNext(item);
+								emitted++;
+							}
+							catch (Throwable e) {
+								// treated as a cancellation, see rule 2.13
+								cancelled = true;
+								done = true;
+								closeReader();
+								report(e);
+							}
+						}
+					}
+				}
+				if (emitted > 0 && demand != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+				missed = work.addAndGet(-missed);
+			} while (missed != 0);
+		}
+		
+		private void fail(Throwable throwable) {
+			done = true;
+			closeReader();
+			try {
+				subscriber.onError(throwable);
+			}
+			catch (Throwable e) {
+				report(e);
+			}
+		}
+		
+		private void closeReader() {
+			try {
+				reader.close();
+			}
+			catch (IOException e) {
+				// the items were read, or are not wanted anymore
+			}
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package org.openmrs.fhir.bundle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemJsonCodec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+
+/**
+ * Reads the {@link InventoryItem}s of a JSON Bundle, such as a searchset or transaction Bundle, one
+ * {@code entry.resource} at a time. The Bundle is never parsed as a whole: the reader only holds the JSON of the current
+ * entry, so a Bundle of any size is read with a flat heap. Entries without a resource or with another type of resource,
+ * e.g. the {@code OperationOutcome} of a searchset, are skipped, and so are the other elements of the Bundle.
+ */
+public class InventoryItemBundleReader implements Iterator<InventoryItem>, Closeable {
+	
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	
+	private static final String RESOURCE_TYPE = "InventoryItem";
+	
+	private final JsonParser parser;
+	
+	private final InventoryItemJsonCodec codec;
+	
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	
+	private InventoryItem next;
+	
+	private boolean started;
+	
+	/** Whether the parser is in the entry array. */
+	private boolean inEntries;
+	
+	private long entryNumber;
+	
+	private boolean closed;
+	
+	public InventoryItemBundleReader(FhirContext fhirContext, InputStream inputStream) {
+		this(new InventoryItemJsonCodec(fhirContext), inputStream);
+	}
+	
+	public InventoryItemBundleReader(InventoryItemJsonCodec codec, InputStream inputStream) {
+		try {
+			this.parser = JSON_FACTORY.createParser(inputStream);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.codec = codec;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (next == null && !closed) {
+			next = readNext();
+		}
+		return next != null;
+	}
+	
+	@Override
+	public InventoryItem next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		InventoryItem result = next;
+		next = null;
+		return result;
+	}
+	
+	/**
+	 * @return the number of the entry the last item was read from, starting at 1
+	 */
+	public long getEntryNumber() {
+		return entryNumber;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		next = null;
+		parser.close();
+	}
+	
+	private InventoryItem readNext() {
+		try {
+			if (!started) {
+				started = true;
+				findEntries();
+			}
+			while (inEntries) {
+				JsonToken token = parser.nextToken();
+				if (token == JsonToken.END_ARRAY) {
+					inEntries = false;
+					findEntries();
+					return null;
+				}
+				expect(token, JsonToken.START_OBJECT, "entry");
+				entryNumber++;
+				InventoryItem item = readEntry();
+				if (item != null) {
+					return item;
+				}
+			}
+			return null;
+		}
+		catch (JsonProcessingException e) {
+			throw new DataFormatException("Invalid JSON in Bundle" + (entryNumber > 0 ? " entry " + entryNumber : "") + ": "
+			        + e.getOriginalMessage(), e);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Reads the elements of the Bundle up to its entry array, or to its end if it has no more entries.
+	 */
+	private void findEntries() throws IOException {
+		if (parser.currentToken() == null) {
+			expect(parser.nextToken(), JsonToken.START_OBJECT, "Bundle");
+		}
+		JsonToken token;
+		while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			token = parser.nextToken();
+			if ("resourceType".equals(fieldName)) {
+				if (token != JsonToken.VALUE_STRING || !"Bundle".equals(parser.getText())) {
+					throw new DataFormatException("Invalid Bundle: the resource type is not Bundle");
+				}
+			} else if ("entry".equals(fieldName) && token == JsonToken.START_ARRAY) {
+				inEntries = true;
+				return;
+			} else {
+				parser.skipChildren();
+			}
+		}
+		expect(token, JsonToken.END_OBJECT, "Bundle");
+	}
+	
+	/**
+	 * @return the item in the entry, or null if it has no resource or the resource is not an item
+	 */
+	private InventoryItem readEntry() throws IOException {
+		boolean item = false;
+		buffer.reset();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("resource".equals(fieldName) && token == JsonToken.START_OBJECT) {
+				item = copyResource();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		if (!item) {
+			return null;
+		}
+		
+		try {
+			return codec.decode(buffer.toByteArray());
+		}
+		catch (DataFormatException e) {
+			throw new DataFormatException("Invalid InventoryItem in Bundle entry " + entryNumber + ": " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Copies the resource the parser is at into the buffer.
+	 *
+	 * @return whether the resource is an item
+	 */
+	private boolean copyResource() throws IOException {
+		String resourceType = null;
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+			generator.writeStartObject();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				generator.writeFieldName(fieldName);
+				if (parser.nextToken() == JsonToken.VALUE_STRING && "resourceType".equals(fieldName)) {
+					resourceType = parser.getText();
+				}
+				generator.copyCurrentStructure(parser);
+			}
+			generator.writeEndObject();
+		}
+		return RESOURCE_TYPE.equals(resourceType);
+	}
+	
+	private void expect(JsonToken actual, JsonToken expected, String element) {
+		if (actual != expected) {
+			throw new DataFormatException("Invalid Bundle: expected " + expected + " for " + element + " but found " + actual
+			        + (entryNumber > 0 ? " after entry " + entryNumber : ""));
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package org.openmrs.fhir.ndjson;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemR5Converter;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IParser;
+
+/**
+ * Reads resources from an NDJSON (FHIR Bulk Data) stream, one resource per line. Only the current line is held in
+ * memory, so arbitrarily large files can be processed with a flat heap.
+ */
+public class NdjsonReader<T extends IBaseResource> implements Iterator<T>, Closeable {
+	
+	private final BufferedReader reader;
+	
+	private final Function<String, T> decoder;
+	
+	private T next;
+	
+	private long lineNumber;
+	
+	private boolean closed;
+	
+	public NdjsonReader(FhirContext fhirContext, Class<T> resourceType, InputStream inputStream) {
+		this(inputStream, parserFor(fhirContext, resourceType));
+	}
+	
+	private NdjsonReader(InputStream inputStream, Function<String, T> decoder) {
+		this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+		this.decoder = decoder;
+	}
+	
+	public static NdjsonReader<InventoryItem> forInventoryItems(FhirContext fhirContext, InputStream inputStream) {
+		return new NdjsonReader<>(fhirContext, InventoryItem.class, inputStream);
+	}
+	
+	/**
+	 * Reads R5 InventoryItems, converting them to this backport as they are read.
+	 */
+	public static NdjsonReader<InventoryItem> forR5InventoryItems(InventoryItemR5Converter converter,
+	        InputStream inputStream) {
+		return new NdjsonReader<>(inputStream, converter::fromR5);
+	}
+	
+	private static <T extends IBaseResource> Function<String, T> parserFor(FhirContext fhirContext, Class<T> resourceType) {
+		IParser parser = fhirContext.newJsonParser();
+		return line -> parser.parseResource(resourceType, line);
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (next == null && !closed) {
+			next = readNext();
+		}
+		return next != null;
+	}
+	
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T result = next;
+		next = null;
+		return result;
+	}
+	
+	/**
+	 * @return a sequential stream over the remaining resources; closing the stream closes this reader
+	 */
+	public Stream<T> stream() {
+		return StreamSupport
+		        .stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+		        .onClose(() -> {
+			        try {
+				        close();
+			        }
+			        catch (IOException e) {
+				        throw new UncheckedIOException(e);
+			        }
+		        });
+	}
+	
+	/**
+	 * @return the number of the line the last resource was read from, starting at 1
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		next = null;
+		reader.close();
+	}
+	
+	private T readNext() {
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (!line.trim().isEmpty()) {
+					return parseLine(line);
+				}
+			}
+			return null;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private T parseLine(String line) {
+		try {
+			return decoder.apply(line);
+		}
+		catch (DataFormatException e) {
+			throw new DataFormatException("Invalid NDJSON resource on line " + lineNumber + ": " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package org.openmrs.fhir.ndjson;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+
+/**
+ * Writes resources to an NDJSON (FHIR Bulk Data) stream, one compact JSON resource per line. Resources are encoded
+ * straight to the underlying stream, so nothing but the resource being written is kept in memory.
+ */
+public class NdjsonWriter implements Closeable, Flushable {
+	
+	private final Writer writer;
+	
+	private final IParser parser;
+	
+	private long count;
+	
+	public NdjsonWriter(FhirContext fhirContext, OutputStream outputStream) {
+		this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		this.parser = fhirContext.newJsonParser().setPrettyPrint(false);
+	}
+	
+	public NdjsonWriter write(IBaseResource resource) throws IOException {
+		parser.encodeResourceToWriter(resource, writer);
+		writer.write('\n');
+		count++;
+		return this;
+	}
+	
+	public NdjsonWriter writeAll(Iterator<? extends IBaseResource> resources) throws IOException {
+		while (resources.hasNext()) {
+			write(resources.next());
+		}
+		return this;
+	}
+	
+	/**
+	 * @return the number of resources written so far
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,27 @@
+package org.openmrs.fhir;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads of an {@link InventoryItemBulkImport}. This is the Java 21 version of the multi-release JAR: it
+ * runs every item on its own virtual thread, so an item blocked on I/O or storage does not hold a platform thread.
+ */
+final class ImportThreads {
+	
+	private ImportThreads() {
+	}
+	
+	static boolean supportsVirtualThreads() {
+		return true;
+	}
+	
+	static ExecutorService newExecutor(int maxConcurrency, boolean virtualThreads) {
+		if (virtualThreads) {
+			return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("inventory-item-import-", 1).factory());
+		}
+		ThreadFactory factory = Thread.ofPlatform().daemon().name("inventory-item-import-", 1).factory();
+		return Executors.newFixedThreadPool(maxConcurrency, factory);
+	}
+}
@@ -0,0 +1,132 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+
+class CodingInternerTest {
+	
+	private static final String JSON = "{\"resourceType\":\"InventoryItem\",\"status\":\"active\","
+	        + "\"category\":[{\"coding\":[{\"system\":\"http://example.org/fhir/item-category\",\"code\":\"medication\"}]}],"
+	        + "\"code\":[{\"coding\":[{\"system\":\"http://snomed.info/sct\",\"code\":\"387517004\",\"display\":\"Paracetamol\"}]}],"
+	        + "\"name\":[{\"nameType\":{\"system\":\"http://hl7.org/fhir/inventoryitem-nametype\",\"code\":\"brand-name\"},"
+	        + "\"name\":\"Panadol\"}],\"baseUnit\":{\"coding\":[{\"system\":\"http://unitsofmeasure.org\",\"code\":\"{tbl}\"}]}}";
+	
+	private static FhirContext fhirContext;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@Test
+	@DisplayName("Should decode items sharing the strings of their codings")
+	void decode_shouldInternStrings() {
+		InventoryItemJsonCodec codec = new InventoryItemJsonCodec(fhirContext, new CodingInterner(100, false));
+		InventoryItem item1 = codec.decode(JSON);
+		InventoryItem item2 = codec.decode(JSON.getBytes(StandardCharsets.UTF_8));
+		
+		Coding coding1 = item1.getCodeFirstRep().getCodingFirstRep();
+		Coding coding2 = item2.getCodeFirstRep().getCodingFirstRep();
+		assertNotSame(coding1, coding2);
+		assertSame(coding1.getSystem(), coding2.getSystem());
+		assertSame(coding1.getCode(), coding2.getCode());
+		assertSame(coding1.getDisplay(), coding2.getDisplay());
+		assertSame(item1.getNameFirstRep().getNameType().getCode(), item2.getNameFirstRep().getNameType().getCode());
+		assertTrue(item1.equalsDeep(new InventoryItemJsonCodec(fhirContext, null).decode(JSON)));
+		
+		LazyInventoryItem lazy = codec.decodeLazily(JSON.getBytes(StandardCharsets.UTF_8));
+		assertSame(coding1.getCode(), lazy.getCode().get(0).getCodingFirstRep().getCode());
+	}
+	
+	@Test
+	@DisplayName("Should share codings that reject changes")
+	void decode_shouldShareCodings() {
+		CodingInterner interner = new CodingInterner(100, true);
+		InventoryItemJsonCodec codec = new InventoryItemJsonCodec(fhirContext, interner);
+		InventoryItem item1 = codec.decode(JSON);
+		InventoryItem item2 = new InventoryItemBinaryCodec(fhirContext, Collections.emptyList(), interner)
+		        .decode(new InventoryItemBinaryCodec(fhirContext, Collections.emptyList(), null).encode(item1));
+		
+		Coding coding = item1.getCodeFirstRep().getCodingFirstRep();
+		assertSame(coding, item2.getCodeFirstRep().getCodingFirstRep());
+		assertSame(item1.getBaseUnit().getCodingFirstRep(), item2.getBaseUnit().getCodingFirstRep());
+		assertSame(item1.getNameFirstRep().getNameType(), item2.getNameFirstRep().getNameType());
+		assertEquals(4, interner.codingCount());
+		assertThrows(UnsupportedOperationException.class, () -> coding.setCode("322236009"));
+		assertThrows(UnsupportedOperationException.class, () -> coding.addExtension(new Extension("urn:ext")));
+		assertThrows(UnsupportedOperationException.class, () -> coding.setProperty("code", new StringType("x")));
+		
+		InventoryItem copy = item1.copy();
+		copy.getCodeFirstRep().getCodingFirstRep().setCode("322236009");
+		assertEquals("387517004", coding.getCode());
+		
+		// extensions make the codec encode the item with HAPI
+		item1.addExtension(new Extension("urn:ext", new StringType("x")));
+		InventoryItem decoded = new InventoryItemJsonCodec(fhirContext, null).decode(codec.encodeToString(item1));
+		assertEquals("387517004", decoded.getCodeFirstRep().getCodingFirstRep().getCode());
+		assertFalse(decoded.getCodeFirstRep().getCodingFirstRep() instanceof CodingInterner.SharedCoding);
+	}
+	
+	@Test
+	@DisplayName("Should only share codings without ids or extensions")
+	void intern_shouldKeepDecoratedCodings() {
+		CodingInterner interner = new CodingInterner(100, true);
+		Coding coding = new Coding("http://snomed.info/sct", "387517004", null);
+		coding.getCodeElement().addExtension(new Extension("urn:ext", new StringType("x")));
+		
+		assertSame(coding, interner.intern(coding));
+		assertSame(interner.intern("http://snomed.info/sct"), coding.getSystem());
+		assertFalse(interner.intern(new Coding("http://snomed.info/sct", "387517004", null)) == coding);
+	}
+	
+	@Test
+	@DisplayName("Should intern the concepts set through setProperty with the default pool")
+	void setProperty_shouldInternWithDefaultPool() {
+		CodingInterner interner = new CodingInterner(100, true);
+		CodingInterner.setDefault(interner);
+		try {
+			InventoryItem item = new InventoryItem();
+			item.setProperty("category", new CodeableConcept(new Coding("urn:category", "medication", null)));
+			item.setProperty("category".hashCode(), "category",
+			    new CodeableConcept(new Coding("urn:category", "medication", null)));
+			
+			assertSame(item.getCategory().get(0).getCodingFirstRep(), item.getCategory().get(1).getCodingFirstRep());
+			assertTrue(item.getCategory().get(0).getCodingFirstRep() instanceof CodingInterner.SharedCoding);
+		}
+		finally {
+			CodingInterner.setDefault(null);
+		}
+	}
+	
+	@Test
+	@DisplayName("Should stop growing at the maximum size")
+	void intern_shouldRespectMaximumSize() {
+		CodingInterner interner = new CodingInterner(1, false);
+		String first = new String("urn:a");
+		String second = new String("urn:b");
+		
+		assertSame(first, interner.intern(first));
+		assertSame(first, interner.intern(new String("urn:a")));
+		assertSame(second, interner.intern(second));
+		assertNotSame(second, interner.intern(new String("urn:b")));
+		assertEquals(1, interner.size());
+	}
+}
@@ -0,0 +1,91 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+
+class CopyOnWriteInventoryItemTest {
+	
+	private InventoryItem inventoryItem;
+	
+	@BeforeEach
+	void setUp() {
+		inventoryItem = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.setId("item-1");
+		inventoryItem.addIdentifier().setSystem("urn:catalog").setValue("123");
+		inventoryItem.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "387517004", "Paracetamol")));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null), "Panadol"));
+		inventoryItem.setNetContent(new Quantity().setValue(new BigDecimal("24")).setUnit("tablets"));
+	}
+	
+	@Test
+	@DisplayName("Should share child elements until they are accessed")
+	void copyOf_shouldShareUnchangedElements() {
+		CopyOnWriteInventoryItem copy = CopyOnWriteInventoryItem.copyOf(inventoryItem);
+		copy.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+		
+		assertTrue(copy.hasIdentifier());
+		assertSame(inventoryItem.identifier, copy.identifier);
+		assertSame(inventoryItem.netContent, copy.netContent);
+		assertNotSame(inventoryItem.status, copy.status);
+		assertEquals(InventoryItem.InventoryItemStatusCodes.ACTIVE, inventoryItem.getStatus());
+		assertEquals("item-1", copy.getIdElement().getIdPart());
+	}
+	
+	@Test
+	@DisplayName("Should copy a shared element before handing it out")
+	void getters_shouldCopySharedElements() {
+		CopyOnWriteInventoryItem copy = CopyOnWriteInventoryItem.copyOf(inventoryItem);
+		copy.getNameFirstRep().setName("Panado");
+		copy.getNetContent().setValue(12);
+		copy.addCode().setText("tablet");
+		
+		assertEquals("Panadol", inventoryItem.getNameFirstRep().getName());
+		assertEquals(new BigDecimal("24"), inventoryItem.getNetContent().getValue());
+		assertEquals(1, inventoryItem.getCode().size());
+		assertEquals(2, copy.getCode().size());
+		assertSame(inventoryItem.identifier, copy.identifier);
+	}
+	
+	@Test
+	@DisplayName("Should protect both copy on write items from each other")
+	void copy_shouldProtectSource() {
+		CopyOnWriteInventoryItem source = CopyOnWriteInventoryItem.copyOf(inventoryItem);
+		CopyOnWriteInventoryItem copy = source.copy();
+		source.getIdentifierFirstRep().setValue("456");
+		source.setProperty("name", new InventoryItem.InventoryItemNameComponent().setName("Calpol"));
+		
+		assertEquals("123", copy.getIdentifierFirstRep().getValue());
+		assertEquals(1, copy.getName().size());
+		assertEquals("123", inventoryItem.getIdentifierFirstRep().getValue());
+	}
+	
+	@Test
+	@DisplayName("Should behave like a deep copy")
+	void copyOf_shouldEqualDeepCopy() {
+		inventoryItem.getNameFirstRep().getNameElement().addExtension("urn:ext", new StringType("value"));
+		CopyOnWriteInventoryItem copy = CopyOnWriteInventoryItem.copyOf(inventoryItem);
+		FhirContext fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+		
+		assertTrue(copy.equalsDeep(inventoryItem.copy()));
+		assertTrue(inventoryItem.copy().equalsDeep(copy));
+		assertEquals(fhirContext.newJsonParser().encodeResourceToString(inventoryItem),
+		    fhirContext.newJsonParser().encodeResourceToString(copy));
+		assertSame(inventoryItem.name, copy.name);
+	}
+}
@@ -0,0 +1,124 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+
+class FrozenInventoryItemTest {
+	
+	private InventoryItem inventoryItem;
+	
+	@BeforeEach
+	void setUp() {
+		inventoryItem = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.setId("item-1");
+		inventoryItem.addIdentifier().setSystem("urn:catalog").setValue("123");
+		inventoryItem.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "387517004", "Paracetamol")));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null), "Panadol"));
+		inventoryItem.setNetContent(new Quantity().setValue(new BigDecimal("24")).setUnit("tablets"));
+	}
+	
+	@Test
+	@DisplayName("Should be equal to the item and encode like it")
+	void freeze_shouldKeepContent() {
+		inventoryItem.getNameFirstRep().getNameElement().addExtension("urn:ext", new StringType("value"));
+		FrozenInventoryItem frozen = inventoryItem.freeze();
+		FhirContext fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+		
+		assertTrue(frozen.equalsDeep(inventoryItem));
+		assertTrue(inventoryItem.equalsDeep(frozen));
+		assertEquals(fhirContext.newJsonParser().encodeResourceToString(inventoryItem),
+		    fhirContext.newJsonParser().encodeResourceToString(frozen));
+		assertEquals(fhirContext.newXmlParser().encodeResourceToString(inventoryItem),
+		    fhirContext.newXmlParser().encodeResourceToString(frozen));
+	}
+	
+	@Test
+	@DisplayName("Should not allocate or assign anything in getters")
+	void getters_shouldNotCreateElements() {
+		FrozenInventoryItem frozen = new InventoryItem().freeze();
+		
+		assertSame(frozen.getIdentifier(), frozen.getIdentifier());
+		assertSame(frozen.getDescription(), frozen.getDescription());
+		assertSame(frozen.getBaseUnit(), frozen.getBaseUnit());
+		assertSame(frozen.getStatusElement(), frozen.getStatusElement());
+		assertSame(frozen.getMeta(), frozen.getMeta());
+		assertNull(frozen.getNameFirstRep());
+		assertNull(frozen.getStatus());
+		assertFalse(frozen.hasBaseUnit());
+		assertTrue(frozen.isEmpty());
+	}
+	
+	@Test
+	@DisplayName("Should reject modifications")
+	void setters_shouldThrow() {
+		FrozenInventoryItem frozen = inventoryItem.freeze();
+		
+		assertThrows(UnsupportedOperationException.class,
+		    () -> frozen.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.getStatusElement().setValueAsString("inactive"));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.addIdentifier(new Identifier()));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.getIdentifier().clear());
+		assertThrows(UnsupportedOperationException.class, () -> frozen.setProperty("code", new CodeableConcept()));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.setId("item-2"));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.addExtension("urn:ext", new StringType("value")));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.getNameFirstRep().setName("Calpol"));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.getDescription().setDescription("Tablets"));
+		assertEquals("Panadol", frozen.getNameFirstRep().getName());
+	}
+	
+	@Test
+	@DisplayName("Should reject modifications of a missing or decorated status")
+	void getStatusElement_shouldRejectModifications() {
+		FrozenInventoryItem empty = new InventoryItem().freeze();
+		inventoryItem.getStatusElement().setId("status-1").addExtension("urn:ext", new StringType("value"));
+		FrozenInventoryItem decorated = inventoryItem.freeze();
+		
+		assertThrows(UnsupportedOperationException.class,
+		    () -> empty.getStatusElement().setValue(InventoryItem.InventoryItemStatusCodes.ACTIVE));
+		assertThrows(UnsupportedOperationException.class,
+		    () -> decorated.getStatusElement().setValue(InventoryItem.InventoryItemStatusCodes.INACTIVE));
+		assertThrows(UnsupportedOperationException.class, () -> decorated.getStatusElement().setId("status-2"));
+		assertThrows(UnsupportedOperationException.class,
+		    () -> decorated.getStatusElement().addExtension("urn:ext", new StringType("other")));
+		assertThrows(UnsupportedOperationException.class, () -> decorated.getStatusElement().getExtension().clear());
+		assertEquals(InventoryItem.InventoryItemStatusCodes.ACTIVE, decorated.getStatus());
+		assertTrue(decorated.equalsDeep(inventoryItem));
+		assertTrue(inventoryItem.equalsDeep(decorated));
+		assertTrue(decorated.copy().getStatusElement().setValue(InventoryItem.InventoryItemStatusCodes.INACTIVE) != null);
+	}
+	
+	@Test
+	@DisplayName("Should not be affected by changes to the item and copy to a modifiable item")
+	void freeze_shouldBeIndependentOfItem() {
+		FrozenInventoryItem frozen = inventoryItem.freeze();
+		inventoryItem.getIdentifierFirstRep().setValue("456");
+		
+		InventoryItem copy = frozen.copy();
+		copy.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+		copy.getNameFirstRep().setName("Calpol");
+		
+		assertEquals("123", frozen.getIdentifierFirstRep().getValue());
+		assertEquals(InventoryItem.InventoryItemStatusCodes.ACTIVE, frozen.getStatus());
+		assertEquals("Panadol", frozen.getNameFirstRep().getName());
+		assertSame(frozen, frozen.freeze());
+	}
+}
@@ -0,0 +1,136 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Narrative;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+
+class InventoryItemBinaryCodecTest {
+	
+	private FhirContext fhirContext;
+	
+	private InventoryItemBinaryCodec codec;
+	
+	private InventoryItem inventoryItem;
+	
+	@BeforeEach
+	void setUp() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+		codec = new InventoryItemBinaryCodec(fhirContext);
+		
+		inventoryItem = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.setId("item-1");
+		inventoryItem.getMeta().setVersionId("3").addProfile("http://example.org/profile");
+		inventoryItem.addIdentifier().setUse(Identifier.IdentifierUse.OFFICIAL).setSystem("urn:catalog").setValue("123");
+		inventoryItem.addCategory(new CodeableConcept(new Coding("http://snomed.info/sct", "410942007", "Drug")));
+		inventoryItem.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "387517004", "Paracetamol"))
+		        .setText("Paracetamol 500 mg"));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null), "Panadol"));
+		inventoryItem.setDescription(new InventoryItem.InventoryItemDescriptionComponent().setDescription("Tablets – 24"));
+		inventoryItem.setBaseUnit(new CodeableConcept(new Coding("http://unitsofmeasure.org", "{tbl}", "tablet")));
+		inventoryItem.setNetContent(new Quantity().setValue(new BigDecimal("-24.50"))
+		        .setComparator(Quantity.QuantityComparator.LESS_OR_EQUAL).setUnit("tablets")
+		        .setSystem("http://unitsofmeasure.org").setCode("{tbl}"));
+	}
+	
+	@Test
+	@DisplayName("Should decode an encoded item to an equal item")
+	void decode_shouldRoundTrip() {
+		InventoryItem decoded = codec.decode(codec.encode(inventoryItem));
+		
+		assertTrue(inventoryItem.equalsDeep(decoded));
+		assertFalse(decoded.isDirty());
+		assertEquals("item-1", decoded.getIdElement().getValue());
+		assertEquals(new BigDecimal("-24.50"), decoded.getNetContent().getValue());
+		assertEquals(fhirContext.newJsonParser().encodeResourceToString(inventoryItem),
+		    fhirContext.newJsonParser().encodeResourceToString(decoded));
+	}
+	
+	@Test
+	@DisplayName("Should round trip content the specialized layout does not support")
+	void decode_shouldRoundTripGenericContent() {
+		inventoryItem.setIdElement(inventoryItem.getIdElement().withVersion("4"));
+		inventoryItem.setLanguage("en");
+		inventoryItem.setText(new Narrative().setStatus(Narrative.NarrativeStatus.GENERATED));
+		inventoryItem.getText().setDivAsString("<div xmlns=\"http://www.w3.org/1999/xhtml\">Panadol</div>");
+		inventoryItem.addContained(new Organization().setName("Manufacturer").setId("org"));
+		inventoryItem.addExtension("urn:ext", new Quantity(3));
+		inventoryItem.getStatusElement().setId("status").addExtension("urn:ext", new StringType("status"));
+		inventoryItem.getNameFirstRep().setId("name");
+		inventoryItem.getNameFirstRep().getNameElement().addExtension("urn:ext", new StringType("name"));
+		
+		InventoryItem decoded = codec.decode(codec.encode(inventoryItem));
+		
+		assertTrue(inventoryItem.equalsDeep(decoded));
+		assertEquals("status", decoded.getStatusElement().getId());
+		assertEquals(fhirContext.newJsonParser().encodeResourceToString(inventoryItem),
+		    fhirContext.newJsonParser().encodeResourceToString(decoded));
+	}
+	
+	@Test
+	@DisplayName("Should keep a status with an extension but no value without a value")
+	void decode_shouldRoundTripStatusWithoutValue() {
+		inventoryItem.setStatusElement(new Enumeration<>(InventoryItem.InventoryItemStatusCodesEnumFactory.INSTANCE));
+		inventoryItem.getStatusElement().addExtension("http://hl7.org/fhir/StructureDefinition/data-absent-reason",
+		    new CodeType("unknown"));
+		
+		InventoryItem decoded = codec.decode(codec.encode(inventoryItem));
+		
+		assertTrue(inventoryItem.equalsDeep(decoded));
+		assertNull(decoded.getStatus());
+		assertEquals(1, decoded.getStatusElement().getExtension().size());
+	}
+	
+	@Test
+	@DisplayName("Should be smaller than JSON and write repeated systems once")
+	void encode_shouldBeCompact() {
+		byte[] encoded = codec.encode(inventoryItem);
+		int jsonLength = fhirContext.newJsonParser().encodeResourceToString(inventoryItem)
+		        .getBytes(StandardCharsets.UTF_8).length;
+		assertTrue(encoded.length * 3 < jsonLength, encoded.length + " bytes vs " + jsonLength + " bytes of JSON");
+		
+		inventoryItem.addIdentifier().setSystem("urn:catalog").setValue("456");
+		assertTrue(codec.encode(inventoryItem).length < encoded.length + "urn:catalog".length());
+		
+		InventoryItemBinaryCodec catalogCodec = new InventoryItemBinaryCodec(fhirContext,
+		        Collections.singleton("urn:catalog"));
+		byte[] withKnownSystem = catalogCodec.encode(inventoryItem);
+		assertTrue(withKnownSystem.length + "urn:catalog".length() <= codec.encode(inventoryItem).length);
+		assertTrue(inventoryItem.equalsDeep(catalogCodec.decode(withKnownSystem)));
+	}
+	
+	@Test
+	@DisplayName("Should reject malformed data")
+	void decode_shouldThrowForMalformedData() {
+		byte[] encoded = codec.encode(inventoryItem);
+		
+		assertThrows(DataFormatException.class, () -> codec.decode(new byte[0]));
+		assertThrows(DataFormatException.class, () -> codec.decode(new byte[] { 9, 0 }));
+		assertThrows(DataFormatException.class, () -> codec.decode(Arrays.copyOf(encoded, encoded.length - 5)));
+		assertThrows(DataFormatException.class, () -> codec.decode(Arrays.copyOf(encoded, encoded.length + 1)));
+	}
+}
@@ -0,0 +1,47 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * Runs against the packaged multi-release JAR on Java 21 and later, through the {@code java21} profile, so the Java 21
+ * version of {@link ImportThreads} is the one tested.
+ */
+class InventoryItemBulkImportIT {
+	
+	@Test
+	@DisplayName("Should process the items on virtual threads on Java 21")
+	void run_shouldUseVirtualThreads() throws Exception {
+		FhirContext fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+		Set<Boolean> virtual = Collections.synchronizedSet(new HashSet<>());
+		InventoryItemBulkImport bulkImport = InventoryItemBulkImport.builder(fhirContext).sink(item -> {
+			try {
+				// Thread.isVirtual() does not exist in the Java 8 API the tests are compiled against
+				virtual.add((Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+			}
+			catch (ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+		}).build();
+		
+		InventoryItemBulkImport.Result result = bulkImport
+		        .run(Arrays.asList("{\"resourceType\":\"InventoryItem\",\"id\":\"item-1\",\"status\":\"active\"}",
+		            "{\"resourceType\":\"InventoryItem\",\"id\":\"item-2\",\"status\":\"inactive\"}").iterator());
+		
+		assertTrue(bulkImport.isVirtualThreads());
+		assertEquals(1024, bulkImport.getMaxConcurrency());
+		assertEquals(2, result.getImported());
+		assertEquals(Collections.singleton(true), virtual);
+	}
+}
@@ -0,0 +1,120 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+
+class InventoryItemBulkImportTest {
+	
+	private static FhirContext fhirContext;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@Test
+	@DisplayName("Should index and persist the valid items and reject the others")
+	void run_shouldImportValidItems() throws Exception {
+		InventoryItemRepository repository = new InventoryItemRepository();
+		List<String> stored = new ArrayList<>();
+		InventoryItemBulkImport bulkImport = InventoryItemBulkImport.builder(fhirContext).repository(repository)
+		        .sink(item -> {
+			        synchronized (stored) {
+				        stored.add(item.getIdElement().getIdPart());
+			        }
+		        }).maxConcurrency(2).build();
+		
+		String ndjson = item("item-1", "active") + "\n\n" + item("item-2", "unknown-status") + "\n{\"resourceType\":\n"
+		        + item("item-3", "inactive") + "\n";
+		InventoryItemBulkImport.Result result = bulkImport
+		        .run(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+		
+		assertEquals(2, result.getImported());
+		assertEquals(Arrays.asList(3L, 4L), new ArrayList<>(result.getRejected().keySet()));
+		assertEquals(OperationOutcome.IssueType.STRUCTURE, result.getRejected().get(4L).getIssueFirstRep().getCode());
+		assertEquals(2, repository.size());
+		assertEquals(Arrays.asList("item-1"), repository.searchIds(InventoryItem.SP_STATUS, "active"));
+		stored.sort(null);
+		assertEquals(Arrays.asList("item-1", "item-3"), stored);
+	}
+	
+	@Test
+	@DisplayName("Should reject the items that fail to be stored and process at most maxConcurrency items at a time")
+	void run_shouldBoundConcurrency() throws Exception {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		InventoryItemBulkImport bulkImport = InventoryItemBulkImport.builder(fhirContext).maxConcurrency(3)
+		        .virtualThreads(false).sink(item -> {
+			        int current = running.incrementAndGet();
+			        maxRunning.accumulateAndGet(current, Math::max);
+			        try {
+				        Thread.sleep(5);
+			        }
+			        catch (InterruptedException e) {
+				        Thread.currentThread().interrupt();
+			        }
+			        running.decrementAndGet();
+			        if ("item-7".equals(item.getIdElement().getIdPart())) {
+				        throw new IOException("disk full");
+			        }
+		        }).build();
+		
+		List<String> documents = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			documents.add(item("item-" + i, "active"));
+		}
+		InventoryItemBulkImport.Result result = bulkImport.run(documents.iterator());
+		
+		assertEquals(19, result.getImported());
+		assertEquals("Cannot store InventoryItem: disk full",
+		    result.getRejected().get(8L).getIssueFirstRep().getDiagnostics());
+		assertTrue(maxRunning.get() <= 3);
+		assertFalse(bulkImport.isVirtualThreads());
+		assertEquals(3, bulkImport.getMaxConcurrency());
+	}
+	
+	@Test
+	@DisplayName("Should not index the items that fail to be stored")
+	void run_shouldNotIndexItemsTheSinkRejects() throws Exception {
+		InventoryItemRepository repository = new InventoryItemRepository();
+		InventoryItemBulkImport bulkImport = InventoryItemBulkImport.builder(fhirContext).repository(repository)
+		        .sink(item -> {
+			        if ("active".equals(item.getStatusElement().getValueAsString())) {
+				        throw new IOException("disk full");
+			        }
+		        }).build();
+		
+		InventoryItemBulkImport.Result result = bulkImport.run(Arrays
+		        .asList(item("item-1", "active"), item("item-2", "inactive"),
+		            "{\"resourceType\":\"InventoryItem\",\"status\":\"active\"}")
+		        .iterator());
+		
+		assertEquals(1, result.getImported());
+		assertEquals(Arrays.asList(1L, 3L), new ArrayList<>(result.getRejected().keySet()));
+		assertEquals(1, repository.size());
+		assertNull(repository.read("item-1"));
+		assertTrue(repository.searchIds(InventoryItem.SP_STATUS, "active").isEmpty());
+	}
+	
+	private static String item(String id, String status) {
+		return "{\"resourceType\":\"InventoryItem\",\"id\":\"" + id + "\",\"status\":\"" + status + "\"}";
+	}
+}
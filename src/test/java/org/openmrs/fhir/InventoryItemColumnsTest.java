@@ -0,0 +1,157 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Quantity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class InventoryItemColumnsTest {
+	
+	private static final String SNOMED = "http://snomed.info/sct";
+	
+	private static final String UCUM = "http://unitsofmeasure.org";
+	
+	private InventoryItemColumns columns;
+	
+	@BeforeEach
+	void setUp() {
+		columns = InventoryItemColumns.of(Arrays.asList(
+		    item("1", InventoryItem.InventoryItemStatusCodes.ACTIVE, "drug", "{tbl}", "24"),
+		    item("2", InventoryItem.InventoryItemStatusCodes.ACTIVE, "drug", "mL", "100.5"),
+		    item("3", InventoryItem.InventoryItemStatusCodes.INACTIVE, "device", "{tbl}", null),
+		    new InventoryItem()));
+	}
+	
+	@Test
+	@DisplayName("Should store every item as a row")
+	void of_shouldCreateRows() {
+		assertEquals(4, columns.getRowCount());
+		assertEquals("2", columns.getId(1));
+		assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, columns.getStatus(2));
+		assertNull(columns.getStatus(3));
+		assertEquals(SNOMED + "|drug", columns.getToken(columns.getCategories(0)[0]));
+		assertEquals(0, columns.getCategories(3).length);
+		assertEquals(100.5e-6, columns.getNetContent(1), 1e-12);
+		assertEquals(UCUM + "|m3", columns.getToken(columns.getNetContentUnit(1)));
+		assertTrue(Double.isNaN(columns.getNetContent(2)));
+		assertEquals(InventoryItemColumns.NONE, columns.getNetContentUnit(2));
+	}
+	
+	@Test
+	@DisplayName("Should count the rows per value")
+	void countBy_shouldCountRows() {
+		int[] statusCounts = columns.countByStatus(null);
+		assertEquals(2, statusCounts[InventoryItem.InventoryItemStatusCodes.ACTIVE.ordinal()]);
+		assertEquals(1, statusCounts[InventoryItem.InventoryItemStatusCodes.INACTIVE.ordinal()]);
+		
+		int[] baseUnitCounts = columns.countByBaseUnit(null);
+		assertEquals(columns.getTokenCount(), baseUnitCounts.length);
+		assertEquals(2, baseUnitCounts[columns.indexOf(UCUM, "{tbl}")]);
+		assertEquals(1, baseUnitCounts[columns.indexOf(UCUM, "mL")]);
+		assertEquals(24, columns.sumNetContent(null, UCUM, "{tbl}"));
+		assertEquals(100.5, columns.sumNetContent(null, UCUM, "mL"), 1e-9);
+	}
+	
+	@Test
+	@DisplayName("Should only count the selected rows")
+	void where_shouldSelectRows() {
+		BitSet drugs = columns.whereCategory(SNOMED, "drug");
+		assertEquals(BitSet.valueOf(new long[] { 0b11 }), drugs);
+		assertTrue(columns.whereCategory(SNOMED, "unknown").isEmpty());
+		
+		BitSet tablets = columns.whereBaseUnit(UCUM, "{tbl}");
+		tablets.and(columns.whereStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE));
+		assertEquals(BitSet.valueOf(new long[] { 0b1 }), tablets);
+		
+		int[] categoryCounts = columns.countByCategory(columns.whereNetContentBetween(0.1, 0.2, null, "L"));
+		assertEquals(1, categoryCounts[columns.indexOf(SNOMED, "drug")]);
+		assertEquals(0, categoryCounts[columns.indexOf(SNOMED, "device")]);
+		assertArrayEquals(columns.countByStatus(null), columns.countByStatus(columns.all()));
+		assertEquals(24, columns.sumNetContent(columns.whereNetContentBetween(0, 24, UCUM, "{tbl}"), UCUM, "{tbl}"));
+		assertTrue(columns.whereNetContentBetween(0, 1000, UCUM, "g").isEmpty());
+	}
+	
+	@Test
+	@DisplayName("Should only add up net contents in convertible units")
+	void sumNetContent_shouldConvertUnits() {
+		InventoryItem liter = item("4", InventoryItem.InventoryItemStatusCodes.ACTIVE, "drug", "L", "0.5");
+		InventoryItem unitless = new InventoryItem();
+		unitless.setNetContent(new Quantity().setValue(7));
+		columns = InventoryItemColumns.of(Arrays.asList(item("2", InventoryItem.InventoryItemStatusCodes.ACTIVE, "drug",
+		    "mL", "100.5"), liter, item("1", InventoryItem.InventoryItemStatusCodes.ACTIVE, "drug", "{tbl}", "24"),
+		    unitless));
+		
+		assertEquals(600.5, columns.sumNetContent(null, UCUM, "mL"), 1e-9);
+		assertEquals(0.6005, columns.sumNetContent(null, null, "L"), 1e-12);
+		assertEquals(24, columns.sumNetContent(null, UCUM, "{tbl}"));
+		assertEquals(7, columns.sumNetContent(null, null, null));
+		assertEquals(0, columns.sumNetContent(null, UCUM, "g"));
+		assertEquals(BitSet.valueOf(new long[] { 0b10 }), columns.whereNetContentBetween(200, 1000, UCUM, "mL"));
+	}
+	
+	@Test
+	@DisplayName("Should group net contents with only a displayed unit by that unit")
+	void sumNetContent_shouldNotConvertDisplayedUnits() {
+		InventoryItem displayed = new InventoryItem();
+		displayed.setNetContent(new Quantity().setValue(250).setUnit("millilitre"));
+		columns = InventoryItemColumns.of(Arrays.asList(item("2", InventoryItem.InventoryItemStatusCodes.ACTIVE, "drug",
+		    "mL", "100.5"), displayed));
+		
+		assertEquals("|millilitre", columns.getToken(columns.getNetContentUnit(1)));
+		assertEquals(100.5, columns.sumNetContent(null, UCUM, "mL"), 1e-9);
+		assertEquals(250, columns.sumNetContent(null, "", "millilitre"));
+		assertEquals(0, columns.sumNetContent(null, UCUM, "millilitre"));
+		assertEquals(BitSet.valueOf(new long[] { 0b10 }), columns.whereNetContentBetween(200, 300, "", "millilitre"));
+	}
+	
+	@Test
+	@DisplayName("Should select the rows without a status for a null status")
+	void whereStatus_shouldSelectRowsWithoutStatus() {
+		assertEquals(BitSet.valueOf(new long[] { 0b1000 }), columns.whereStatus(null));
+		assertEquals(columns.whereStatus(null), columns.whereStatus(InventoryItem.InventoryItemStatusCodes.NULL));
+	}
+	
+	@Test
+	@DisplayName("Should store every coding of every category and code")
+	void of_shouldStoreEveryCoding() {
+		InventoryItem item = item("1", InventoryItem.InventoryItemStatusCodes.ACTIVE, "drug", "{tbl}", null);
+		item.getCategoryFirstRep().addCoding(new Coding("urn:local", "medicine", null));
+		item.addCategory(new CodeableConcept(new Coding(SNOMED, "analgesic", null)));
+		item.addCode(new CodeableConcept(new Coding(SNOMED, "387517004", null)).addCoding(new Coding(SNOMED,
+		        "387517004", null)));
+		columns = InventoryItemColumns.of(Arrays.asList(item,
+		    item("2", InventoryItem.InventoryItemStatusCodes.ACTIVE, "analgesic", "{tbl}", null)));
+		
+		assertEquals(3, columns.getCategories(0).length);
+		assertEquals(1, columns.getCodes(0).length);
+		assertEquals(BitSet.valueOf(new long[] { 0b1 }), columns.whereCategory("urn:local", "medicine"));
+		assertEquals(BitSet.valueOf(new long[] { 0b11 }), columns.whereCategory(SNOMED, "analgesic"));
+		int[] categoryCounts = columns.countByCategory(null);
+		assertEquals(2, categoryCounts[columns.indexOf(SNOMED, "analgesic")]);
+		assertEquals(1, categoryCounts[columns.indexOf(SNOMED, "drug")]);
+		assertEquals(1, columns.countByCode(columns.all())[columns.indexOf(SNOMED, "387517004")]);
+	}
+	
+	private static InventoryItem item(String id, InventoryItem.InventoryItemStatusCodes status, String category,
+	        String baseUnit, String netContent) {
+		InventoryItem item = new InventoryItem(status);
+		item.setId(id);
+		item.addCategory(new CodeableConcept(new Coding(SNOMED, category, null)));
+		item.setBaseUnit(new CodeableConcept(new Coding(UCUM, baseUnit, null)));
+		if (netContent != null) {
+			item.setNetContent(new Quantity().setValue(new BigDecimal(netContent)).setSystem(UCUM).setCode(baseUnit));
+		}
+		return item;
+	}
+}
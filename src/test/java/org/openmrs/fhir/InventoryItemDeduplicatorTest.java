@@ -0,0 +1,51 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class InventoryItemDeduplicatorTest {
+	
+	@Test
+	@DisplayName("Should return the first deeply equal item added")
+	void add_shouldReturnFirstEqualItem() {
+		InventoryItemDeduplicator<InventoryItem> deduplicator = new InventoryItemDeduplicator<>();
+		InventoryItem first = item("123", "Panadol");
+		InventoryItem other = item("456", "Panadol");
+		
+		assertSame(first, deduplicator.add(first));
+		assertSame(other, deduplicator.add(other));
+		assertSame(first, deduplicator.add(item("123", "Panadol")));
+		assertSame(first, deduplicator.add(first.freeze()));
+		assertEquals(Arrays.asList(first, other), deduplicator.getDistinct());
+	}
+	
+	@Test
+	@DisplayName("Should keep the distinct items in order")
+	void distinct_shouldKeepDistinctItemsInOrder() {
+		InventoryItem first = item("123", "Panadol");
+		InventoryItem second = item("123", "Tylenol");
+		
+		List<InventoryItem> distinct = InventoryItemDeduplicator
+		        .distinct(Arrays.asList(first, second, first.copy(), second.copy(), new InventoryItem()));
+		
+		assertEquals(3, distinct.size());
+		assertSame(first, distinct.get(0));
+		assertSame(second, distinct.get(1));
+	}
+	
+	private static InventoryItem item(String sku, String name) {
+		InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		item.addIdentifier().setSystem("urn:catalog").setValue(sku);
+		item.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "387517004", "Paracetamol")));
+		item.addName().setName(name);
+		return item;
+	}
+}
@@ -0,0 +1,131 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.api.AddProfileTagEnum;
+import ca.uhn.fhir.parser.DataFormatException;
+
+class InventoryItemJsonCodecTest {
+	
+	private static FhirContext fhirContext;
+	
+	private InventoryItemJsonCodec codec;
+	
+	private InventoryItem inventoryItem;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@BeforeEach
+	void setUp() {
+		codec = new InventoryItemJsonCodec(fhirContext);
+		inventoryItem = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.setId("item-1");
+		inventoryItem.addIdentifier().setUse(Identifier.IdentifierUse.OFFICIAL).setSystem("urn:catalog").setValue("123");
+		inventoryItem.addCategory(new CodeableConcept().setText("medication"));
+		inventoryItem.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "387517004", "Paracetamol")));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null), "Panadol \"500\""));
+		inventoryItem.setDescription(new InventoryItem.InventoryItemDescriptionComponent().setDescription("Tablets"));
+		inventoryItem.addInventoryStatus(new CodeableConcept().setText("in use"));
+		inventoryItem.setBaseUnit(new CodeableConcept(new Coding("http://unitsofmeasure.org", "{tbl}", "tablet")));
+		inventoryItem.setNetContent(new Quantity().setValue(new BigDecimal("24.0")).setUnit("tablets"));
+	}
+	
+	@Test
+	@DisplayName("Should encode the same bytes as HAPI")
+	void encodeToString_shouldMatchHapiOutput() {
+		assertTrue(codec.canEncode(inventoryItem));
+		assertEquals(fhirContext.newJsonParser().encodeResourceToString(inventoryItem), codec.encodeToString(inventoryItem));
+	}
+	
+	@Test
+	@DisplayName("Should add the profile like HAPI")
+	void encodeToString_shouldAddProfileLikeHapi() {
+		FhirContext context = FhirContext.forR4();
+		context.registerCustomType(InventoryItem.class);
+		InventoryItemJsonCodec contextCodec = new InventoryItemJsonCodec(context);
+		for (AddProfileTagEnum addProfileTag : AddProfileTagEnum.values()) {
+			context.setAddProfileTagWhenEncoding(addProfileTag);
+			assertEquals(context.newJsonParser().encodeResourceToString(inventoryItem),
+			    contextCodec.encodeToString(inventoryItem), addProfileTag.name());
+		}
+	}
+	
+	@Test
+	@DisplayName("Should decode the same resource as HAPI")
+	void decode_shouldMatchHapiResult() {
+		// Setup
+		String json = fhirContext.newJsonParser().encodeResourceToString(inventoryItem);
+		
+		InventoryItem decoded = codec.decode(json.getBytes(StandardCharsets.UTF_8));
+		
+		// Verify
+		assertTrue(fhirContext.newJsonParser().parseResource(InventoryItem.class, json).equalsDeep(decoded));
+		assertEquals("InventoryItem/item-1", decoded.getIdElement().getValue());
+		assertEquals("24.0", decoded.getNetContent().getValueElement().getValueAsString());
+	}
+	
+	@Test
+	@DisplayName("Should fall back to HAPI for extensions")
+	void encodeToString_shouldFallBackToHapiForExtensions() {
+		// Setup
+		inventoryItem.getCodeFirstRep().getCodingFirstRep().addExtension("http://example.org/ext", new StringType("x"));
+		
+		String json = codec.encodeToString(inventoryItem);
+		
+		// Verify
+		assertFalse(codec.canEncode(inventoryItem));
+		assertEquals(fhirContext.newJsonParser().encodeResourceToString(inventoryItem), json);
+		assertTrue(codec.decode(json).getCodeFirstRep().getCodingFirstRep().hasExtension("http://example.org/ext"));
+	}
+	
+	@Test
+	@DisplayName("Should fall back to HAPI for contained resources")
+	void decode_shouldFallBackToHapiForContainedResources() {
+		// Setup
+		InventoryItem container = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		InventoryItem contained = new InventoryItem(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+		contained.setId("#contained");
+		container.addContained(contained);
+		container.addExtension("http://example.org/ext", new StringType("x"));
+		String json = fhirContext.newJsonParser().encodeResourceToString(container);
+		
+		InventoryItem decoded = codec.decode(json);
+		
+		// Verify
+		assertEquals(1, decoded.getContained().size());
+		assertEquals(json, codec.encodeToString(decoded));
+	}
+	
+	@Test
+	@DisplayName("Should report invalid values like HAPI")
+	void decode_shouldReportInvalidValuesLikeHapi() {
+		String json = "{\"resourceType\":\"InventoryItem\",\"identifier\":[{\"use\":\"unknown\",\"value\":\"1\"}]}";
+		
+		DataFormatException expected = assertThrows(DataFormatException.class,
+		    () -> fhirContext.newJsonParser().parseResource(InventoryItem.class, json));
+		DataFormatException actual = assertThrows(DataFormatException.class, () -> codec.decode(json));
+		assertEquals(expected.getMessage(), actual.getMessage());
+	}
+}
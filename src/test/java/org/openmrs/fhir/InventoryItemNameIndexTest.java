@@ -0,0 +1,96 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hl7.fhir.r4.model.Coding;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class InventoryItemNameIndexTest {
+	
+	private static final String NAME_TYPE_SYSTEM = "http://hl7.org/fhir/inventoryitem-nametype";
+	
+	private InventoryItemNameIndex index;
+	
+	@BeforeEach
+	void setUp() {
+		index = new InventoryItemNameIndex();
+		index.add("item-1", item("brand-name", "Panadol", "common-name", "Paracetamol 500 mg tablet"));
+		index.add("item-2", item("brand-name", "Calpol Six Plus", "common-name", "Paracetamol oral suspension"));
+		index.add("item-3", item("brand-name", "Nurofen", "functional-name", "Pain relief"));
+		index.add("item-4", item(null, "Paraffin gauze dressing"));
+	}
+	
+	@Test
+	@DisplayName("Should rank matches of the whole name before matches of a later word")
+	void search_shouldRankWholeNameMatchesFirst() {
+		assertEquals("item-3: Pain relief (functional-name), item-1: Panadol (brand-name), "
+		        + "item-2: Paracetamol oral suspension (common-name), item-4: Paraffin gauze dressing",
+		    search(null, "pa", 10));
+		assertEquals("item-3: Pain relief (functional-name), item-1: Panadol (brand-name)", search(null, "pa", 2));
+		assertEquals("item-2: Calpol Six Plus (brand-name)", search(null, "Pl", 10));
+		assertEquals("item-1: Paracetamol 500 mg tablet (common-name)", search(null, "500 MG", 10));
+		assertEquals("", search(null, "mg 500", 10));
+	}
+	
+	@Test
+	@DisplayName("Should only search the names of the name type")
+	void search_shouldFilterByNameType() {
+		assertEquals("item-1: Paracetamol 500 mg tablet (common-name), item-2: Paracetamol oral suspension (common-name)",
+		    search("common-name", "para", 10));
+		assertEquals("item-1: Panadol (brand-name)", search("brand-name", "pa", 10));
+		assertEquals("", search("unknown", "pa", 10));
+	}
+	
+	@Test
+	@DisplayName("Should ignore case, accents and punctuation")
+	void search_shouldNormalizeText() {
+		index.add("item-5", item("brand-name", "Doliprane® (Enfants) – Caféine"));
+		
+		assertEquals("item-5: Doliprane® (Enfants) – Caféine (brand-name)", search(null, "enfants cafe", 10));
+		assertEquals("item-5", index.search(null, "DOLIPRANE,ENF", 10).get(0).getId());
+		assertEquals("", search(null, " - ", 10));
+		assertEquals("", search(null, "pa", 0));
+	}
+	
+	@Test
+	@DisplayName("Should replace and remove the names of an item")
+	void add_shouldReplaceNames() {
+		index.add("item-1", item("brand-name", "Tylenol"));
+		
+		assertEquals("item-2: Paracetamol oral suspension (common-name)", search(null, "paracetamol", 10));
+		assertEquals("item-1: Tylenol (brand-name)", search(null, "tyl", 10));
+		assertEquals(4, index.size());
+		
+		assertTrue(index.remove("item-1"));
+		assertFalse(index.remove("item-1"));
+		assertEquals("", search(null, "tyl", 10));
+		assertNull(index.search(null, "paraffin", 1).get(0).getNameType());
+	}
+	
+	private String search(String nameType, String text, int limit) {
+		List<InventoryItemNameIndex.Match> matches = index.search(nameType, text, limit);
+		return matches.stream().map(InventoryItemNameIndex.Match::toString).collect(Collectors.joining(", "));
+	}
+	
+	/**
+	 * @param typesAndNames pairs of a name type code, which may be null, and a name
+	 */
+	private static InventoryItem item(String... typesAndNames) {
+		InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		for (int i = 0; i < typesAndNames.length; i += 2) {
+			InventoryItem.InventoryItemNameComponent name = item.addName().setName(typesAndNames[i + 1]);
+			if (typesAndNames[i] != null) {
+				name.setNameType(new Coding(NAME_TYPE_SYSTEM, typesAndNames[i], null));
+			}
+		}
+		return item;
+	}
+}
@@ -0,0 +1,135 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+
+class InventoryItemPatchTest {
+	
+	private static final String NAME_TYPE_SYSTEM = "http://hl7.org/fhir/inventoryitem-nametype";
+	
+	private FhirContext fhirContext;
+	
+	private InventoryItem inventoryItem;
+	
+	@BeforeEach
+	void setUp() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+		
+		inventoryItem = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.setId("item-1");
+		for (int i = 0; i < 5; i++) {
+			inventoryItem.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "code-" + i, null)));
+		}
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(new Coding(NAME_TYPE_SYSTEM, "brand-name", null),
+		        "Panadol"));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding(NAME_TYPE_SYSTEM, "common-name", null), "Paracetamol"));
+		inventoryItem.setDescription(new InventoryItem.InventoryItemDescriptionComponent().setDescription("Tablets"));
+		inventoryItem.addInventoryStatus(new CodeableConcept(new Coding("urn:status", "available", null)));
+		inventoryItem.setNetContent(new Quantity().setValue(new BigDecimal("24")).setUnit("tablets"));
+	}
+	
+	@Test
+	@DisplayName("Should return no patch for equal items")
+	void toFhirPatch_shouldReturnNullForEqualItems() {
+		InventoryItem copy = inventoryItem.copy();
+		copy.setDescription(null);
+		inventoryItem.setDescription(new InventoryItem.InventoryItemDescriptionComponent());
+		
+		assertNull(InventoryItemPatch.toFhirPatch(inventoryItem, copy));
+		assertEquals(InventoryItemPatch.EMPTY_JSON_PATCH, InventoryItemPatch.toJsonPatch(inventoryItem, copy));
+	}
+	
+	@Test
+	@DisplayName("Should only patch the changed entries of lists and children of names")
+	void toJsonPatch_shouldBeMinimal() {
+		InventoryItem changed = inventoryItem.copy();
+		changed.getInventoryStatusFirstRep().getCodingFirstRep().setCode("on-hold");
+		changed.getCode().remove(1);
+		changed.getCode().remove(1);
+		changed.getName().get(1).setName("Acetaminophen");
+		changed.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+		
+		assertEquals("[{\"op\":\"replace\",\"path\":\"/status\",\"value\":\"inactive\"},"
+		        + "{\"op\":\"remove\",\"path\":\"/code/1\"},{\"op\":\"remove\",\"path\":\"/code/1\"},"
+		        + "{\"op\":\"replace\",\"path\":\"/name/1/name\",\"value\":\"Acetaminophen\"},"
+		        + "{\"op\":\"replace\",\"path\":\"/inventoryStatus/0\","
+		        + "\"value\":{\"coding\":[{\"system\":\"urn:status\",\"code\":\"on-hold\"}]}}]",
+		    InventoryItemPatch.toJsonPatch(inventoryItem, changed));
+		
+		Parameters patch = InventoryItemPatch.toFhirPatch(inventoryItem, changed);
+		assertEquals(5, patch.getParameter().size());
+		assertEquals("InventoryItem.name[1].name", patch.getParameter().get(3).getPart().get(1).getValue().primitiveValue());
+	}
+	
+	@Test
+	@DisplayName("Should turn an item into the other when a patch is applied")
+	void applyPatch_shouldRoundTrip() {
+		InventoryItem changed = inventoryItem.copy();
+		changed.getCode().add(1, new CodeableConcept(new Coding("http://snomed.info/sct", "inserted", null)));
+		changed.getCode().get(3).setText("Changed");
+		changed.getName().remove(0);
+		changed.getName().get(0).setNameType(null);
+		changed.addName(new InventoryItem.InventoryItemNameComponent(new Coding(NAME_TYPE_SYSTEM, "brand-name", null),
+		        "Tylenol"));
+		changed.getName().get(1).setId("name");
+		changed.addIdentifier().setSystem("urn:catalog").setValue("123");
+		changed.getDescription().setDescription("Tablets – 24");
+		changed.setBaseUnit(new CodeableConcept(new Coding("http://unitsofmeasure.org", "{tbl}", null)));
+		changed.setNetContent(null);
+		changed.setInventoryStatus(null);
+		
+		InventoryItem fhirPatched = inventoryItem.copy();
+		InventoryItemPatch.applyFhirPatch(fhirPatched, roundTrip(InventoryItemPatch.toFhirPatch(inventoryItem, changed)));
+		assertTrue(changed.equalsDeep(fhirPatched));
+		
+		changed.getName().get(1).setId(null);
+		InventoryItem jsonPatched = inventoryItem.copy();
+		InventoryItemPatch.applyJsonPatch(jsonPatched, InventoryItemPatch.toJsonPatch(inventoryItem, changed));
+		assertTrue(changed.equalsDeep(jsonPatched));
+		
+		InventoryItemPatch.applyJsonPatch(jsonPatched, InventoryItemPatch.toJsonPatch(changed, inventoryItem));
+		assertTrue(inventoryItem.equalsDeep(jsonPatched));
+	}
+	
+	@Test
+	@DisplayName("Should reject patches it does not generate")
+	void applyPatch_shouldThrowForUnsupportedPatches() {
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPatch.applyJsonPatch(inventoryItem,
+		    "[{\"op\":\"move\",\"from\":\"/code/0\",\"path\":\"/code/1\"}]"));
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPatch.applyJsonPatch(inventoryItem,
+		    "[{\"op\":\"remove\",\"path\":\"/code/9\"}]"));
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPatch.applyJsonPatch(inventoryItem,
+		    "[{\"value\":\"retired\",\"op\":\"replace\",\"path\":\"/status\"}]"));
+		assertThrows(IllegalArgumentException.class,
+		    () -> InventoryItemPatch.applyJsonPatch(inventoryItem, "[{\"op\":\"remove\",\"path\":\"/meta\"}]"));
+		
+		Parameters patch = new Parameters();
+		Parameters.ParametersParameterComponent operation = patch.addParameter().setName("operation");
+		operation.addPart().setName("type").setValue(new CodeType("delete"));
+		operation.addPart().setName("path").setValue(new StringType("InventoryItem.code.coding"));
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPatch.applyFhirPatch(inventoryItem, patch));
+	}
+	
+	private Parameters roundTrip(Parameters patch) {
+		return fhirContext.newJsonParser().parseResource(Parameters.class,
+		    fhirContext.newJsonParser().encodeResourceToString(patch));
+	}
+}
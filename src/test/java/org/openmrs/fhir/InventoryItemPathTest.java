@@ -0,0 +1,150 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.stream.Collectors;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class InventoryItemPathTest {
+	
+	private static final String NAME_TYPE_SYSTEM = "http://hl7.org/fhir/inventoryitem-nametype";
+	
+	private InventoryItem inventoryItem;
+	
+	@BeforeEach
+	void setUp() {
+		inventoryItem = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.addIdentifier().setSystem("urn:a").setValue("1");
+		inventoryItem.addIdentifier().setSystem("urn:b").setValue("2");
+		inventoryItem.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "387517004", "Paracetamol")));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(new Coding(NAME_TYPE_SYSTEM, "brand-name", null),
+		        "Panadol"));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding(NAME_TYPE_SYSTEM, "common-name", null), "Paracetamol"));
+		inventoryItem.setNetContent(new Quantity().setValue(new BigDecimal("24.0")).setUnit("tablets"));
+		inventoryItem.getNetContent().addExtension(new Extension("urn:ext", new StringType("packed")));
+	}
+	
+	@Test
+	@DisplayName("Should select values in document order")
+	void evaluate_shouldSelectValues() {
+		assertEquals("active", evaluate("InventoryItem.status"));
+		assertEquals("1,2", evaluate("identifier.value"));
+		assertEquals("brand-name,common-name", evaluate("name.nameType.code"));
+		assertEquals("Panadol", evaluate("name.first().name"));
+		assertEquals("packed", evaluate("netContent.extension.value"));
+		assertEquals("", evaluate("description.description"));
+	}
+	
+	@Test
+	@DisplayName("Should filter values with where")
+	void evaluate_shouldFilterValues() {
+		assertEquals("Panadol", evaluate("name.where(nameType.code = 'brand-name').name"));
+		assertEquals("Paracetamol", evaluate("code.coding.where(code = '387517004').display"));
+		assertEquals("1,2", evaluate("identifier.where(system = 'urn:b' or value = '1').value"));
+		assertEquals("Paracetamol", evaluate("name.where(nameType.code != 'brand-name' and name.exists()).name"));
+		assertEquals("Paracetamol", evaluate(
+		    "name.where(($this.nameType.system = 'urn:other' or nameType.code = 'common-name') and name.empty() = false).name"));
+		assertEquals("tablets", evaluate("netContent.where(value = 24).unit"));
+		assertEquals("", evaluate("identifier.where(value != '1' and value != '2')"));
+	}
+	
+	@Test
+	@DisplayName("Should select from collections larger than the reused buffers, skipping absent values")
+	void evaluate_shouldSelectFromLargeCollections() {
+		for (int i = 0; i < 40; i++) {
+			inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+			        i % 2 == 0 ? new Coding(NAME_TYPE_SYSTEM, "brand-name", null) : new Coding(), "Name " + i));
+		}
+		
+		assertEquals(22, InventoryItemPath.compile("name.nameType.code").evaluate(inventoryItem).size());
+		assertEquals(21,
+		    InventoryItemPath.compile("name.where(nameType.code = 'brand-name').name").evaluate(inventoryItem).size());
+		
+		InventoryItem item = new InventoryItem();
+		for (int i = 0; i < 20; i++) {
+			item.addName(new InventoryItem.InventoryItemNameComponent(new Coding(), "Name " + i));
+		}
+		item.addName(new InventoryItem.InventoryItemNameComponent(new Coding(NAME_TYPE_SYSTEM, "common-name", null),
+		        "Name 20"));
+		assertEquals("common-name",
+		    InventoryItemPath.compile("name.nameType.code").evaluateFirst(item).primitiveValue());
+	}
+	
+	@Test
+	@DisplayName("Should evaluate exists, empty and boolean expressions")
+	void test_shouldEvaluateBooleans() {
+		assertTrue(InventoryItemPath.compile("identifier.where(system = 'urn:a').exists()").test(inventoryItem));
+		assertFalse(InventoryItemPath.compile("identifier.where(system = 'urn:c').exists()").test(inventoryItem));
+		assertTrue(InventoryItemPath.compile("InventoryItem.category.empty()").test(inventoryItem));
+		assertEquals("true", InventoryItemPath.compile("code.exists()").evaluateFirst(inventoryItem).primitiveValue());
+		assertTrue(InventoryItemPath.compile("name.where(name = 'Panadol')").test(inventoryItem));
+		assertFalse(InventoryItemPath.compile("code.coding.userSelected").test(inventoryItem));
+		
+		inventoryItem.getCodeFirstRep().getCodingFirstRep().setUserSelected(false);
+		assertFalse(InventoryItemPath.compile("code.coding.userSelected").test(inventoryItem));
+		assertTrue(InventoryItemPath.compile("code.coding.where(userSelected = false).exists()").test(inventoryItem));
+	}
+	
+	@Test
+	@DisplayName("Should compare the expression itself with a literal")
+	void test_shouldEvaluateComparisons() {
+		assertTrue(InventoryItemPath.compile("status = 'active'").test(inventoryItem));
+		assertFalse(InventoryItemPath.compile("InventoryItem.status != 'active'").test(inventoryItem));
+		assertTrue(InventoryItemPath.compile("netContent.value = 24").test(inventoryItem));
+		assertTrue(InventoryItemPath.compile("category.exists() = false").test(inventoryItem));
+		assertEquals("false", evaluate("baseUnit.text = 'tablet'"));
+	}
+	
+	@Test
+	@DisplayName("Should require a single value for a boolean")
+	void test_shouldRejectSeveralValues() {
+		assertThrows(FHIRException.class, () -> InventoryItemPath.compile("identifier").test(inventoryItem));
+		assertThrows(FHIRException.class,
+		    () -> InventoryItemPath.compile("InventoryItem.where(identifier.value)").evaluate(inventoryItem));
+		assertTrue(InventoryItemPath.compile("identifier.first()").test(inventoryItem));
+		assertFalse(InventoryItemPath.compile("baseUnit").test(inventoryItem));
+	}
+	
+	@Test
+	@DisplayName("Should stop at the first selected value")
+	void evaluateFirst_shouldReturnFirstValue() {
+		assertEquals("urn:a", InventoryItemPath.compile("identifier.system").evaluateFirst(inventoryItem).primitiveValue());
+		assertSame(inventoryItem, InventoryItemPath.compile("InventoryItem").evaluateFirst(inventoryItem));
+		assertNull(InventoryItemPath.compile("baseUnit.coding.code").evaluateFirst(inventoryItem));
+	}
+	
+	@Test
+	@DisplayName("Should compile an expression once and reject unsupported syntax")
+	void compile_shouldCacheAndRejectUnsupportedExpressions() {
+		assertSame(InventoryItemPath.compile("name.name"), InventoryItemPath.compile("name.name"));
+		
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPath.compile("Patient.name"));
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPath.compile("name..name"));
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPath.compile("name.select(name)"));
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPath.compile("name.exists().name"));
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPath.compile("name.where(name = 'x'"));
+		assertThrows(IllegalArgumentException.class, () -> InventoryItemPath.compile("name.where(name = x)"));
+	}
+	
+	private String evaluate(String expression) {
+		return InventoryItemPath.compile(expression).evaluate(inventoryItem).stream().map(Base::primitiveValue)
+		        .collect(Collectors.joining(","));
+	}
+}
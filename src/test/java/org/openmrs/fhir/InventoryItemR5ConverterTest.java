@@ -0,0 +1,188 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Range;
+import org.hl7.fhir.r4.model.Ratio;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class InventoryItemR5ConverterTest {
+	
+	/** Written in the order of the R5 elements, as the converter writes them. */
+	private static final String R5_ITEM = json("{'resourceType':'InventoryItem','id':'item-1',"
+	        + "'meta':{'source':'urn:supplier'},'identifier':[{'system':'urn:catalog','value':'123'}],'status':'active',"
+	        + "'category':[{'text':'Analgesics'}],"
+	        + "'code':[{'coding':[{'system':'http://snomed.info/sct','code':'387517004','display':'Paracetamol'}]}],"
+	        + "'name':[{'nameType':{'system':'http://hl7.org/fhir/inventoryitem-nametype','code':'trade-name'},"
+	        + "'language':'en','name':'Panadol'}],"
+	        + "'responsibleOrganization':[{'role':{'text':'Manufacturer'},"
+	        + "'organization':{'reference':'Organization/gsk','display':'GSK'}}],"
+	        + "'description':{'language':'en','description':'Tablets'},"
+	        + "'inventoryStatus':[{'coding':[{'system':'urn:inventory-status','code':'available'}]}],"
+	        + "'baseUnit':{'coding':[{'system':'http://unitsofmeasure.org','code':'{tbl}'}]},"
+	        + "'netContent':{'value':500,'unit':'mg','system':'http://unitsofmeasure.org','code':'mg'},"
+	        + "'association':[{'associationType':{'text':'packs'},'relatedItem':{'reference':'InventoryItem/box'},"
+	        + "'quantity':{'numerator':{'value':20},'denominator':{'value':1}}}],"
+	        + "'characteristic':[{'characteristicType':{'text':'colour'},'valueString':'white'},"
+	        + "{'characteristicType':{'text':'scored'},'valueBoolean':true}],"
+	        + "'instance':{'identifier':[{'system':'urn:serial','value':'S1'},{'system':'urn:serial','value':'S2'}],"
+	        + "'lotNumber':'LOT-7','expiry':'2027-03-31','subject':{'reference':'Patient/p1'},"
+	        + "'location':{'reference':'Location/pharmacy'}},"
+	        + "'productReference':{'reference':'Medication/paracetamol'}}");
+	
+	private static FhirContext fhirContext;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@Test
+	@DisplayName("Should fill the R4 fields and carry the R5 elements as cross-version extensions")
+	void fromR5_shouldCarryR5ElementsAsExtensions() {
+		InventoryItem item = new InventoryItemR5Converter(fhirContext).fromR5(R5_ITEM);
+		
+		assertEquals("item-1", item.getIdElement().getIdPart());
+		assertEquals(InventoryItem.InventoryItemStatusCodes.ACTIVE, item.getStatus());
+		assertEquals("Panadol", item.getNameFirstRep().getName());
+		assertEquals("en", item.getNameFirstRep().getExtensionString(InventoryItemR5Converter.EXTENSION_NAME_LANGUAGE));
+		assertEquals("en",
+		    item.getDescription().getExtensionString(InventoryItemR5Converter.EXTENSION_DESCRIPTION_LANGUAGE));
+		assertEquals("mg", item.getNetContent().getCode());
+		
+		List<Extension> characteristics = item.getExtensionsByUrl(InventoryItemR5Converter.EXTENSION_CHARACTERISTIC);
+		assertEquals(2, characteristics.size());
+		assertEquals("white", ((StringType) characteristics.get(0).getExtensionByUrl("value").getValue()).getValue());
+		assertTrue(((BooleanType) characteristics.get(1).getExtensionByUrl("value").getValue()).booleanValue());
+		
+		Extension instance = item.getExtensionByUrl(InventoryItemR5Converter.EXTENSION_INSTANCE);
+		List<Extension> identifiers = instance.getExtensionsByUrl("identifier");
+		assertEquals(2, identifiers.size());
+		assertEquals("S2", ((Identifier) identifiers.get(1).getValue()).getValue());
+		assertEquals("LOT-7", instance.getExtensionString("lotNumber"));
+		assertEquals("2027-03-31", instance.getExtensionByUrl("expiry").getValue().primitiveValue());
+		
+		Ratio quantity = (Ratio) item.getExtensionByUrl(InventoryItemR5Converter.EXTENSION_ASSOCIATION)
+		        .getExtensionByUrl("quantity").getValue();
+		assertEquals(20, quantity.getNumerator().getValue().intValue());
+		assertEquals("Medication/paracetamol",
+		    ((Reference) item.getExtensionByUrl(InventoryItemR5Converter.EXTENSION_PRODUCT_REFERENCE).getValue())
+		            .getReference());
+	}
+	
+	@Test
+	@DisplayName("Should parse the converted item the same way HAPI parses its R4 JSON")
+	void fromR5_shouldMatchHapi() {
+		InventoryItemR5Converter converter = new InventoryItemR5Converter(fhirContext);
+		InventoryItem item = converter.fromR5(R5_ITEM);
+		
+		String r4 = fhirContext.newJsonParser().encodeResourceToString(item);
+		InventoryItem parsed = fhirContext.newJsonParser().parseResource(InventoryItem.class, r4);
+		parsed.getMeta().getProfile().clear();
+		
+		assertTrue(parsed.equalsDeep(item));
+	}
+	
+	@Test
+	@DisplayName("Should write the R5 elements back from their extensions")
+	void toR5_shouldRestoreR5Elements() {
+		InventoryItemR5Converter converter = new InventoryItemR5Converter(fhirContext);
+		
+		assertEquals(R5_ITEM, converter.toR5(converter.fromR5(R5_ITEM)));
+	}
+	
+	@Test
+	@DisplayName("Should convert content outside of the common layout through HAPI in both directions")
+	void fromR5_shouldConvertOtherContentThroughHapi() throws Exception {
+		InventoryItemR5Converter converter = new InventoryItemR5Converter(fhirContext);
+		String r5 = json("{'resourceType':'InventoryItem','id':'item-2',"
+		        + "'extension':[{'url':'urn:supplier-rating','valueInteger':4}],"
+		        + "'status':'active','_status':{'extension':[{'url':'urn:status-source','valueString':'ERP'}]},"
+		        + "'name':[{'nameType':{'code':'alias'},'language':'fr','name':'Paracétamol'}],"
+		        + "'characteristic':[{'id':'c1','characteristicType':{'text':'dose'},"
+		        + "'valueRange':{'low':{'value':1},'high':{'value':2}}}],"
+		        + "'instance':{'lotNumber':'LOT-8'}}");
+		
+		InventoryItem item = converter.fromR5(r5);
+		
+		assertEquals("ERP", item.getStatusElement().getExtensionString("urn:status-source"));
+		assertEquals(4, ((IntegerType) item.getExtensionByUrl("urn:supplier-rating").getValue())
+		        .getValue().intValue());
+		Extension characteristic = item.getExtensionByUrl(InventoryItemR5Converter.EXTENSION_CHARACTERISTIC);
+		assertEquals("c1", characteristic.getId());
+		assertEquals(2, ((Range) characteristic.getExtensionByUrl("value").getValue()).getHigh().getValue().intValue());
+		assertEquals("fr", item.getNameFirstRep().getExtensionString(InventoryItemR5Converter.EXTENSION_NAME_LANGUAGE));
+		assertEquals("LOT-8",
+		    item.getExtensionByUrl(InventoryItemR5Converter.EXTENSION_INSTANCE).getExtensionString("lotNumber"));
+		
+		ObjectMapper mapper = new ObjectMapper();
+		assertEquals(mapper.readTree(r5), mapper.readTree(converter.toR5(item)));
+	}
+	
+	@Test
+	@DisplayName("Should convert the same way through HAPI as directly")
+	void fromR5_shouldMatchDirectConversionThroughHapi() throws Exception {
+		InventoryItemR5Converter converter = new InventoryItemR5Converter(fhirContext);
+		// the language of the resource is not converted directly
+		String r5 = R5_ITEM.replace("\"id\":\"item-1\",", "\"id\":\"item-1\",\"language\":\"en\",");
+		
+		InventoryItem direct = converter.fromR5(R5_ITEM);
+		direct.setLanguage("en");
+		InventoryItem item = converter.fromR5(r5);
+		item.getMeta().getProfile().clear();
+		
+		assertTrue(direct.equalsDeep(item));
+		ObjectMapper mapper = new ObjectMapper();
+		assertEquals(mapper.readTree(r5), mapper.readTree(converter.toR5(item)));
+	}
+	
+	@Test
+	@DisplayName("Should reject invalid JSON and extensions that do not match their R5 element")
+	void convert_shouldRejectInvalidContent() {
+		InventoryItemR5Converter converter = new InventoryItemR5Converter(fhirContext);
+		
+		assertThrows(DataFormatException.class, () -> converter.fromR5("{\"resourceType\":\"InventoryItem\","));
+		assertThrows(DataFormatException.class, () -> converter.fromR5(
+		    json("{'resourceType':'InventoryItem','status':'active','instance':{'lotNumber':'L','_lotNumber':{'id':'x'}}}")));
+		
+		InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		item.addExtension(InventoryItemR5Converter.EXTENSION_INSTANCE, new StringType("LOT-9"));
+		assertThrows(DataFormatException.class, () -> converter.toR5(item));
+	}
+	
+	@Test
+	@DisplayName("Should write plain items without R5 elements like the R4 codec")
+	void toR5_shouldWritePlainItems() {
+		InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+		item.setId("item-3");
+		item.addName().setName("Ibuprofen");
+		
+		String r5 = new InventoryItemR5Converter(fhirContext).toR5(item);
+		
+		assertEquals(json("{'resourceType':'InventoryItem','id':'item-3','status':'inactive','name':[{'name':'Ibuprofen'}]}"),
+		    r5);
+		assertFalse(item.hasExtension());
+	}
+	
+	private static String json(String singleQuoted) {
+		return singleQuoted.replace('\'', '"');
+	}
+}
@@ -0,0 +1,201 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Quantity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.FhirTerser;
+
+class InventoryItemRepositoryTest {
+	
+	private InventoryItemRepository repository;
+	
+	@BeforeEach
+	void setUp() {
+		repository = new InventoryItemRepository();
+		repository.create(item("item-1", InventoryItem.InventoryItemStatusCodes.ACTIVE, "urn:catalog", "123",
+		    "http://snomed.info/sct", "387517004"));
+		repository.create(item("item-2", InventoryItem.InventoryItemStatusCodes.INACTIVE, "urn:catalog", "456",
+		    "http://snomed.info/sct", "322236009"));
+		repository.create(item("item-3", InventoryItem.InventoryItemStatusCodes.ACTIVE, null, "789", "urn:local",
+		    "387517004"));
+	}
+	
+	@Test
+	@DisplayName("Should find items by system and code")
+	void search_shouldMatchSystemAndCode() {
+		assertEquals(Collections.singletonList("item-1"),
+		    repository.searchIds(InventoryItem.SP_CODE, "http://snomed.info/sct|387517004"));
+		assertEquals(Arrays.asList("item-1", "item-3"), repository.searchIds(InventoryItem.SP_CODE, "387517004"));
+		assertEquals(Arrays.asList("item-1", "item-2"), repository.searchIds(InventoryItem.SP_CODE, "http://snomed.info/sct|"));
+		assertEquals(Collections.singletonList("item-2"), repository.searchIds(InventoryItem.SP_IDENTIFIER, "urn:catalog|456"));
+		assertEquals(Collections.singletonList("item-3"), repository.searchIds(InventoryItem.SP_IDENTIFIER, "|789"));
+		assertEquals(Arrays.asList("item-1", "item-3"), repository.searchIds(InventoryItem.SP_STATUS, "active"));
+		assertEquals(Collections.singletonList("item-2"),
+		    repository.searchIds(InventoryItem.SP_STATUS, "http://hl7.org/fhir/inventoryitem-status|inactive"));
+	}
+	
+	@Test
+	@DisplayName("Should combine comma separated tokens")
+	void search_shouldCombineTokens() {
+		assertEquals(Arrays.asList("item-2", "item-3"), repository.searchIds(InventoryItem.SP_IDENTIFIER, "urn:catalog|456,|789"));
+		assertEquals(3, repository.count(InventoryItem.SP_STATUS, "active,inactive"));
+		assertEquals(0, repository.count(InventoryItem.SP_STATUS, "unknown"));
+	}
+	
+	@Test
+	@DisplayName("Should update the indexes when an item is updated")
+	void update_shouldReindexItem() {
+		InventoryItem item = repository.read("item-1");
+		item.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+		item.getIdentifierFirstRep().setValue("124");
+		
+		assertTrue(repository.update(item));
+		
+		assertEquals(Collections.singletonList("item-3"), repository.searchIds(InventoryItem.SP_STATUS, "active"));
+		assertEquals(0, repository.count(InventoryItem.SP_IDENTIFIER, "urn:catalog|123"));
+		assertEquals("item-1", repository.search(InventoryItem.SP_IDENTIFIER, "urn:catalog|124").get(0).getIdElement()
+		        .getIdPart());
+	}
+	
+	@Test
+	@DisplayName("Should remove deleted items from the indexes")
+	void delete_shouldUnindexItem() {
+		assertTrue(repository.delete("item-3"));
+		assertFalse(repository.delete("item-3"));
+		
+		assertNull(repository.read("item-3"));
+		assertEquals(2, repository.size());
+		assertEquals(Collections.singletonList("item-1"), repository.searchIds(InventoryItem.SP_CODE, "387517004"));
+	}
+	
+	@Test
+	@DisplayName("Should keep the name index up to date")
+	void searchNames_shouldFollowChanges() {
+		InventoryItem item = repository.read("item-2");
+		item.addName().setName("Panadol")
+		        .setNameType(new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null));
+		repository.update(item);
+		
+		assertEquals("item-2", repository.searchNames("brand-name", "pan", 5).get(0).getId());
+		assertTrue(repository.searchNames("common-name", "pan", 5).isEmpty());
+		
+		repository.delete("item-2");
+		assertTrue(repository.searchNames(null, "pan", 5).isEmpty());
+	}
+	
+	@Test
+	@DisplayName("Should find items by category, base unit and name")
+	void search_shouldMatchExtractedParameters() {
+		InventoryItem item = repository.read("item-1");
+		item.addCategory(new CodeableConcept(new Coding("urn:category", "medication", null)));
+		item.setBaseUnit(new CodeableConcept(new Coding("http://unitsofmeasure.org", "{tbl}", null)));
+		item.addName().setName("Panadol Extra");
+		repository.update(item);
+		item = repository.read("item-2");
+		item.addName().setName("Paracetamol");
+		repository.update(item);
+		
+		assertEquals(Collections.singletonList("item-1"), repository.searchIds(InventoryItem.SP_CATEGORY, "urn:category|"));
+		assertEquals(Collections.singletonList("item-1"), repository.searchIds(InventoryItem.SP_BASE_UNIT, "{tbl}"));
+		assertEquals(0, repository.count(InventoryItem.SP_INVENTORY_STATUS, "available"));
+		assertEquals(Arrays.asList("item-1", "item-2"), repository.searchIds(InventoryItem.SP_NAME, "pa"));
+		assertEquals(Collections.singletonList("item-2"), repository.searchIds(InventoryItem.SP_NAME, "PARACÉTAMOL"));
+		assertEquals(Collections.singletonList("item-1"),
+		    repository.searchIds(InventoryItem.SP_NAME, Arrays.asList("pa", "panadol ex,unknown")));
+		assertEquals(0, repository.count(InventoryItem.SP_NAME, "extra"));
+	}
+	
+	@Test
+	@DisplayName("Should find items by net content in any volume unit")
+	void search_shouldMatchNetContentRanges() {
+		updateNetContent("item-1", "500", "mL");
+		updateNetContent("item-2", "1", "L");
+		updateNetContent("item-3", "5", "cL");
+		
+		assertEquals(Arrays.asList("item-3", "item-1", "item-2"),
+		    repository.searchIds(InventoryItem.SP_NET_CONTENT, Arrays.asList("ge10||mL", "le1|http://unitsofmeasure.org|L")));
+		assertEquals(Arrays.asList("item-3", "item-1"),
+		    repository.searchIds(InventoryItem.SP_NET_CONTENT, Arrays.asList("gt10||mL", "lt1||L")));
+		assertEquals(Arrays.asList("item-1", "item-2"), repository.searchIds(InventoryItem.SP_NET_CONTENT, "0.5||L,1000||mL"));
+		assertEquals(Collections.singletonList("item-1"), repository.searchIds(InventoryItem.SP_NET_CONTENT, "500"));
+		assertEquals(2, repository.search(InventoryItem.SP_NET_CONTENT, Arrays.asList("ge100||mL", "le600||mL,1||L")).size());
+		assertEquals(Collections.singletonList("item-3"),
+		    repository.searchIds(InventoryItem.SP_CODE, Arrays.asList("387517004", "urn:local|387517004,322236009")));
+		
+		repository.delete("item-2");
+		assertEquals(0, repository.count(InventoryItem.SP_NET_CONTENT, "1.0||L"));
+		assertThrows(IllegalArgumentException.class, () -> repository.search(InventoryItem.SP_NET_CONTENT, "xx1||L"));
+	}
+	
+	@Test
+	@DisplayName("Should not be affected by changes to stored or returned items")
+	void create_shouldStoreCopies() {
+		InventoryItem item = item(null, InventoryItem.InventoryItemStatusCodes.UNKNOWN, "urn:catalog", "999", null, null);
+		String id = repository.create(item);
+		item.setStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		repository.read(id).setStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		
+		assertNotNull(id);
+		assertEquals(Collections.singletonList(id), repository.searchIds(InventoryItem.SP_STATUS, "unknown"));
+		assertEquals(InventoryItem.InventoryItemStatusCodes.UNKNOWN, repository.read(id).getStatus());
+	}
+	
+	@Test
+	@DisplayName("Should not be affected by changes made to returned items through a terser")
+	void read_shouldReturnDeepCopies() {
+		FhirContext fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+		FhirTerser terser = fhirContext.newTerser();
+		
+		terser.setElement(repository.read("item-1"), "InventoryItem.identifier.value", "2");
+		terser.setElement(repository.search(InventoryItem.SP_IDENTIFIER, "urn:catalog|123").get(0),
+		    "InventoryItem.identifier.value", "2");
+		
+		assertEquals("123", repository.read("item-1").getIdentifierFirstRep().getValue());
+		assertEquals(Collections.singletonList("item-1"),
+		    repository.searchIds(InventoryItem.SP_IDENTIFIER, "urn:catalog|123"));
+	}
+	
+	@Test
+	@DisplayName("Should reject duplicate ids and unsupported parameters")
+	void create_shouldRejectDuplicateIds() {
+		assertThrows(IllegalArgumentException.class,
+		    () -> repository.create(item("item-1", InventoryItem.InventoryItemStatusCodes.ACTIVE, null, null, null, null)));
+		assertThrows(IllegalArgumentException.class, () -> repository.search("subject", "Medication/1"));
+	}
+	
+	private void updateNetContent(String id, String value, String unit) {
+		InventoryItem item = repository.read(id);
+		item.setNetContent(new Quantity().setValue(new BigDecimal(value)).setSystem("http://unitsofmeasure.org").setCode(unit));
+		repository.update(item);
+	}
+	
+	private static InventoryItem item(String id, InventoryItem.InventoryItemStatusCodes status, String identifierSystem,
+	        String identifierValue, String codeSystem, String code) {
+		InventoryItem item = new InventoryItem(status);
+		item.setId(id);
+		if (identifierValue != null) {
+			item.addIdentifier().setSystem(identifierSystem).setValue(identifierValue);
+		}
+		if (code != null) {
+			item.addCode(new CodeableConcept(new Coding(codeSystem, code, null)));
+		}
+		return item;
+	}
+}
@@ -0,0 +1,131 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.util.FhirTerser;
+
+class InventoryItemSearchParametersTest {
+	
+	private static FhirContext fhirContext;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@Test
+	@DisplayName("Should extract the system, value and text of every token")
+	void extract_shouldExtractTokens() {
+		InventoryItem item = item();
+		
+		assertEquals(Arrays.asList(new InventoryItemSearchParameters.Token("urn:catalog", "123", "Catalog number")),
+		    InventoryItemSearchParameters.extract(item, InventoryItem.SP_IDENTIFIER));
+		assertEquals(
+		    Arrays.asList(
+		        new InventoryItemSearchParameters.Token("http://hl7.org/fhir/inventoryitem-status", "active", "Active")),
+		    InventoryItemSearchParameters.extract(item, InventoryItem.SP_STATUS));
+		assertEquals(
+		    Arrays.asList(new InventoryItemSearchParameters.Token("http://snomed.info/sct", "387517004", "Paracetamol"),
+		        new InventoryItemSearchParameters.Token("urn:local", "para", "Paracetamol 500 mg")),
+		    InventoryItemSearchParameters.extract(item, InventoryItem.SP_CODE));
+		assertEquals(Arrays.asList(new InventoryItemSearchParameters.Token(null, null, "Analgesics")),
+		    InventoryItemSearchParameters.extract(item, InventoryItem.SP_CATEGORY));
+		assertEquals(Arrays.asList(new InventoryItemSearchParameters.Token(null, "Panadol", null),
+		    new InventoryItemSearchParameters.Token(null, "Paracetamol 500 mg tablet", null)),
+		    InventoryItemSearchParameters.extract(item, InventoryItem.SP_NAME));
+		assertEquals("http://unitsofmeasure.org|{tbl}",
+		    InventoryItemSearchParameters.extract(item, InventoryItem.SP_BASE_UNIT).get(0).toString());
+		assertEquals("urn:inventory-status|available",
+		    InventoryItemSearchParameters.extract(item, InventoryItem.SP_INVENTORY_STATUS).get(0).toString());
+		assertThrows(IllegalArgumentException.class,
+		    () -> InventoryItemSearchParameters.extract(item, InventoryItem.SP_NET_CONTENT));
+	}
+	
+	@Test
+	@DisplayName("Should extract the values the search parameter paths select")
+	void extract_shouldMatchSearchParameterPaths() {
+		InventoryItem item = item();
+		FhirTerser terser = fhirContext.newTerser();
+		List<String> parameters = new ArrayList<>(InventoryItemSearchParameters.TOKEN_PARAMETERS);
+		parameters.add(InventoryItem.SP_NAME);
+		
+		for (String parameter : parameters) {
+			RuntimeSearchParam searchParam = fhirContext.getResourceDefinition(item).getSearchParam(parameter);
+			List<String> expected = new ArrayList<>();
+			for (IBase value : terser.getValues(item, searchParam.getPath())) {
+				addTokens(expected, value);
+			}
+			List<String> actual = new ArrayList<>();
+			for (InventoryItemSearchParameters.Token token : InventoryItemSearchParameters.extract(item, parameter)) {
+				if (token.getValue() != null) {
+					actual.add(token.toString());
+				}
+			}
+			assertEquals(expected, actual, parameter);
+		}
+	}
+	
+	@Test
+	@DisplayName("Should neither create elements nor copy shared elements")
+	void extract_shouldNotChangeItem() {
+		InventoryItem empty = new InventoryItem();
+		for (String parameter : InventoryItemSearchParameters.TOKEN_PARAMETERS) {
+			assertTrue(InventoryItemSearchParameters.extract(empty, parameter).isEmpty());
+		}
+		assertTrue(empty.isEmpty());
+		assertNull(empty.identifier);
+		
+		InventoryItem source = item();
+		CopyOnWriteInventoryItem copy = CopyOnWriteInventoryItem.copyOf(source);
+		assertFalse(InventoryItemSearchParameters.extract(copy, InventoryItem.SP_CODE).isEmpty());
+		assertTrue(copy.code == source.code);
+	}
+	
+	private static void addTokens(List<String> tokens, IBase value) {
+		if (value instanceof CodeableConcept) {
+			for (Coding coding : ((CodeableConcept) value).getCoding()) {
+				tokens.add(coding.getSystem() + "|" + coding.getCode());
+			}
+		} else if (value instanceof Identifier) {
+			tokens.add(((Identifier) value).getSystem() + "|" + ((Identifier) value).getValue());
+		} else if (value instanceof Enumeration) {
+			tokens.add(((Enumeration<?>) value).getSystem() + "|" + ((Enumeration<?>) value).getCode());
+		} else if (value instanceof StringType) {
+			tokens.add(((StringType) value).getValue());
+		}
+	}
+	
+	private static InventoryItem item() {
+		InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		item.addIdentifier().setSystem("urn:catalog").setValue("123").getType().setText("Catalog number");
+		item.addCategory(new CodeableConcept().setText("Analgesics"));
+		item.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "387517004", "Paracetamol"))
+		        .addCoding(new Coding("urn:local", "para", null)).setText("Paracetamol 500 mg"));
+		item.addName().setName("Panadol");
+		item.addName().setName("Paracetamol 500 mg tablet");
+		item.addInventoryStatus(new CodeableConcept(new Coding("urn:inventory-status", "available", null)));
+		item.setBaseUnit(new CodeableConcept(new Coding("http://unitsofmeasure.org", "{tbl}", null)));
+		return item;
+	}
+}
@@ -2,13 +2,26 @@ package org.openmrs.fhir;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.CodeType;
 import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -157,4 +170,268 @@ class InventoryItemTest {
 		// Verify
 		assertFalse(inventoryItem.isEmpty());
 	}
+	
+	@Test
+	@DisplayName("should visit the same children as getProperty")
+	void forEachChild_shouldVisitSameChildrenAsGetProperty() {
+		// Setup
+		inventoryItem.addIdentifier(new Identifier().setValue("1")).addIdentifier(new Identifier().setValue("2"));
+		inventoryItem.setStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.setId("item");
+		
+		for (String name : new String[] { "identifier", "status", "code", "netContent", "id" }) {
+			List<Base> visited = new ArrayList<>();
+			inventoryItem.forEachChild(name, visited::add);
+			
+			// Verify
+			assertEquals(Arrays.asList(inventoryItem.getProperty(name.hashCode(), name, false)), visited);
+		}
+	}
+	
+	@Test
+	@DisplayName("should visit the children of the backbone components")
+	void forEachChild_shouldVisitBackboneChildren() {
+		// Setup
+		Coding nameType = new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null);
+		InventoryItem.InventoryItemNameComponent nameComponent = new InventoryItem.InventoryItemNameComponent(nameType,
+		        "name");
+		InventoryItem.InventoryItemDescriptionComponent descriptionComponent = new InventoryItem.InventoryItemDescriptionComponent()
+		        .setDescription("description");
+		List<Base> visited = new ArrayList<>();
+		
+		nameComponent.forEachChild("nameType", visited::add);
+		descriptionComponent.forEachChild("description", visited::add);
+		
+		// Verify
+		assertEquals(2, visited.size());
+		assertSame(nameType, visited.get(0));
+		assertSame(descriptionComponent.getDescriptionElement(), visited.get(1));
+	}
+	
+	@Test
+	@DisplayName("should pass nothing for unknown children, like getProperty without validation")
+	void forEachChild_shouldPassNothingForUnknownChildren() {
+		List<Base> children = new ArrayList<>();
+		inventoryItem.forEachChild("unknown", children::add);
+		inventoryItem.getNameFirstRep().forEachChild("unknown", children::add);
+		inventoryItem.getDescription().forEachChild("unknown", children::add);
+		
+		assertTrue(children.isEmpty());
+	}
+	
+	@Test
+	@DisplayName("should look up status codes in both directions")
+	void statusCodes_shouldLookUpCodes() {
+		InventoryItem.InventoryItemStatusCodesEnumFactory factory = InventoryItem.InventoryItemStatusCodesEnumFactory.INSTANCE;
+		for (InventoryItem.InventoryItemStatusCodes status : InventoryItem.InventoryItemStatusCodes.values()) {
+			if (status != InventoryItem.InventoryItemStatusCodes.NULL) {
+				assertEquals(status, InventoryItem.InventoryItemStatusCodes.fromCode(status.toCode()));
+				assertEquals(status, factory.fromCode(factory.toCode(status)));
+				assertEquals("http://hl7.org/fhir/inventoryitem-status", factory.toSystem(status));
+			}
+		}
+		assertEquals("entered-in-error", InventoryItem.InventoryItemStatusCodes.ENTEREDINERROR.toCode());
+		assertEquals("?", factory.toCode(InventoryItem.InventoryItemStatusCodes.NULL));
+		assertNull(factory.fromCode(""));
+		assertThrows(IllegalArgumentException.class, () -> factory.fromCode("retired"));
+		assertThrows(FHIRException.class, () -> InventoryItem.InventoryItemStatusCodes.fromCode("retired"));
+	}
+	
+	@Test
+	@DisplayName("should share immutable status enumerations when enabled")
+	void setStatus_shouldShareEnumerationsWhenEnabled() {
+		InventoryItem.InventoryItemStatusCodesEnumFactory.setUseSharedEnumerations(true);
+		try {
+			// Setup
+			InventoryItem other = new InventoryItem();
+			inventoryItem.setStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+			other.setProperty("status", new CodeType("active"));
+			
+			// Verify
+			assertSame(inventoryItem.getStatusElement(), other.getStatusElement());
+			assertSame(inventoryItem.getStatusElement(), inventoryItem.copy().getStatusElement());
+			assertThrows(UnsupportedOperationException.class,
+			    () -> other.getStatusElement().setValue(InventoryItem.InventoryItemStatusCodes.INACTIVE));
+			
+			other.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+			assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, other.getStatus());
+			assertEquals(InventoryItem.InventoryItemStatusCodes.ACTIVE, inventoryItem.getStatus());
+		}
+		finally {
+			InventoryItem.InventoryItemStatusCodesEnumFactory.setUseSharedEnumerations(false);
+		}
+	}
+	
+	@Test
+	@DisplayName("should not share status enumerations by default")
+	void setStatus_shouldNotShareEnumerationsByDefault() {
+		// Setup
+		InventoryItem other = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.setStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		
+		// Verify
+		assertNotSame(inventoryItem.getStatusElement(), other.getStatusElement());
+		inventoryItem.getStatusElement().setValue(InventoryItem.InventoryItemStatusCodes.UNKNOWN);
+		assertEquals(InventoryItem.InventoryItemStatusCodes.ACTIVE, other.getStatus());
+	}
+	
+	@Test
+	@DisplayName("should hash deeply equal items alike")
+	void hashDeep_shouldMatchForDeeplyEqualItems() {
+		// Setup
+		inventoryItem.setStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.addIdentifier().setSystem("urn:catalog").setValue("123");
+		inventoryItem.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "387517004", "Paracetamol")));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(new Coding("urn:name-type", "brand-name", null),
+		        "Panadol"));
+		inventoryItem.setNetContent(new Quantity(24).setUnit("tablets"));
+		InventoryItem copy = inventoryItem.copy();
+		copy.setDescription(new InventoryItem.InventoryItemDescriptionComponent());
+		copy.setCategory(new ArrayList<>());
+		
+		// Verify
+		assertTrue(inventoryItem.equalsDeep(copy));
+		assertEquals(inventoryItem.hashDeep(), copy.hashDeep());
+		assertEquals(inventoryItem.hashDeep(), inventoryItem.freeze().hashDeep());
+		assertEquals(inventoryItem.getNameFirstRep().hashDeep(), copy.getNameFirstRep().hashDeep());
+		assertEquals(0, new InventoryItem().hashDeep());
+	}
+	
+	@Test
+	@DisplayName("should invalidate the hash when the item is changed")
+	void hashDeep_shouldChangeWhenItemIsChanged() {
+		// Setup
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(new Coding("urn:name-type", "brand-name", null),
+		        "Panadol"));
+		InventoryItem copy = inventoryItem.copy();
+		int hash = inventoryItem.hashDeep();
+		copy.hashDeep();
+		
+		// Verify
+		inventoryItem.getNameFirstRep().setName("Tylenol");
+		assertNotEquals(hash, inventoryItem.hashDeep());
+		assertFalse(inventoryItem.equalsDeep(copy));
+		
+		inventoryItem.getNameFirstRep().setName("Panadol");
+		assertEquals(hash, inventoryItem.hashDeep());
+		assertTrue(inventoryItem.equalsDeep(copy));
+		
+		inventoryItem.setProperty("status", new CodeType("active"));
+		assertNotEquals(hash, inventoryItem.hashDeep());
+		inventoryItem.setStatusElement(null);
+		inventoryItem.addCategory().setText("Medication");
+		assertNotEquals(hash, inventoryItem.hashDeep());
+		inventoryItem.getCategory().clear();
+		assertEquals(hash, inventoryItem.hashDeep());
+	}
+	
+	@Test
+	@DisplayName("should memoize the hashes of children until they are changed or handed out")
+	void hashDeep_shouldMemoizeChildrenThatWereNotHandedOut() {
+		// Setup
+		inventoryItem.addName().setName("Panadol");
+		inventoryItem.setStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		InventoryItem copy = inventoryItem.copy();
+		int hash = copy.hashDeep();
+		
+		// Verify
+		// written past the accessors, like FhirTerser does, which the memoized hash does not see
+		copy.name.get(0).name.setValue("Tylenol");
+		assertEquals(hash, copy.hashDeep());
+		
+		copy.getNameFirstRep().getNameType().setCode("brand-name");
+		int changed = copy.hashDeep();
+		assertNotEquals(hash, changed);
+		copy.getNameFirstRep().setName("Panadol");
+		assertNotEquals(changed, copy.hashDeep());
+		
+		hash = copy.hashDeep();
+		copy.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+		assertNotEquals(hash, copy.hashDeep());
+		copy.setProperty("status", new CodeType("active"));
+		assertEquals(hash, copy.hashDeep());
+	}
+	
+	@Test
+	@DisplayName("should skip comparing the children when the memoized hashes of both items differ")
+	void equalsDeep_shouldReturnEarlyWhenMemoizedHashesDiffer() {
+		// Setup
+		inventoryItem.addName().setName("Panadol");
+		InventoryItem copy = inventoryItem.copy();
+		InventoryItem other = inventoryItem.copy();
+		other.name.get(0).name.setValue("Tylenol");
+		copy.hashDeep();
+		other.hashDeep();
+		
+		// Verify
+		assertFalse(copy.equalsDeep(other));
+		// both hashes are memoized, so the change written past the accessors is not seen
+		other.name.get(0).name.setValue("Panadol");
+		assertFalse(copy.equalsDeep(other));
+		assertTrue(inventoryItem.equalsDeep(other));
+		assertTrue(other.getNameFirstRep().equalsDeep(copy.name.get(0)));
+		assertTrue(copy.equalsDeep(other));
+	}
+	
+	@Test
+	@DisplayName("should record the children changed since the last checkpoint")
+	void getDirtyChildren_shouldRecordChangedChildren() {
+		// Setup
+		inventoryItem.setChangeTracking(true);
+		inventoryItem.setStatus(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.addName().setName("Panadol");
+		inventoryItem.setProperty("netContent", new Quantity(24));
+		inventoryItem.addChild("category");
+		
+		// Verify
+		assertEquals(BitSet.valueOf(new long[] { 0b1000010110 }), inventoryItem.getDirtyChildren());
+		assertTrue(inventoryItem.isDirty("netContent"));
+		assertFalse(inventoryItem.isDirty("code"));
+		assertTrue(inventoryItem.copy().isDirty("name"));
+		
+		inventoryItem.clearDirty();
+		assertFalse(inventoryItem.isDirty());
+		assertTrue(inventoryItem.hasName());
+		inventoryItem.getName();
+		inventoryItem.getStatusElement();
+		inventoryItem.getNetContent();
+		assertFalse(inventoryItem.isDirty());
+		inventoryItem.getDescription().setDescription("Tablets");
+		assertEquals(BitSet.valueOf(new long[] { 1 << 6 }), inventoryItem.getDirtyChildren());
+		assertThrows(IllegalArgumentException.class, () -> inventoryItem.isDirty("meta"));
+		
+		inventoryItem.setChangeTracking(false);
+		assertFalse(inventoryItem.isDirty());
+		inventoryItem.addCode().setText("Paracetamol");
+		assertFalse(inventoryItem.isDirty());
+		assertFalse(inventoryItem.copy().isChangeTracking());
+	}
+	
+	@Test
+	@DisplayName("should record changes made through handed-out children, but not reads that create them")
+	void getDirtyChildren_shouldRecordChangesThroughHandedOutChildren() {
+		// Setup
+		inventoryItem.addIdentifier().setValue("a");
+		inventoryItem.setChangeTracking(true);
+		inventoryItem.getStatusElement();
+		inventoryItem.getNetContent();
+		inventoryItem.getDescription();
+		inventoryItem.getCategoryFirstRep();
+		
+		// Verify
+		assertEquals(new BitSet(), inventoryItem.getDirtyChildren());
+		
+		inventoryItem.getIdentifier().get(0).setValue("b");
+		assertEquals(BitSet.valueOf(new long[] { 1 }), inventoryItem.getDirtyChildren());
+		
+		inventoryItem.clearDirty();
+		inventoryItem.getIdentifier().add(new Identifier().setValue("c"));
+		assertTrue(inventoryItem.isDirty("identifier"));
+		
+		inventoryItem.clearDirty();
+		inventoryItem.getCategoryFirstRep().setText("Medication");
+		((StringType) InventoryItemPath.compile("identifier.value").evaluateFirst(inventoryItem)).setValue("d");
+		assertEquals(BitSet.valueOf(new long[] { 0b101 }), inventoryItem.getDirtyChildren());
+		assertTrue(inventoryItem.copy().isDirty("category"));
+	}
 }
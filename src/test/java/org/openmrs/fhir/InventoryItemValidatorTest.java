@@ -0,0 +1,90 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class InventoryItemValidatorTest {
+	
+	private final InventoryItemValidator validator = new InventoryItemValidator();
+	
+	@Test
+	@DisplayName("Should report no errors for a valid item")
+	void validate_shouldAcceptValidItem() {
+		OperationOutcome outcome = validator.validate(item(InventoryItem.InventoryItemStatusCodes.ACTIVE, "Panadol"));
+		
+		assertFalse(InventoryItemValidator.hasErrors(outcome));
+		assertEquals(OperationOutcome.IssueSeverity.INFORMATION, outcome.getIssueFirstRep().getSeverity());
+	}
+	
+	@Test
+	@DisplayName("Should report every missing required element")
+	void validate_shouldReportMissingElements() {
+		InventoryItem item = item(null, null);
+		item.addName().setNameType(new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null));
+		item.addName().setName("Panadol");
+		
+		OperationOutcome outcome = validator.validate(item);
+		
+		assertTrue(InventoryItemValidator.hasErrors(outcome));
+		assertEquals(3, outcome.getIssue().size());
+		assertEquals("InventoryItem.status", outcome.getIssue().get(0).getExpression().get(0).getValue());
+		assertEquals(OperationOutcome.IssueType.REQUIRED, outcome.getIssue().get(0).getCode());
+		assertEquals("InventoryItem.name[0].name", outcome.getIssue().get(1).getExpression().get(0).getValue());
+		assertEquals("InventoryItem.name[1].nameType", outcome.getIssue().get(2).getExpression().get(0).getValue());
+	}
+	
+	@Test
+	@DisplayName("Should report a status code that is not an InventoryItemStatusCodes code")
+	void validate_shouldReportUnknownStatus() {
+		InventoryItem item = item(InventoryItem.InventoryItemStatusCodes.NULL, "Panadol");
+		
+		OperationOutcome outcome = validator.validate(item);
+		
+		assertEquals(OperationOutcome.IssueType.CODEINVALID, outcome.getIssueFirstRep().getCode());
+		assertEquals("InventoryItem.status", outcome.getIssueFirstRep().getExpression().get(0).getValue());
+	}
+	
+	@Test
+	@DisplayName("Should return the outcomes in the order of the items")
+	void validateAll_shouldKeepOrder() {
+		List<InventoryItem> items = new LinkedList<>();
+		for (int i = 0; i < 2000; i++) {
+			items.add(i % 7 == 0 ? item(null, "Item " + i) : item(InventoryItem.InventoryItemStatusCodes.ACTIVE, "Item " + i));
+		}
+		
+		List<OperationOutcome> outcomes = new InventoryItemValidator(new ForkJoinPool(4)).validateAll(items);
+		
+		assertEquals(items.size(), outcomes.size());
+		List<Integer> invalid = new ArrayList<>();
+		for (int i = 0; i < outcomes.size(); i++) {
+			if (InventoryItemValidator.hasErrors(outcomes.get(i))) {
+				invalid.add(i);
+			}
+		}
+		assertEquals(286, invalid.size());
+		assertTrue(invalid.stream().allMatch(i -> i % 7 == 0));
+	}
+	
+	private static InventoryItem item(InventoryItem.InventoryItemStatusCodes status, String name) {
+		InventoryItem item = new InventoryItem();
+		if (status != null) {
+			item.setStatus(status);
+		}
+		if (name != null) {
+			item.addName(new InventoryItem.InventoryItemNameComponent(
+			        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null), name));
+		}
+		return item;
+	}
+}
@@ -0,0 +1,184 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.FhirTerser;
+
+class LazyInventoryItemTest {
+	
+	private static FhirContext fhirContext;
+	
+	private InventoryItemJsonCodec codec;
+	
+	private InventoryItem inventoryItem;
+	
+	private byte[] json;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@BeforeEach
+	void setUp() {
+		codec = new InventoryItemJsonCodec(fhirContext);
+		inventoryItem = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.setId("item-1");
+		inventoryItem.addIdentifier().setUse(Identifier.IdentifierUse.OFFICIAL).setSystem("urn:catalog").setValue("123");
+		inventoryItem.addCategory(new CodeableConcept().setText("medication"));
+		inventoryItem.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", "387517004", "Paracetamol")));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null), "Panadol"));
+		inventoryItem.setDescription(new InventoryItem.InventoryItemDescriptionComponent().setDescription("Tablets"));
+		inventoryItem.setBaseUnit(new CodeableConcept(new Coding("http://unitsofmeasure.org", "{tbl}", "tablet")));
+		inventoryItem.setNetContent(new Quantity().setValue(new BigDecimal("24.0")).setUnit("tablets"));
+		json = fhirContext.newJsonParser().encodeResourceToString(inventoryItem).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	@Test
+	@DisplayName("Should decode the same resource as HAPI")
+	void decodeLazily_shouldMatchHapiResource() {
+		LazyInventoryItem decoded = codec.decodeLazily(json);
+		InventoryItem parsed = fhirContext.newJsonParser().parseResource(InventoryItem.class,
+		    new String(json, StandardCharsets.UTF_8));
+		
+		assertEquals("item-1", decoded.getIdPart());
+		assertEquals(InventoryItem.InventoryItemStatusCodes.ACTIVE, decoded.getStatus());
+		assertEquals("Panadol", decoded.getName().get(0).getName());
+		assertTrue(decoded.getNetContent().equalsDeep(parsed.getNetContent()));
+		assertTrue(decoded.load().equalsDeep(parsed));
+	}
+	
+	@Test
+	@DisplayName("Should only decode the fields that are accessed")
+	void decodeLazily_shouldOnlyDecodeAccessedFields() {
+		// name is not a valid InventoryItem name, so decoding it would fail
+		byte[] invalidName = "{\"resourceType\":\"InventoryItem\",\"status\":\"inactive\",\"name\":42}"
+		        .getBytes(StandardCharsets.UTF_8);
+		
+		LazyInventoryItem decoded = codec.decodeLazily(invalidName);
+		
+		assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, decoded.getStatus());
+		assertTrue(decoded.getIdentifier().isEmpty());
+		assertNull(decoded.getDescription());
+	}
+	
+	@Test
+	@DisplayName("Should encode an unmodified item back to its original bytes")
+	void encodeToBytes_shouldReturnOriginalBytesWhenUnmodified() {
+		LazyInventoryItem decoded = codec.decodeLazily(json);
+		decoded.getName().get(0).getName();
+		
+		assertArrayEquals(json, codec.encodeToBytes(decoded));
+		assertArrayEquals(json, codec.encodeToBytes(decoded.load()));
+		assertTrue(decoded.load().isUnmodified());
+	}
+	
+	@Test
+	@DisplayName("Should encode the changes made to the loaded item")
+	void encodeToBytes_shouldEncodeModifiedItem() {
+		LazyInventoryItem decoded = codec.decodeLazily(json);
+		JsonBackedInventoryItem loaded = decoded.load();
+		loaded.getNameFirstRep().setName("Panado");
+		loaded.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+		inventoryItem.getNameFirstRep().setName("Panado");
+		inventoryItem.setStatus(InventoryItem.InventoryItemStatusCodes.INACTIVE);
+		
+		assertFalse(loaded.isUnmodified());
+		assertEquals("Panado", decoded.getName().get(0).getName());
+		assertEquals(fhirContext.newJsonParser().encodeResourceToString(inventoryItem),
+		    new String(codec.encodeToBytes(decoded), StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	@DisplayName("Should hand out unmodifiable lists")
+	void getIdentifier_shouldBeUnmodifiable() {
+		LazyInventoryItem decoded = codec.decodeLazily(json);
+		
+		assertThrows(UnsupportedOperationException.class, () -> decoded.getIdentifier().add(new Identifier()));
+		assertThrows(UnsupportedOperationException.class, () -> decoded.getCategory().clear());
+		assertArrayEquals(json, codec.encodeToBytes(decoded));
+	}
+	
+	@Test
+	@DisplayName("Should be encoded by HAPI once loaded")
+	void load_shouldLetHapiEncodeFieldsNotYetDecoded() {
+		InventoryItem decoded = codec.decodeLazily(json).load();
+		
+		assertEquals(new String(json, StandardCharsets.UTF_8), fhirContext.newJsonParser().encodeResourceToString(decoded));
+	}
+	
+	@Test
+	@DisplayName("Should expose all fields to the terser once loaded")
+	void load_shouldLetTerserReadAndWriteFields() {
+		FhirTerser terser = fhirContext.newTerser();
+		JsonBackedInventoryItem decoded = codec.decodeLazily(json).load();
+		
+		assertEquals(1, terser.getValues(decoded, "InventoryItem.code").size());
+		assertEquals(1, terser.getValues(decoded, "InventoryItem.identifier").size());
+		assertTrue(decoded.isUnmodified());
+		
+		terser.getSingleValueOrNull(decoded, "InventoryItem.identifier.value", StringType.class).setValue("456");
+		assertFalse(decoded.isUnmodified());
+		assertEquals("456", codec.decode(codec.encodeToBytes(decoded)).getIdentifierFirstRep().getValue());
+	}
+	
+	@Test
+	@DisplayName("Should treat content set through setProperty as a modification")
+	void setProperty_shouldMarkItemModified() {
+		LazyInventoryItem decoded = codec.decodeLazily(json);
+		decoded.load().setProperty("category", new CodeableConcept().setText("device"));
+		
+		assertFalse(decoded.load().isUnmodified());
+		assertEquals(2, decoded.getCategory().size());
+	}
+	
+	@Test
+	@DisplayName("Should decode items with extensions eagerly")
+	void decodeLazily_shouldDecodeUnsupportedContentEagerly() {
+		inventoryItem.getNameFirstRep().getNameElement().addExtension("urn:ext", new StringType("value"));
+		inventoryItem.addExtension("urn:ext", new StringType("value"));
+		String encoded = fhirContext.newJsonParser().encodeResourceToString(inventoryItem);
+		
+		LazyInventoryItem decoded = codec.decodeLazily(encoded.getBytes(StandardCharsets.UTF_8));
+		
+		assertTrue(decoded.getName().get(0).getNameElement().hasExtension());
+		assertFalse(decoded.load().isUnmodified());
+		assertTrue(decoded.load().hasExtension());
+		assertEquals(encoded, new String(codec.encodeToBytes(decoded), StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	@DisplayName("Should decode nested content the codec does not support with HAPI")
+	void decodeLazily_shouldFallBackToHapiForNestedContent() {
+		inventoryItem.getNameFirstRep().getNameElement().addExtension("urn:ext", new StringType("value"));
+		String encoded = fhirContext.newJsonParser().encodeResourceToString(inventoryItem);
+		
+		LazyInventoryItem decoded = codec.decodeLazily(encoded.getBytes(StandardCharsets.UTF_8));
+		
+		assertTrue(decoded.getName().get(0).getNameElement().hasExtension());
+		assertEquals("387517004", decoded.getCode().get(0).getCodingFirstRep().getCode());
+		assertTrue(decoded.load().isUnmodified());
+		assertEquals(encoded, new String(codec.encodeToBytes(decoded), StandardCharsets.UTF_8));
+	}
+}
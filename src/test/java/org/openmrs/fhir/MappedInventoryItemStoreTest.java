@@ -0,0 +1,125 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ca.uhn.fhir.context.FhirContext;
+
+class MappedInventoryItemStoreTest {
+	
+	@TempDir
+	Path directory;
+	
+	private FhirContext fhirContext;
+	
+	@BeforeEach
+	void setUp() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@Test
+	@DisplayName("Should return the stored items")
+	void get_shouldReturnStoredItems() throws IOException {
+		try (MappedInventoryItemStore store = MappedInventoryItemStore.open(directory, fhirContext)) {
+			InventoryItem item = item(1, InventoryItem.InventoryItemStatusCodes.ACTIVE);
+			assertFalse(store.put(item));
+			assertTrue(store.put(item(1, InventoryItem.InventoryItemStatusCodes.INACTIVE)));
+			store.put(item(2, InventoryItem.InventoryItemStatusCodes.ACTIVE));
+			
+			assertEquals(2, store.size());
+			assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, store.get("item-1").getStatus());
+			assertTrue(item(2, InventoryItem.InventoryItemStatusCodes.ACTIVE).equalsDeep(store.get("item-2")));
+			assertNull(store.get("item-3"));
+			assertThrows(IllegalArgumentException.class, () -> store.put(new InventoryItem()));
+			
+			assertTrue(store.delete("item-1"));
+			assertFalse(store.delete("item-1"));
+			assertFalse(store.contains("item-1"));
+			assertEquals(1, store.size());
+		}
+	}
+	
+	@Test
+	@DisplayName("Should keep the items when reopened")
+	void open_shouldKeepItems() throws IOException {
+		try (MappedInventoryItemStore store = new MappedInventoryItemStore(directory, fhirContext, 4096)) {
+			for (int i = 0; i < 5000; i++) {
+				store.put(item(i, InventoryItem.InventoryItemStatusCodes.ACTIVE));
+			}
+			for (int i = 0; i < 5000; i += 2) {
+				store.delete("item-" + i);
+			}
+			store.put(item(1, InventoryItem.InventoryItemStatusCodes.INACTIVE));
+		}
+		
+		try (MappedInventoryItemStore store = MappedInventoryItemStore.open(directory, fhirContext)) {
+			assertEquals(2500, store.size());
+			assertNull(store.get("item-4998"));
+			assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, store.get("item-1").getStatus());
+			assertTrue(item(4999, InventoryItem.InventoryItemStatusCodes.ACTIVE).equalsDeep(store.get("item-4999")));
+		}
+	}
+	
+	@Test
+	@DisplayName("Should rebuild a missing index from the data file")
+	void open_shouldRebuildMissingIndex() throws IOException {
+		try (MappedInventoryItemStore store = new MappedInventoryItemStore(directory, fhirContext, 4096)) {
+			for (int i = 0; i < 1000; i++) {
+				store.put(item(i, InventoryItem.InventoryItemStatusCodes.ACTIVE));
+			}
+			store.put(item(7, InventoryItem.InventoryItemStatusCodes.INACTIVE));
+		}
+		Files.delete(directory.resolve(MappedInventoryItemStore.INDEX_FILE));
+		
+		try (MappedInventoryItemStore store = MappedInventoryItemStore.open(directory, fhirContext)) {
+			assertEquals(1000, store.size());
+			assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, store.get("item-7").getStatus());
+			assertTrue(item(999, InventoryItem.InventoryItemStatusCodes.ACTIVE).equalsDeep(store.get("item-999")));
+		}
+	}
+	
+	@Test
+	@DisplayName("Should not restore deleted items when rebuilding the index")
+	void open_shouldNotRebuildDeletedItems() throws IOException {
+		try (MappedInventoryItemStore store = new MappedInventoryItemStore(directory, fhirContext, 4096)) {
+			for (int i = 0; i < 100; i++) {
+				store.put(item(i, InventoryItem.InventoryItemStatusCodes.ACTIVE));
+			}
+			store.delete("item-3");
+			store.delete("item-4");
+			store.put(item(4, InventoryItem.InventoryItemStatusCodes.INACTIVE));
+		}
+		Files.delete(directory.resolve(MappedInventoryItemStore.INDEX_FILE));
+		
+		try (MappedInventoryItemStore store = MappedInventoryItemStore.open(directory, fhirContext)) {
+			assertEquals(99, store.size());
+			assertFalse(store.contains("item-3"));
+			assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, store.get("item-4").getStatus());
+		}
+	}
+	
+	private static InventoryItem item(int index, InventoryItem.InventoryItemStatusCodes status) {
+		InventoryItem item = new InventoryItem(status);
+		item.setId("item-" + index);
+		item.addIdentifier().setSystem("urn:catalog").setValue(String.valueOf(index));
+		item.addCode(new CodeableConcept(new Coding("http://snomed.info/sct", String.valueOf(index / 10), null)));
+		item.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "common-name", null), "Item " + index));
+		return item;
+	}
+}
@@ -0,0 +1,72 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MemberPathTest {
+	
+	private InventoryItem inventoryItem;
+	
+	@BeforeEach
+	void setUp() {
+		inventoryItem = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+		inventoryItem.addIdentifier().setSystem("urn:a").setValue("1");
+		inventoryItem.addIdentifier().setSystem("urn:b").setValue("2");
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "brand-name", null), "Panadol"));
+		inventoryItem.addName(new InventoryItem.InventoryItemNameComponent(
+		        new Coding("http://hl7.org/fhir/inventoryitem-nametype", "common-name", null), "Paracetamol"));
+	}
+	
+	@Test
+	@DisplayName("Should select nested values in document order")
+	void evaluate_shouldSelectNestedValues() {
+		assertEquals("Panadol,Paracetamol", join(MemberPath.parse("InventoryItem.name.name").evaluate(inventoryItem)));
+		assertEquals("brand-name,common-name", join(MemberPath.parse("name.nameType.code").evaluate(inventoryItem)));
+		assertEquals("1,2", join(MemberPath.parse("identifier.value").evaluate(inventoryItem)));
+		assertEquals("active", join(MemberPath.parse("InventoryItem.status").evaluate(inventoryItem)));
+	}
+	
+	@Test
+	@DisplayName("Should return nothing for absent elements")
+	void evaluate_shouldReturnNothingForAbsentElements() {
+		assertEquals(0, MemberPath.parse("InventoryItem.netContent.value").evaluate(inventoryItem).size());
+		assertNull(MemberPath.parse("description.description").evaluateFirst(inventoryItem));
+	}
+	
+	@Test
+	@DisplayName("Should support evaluating a path from within another evaluation")
+	void evaluate_shouldSupportNestedEvaluation() {
+		// Setup
+		MemberPath names = MemberPath.parse("name");
+		MemberPath code = MemberPath.parse("nameType.code");
+		StringBuilder result = new StringBuilder();
+		
+		names.evaluate(inventoryItem, name -> code.evaluate(name, value -> result.append(value.primitiveValue())));
+		
+		// Verify
+		assertEquals("brand-namecommon-name", result.toString());
+	}
+	
+	@Test
+	@DisplayName("Should reject expressions that are not member invocations")
+	void parse_shouldRejectFunctions() {
+		assertThrows(IllegalArgumentException.class, () -> MemberPath.parse("name.where(name = 'x')"));
+		assertThrows(IllegalArgumentException.class, () -> MemberPath.parse("name..name"));
+	}
+	
+	private static String join(List<Base> values) {
+		return values.stream().map(value -> ((PrimitiveType<?>) value).getValueAsString()).collect(Collectors.joining(","));
+	}
+}
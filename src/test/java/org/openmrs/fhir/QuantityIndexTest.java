@@ -0,0 +1,88 @@
+package org.openmrs.fhir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hl7.fhir.r4.model.Quantity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class QuantityIndexTest {
+	
+	private QuantityIndex index;
+	
+	@BeforeEach
+	void setUp() {
+		index = new QuantityIndex();
+		index.add("item-1", quantity("500", "mL"));
+		index.add("item-2", quantity("1", "L"));
+		index.add("item-3", quantity("8", "[foz_us]"));
+		index.add("item-4", quantity("30", "{tbl}"));
+		index.add("item-5", quantity("0.25", "kg"));
+	}
+	
+	@Test
+	@DisplayName("Should compare values in different units of the same dimension")
+	void get_shouldConvertUnits() {
+		assertEquals(Arrays.asList("item-3", "item-1"), get("lt1||L"));
+		assertEquals(Arrays.asList("item-1", "item-2"), get("ge0.5|http://unitsofmeasure.org|L"));
+		assertEquals(Arrays.asList("item-2"), get("1000||mL"));
+		assertEquals(Arrays.asList("item-5"), get("250||g"));
+		assertEquals(Arrays.asList("item-3"), get("ap237||mL"));
+		assertEquals(Arrays.asList("item-4"), get("gt20||{tbl}"));
+		assertEquals(Arrays.asList(), get("gt20||{cap}"));
+	}
+	
+	@Test
+	@DisplayName("Should match the range implied by the precision of the value")
+	void get_shouldUsePrecision() {
+		assertEquals(Arrays.asList("item-2"), get("1.00||L"));
+		assertEquals(Arrays.asList(), get("1.001||L"));
+		assertEquals(Arrays.asList("item-3"), get("ne1||L"));
+		assertEquals(Arrays.asList("item-5", "item-2", "item-3", "item-4", "item-1"), get("le500"));
+		assertEquals(Arrays.asList("item-4"), get("30"));
+	}
+	
+	@Test
+	@DisplayName("Should combine ranges that must all match")
+	void get_shouldIntersectRanges() {
+		assertEquals(Arrays.asList("item-1"), get(Arrays.asList("gt250||mL", "lt1||L")));
+		assertEquals(Arrays.asList("item-1", "item-2"), get(Arrays.asList("ge500||mL", "le1||L")));
+		assertEquals(Arrays.asList(), get(Arrays.asList("gt1||L", "lt500||mL")));
+		assertEquals(Arrays.asList("item-1"), get(Arrays.asList("ge500||mL", "ne1.0||L")));
+		assertEquals(Arrays.asList("item-2"), get(Arrays.asList("ge500||mL", "1.0||L,30||{tbl}")));
+		assertEquals(Arrays.asList(), get(Arrays.asList("ge500||mL", "250||g")));
+	}
+	
+	@Test
+	@DisplayName("Should replace and remove the values of an item")
+	void add_shouldReplaceValue() {
+		index.add("item-1", quantity("2", "L"));
+		index.remove("item-2");
+		index.add("item-5", null);
+		
+		assertEquals(Arrays.asList("item-1"), get("ge1||L"));
+		assertEquals(Arrays.asList(), get("250||g"));
+		assertThrows(IllegalArgumentException.class, () -> index.get("ge"));
+		assertThrows(IllegalArgumentException.class, () -> index.get("1|L"));
+		assertThrows(IllegalArgumentException.class, () -> index.get("xy1||L"));
+	}
+	
+	private List<String> get(String values) {
+		return new ArrayList<>(index.get(values));
+	}
+	
+	private List<String> get(List<String> andValues) {
+		return new ArrayList<>(index.get(andValues));
+	}
+	
+	private static Quantity quantity(String value, String code) {
+		return new Quantity().setValue(new BigDecimal(value)).setSystem(UcumUnits.SYSTEM).setCode(code);
+	}
+}
@@ -0,0 +1,255 @@
+package org.openmrs.fhir.bundle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openmrs.fhir.InventoryItem;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+
+class InventoryItemBundlePublisherTest {
+	
+	private static FhirContext fhirContext;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@Test
+	@DisplayName("Should only read and emit the requested items")
+	void request_shouldEmitRequestedItems() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		InventoryItemBundleReader reader = reader(bundle(5));
+		new InventoryItemBundlePublisher(reader).subscribe(subscriber);
+		
+		assertTrue(subscriber.ids.isEmpty());
+		subscriber.subscription.request(2);
+		assertEquals(Arrays.asList("1", "2"), subscriber.ids);
+		assertEquals(2, reader.getEntryNumber());
+		
+		subscriber.subscription.request(2);
+		assertEquals(Arrays.asList("1", "2", "3", "4"), subscriber.ids);
+		assertFalse(subscriber.completed);
+		
+		subscriber.subscription.request(10);
+		assertEquals(5, subscriber.ids.size());
+		assertTrue(subscriber.completed);
+		assertNull(subscriber.error);
+	}
+	
+	@Test
+	@DisplayName("Should emit one item per request made from onNext without recursing")
+	void request_shouldEmitItemRequestedFromOnNext() {
+		RecordingSubscriber subscriber = new RecordingSubscriber() {
+			
+			@Override
+			public void onSubscribe(Subscription subscription) {
+				super.onSubscribe(subscription);
+				subscription.request(1);
+			}
+			
+			@Override
+			public void onNext(InventoryItem item) {
+				super.onNext(item);
+				subscription.request(1);
+			}
+		};
+		new InventoryItemBundlePublisher(reader(bundle(2000))).subscribe(subscriber);
+		
+		assertEquals(2000, subscriber.ids.size());
+		assertTrue(subscriber.completed);
+	}
+	
+	@Test
+	@DisplayName("Should stop emitting and close the Bundle when cancelled")
+	void cancel_shouldCloseBundle() {
+		boolean[] closed = new boolean[1];
+		InventoryItemBundleReader reader = closingReader(bundle(5), closed);
+		RecordingSubscriber subscriber = new RecordingSubscriber() {
+			
+			@Override
+			public void onNext(InventoryItem item) {
+				super.onNext(item);
+				subscription.cancel();
+			}
+		};
+		new InventoryItemBundlePublisher(reader).subscribe(subscriber);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		
+		assertEquals(Arrays.asList("1"), subscriber.ids);
+		assertTrue(closed[0]);
+		assertFalse(subscriber.completed);
+		assertNull(subscriber.error);
+	}
+	
+	@Test
+	@DisplayName("Should cancel and close the Bundle when the subscriber throws from onNext")
+	void onNext_shouldCancelWhenSubscriberThrows() {
+		boolean[] closed = new boolean[1];
+		InventoryItemBundleReader reader = closingReader(bundle(5), closed);
+		IllegalStateException thrown = new IllegalStateException("Subscriber failed");
+		RecordingSubscriber subscriber = new RecordingSubscriber() {
+			
+			@Override
+			public void onNext(InventoryItem item) {
+				super.onNext(item);
+				if (ids.size() == 2) {
+					throw thrown;
+				}
+			}
+		};
+		List<Throwable> reported = new ArrayList<>();
+		Thread thread = Thread.currentThread();
+		UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+		thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+		try {
+			new InventoryItemBundlePublisher(reader).subscribe(subscriber);
+			subscriber.subscription.request(3);
+			subscriber.subscription.request(3);
+			subscriber.subscription.cancel();
+		}
+		finally {
+			thread.setUncaughtExceptionHandler(handler);
+		}
+		
+		assertEquals(Arrays.asList("1", "2"), subscriber.ids);
+		assertTrue(closed[0]);
+		assertEquals(Arrays.asList(thrown), reported);
+		assertFalse(subscriber.completed);
+		assertNull(subscriber.error);
+	}
+	
+	@Test
+	@DisplayName("Should signal an invalid Bundle, an invalid request and a second subscriber as errors")
+	void subscribe_shouldSignalErrors() {
+		RecordingSubscriber invalidBundle = new RecordingSubscriber();
+		new InventoryItemBundlePublisher(reader("{\"resourceType\":\"Patient\"}")).subscribe(invalidBundle);
+		invalidBundle.subscription.request(1);
+		assertTrue(invalidBundle.error instanceof DataFormatException);
+		
+		RecordingSubscriber invalidRequest = new RecordingSubscriber();
+		InventoryItemBundlePublisher publisher = new InventoryItemBundlePublisher(reader(bundle(1)));
+		publisher.subscribe(invalidRequest);
+		invalidRequest.subscription.request(0);
+		assertTrue(invalidRequest.error instanceof IllegalArgumentException);
+		assertTrue(invalidRequest.ids.isEmpty());
+		
+		RecordingSubscriber second = new RecordingSubscriber();
+		publisher.subscribe(second);
+		assertTrue(second.error instanceof IllegalStateException);
+	}
+	
+	@Test
+	@DisplayName("Should signal the subscriber on the executor")
+	void subscribe_shouldSignalOnExecutor() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			CountDownLatch latch = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			RecordingSubscriber subscriber = new RecordingSubscriber() {
+				
+				@Override
+				public void onNext(InventoryItem item) {
+					super.onNext(item);
+					threads.add(Thread.currentThread());
+				}
+				
+				@Override
+				public void onComplete() {
+					super.onComplete();
+					latch.countDown();
+				}
+			};
+			new InventoryItemBundlePublisher(reader(bundle(3)), executor).subscribe(subscriber);
+			subscriber.subscription.request(3);
+			subscriber.subscription.request(1);
+			
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+			assertEquals(Arrays.asList("1", "2", "3"), subscriber.ids);
+			assertFalse(threads.contains(Thread.currentThread()));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+	private static InventoryItemBundleReader reader(String bundle) {
+		return new InventoryItemBundleReader(fhirContext, InventoryItemBundleReaderTest.toStream(bundle));
+	}
+	
+	private static InventoryItemBundleReader closingReader(String bundle, boolean[] closed) {
+		return new InventoryItemBundleReader(fhirContext,
+		        new FilterInputStream(InventoryItemBundleReaderTest.toStream(bundle)) {
+			
+			        @Override
+			        public void close() throws IOException {
+				        closed[0] = true;
+				        super.close();
+			        }
+		        });
+	}
+	
+	private static String bundle(int size) {
+		StringBuilder bundle = new StringBuilder("{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"entry\":[");
+		for (int i = 1; i <= size; i++) {
+			if (i > 1) {
+				bundle.append(',');
+			}
+			bundle.append("{\"resource\":{\"resourceType\":\"InventoryItem\",\"id\":\"").append(i)
+			        .append("\",\"status\":\"active\"}}");
+		}
+		return bundle.append("]}").toString();
+	}
+	
+	private static class RecordingSubscriber implements Subscriber<InventoryItem> {
+		
+		Subscription subscription;
+		
+		final List<String> ids = new ArrayList<>();
+		
+		volatile boolean completed;
+		
+		volatile Throwable error;
+		
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+		}
+		
+		@Override
+		public void onNext(InventoryItem item) {
+			ids.add(item.getIdElement().getIdPart());
+		}
+		
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+		
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+}
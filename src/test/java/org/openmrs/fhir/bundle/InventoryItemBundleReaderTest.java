@@ -0,0 +1,121 @@
+package org.openmrs.fhir.bundle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openmrs.fhir.InventoryItem;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+
+class InventoryItemBundleReaderTest {
+	
+	private static FhirContext fhirContext;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@Test
+	@DisplayName("Should read the items of the entries and skip the other resources and elements")
+	void next_shouldReadItemsOfEntries() throws Exception {
+		// Setup
+		String bundle = "{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"total\":2,"
+		        + "\"link\":[{\"relation\":\"self\",\"url\":\"InventoryItem\"}],\"entry\":["
+		        + "{\"fullUrl\":\"InventoryItem/1\",\"resource\":{\"resourceType\":\"InventoryItem\",\"id\":\"1\","
+		        + "\"status\":\"active\",\"name\":[{\"name\":\"Paracetamol\"}]},\"search\":{\"mode\":\"match\"}},"
+		        + "{\"resource\":{\"resourceType\":\"OperationOutcome\",\"issue\":[{\"severity\":\"information\"}]},"
+		        + "\"search\":{\"mode\":\"outcome\"}},"
+		        + "{\"request\":{\"method\":\"DELETE\",\"url\":\"InventoryItem/3\"}},"
+		        + "{\"search\":{\"mode\":\"match\"},\"resource\":{\"status\":\"inactive\",\"id\":\"2\","
+		        + "\"resourceType\":\"InventoryItem\"}}],"
+		        + "\"signature\":{\"data\":\"abc\"}}";
+		
+		List<InventoryItem> items = new ArrayList<>();
+		List<Long> entryNumbers = new ArrayList<>();
+		try (InventoryItemBundleReader reader = new InventoryItemBundleReader(fhirContext, toStream(bundle))) {
+			while (reader.hasNext()) {
+				items.add(reader.next());
+				entryNumbers.add(reader.getEntryNumber());
+			}
+		}
+		
+		// Verify
+		assertEquals(2, items.size());
+		assertEquals("1", items.get(0).getIdElement().getIdPart());
+		assertEquals("Paracetamol", items.get(0).getNameFirstRep().getName());
+		assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, items.get(1).getStatus());
+		assertEquals("2", items.get(1).getIdElement().getIdPart());
+		assertEquals(1L, (long) entryNumbers.get(0));
+		assertEquals(4L, (long) entryNumbers.get(1));
+	}
+	
+	@Test
+	@DisplayName("Should have no items for a Bundle without entries")
+	void hasNext_shouldReturnFalseForBundleWithoutEntries() throws Exception {
+		try (InventoryItemBundleReader reader = new InventoryItemBundleReader(fhirContext,
+		        toStream("{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"total\":0}"))) {
+			assertFalse(reader.hasNext());
+		}
+		try (InventoryItemBundleReader reader = new InventoryItemBundleReader(fhirContext,
+		        toStream("{\"resourceType\":\"Bundle\",\"entry\":[]}"))) {
+			assertFalse(reader.hasNext());
+		}
+	}
+	
+	@Test
+	@DisplayName("Should reject a resource that is not a Bundle")
+	void hasNext_shouldRejectOtherResource() throws Exception {
+		try (InventoryItemBundleReader reader = new InventoryItemBundleReader(fhirContext,
+		        toStream("{\"resourceType\":\"InventoryItem\",\"status\":\"active\"}"))) {
+			DataFormatException e = assertThrows(DataFormatException.class, reader::hasNext);
+			assertTrue(e.getMessage().contains("not Bundle"));
+		}
+	}
+	
+	@Test
+	@DisplayName("Should report the entry number of invalid JSON")
+	void next_shouldReportEntryNumberOfInvalidJson() throws Exception {
+		// Setup
+		String bundle = "{\"resourceType\":\"Bundle\",\"entry\":["
+		        + "{\"resource\":{\"resourceType\":\"InventoryItem\",\"status\":\"active\"}},"
+		        + "{\"resource\":{\"resourceType\":\"InventoryItem\",\"status\":}}]}";
+		
+		try (InventoryItemBundleReader reader = new InventoryItemBundleReader(fhirContext, toStream(bundle))) {
+			reader.next();
+			
+			// Verify
+			DataFormatException e = assertThrows(DataFormatException.class, reader::next);
+			assertTrue(e.getMessage().contains("entry 2"));
+		}
+	}
+	
+	@Test
+	@DisplayName("Should have no items once closed")
+	void close_shouldEndItems() throws Exception {
+		String bundle = "{\"resourceType\":\"Bundle\",\"entry\":["
+		        + "{\"resource\":{\"resourceType\":\"InventoryItem\",\"status\":\"active\"}}]}";
+		
+		InventoryItemBundleReader reader = new InventoryItemBundleReader(fhirContext, toStream(bundle));
+		reader.close();
+		
+		assertFalse(reader.hasNext());
+	}
+	
+	static InputStream toStream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,98 @@
+package org.openmrs.fhir.ndjson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openmrs.fhir.InventoryItem;
+import org.openmrs.fhir.InventoryItemR5Converter;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+
+class NdjsonReaderTest {
+	
+	private static FhirContext fhirContext;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@Test
+	@DisplayName("Should read one resource per line and skip blank lines")
+	void stream_shouldReadOneResourcePerLine() throws Exception {
+		// Setup
+		String ndjson = "{\"resourceType\":\"InventoryItem\",\"id\":\"1\",\"status\":\"active\"}\n\n"
+		        + "{\"resourceType\":\"InventoryItem\",\"id\":\"2\",\"status\":\"inactive\"}\n";
+		
+		List<InventoryItem> items;
+		try (Stream<InventoryItem> stream = NdjsonReader.forInventoryItems(fhirContext, toStream(ndjson)).stream()) {
+			items = stream.collect(Collectors.toList());
+		}
+		
+		// Verify
+		assertEquals(2, items.size());
+		assertEquals("1", items.get(0).getIdElement().getIdPart());
+		assertEquals(InventoryItem.InventoryItemStatusCodes.ACTIVE, items.get(0).getStatus());
+		assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, items.get(1).getStatus());
+	}
+	
+	@Test
+	@DisplayName("Should report the line number of an invalid resource")
+	void next_shouldReportLineNumberOfInvalidResource() throws Exception {
+		// Setup
+		String ndjson = "{\"resourceType\":\"InventoryItem\",\"status\":\"active\"}\n{not json}\n";
+		
+		try (NdjsonReader<InventoryItem> reader = NdjsonReader.forInventoryItems(fhirContext, toStream(ndjson))) {
+			reader.next();
+			
+			// Verify
+			DataFormatException e = assertThrows(DataFormatException.class, reader::next);
+			assertTrue(e.getMessage().contains("line 2"));
+		}
+	}
+	
+	@Test
+	@DisplayName("Should convert R5 resources to this backport as they are read")
+	void forR5InventoryItems_shouldConvertEachLine() throws Exception {
+		String ndjson = "{\"resourceType\":\"InventoryItem\",\"id\":\"1\",\"status\":\"active\","
+		        + "\"instance\":{\"lotNumber\":\"LOT-1\"}}\n"
+		        + "{\"resourceType\":\"InventoryItem\",\"id\":\"2\",\"status\":\"inactive\"}\n";
+		
+		List<InventoryItem> items;
+		try (Stream<InventoryItem> stream = NdjsonReader
+		        .forR5InventoryItems(new InventoryItemR5Converter(fhirContext), toStream(ndjson)).stream()) {
+			items = stream.collect(Collectors.toList());
+		}
+		
+		assertEquals(2, items.size());
+		assertEquals("LOT-1",
+		    items.get(0).getExtensionByUrl(InventoryItemR5Converter.EXTENSION_INSTANCE).getExtensionString("lotNumber"));
+		assertEquals(InventoryItem.InventoryItemStatusCodes.INACTIVE, items.get(1).getStatus());
+	}
+	
+	@Test
+	@DisplayName("Should have no resources for an empty stream")
+	void hasNext_shouldReturnFalseForEmptyStream() throws Exception {
+		try (NdjsonReader<InventoryItem> reader = NdjsonReader.forInventoryItems(fhirContext, toStream(""))) {
+			assertFalse(reader.hasNext());
+		}
+	}
+	
+	private static InputStream toStream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,72 @@
+package org.openmrs.fhir.ndjson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openmrs.fhir.InventoryItem;
+
+import ca.uhn.fhir.context.FhirContext;
+
+class NdjsonWriterTest {
+	
+	private static FhirContext fhirContext;
+	
+	@BeforeAll
+	static void setUpContext() {
+		fhirContext = FhirContext.forR4();
+		fhirContext.registerCustomType(InventoryItem.class);
+	}
+	
+	@Test
+	@DisplayName("Should write one compact resource per line")
+	void write_shouldWriteOneResourcePerLine() throws Exception {
+		// Setup
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (NdjsonWriter writer = new NdjsonWriter(fhirContext, out)) {
+			for (int i = 0; i < 3; i++) {
+				InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.ACTIVE);
+				item.setId(String.valueOf(i));
+				item.addIdentifier().setSystem("urn:test").setValue("item-" + i);
+				writer.write(item);
+			}
+			assertEquals(3, writer.getCount());
+		}
+		
+		// Verify
+		String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		assertEquals(3, lines.length);
+		for (String line : lines) {
+			assertTrue(line.startsWith("{\"resourceType\":\"InventoryItem\""));
+		}
+	}
+	
+	@Test
+	@DisplayName("Should round-trip through the reader")
+	void write_shouldRoundTripThroughReader() throws Exception {
+		// Setup
+		InventoryItem item = new InventoryItem(InventoryItem.InventoryItemStatusCodes.UNKNOWN);
+		item.addName(new InventoryItem.InventoryItemNameComponent(null, "Paracetamol 500mg"));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (NdjsonWriter writer = new NdjsonWriter(fhirContext, out)) {
+			writer.write(item).write(item);
+		}
+		
+		List<InventoryItem> items = NdjsonReader
+		        .forInventoryItems(fhirContext, new ByteArrayInputStream(out.toByteArray())).stream()
+		        .collect(Collectors.toList());
+		
+		// Verify
+		assertEquals(2, items.size());
+		assertEquals("Paracetamol 500mg", items.get(1).getNameFirstRep().getName());
+		assertEquals(InventoryItem.InventoryItemStatusCodes.UNKNOWN, items.get(1).getStatus());
+	}
+}